@@ -25,12 +25,14 @@ require_once( "src/smoothline.php" );
 require_once( "src/imgutils.php" );
 require_once( "src/CElementList.php" );
 
-define('E_WIDTH', 60);   // Element width
-define('E_PADD', 5);   // Element height padding
-define('V_SPACE', 10);
-define('H_SPACE', 10);
-define('B_SIDE', 5);
-define('B_TOPBOT', 5);
+// The layout constants are shared with CTreeGraph, which may already have defined them
+
+defined('E_WIDTH') or define('E_WIDTH', 60);   // Element width
+defined('E_PADD') or define('E_PADD', 5);   // Element height padding
+defined('V_SPACE') or define('V_SPACE', 10);
+defined('H_SPACE') or define('H_SPACE', 10);
+defined('B_SIDE') or define('B_SIDE', 5);
+defined('B_TOPBOT') or define('B_TOPBOT', 5);
 
 class CSVGGraph {
 
@@ -74,6 +76,16 @@ class CSVGGraph {
     print( $this->xml);
   }
 
+  // Save the SVG document to the given file
+  function Save($filename) {
+    $this->xml = "";
+    $this->svgHeader();
+    $this->parseList();
+    $this->svgFooter();
+
+    return file_put_contents($filename, $this->xml) !== FALSE;
+  }
+
   // ----------------------------------------------------------------------
   // PRIVATE FUNCTIONS
   // ----------------------------------------------------------------------
@@ -131,7 +143,7 @@ class CSVGGraph {
     $main = $string;
     $sub = "";
 
-    $parts = split("_", $string, 2);
+    $parts = explode("_", $string, 2);
     if (count($parts) > 1) {
       $main = $parts[0];
       $sub = str_replace("_", " ", $parts[1]);
@@ -290,7 +302,7 @@ class CSVGGraph {
             // leaf contains more than one word, we draw a 
             // triangle instead.
 
-            $words = split(' ', $e_arr[$j]->content);
+            $words = explode(' ', $e_arr[$j]->content);
 
             if ($this->triangles == TRUE && ETYPE_LEAF == $e_arr[$j]->type && $x == $parent_indent && count($words) > 1) {
               $txt_width = ImgGetTxtWidth($e_arr[$j]->content, $this->font, $this->font_size);
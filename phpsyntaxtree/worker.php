@@ -0,0 +1,110 @@
+<?php
+
+// worker.php - Generate syntax trees for jobs read from standard input
+// Copyright (c) 2003-2005 Andre Eisenbach <andre@ironcreek.net>
+// Modified from graph.php to run as a long-lived GraphWriter worker process.
+//
+// worker.php is part of phpSyntaxTree.
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// Each job is a header line "<outputfile byte length> <parse data byte length>"
+// followed by the output file name and the parse data, without separators.
+// Each job is answered with a single line, either "OK" or "ERROR <message>".
+// An output file name ending in .svg is drawn as an SVG document by CSVGGraph,
+// which rasterizes nothing, and any other as a PNG image by CTreeGraph.
+
+require_once( "src/CElementList.php" );
+require_once( "src/CStringParser.php" );
+require_once( "src/CTreeGraph.php" );
+require_once( "src/CSVGGraph.php" );
+
+$color = 1;
+$triangles = FALSE;
+$antialias = 1;   // smooth lines
+$font = 'Vera.ttf';
+$fontsize = 14;  // readable font, and readable subscript font
+$fontpath = dirname(realpath($_SERVER['SCRIPT_FILENAME'])) . '/ttf/';
+
+// Read exactly the given number of bytes, or return FALSE at end of input
+function readBytes($stream, $length) {
+  $bytes = '';
+  while (strlen($bytes) < $length) {
+    $chunk = fread($stream, $length - strlen($bytes));
+    if ($chunk === FALSE || ($chunk === '' && feof($stream))) {
+      return FALSE;
+    }
+    $bytes .= $chunk;
+  }
+  return $bytes;
+}
+
+while (($header = fgets(STDIN)) !== FALSE) {
+  $lengths = explode(' ', trim($header));
+  if (count($lengths) != 2) {
+    // The payload length is unknown, so the input cannot be resynchronized;
+    // exit so that the pool replaces this worker
+    fwrite(STDOUT, "ERROR ill formed job header\n");
+    fflush(STDOUT);
+    exit(1);
+  }
+  $outputfile = readBytes(STDIN, intval($lengths[0]));
+  $data = readBytes(STDIN, intval($lengths[1]));
+  if ($outputfile === FALSE || $data === FALSE) {
+    break;
+  }
+
+  // Validate the phrase and draw the tree, capturing any diagnostics
+
+  ob_start();
+  $isDrawn = FALSE;
+  $stringParser = new CStringParser( $data );
+  if ($stringParser->Validate()) {
+    $stringParser->Parse();
+    $elementList = $stringParser->GetElementList();
+    if (substr($outputfile, -4) == '.svg') {
+      $graph = new CSVGGraph(
+              $elementList,
+              $color,
+              $antialias,
+              $triangles,
+              $fontpath .
+              $font,
+              $fontsize);
+      $isDrawn = $graph->Save($outputfile);
+    } else {
+      $graph = new CTreegraph(
+              $elementList,
+              $color,
+              $antialias,
+              $triangles,
+              $fontpath .
+              $font,
+              $fontsize);
+      $graph->Save($outputfile);
+      imagedestroy($graph->im);
+      $isDrawn = TRUE;
+    }
+  }
+  $message = trim(str_replace(array("\r", "\n"), ' ', ob_get_clean()));
+
+  if ($isDrawn) {
+    fwrite(STDOUT, "OK\n");
+  } else {
+    fwrite(STDOUT, "ERROR Phrase could not be parsed correctly. " . $message . "\n");
+  }
+  fflush(STDOUT);
+}
+?>
@@ -11,7 +11,7 @@ rm -fr GraphWriter-1.0
 unzip -ouK ${HOME}/git-aicoin/GraphWriter/target/GraphWriter-1.0.zip
 
 cd ${HOME}/GraphWriter-1.0
-chmod a+x run-graph-writer.sh
+chmod a+x run-graph-writer.sh run-load-generator.sh
 
 cd ${HOME}/GraphWriter-1.0/log
 rm GraphWriter.log
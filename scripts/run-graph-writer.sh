@@ -8,9 +8,21 @@ pwd
 CLASSPATH=lib/GraphWriter-1.0.jar:$(<classpathFile);
 #echo CLASSPATH: ${CLASSPATH}
 
+# the AppCDS archive of the classes that the server loads, which the first run writes when it quits, and which the
+# later runs map to start faster. It matches only this JVM and class path, so reinstalling removes it.
+CDS_ARCHIVE=lib/GraphWriter.jsa
+if [ -f ${CDS_ARCHIVE} ]; then
+  CDS_OPTION=-XX:SharedArchiveFile=${CDS_ARCHIVE}
+else
+  CDS_OPTION=-XX:ArchiveClassesAtExit=${CDS_ARCHIVE}
+fi
+
 java -version
 java -ea  \
+ ${CDS_OPTION} \
+ -Xshare:auto \
  -Djava.net.preferIPv6Addresses=false \
  -Djava.net.preferIPv4Stack=true \
+ -Djava.awt.headless=true \
  -classpath ${CLASSPATH} \
  org.texai.graphwriter.GraphWriter &> log/GraphWriter.log
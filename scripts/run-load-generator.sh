@@ -0,0 +1,13 @@
+#!/bin/bash
+# ****************************************************************************
+# * drive the running graph writing server with a load, e.g.
+# *   ./run-load-generator.sh --mode=open --rate=200 --graphVizShare=0.3
+# ****************************************************************************
+
+CLASSPATH=lib/GraphWriter-1.0.jar:$(<classpathFile);
+
+java -ea  \
+ -Djava.net.preferIPv6Addresses=false \
+ -Djava.net.preferIPv4Stack=true \
+ -classpath ${CLASSPATH} \
+ org.texai.graphwriter.LoadGenerator "$@"
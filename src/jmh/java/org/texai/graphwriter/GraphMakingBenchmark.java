@@ -0,0 +1,75 @@
+/*
+ * GraphMakingBenchmark.java
+ *
+ * Created on Oct 18, 2026, 10:58:44 PM
+ *
+ * Description: Benchmarks the dispatch overhead of a graph-making thread, with a renderer that renders nothing.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the dispatch overhead of a graph-making thread, i.e. copying the request out of its ring buffer slot,
+ * the deadline check, the renderer lookup, the cancellation check and the completion acknowledgement. The request is
+ * a GraphViz request, which the {@link NoOpRenderer} acknowledges without rendering, so that the benchmark measures
+ * the dispatch rather than a renderer.
+ *
+ * @author reed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.texai.graphwriter.stubRenderer=true")
+public class GraphMakingBenchmark {
+
+  // the graph writer, which is constructed but not initialized, so that it does not listen, and whose renderers are
+  // no-op renderers
+  private GraphWriter graphWriter;
+
+  // the graph request as it would be found in its ring buffer slot
+  private GraphRequest graphRequest;
+
+  /**
+   * Makes the graph writer and the graph request.
+   */
+  @Setup
+  public void setUp() {
+    graphWriter = new GraphWriter();
+    graphRequest = new GraphRequest(
+            GraphRequestType.GRAPHVIZ,
+            "graphs/g1", // fileName
+            ""); // labeledTree
+    graphRequest.setRequestId(1);
+    graphRequest.setReceivedNanos(System.nanoTime());
+  }
+
+  /**
+   * Benchmarks making the graph of a GraphViz request with the no-op renderer, with a completion acknowledgement.
+   *
+   * @param blackhole the consumer of the completion acknowledgement
+   * @return the graph result
+   */
+  @Benchmark
+  public GraphResult makeGraph(final Blackhole blackhole) {
+    final GraphRequest copiedGraphRequest = new GraphRequest(graphRequest);
+    copiedGraphRequest.setResultConsumer(blackhole::consume);
+    return new GraphWriter.GraphMakingRunnable(graphWriter, copiedGraphRequest).makeGraph();
+  }
+}
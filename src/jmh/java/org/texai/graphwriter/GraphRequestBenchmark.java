@@ -0,0 +1,127 @@
+/*
+ * GraphRequestBenchmark.java
+ *
+ * Created on Oct 18, 2026, 10:42:19 PM
+ *
+ * Description: Benchmarks the parsing and serialization of graph requests, in the legacy NUL-delimited format and in
+ * the binary wire protocol, for labeled trees from 10 bytes to 10 megabytes.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the parsing and serialization of graph requests, in the legacy NUL-delimited format and in the binary
+ * wire protocol, for labeled trees from 10 bytes to 10 megabytes.
+ *
+ * @author reed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class GraphRequestBenchmark {
+
+  // the approximate labeled tree size in bytes
+  @Param({"10", "1000", "100000", "10000000"})
+  private int treeSize;
+
+  // the graph request
+  private GraphRequest graphRequest;
+
+  // the graph request in the legacy NUL-delimited format
+  private String serializedGraphRequest;
+
+  // the graph request as a binary frame
+  private byte[] frame;
+
+  /**
+   * Makes the graph request of the configured size, in both formats.
+   */
+  @Setup
+  public void setUp() {
+    graphRequest = new GraphRequest("graphs/benchmark", makeLabeledTree(treeSize));
+    serializedGraphRequest = graphRequest.serialize();
+    frame = GraphRequestCodec.encode(graphRequest);
+  }
+
+  /**
+   * Makes a labeled tree of at least the given size, whose branching is that of a typical parse.
+   *
+   * @param size the given size in bytes
+   * @return the labeled tree
+   */
+  static String makeLabeledTree(final int size) {
+    //Preconditions
+    assert size > 0 : "size must be positive";
+
+    final StringBuilder stringBuilder = new StringBuilder(size + 16);
+    stringBuilder.append("[S");
+    while (stringBuilder.length() + 1 < size) {
+      stringBuilder.append(" [NP [D the] [N word]]");
+    }
+    stringBuilder.append(']');
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Benchmarks parsing a graph request from the legacy NUL-delimited format.
+   *
+   * @return the graph request
+   */
+  @Benchmark
+  public GraphRequest makeGraphRequest() {
+    return GraphRequest.makeGraphRequest(new BufferedReader(new StringReader(serializedGraphRequest)));
+  }
+
+  /**
+   * Benchmarks serializing a graph request in the legacy NUL-delimited format.
+   *
+   * @return the serialized graph request
+   */
+  @Benchmark
+  public String serialize() {
+    return graphRequest.serialize();
+  }
+
+  /**
+   * Benchmarks encoding a graph request as a binary frame.
+   *
+   * @return the binary frame
+   */
+  @Benchmark
+  public byte[] encode() {
+    return GraphRequestCodec.encode(graphRequest);
+  }
+
+  /**
+   * Benchmarks decoding a graph request from a binary frame.
+   *
+   * @return the graph request
+   * @throws ProtocolException when the frame is ill formed
+   */
+  @Benchmark
+  public GraphRequest decode() throws ProtocolException {
+    return GraphRequestCodec.decode(ByteBuffer.wrap(frame));
+  }
+}
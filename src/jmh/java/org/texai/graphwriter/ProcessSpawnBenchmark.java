@@ -0,0 +1,114 @@
+/*
+ * ProcessSpawnBenchmark.java
+ *
+ * Created on Oct 18, 2026, 11:06:27 PM
+ *
+ * Description: Benchmarks the cost of launching a renderer process through the process launcher, per renderer.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the cost of launching a renderer process through the process launcher, per renderer. Each launch does
+ * the least work its renderer allows, i.e. dot lays out a one-edge graph and php runs an empty script, so that the
+ * measured time is dominated by the process spawn and exit, and "true" gives the baseline of spawning any process. The
+ * in-JVM syntax tree renderer spawns no process. A renderer that is not installed fails its trial, so a run may select
+ * the installed ones, e.g. with -p renderer=true,dot.
+ *
+ * @author reed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessSpawnBenchmark {
+
+  // the renderer whose process is launched
+  @Param({"true", "dot", "php"})
+  private String renderer;
+
+  // the process launcher
+  private ProcessLauncher processLauncher;
+
+  // the working directory
+  private Path directory;
+
+  // the command which launches the renderer
+  private List<String> command;
+
+  /**
+   * Makes the process launcher and the renderer command.
+   *
+   * @throws IOException when the working directory cannot be written
+   */
+  @Setup
+  public void setUp() throws IOException {
+    processLauncher = new ProcessLauncher();
+    directory = Files.createTempDirectory("spawn-benchmark");
+    switch (renderer) {
+      case "true" ->
+        command = List.of("true");
+      case "dot" -> {
+        final Path dotPath = directory.resolve("benchmark.dot");
+        Files.write(dotPath, "digraph { a -> b }".getBytes(StandardCharsets.UTF_8));
+        command = List.of("dot", "-Tpng", dotPath.toString());
+      }
+      case "php" ->
+        command = List.of("php", "-r", "");
+      default ->
+        throw new IllegalArgumentException("unknown renderer " + renderer);
+    }
+  }
+
+  /**
+   * Shuts down the process launcher and deletes the working directory.
+   *
+   * @throws IOException when the working directory cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    processLauncher.shutdown();
+    Files.deleteIfExists(directory.resolve("benchmark.dot"));
+    Files.deleteIfExists(directory);
+  }
+
+  /**
+   * Benchmarks launching the renderer process and waiting for it to exit, capturing its output as an inline render
+   * does.
+   *
+   * @return the launch outcome
+   * @throws IOException when the process cannot be started
+   * @throws InterruptedException when interrupted while waiting for the process
+   */
+  @Benchmark
+  public ProcessLauncher.Outcome launch() throws IOException, InterruptedException {
+    final ProcessLauncher.Outcome outcome = processLauncher.runCapturingOutput(command, directory, 10_000);
+    if (outcome.getExitCode() != 0) {
+      throw new IllegalStateException(command + " failed, " + outcome);
+    }
+    return outcome;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * RingBufferBenchmark.java
+ *
+ * Created on Oct 18, 2026, 10:51:06 PM
+ *
+ * Description: Benchmarks publishing graph requests into the disruptor ring buffer through the event translator, and
+ * consuming them on the event handler thread.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks publishing graph requests into the disruptor ring buffer through the event translator, and consuming them
+ * on the event handler thread. The disruptor is configured as the graph writer configures it, but its handler only
+ * records the consumed sequence, so that the benchmark measures the ring buffer rather than the render scheduler.
+ *
+ * @author reed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RingBufferBenchmark {
+
+  // the disruptor
+  private Disruptor<GraphRequest> disruptor;
+
+  // the ring buffer
+  private RingBuffer<GraphRequest> ringBuffer;
+
+  // the published graph request
+  private GraphRequest graphRequest;
+
+  // the sequence of the most recently consumed graph request
+  private volatile long consumedSequence = -1;
+
+  /**
+   * Starts the disruptor.
+   */
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    disruptor = new Disruptor<>(
+            new GraphWriter.GraphRequestFactory(), // eventFactory
+            4096, // ringBufferSize
+            DaemonThreadFactory.INSTANCE); // threadFactory
+    final EventHandler<GraphRequest> eventHandler = (event, sequence, endOfBatch) -> consumedSequence = sequence;
+    disruptor.handleEventsWith(eventHandler);
+    disruptor.start();
+    ringBuffer = disruptor.getRingBuffer();
+    graphRequest = new GraphRequest("graphs/benchmark", GraphRequestBenchmark.makeLabeledTree(100));
+    graphRequest.setRequestId(1);
+    graphRequest.setReceivedNanos(System.nanoTime());
+  }
+
+  /**
+   * Stops the disruptor.
+   */
+  @TearDown
+  public void tearDown() {
+    disruptor.halt();
+  }
+
+  /**
+   * Benchmarks publishing a graph request, which measures the throughput of the ring buffer once it fills and the
+   * publisher waits for the handler.
+   */
+  @Benchmark
+  public void publish() {
+    ringBuffer.publishEvent(GraphWriter.GRAPH_REQUEST_EVENT_TRANSLATOR, graphRequest);
+  }
+
+  /**
+   * Benchmarks publishing a graph request and waiting until the handler consumes it, which measures the latency of
+   * the hand-off between the request server thread and the event handler thread.
+   */
+  @Benchmark
+  public void publishAndConsume() {
+    ringBuffer.publishEvent(GraphWriter.GRAPH_REQUEST_EVENT_TRANSLATOR, graphRequest);
+    final long publishedSequence = ringBuffer.getCursor();
+    while (consumedSequence < publishedSequence) {
+      Thread.onSpinWait();
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * AdaptiveConcurrencyLimit.java
+ *
+ * Created on Oct 18, 2026, 6:07:19 PM
+ *
+ * Description: Adapts the number of concurrent renders between a floor and a ceiling, increasing it additively while
+ * render latency holds and the renders are saturated, and decreasing it multiplicatively when latency degrades.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the number of concurrent renders with an additive increase, multiplicative decrease (AIMD) policy that is
+ * evaluated once per window of completed renders.
+ *
+ * Each render latency is divided by the baseline latency of its request type, because an in-process syntax tree and a
+ * GraphViz process differ by an order of magnitude. The baseline follows the lowest latencies seen, and drifts slowly
+ * upward so that it tracks a lasting change in the renderers. At the end of each window:
+ * <ul>
+ * <li>when the mean latency ratio exceeds the tolerance, the renders are contending for the machine, and the limit is
+ * multiplied by the backoff factor</li>
+ * <li>when the previous window increased the limit but the throughput fell, the increase is undone</li>
+ * <li>otherwise when the renders were saturated, i.e. requests waited for a render slot, the limit is increased by
+ * one</li>
+ * </ul>
+ * The limit always stays between the configured floor and ceiling. This class is not thread-safe; the render scheduler
+ * calls it while holding its lock.
+ *
+ * @author reed
+ */
+public class AdaptiveConcurrencyLimit {
+
+  // the ratio of the window mean latency to the baseline latency above which the limit is decreased
+  static final double LATENCY_TOLERANCE = 2.0;
+
+  // the factor by which the limit is multiplied when latency degrades
+  static final double BACKOFF_FACTOR = 0.75;
+
+  // the weight of a higher latency when the baseline drifts upward
+  static final double BASELINE_DRIFT = 0.05;
+
+  // the minimum number of completed renders in a window
+  static final int MIN_WINDOW_SAMPLES = 8;
+
+  // the floor of the limit
+  private final int minLimit;
+
+  // the ceiling of the limit
+  private final int maxLimit;
+
+  // the minimum window duration in nanoseconds
+  private final long windowNanos;
+
+  // the current limit
+  private int limit;
+
+  // the baseline render latencies in microseconds, indexed by request type
+  private final Map<GraphRequestType, Double> baselineMicros = new EnumMap<>(GraphRequestType.class);
+
+  // the System.nanoTime() at which the current window began
+  private long windowStartNanos;
+
+  // the number of completed renders in the current window
+  private int windowSampleCount = 0;
+
+  // the sum of the latency ratios in the current window
+  private double windowLatencyRatioSum = 0.0;
+
+  // the indicator that requests waited for a render slot during the current window
+  private boolean isWindowSaturated = false;
+
+  // the throughput of the previous window in renders per second
+  private double previousThroughput = 0.0;
+
+  // the indicator that the previous window increased the limit
+  private boolean wasIncreased = false;
+
+  // the number of limit changes
+  private long changeCount = 0;
+
+  /**
+   * Constructs a new AdaptiveConcurrencyLimit instance.
+   *
+   * @param initialLimit the initial limit
+   * @param minLimit the floor of the limit
+   * @param maxLimit the ceiling of the limit
+   * @param windowMillis the minimum window duration in milliseconds
+   * @param nowNanos the current System.nanoTime()
+   */
+  public AdaptiveConcurrencyLimit(
+          final int initialLimit,
+          final int minLimit,
+          final int maxLimit,
+          final long windowMillis,
+          final long nowNanos) {
+    //Preconditions
+    assert minLimit > 0 : "minLimit must be positive";
+    assert maxLimit >= minLimit : "maxLimit must be at least minLimit";
+    assert windowMillis > 0 : "windowMillis must be positive";
+
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    windowStartNanos = nowNanos;
+  }
+
+  /**
+   * Records a completed render, and adapts the limit at the end of a window.
+   *
+   * @param requestType the request type
+   * @param latencyMicros the render latency in microseconds
+   * @param isSaturated whether requests were waiting for a render slot when the render completed
+   * @param nowNanos the current System.nanoTime()
+   * @return whether the limit changed
+   */
+  public boolean onSample(
+          final GraphRequestType requestType,
+          final long latencyMicros,
+          final boolean isSaturated,
+          final long nowNanos) {
+    //Preconditions
+    assert requestType != null : "requestType must not be null";
+    assert latencyMicros >= 0 : "latencyMicros must not be negative";
+
+    final double sampleMicros = Math.max(1.0, latencyMicros);
+    final Double baseline = baselineMicros.get(requestType);
+    final double updatedBaseline;
+    if (baseline == null || sampleMicros < baseline) {
+      updatedBaseline = sampleMicros;
+    } else {
+      updatedBaseline = baseline + (sampleMicros - baseline) * BASELINE_DRIFT;
+    }
+    baselineMicros.put(requestType, updatedBaseline);
+    windowLatencyRatioSum += sampleMicros / updatedBaseline;
+    windowSampleCount++;
+    isWindowSaturated |= isSaturated;
+
+    final long elapsedNanos = nowNanos - windowStartNanos;
+    if (minLimit == maxLimit || windowSampleCount < MIN_WINDOW_SAMPLES || elapsedNanos < windowNanos) {
+      return false;
+    }
+    final double meanLatencyRatio = windowLatencyRatioSum / windowSampleCount;
+    final double throughput = windowSampleCount * 1_000_000_000.0 / elapsedNanos;
+    final int previousLimit = limit;
+    if (meanLatencyRatio > LATENCY_TOLERANCE) {
+      limit = Math.max(minLimit, (int) (limit * BACKOFF_FACTOR));
+      wasIncreased = false;
+    } else if (wasIncreased && throughput < previousThroughput) {
+      limit = Math.max(minLimit, limit - 1);
+      wasIncreased = false;
+    } else if (isWindowSaturated && limit < maxLimit) {
+      limit++;
+      wasIncreased = true;
+    } else {
+      wasIncreased = false;
+    }
+    previousThroughput = throughput;
+    windowStartNanos = nowNanos;
+    windowSampleCount = 0;
+    windowLatencyRatioSum = 0.0;
+    isWindowSaturated = false;
+    if (limit != previousLimit) {
+      changeCount++;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Gets the current limit.
+   *
+   * @return the current limit
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Gets the floor of the limit.
+   *
+   * @return the floor of the limit
+   */
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  /**
+   * Gets the ceiling of the limit.
+   *
+   * @return the ceiling of the limit
+   */
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  /**
+   * Gets the throughput of the previous window.
+   *
+   * @return the throughput of the previous window in renders per second
+   */
+  public double getThroughput() {
+    return previousThroughput;
+  }
+
+  /**
+   * Gets the baseline render latency of the given request type.
+   *
+   * @param requestType the given request type
+   * @return the baseline render latency in microseconds, or zero if none of the given type has completed
+   */
+  public long getBaselineMicros(final GraphRequestType requestType) {
+    //Preconditions
+    assert requestType != null : "requestType must not be null";
+
+    return (long) (double) baselineMicros.getOrDefault(requestType, 0.0);
+  }
+
+  /**
+   * Gets the number of limit changes.
+   *
+   * @return the number of limit changes
+   */
+  public long getChangeCount() {
+    return changeCount;
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[AdaptiveConcurrencyLimit " + limit + " in [" + minLimit + ", " + maxLimit + "], changes: " + changeCount
+            + ", throughput: " + String.format("%.1f", previousThroughput) + "/s]";
+  }
+}
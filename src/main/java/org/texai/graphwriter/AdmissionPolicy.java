@@ -0,0 +1,35 @@
+/*
+ * AdmissionPolicy.java
+ *
+ * Created on Oct 18, 2026, 3:52:16 PM
+ *
+ * Description: Enumerates the policies applied to a graph request that arrives when the render scheduler is full.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+/**
+ * Enumerates the policies applied to a graph request that arrives when the render scheduler already holds its bound
+ * of work in flight. A shed request is acknowledged with the {@link GraphResultStatus#REJECTED} status, so that the
+ * client can back off.
+ *
+ * @author reed
+ */
+public enum AdmissionPolicy {
+
+  /**
+   * reject the arriving request
+   */
+  REJECT,
+  /**
+   * drop the oldest pending request of the same type to make room for the arriving request, or reject the arriving
+   * request when none of that type is pending
+   */
+  DROP_OLDEST,
+  /**
+   * wait up to the admission timeout for room, then reject the arriving request
+   */
+  BLOCK
+}
@@ -0,0 +1,232 @@
+/*
+ * DotFileCleaner.java
+ *
+ * Created on Oct 19, 2026, 6:41:52 AM
+ *
+ * Description: Deletes the rendered GraphViz files in batches on its own thread, off the render path.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * Deletes the GraphViz files whose diagrams are rendered or cached, in batches on its own thread, so that a
+ * graph-making thread does not wait for the file system to free a GraphViz file before it acknowledges the request.
+ *
+ * A discarded GraphViz file X.dot is at once renamed to a hidden tombstone, e.g. .X.dot.17.discarded, in the same
+ * directory, and only the tombstone is deleted later. A client may write the next X.dot as soon as the request is
+ * acknowledged, and the rename makes sure that a late delete never removes that new file. The tombstones collected
+ * over a given number of milliseconds are deleted together, and the tombstones still pending when the cleaner is
+ * closed are deleted by the closing thread. Before the cleaner starts, and after it is closed, a discarded file is
+ * deleted at once.
+ *
+ * @author reed
+ */
+public final class DotFileCleaner implements Runnable {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(DotFileCleaner.class);
+
+  // the suffix of the tombstone names
+  static final String TOMBSTONE_SUFFIX = ".discarded";
+
+  // the maximum number of tombstones deleted in one batch
+  private static final int MAX_BATCH_SIZE = 1024;
+
+  // the number of milliseconds over which the tombstones of a batch are collected
+  private final long batchMillis;
+
+  // the tombstones waiting to be deleted
+  private final BlockingQueue<Path> tombstonePaths = new LinkedBlockingQueue<>();
+
+  // the sequence number that makes each tombstone name unique
+  private final AtomicLong tombstoneSequence = new AtomicLong();
+
+  // the number of discarded GraphViz files
+  private final AtomicLong discardedCount = new AtomicLong();
+
+  // the number of batches deleted
+  private final AtomicLong batchCount = new AtomicLong();
+
+  // the cleaner thread, or null before the cleaner starts
+  private volatile Thread cleanerThread;
+
+  // whether the cleaner is closed
+  private volatile boolean isClosed = false;
+
+  /**
+   * Constructs a new DotFileCleaner instance.
+   *
+   * @param batchMillis the number of milliseconds over which the tombstones of a batch are collected
+   */
+  public DotFileCleaner(final long batchMillis) {
+    //Preconditions
+    assert batchMillis >= 0 : "batchMillis must not be negative";
+
+    this.batchMillis = batchMillis;
+  }
+
+  /**
+   * Starts the cleaner thread.
+   */
+  public synchronized void start() {
+    //Preconditions
+    assert cleanerThread == null : "the cleaner must not already be started";
+
+    cleanerThread = new Thread(this, "dot-file-cleaner");
+    cleanerThread.setDaemon(true);
+    cleanerThread.start();
+  }
+
+  /**
+   * Discards the given GraphViz file, which is renamed to a tombstone to be deleted by the cleaner thread, or deleted
+   * at once when the cleaner is not running. A file that does not exist is ignored, e.g. one already discarded by
+   * the render of an earlier batch attempt.
+   *
+   * @param dotPath the given GraphViz file path
+   */
+  public void discard(final Path dotPath) {
+    //Preconditions
+    assert dotPath != null : "dotPath must not be null";
+
+    try {
+      if (cleanerThread == null || isClosed) {
+        if (Files.deleteIfExists(dotPath)) {
+          discardedCount.incrementAndGet();
+        }
+        return;
+      }
+      final Path tombstonePath = dotPath.resolveSibling(
+              "." + dotPath.getFileName() + "." + tombstoneSequence.incrementAndGet() + TOMBSTONE_SUFFIX);
+      Files.move(dotPath, tombstonePath, StandardCopyOption.ATOMIC_MOVE);
+      tombstonePaths.add(tombstonePath);
+      discardedCount.incrementAndGet();
+      if (isClosed && tombstonePaths.remove(tombstonePath)) {
+        // the cleaner was closed meanwhile
+        Files.deleteIfExists(tombstonePath);
+      }
+    } catch (NoSuchFileException ex) {
+      // already discarded
+    } catch (IOException ex) {
+      LOGGER.warn("cannot delete the GraphViz file " + dotPath + ": " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Deletes the tombstones in batches until the cleaner is closed.
+   */
+  @Override
+  public void run() {
+    final List<Path> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    while (!isClosed) {
+      try {
+        batch.add(tombstonePaths.take());
+        // let the batch fill
+        Thread.sleep(batchMillis);
+      } catch (InterruptedException ex) {
+        // closed
+      }
+      tombstonePaths.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+      deleteBatch(batch);
+    }
+  }
+
+  /**
+   * Deletes the given batch of tombstones, and clears it.
+   *
+   * @param batch the given batch of tombstones
+   */
+  private void deleteBatch(final List<Path> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    for (final Path tombstonePath : batch) {
+      try {
+        Files.deleteIfExists(tombstonePath);
+      } catch (IOException ex) {
+        LOGGER.warn("cannot delete the GraphViz file " + tombstonePath + ": " + ex.getMessage());
+      }
+    }
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("  deleted " + batch.size() + " GraphViz files");
+    }
+    batch.clear();
+    batchCount.incrementAndGet();
+  }
+
+  /**
+   * Closes the cleaner, deleting the pending tombstones before returning.
+   */
+  public void close() {
+    final Thread thread;
+    synchronized (this) {
+      if (isClosed) {
+        return;
+      }
+      isClosed = true;
+      thread = cleanerThread;
+    }
+    if (thread != null) {
+      thread.interrupt();
+      try {
+        thread.join(1_000);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    final List<Path> batch = new ArrayList<>(tombstonePaths.size());
+    tombstonePaths.drainTo(batch);
+    deleteBatch(batch);
+  }
+
+  /**
+   * Gets the number of tombstones waiting to be deleted.
+   *
+   * @return the number of pending tombstones
+   */
+  public int getPendingCount() {
+    return tombstonePaths.size();
+  }
+
+  /**
+   * Gets the number of discarded GraphViz files.
+   *
+   * @return the number of discarded GraphViz files
+   */
+  public long getDiscardedCount() {
+    return discardedCount.get();
+  }
+
+  /**
+   * Gets the number of batches of tombstones deleted.
+   *
+   * @return the number of batches deleted
+   */
+  public long getBatchCount() {
+    return batchCount.get();
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[DotFileCleaner discarded: " + discardedCount.get() + ", batches: " + batchCount.get()
+            + ", pending: " + tombstonePaths.size() + ']';
+  }
+}
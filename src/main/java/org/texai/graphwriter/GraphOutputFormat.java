@@ -0,0 +1,133 @@
+/*
+ * GraphOutputFormat.java
+ *
+ * Created on Oct 18, 2026, 8:12:37 PM
+ *
+ * Description: Enumerates the output formats of a graph request, i.e. a PNG raster image, an SVG vector image, or both.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.List;
+
+/**
+ * Enumerates the output formats of a graph request. A PNG image is rasterized by the renderer, whereas an SVG image is
+ * text whose drawing is left to the viewer, so that it is smaller and faster to produce. Each format is written to the
+ * requested file name with the format extension, e.g. graphs/tree1.svg.
+ *
+ * @author reed
+ */
+public enum GraphOutputFormat {
+
+  /**
+   * a PNG raster image, which is the default and the only format of the legacy NUL-delimited requests
+   */
+  PNG((byte) 1, List.of("png")),
+  /**
+   * an SVG vector image
+   */
+  SVG((byte) 2, List.of("svg")),
+  /**
+   * both a PNG raster image and an SVG vector image
+   */
+  PNG_AND_SVG((byte) 3, List.of("png", "svg"));
+
+  // the wire code
+  private final byte code;
+
+  // the file extensions without the leading period, which are also the GraphViz output format names
+  private final List<String> extensions;
+
+  /**
+   * Constructs a new GraphOutputFormat instance.
+   *
+   * @param code the wire code
+   * @param extensions the file extensions without the leading period
+   */
+  GraphOutputFormat(
+          final byte code,
+          final List<String> extensions) {
+    this.code = code;
+    this.extensions = extensions;
+  }
+
+  /**
+   * Gets the wire code.
+   *
+   * @return the wire code
+   */
+  public byte getCode() {
+    return code;
+  }
+
+  /**
+   * Gets the file extensions, which are also the GraphViz output format names.
+   *
+   * @return the file extensions without the leading period, the PNG extension first
+   */
+  public List<String> getExtensions() {
+    return extensions;
+  }
+
+  /**
+   * Returns whether a PNG image is wanted.
+   *
+   * @return whether a PNG image is wanted
+   */
+  public boolean isPNG() {
+    return this != SVG;
+  }
+
+  /**
+   * Returns whether an SVG image is wanted.
+   *
+   * @return whether an SVG image is wanted
+   */
+  public boolean isSVG() {
+    return this != PNG;
+  }
+
+  /**
+   * Gets the output format that has the images of both this and the given output format, which a request takes when
+   * it supersedes an older request for the same file.
+   *
+   * @param outputFormat the given output format
+   * @return the union of the output formats
+   */
+  public GraphOutputFormat union(final GraphOutputFormat outputFormat) {
+    //Preconditions
+    assert outputFormat != null : "outputFormat must not be null";
+
+    return this == outputFormat ? this : PNG_AND_SVG;
+  }
+
+  /**
+   * Gets the output format having the given wire code.
+   *
+   * @param code the given wire code
+   * @return the output format, or null if the code is unknown
+   */
+  public static GraphOutputFormat fromCode(final byte code) {
+    for (final GraphOutputFormat outputFormat : values()) {
+      if (outputFormat.code == code) {
+        return outputFormat;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets the single image output format having the given file extension.
+   *
+   * @param extension the given file extension without the leading period, i.e. png or svg
+   * @return the output format, either PNG or SVG
+   */
+  public static GraphOutputFormat fromExtension(final String extension) {
+    //Preconditions
+    assert "png".equals(extension) || "svg".equals(extension) : "extension must be png or svg";
+
+    return "svg".equals(extension) ? SVG : PNG;
+  }
+}
@@ -12,6 +12,7 @@ package org.texai.graphwriter;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.function.Consumer;
 import org.texai.util.StringUtils;
 
 /**
@@ -24,14 +25,60 @@ public class GraphRequest {
   // the serial version UID
   private static final long serialVersionUID = 1L;
 
+  // the GraphViz request indicator which fills the labeledTree field in the legacy NUL-delimited format
+  public static final String GRAPHVIZ_SENTINEL = "*GraphViz*";
+
+  // the priority of an interactive request, which is served ahead of the bulk requests
+  public static final int INTERACTIVE_PRIORITY = 0;
+
+  // the most urgent priority of a bulk request, such as one of a corpus dump
+  public static final int BULK_PRIORITY = 1;
+
+  // the request type
+  private GraphRequestType requestType;
+
   // the graph file name without an extension
   private String fileName;
 
   // the labeled tree that specifies the PHP syntax graph
   private String labeledTree;
 
+  // the output format
+  private GraphOutputFormat outputFormat = GraphOutputFormat.PNG;
+
+  // the indicator that the rendered images are returned in the completion acknowledgement instead of in output files
+  private boolean isInline = false;
+
+  // the priority, where zero is the most urgent
+  private int priority = 0;
+
+  // the deadline in milliseconds since the epoch after which the graph is no longer wanted, or zero if none
+  private long deadlineMillis = 0;
+
+  // the request id assigned by the client, or zero if no completion acknowledgement is wanted
+  private long requestId = 0;
+
+  // the System.nanoTime() at which the server received this request
+  private long receivedNanos = 0;
+
+  // the consumer of the completion acknowledgement, which is set by the server and is not sent on the wire
+  private Consumer<GraphResult> resultConsumer;
+
+  // the status set by the server when it cancels this request while it is running, otherwise null
+  private volatile GraphResultStatus cancelStatus;
+
+  // the sequence number of this request in the server's write-ahead journal, or zero if it is not journaled
+  private long journalSequence = 0;
+
+  // the number of nodes of the labeled tree, measured by the server when it validates a syntax tree request
+  private int treeNodeCount = 0;
+
+  // the depth of the labeled tree, measured by the server when it validates a syntax tree request
+  private int treeDepth = 0;
+
   /**
-   * Constructs a new GraphRequest instance.
+   * Constructs a new GraphRequest instance, inferring the request type from the legacy conventions, i.e. the
+   * "*GraphViz*" labeled tree sentinel and the "ignore", "quit", "stats" and "ping" file names.
    *
    * @param fileName the graph file name
    * @param labeledTree the labeled tree that specifies the graph
@@ -43,10 +90,82 @@ public class GraphRequest {
     assert labeledTree != null : "labeledTree must not be null";
     assert !labeledTree.isEmpty() : "labeledTree must not be empty";
 
+    this.requestType = inferRequestType(fileName, labeledTree);
+    this.fileName = fileName;
+    this.labeledTree = labeledTree;
+  }
+
+  /**
+   * Constructs a new GraphRequest instance.
+   *
+   * @param requestType the request type
+   * @param fileName the graph file name
+   * @param labeledTree the labeled tree that specifies the graph, which is empty unless this is a syntax tree request
+   */
+  public GraphRequest(
+          final GraphRequestType requestType,
+          final String fileName,
+          final String labeledTree) {
+    //Preconditions
+    assert requestType != null : "requestType must not be null";
+    assert labeledTree != null : "labeledTree must not be null";
+    assert requestType != GraphRequestType.SYNTAX_TREE || !labeledTree.isEmpty() : "labeledTree must not be empty";
+
+    this.requestType = requestType;
     this.fileName = fileName;
     this.labeledTree = labeledTree;
   }
 
+  /**
+   * Constructs a new GraphRequest instance that is a copy of the given graph request.
+   *
+   * @param graphRequest the given graph request
+   */
+  public GraphRequest(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    requestType = graphRequest.requestType;
+    fileName = graphRequest.fileName;
+    labeledTree = graphRequest.labeledTree;
+    outputFormat = graphRequest.outputFormat;
+    isInline = graphRequest.isInline;
+    priority = graphRequest.priority;
+    deadlineMillis = graphRequest.deadlineMillis;
+    requestId = graphRequest.requestId;
+    receivedNanos = graphRequest.receivedNanos;
+    resultConsumer = graphRequest.resultConsumer;
+    cancelStatus = graphRequest.cancelStatus;
+    journalSequence = graphRequest.journalSequence;
+    treeNodeCount = graphRequest.treeNodeCount;
+    treeDepth = graphRequest.treeDepth;
+  }
+
+  /**
+   * Infers the request type from the legacy conventions.
+   *
+   * @param fileName the graph file name
+   * @param labeledTree the labeled tree
+   * @return the request type
+   */
+  static GraphRequestType inferRequestType(
+          final String fileName,
+          final String labeledTree) {
+    if ("quit".equals(fileName)) {
+      return GraphRequestType.QUIT;
+    } else if ("ignore".equals(fileName)) {
+      return GraphRequestType.IGNORE;
+    } else if ("stats".equals(fileName)) {
+      return GraphRequestType.STATS;
+    } else if ("ping".equals(fileName)) {
+      return GraphRequestType.PING;
+    } else if (GRAPHVIZ_SENTINEL.equals(labeledTree)) {
+      return GraphRequestType.GRAPHVIZ;
+    } else {
+      return GraphRequestType.SYNTAX_TREE;
+    }
+  }
+
   /**
    * Makes a GraphRequest instance from the contents of the given buffered reader, as received from the client.
    *
@@ -105,7 +224,8 @@ public class GraphRequest {
   }
 
   /**
-   * Serializes this graph request, for sending to the graph server.
+   * Serializes this graph request in the legacy NUL-delimited format, for
+   * sending to a graph server that predates the binary wire protocol.
    *
    * @return the serialized request
    */
@@ -113,11 +233,256 @@ public class GraphRequest {
     final StringBuilder stringBuilder = new StringBuilder();
     stringBuilder.append(fileName);
     stringBuilder.append((char) 0);
-    stringBuilder.append(labeledTree);
+    if (requestType == GraphRequestType.GRAPHVIZ) {
+      stringBuilder.append(GRAPHVIZ_SENTINEL);
+    } else {
+      stringBuilder.append(labeledTree);
+    }
     stringBuilder.append((char) 0);
     return stringBuilder.toString();
   }
 
+  /**
+   * Gets the request type.
+   *
+   * @return the request type
+   */
+  public GraphRequestType getRequestType() {
+    return requestType;
+  }
+
+  /**
+   * Sets the request type.
+   *
+   * @param requestType the request type
+   */
+  public void setRequestType(final GraphRequestType requestType) {
+    //Preconditions
+    assert requestType != null : "requestType must not be null";
+
+    this.requestType = requestType;
+  }
+
+  /**
+   * Gets the output format.
+   *
+   * @return the output format
+   */
+  public GraphOutputFormat getOutputFormat() {
+    return outputFormat;
+  }
+
+  /**
+   * Sets the output format.
+   *
+   * @param outputFormat the output format
+   */
+  public void setOutputFormat(final GraphOutputFormat outputFormat) {
+    //Preconditions
+    assert outputFormat != null : "outputFormat must not be null";
+
+    this.outputFormat = outputFormat;
+  }
+
+  /**
+   * Returns whether the rendered images are returned in the completion acknowledgement instead of in output files,
+   * which requires a request id.
+   *
+   * @return whether the rendered images are returned inline
+   */
+  public boolean isInline() {
+    return isInline;
+  }
+
+  /**
+   * Sets whether the rendered images are returned in the completion acknowledgement instead of in output files.
+   *
+   * @param isInline whether the rendered images are returned inline
+   */
+  public void setInline(final boolean isInline) {
+    this.isInline = isInline;
+  }
+
+  /**
+   * Gets the priority, where zero is the most urgent.
+   *
+   * @return the priority
+   */
+  public int getPriority() {
+    return priority;
+  }
+
+  /**
+   * Sets the priority, where zero is the most urgent.
+   *
+   * @param priority the priority
+   */
+  public void setPriority(final int priority) {
+    //Preconditions
+    assert priority >= 0 : "priority must not be negative";
+
+    this.priority = priority;
+  }
+
+  /**
+   * Returns whether this is a bulk request, which yields to the interactive requests.
+   *
+   * @return whether this is a bulk request
+   */
+  public boolean isBulk() {
+    return priority >= BULK_PRIORITY;
+  }
+
+  /**
+   * Gets the deadline after which the graph is no longer wanted.
+   *
+   * @return the deadline in milliseconds since the epoch, or zero if none
+   */
+  public long getDeadlineMillis() {
+    return deadlineMillis;
+  }
+
+  /**
+   * Sets the deadline after which the graph is no longer wanted.
+   *
+   * @param deadlineMillis the deadline in milliseconds since the epoch, or zero if none
+   */
+  public void setDeadlineMillis(final long deadlineMillis) {
+    //Preconditions
+    assert deadlineMillis >= 0 : "deadlineMillis must not be negative";
+
+    this.deadlineMillis = deadlineMillis;
+  }
+
+  /**
+   * Gets the request id assigned by the client.
+   *
+   * @return the request id, or zero if no completion acknowledgement is wanted
+   */
+  public long getRequestId() {
+    return requestId;
+  }
+
+  /**
+   * Sets the request id assigned by the client.
+   *
+   * @param requestId the request id, or zero if no completion acknowledgement is wanted
+   */
+  public void setRequestId(final long requestId) {
+    this.requestId = requestId;
+  }
+
+  /**
+   * Gets the System.nanoTime() at which the server received this request.
+   *
+   * @return the receipt time in nanoseconds
+   */
+  public long getReceivedNanos() {
+    return receivedNanos;
+  }
+
+  /**
+   * Sets the System.nanoTime() at which the server received this request.
+   *
+   * @param receivedNanos the receipt time in nanoseconds
+   */
+  public void setReceivedNanos(final long receivedNanos) {
+    this.receivedNanos = receivedNanos;
+  }
+
+  /**
+   * Gets the consumer of the completion acknowledgement.
+   *
+   * @return the consumer of the completion acknowledgement, or null if no acknowledgement is wanted
+   */
+  public Consumer<GraphResult> getResultConsumer() {
+    return resultConsumer;
+  }
+
+  /**
+   * Sets the consumer of the completion acknowledgement.
+   *
+   * @param resultConsumer the consumer of the completion acknowledgement, or null if no acknowledgement is wanted
+   */
+  public void setResultConsumer(final Consumer<GraphResult> resultConsumer) {
+    this.resultConsumer = resultConsumer;
+  }
+
+  /**
+   * Gets the sequence number of this request in the server's write-ahead journal.
+   *
+   * @return the journal sequence number, or zero if this request is not journaled
+   */
+  public long getJournalSequence() {
+    return journalSequence;
+  }
+
+  /**
+   * Sets the sequence number of this request in the server's write-ahead journal.
+   *
+   * @param journalSequence the journal sequence number
+   */
+  public void setJournalSequence(final long journalSequence) {
+    this.journalSequence = journalSequence;
+  }
+
+  /**
+   * Gets the number of nodes of the labeled tree, which is a size hint measured by the server.
+   *
+   * @return the number of nodes, or zero if not measured
+   */
+  public int getTreeNodeCount() {
+    return treeNodeCount;
+  }
+
+  /**
+   * Sets the number of nodes of the labeled tree.
+   *
+   * @param treeNodeCount the number of nodes
+   */
+  public void setTreeNodeCount(final int treeNodeCount) {
+    this.treeNodeCount = treeNodeCount;
+  }
+
+  /**
+   * Gets the depth of the labeled tree, which is a size hint measured by the server.
+   *
+   * @return the depth, or zero if not measured
+   */
+  public int getTreeDepth() {
+    return treeDepth;
+  }
+
+  /**
+   * Sets the depth of the labeled tree.
+   *
+   * @param treeDepth the depth
+   */
+  public void setTreeDepth(final int treeDepth) {
+    this.treeDepth = treeDepth;
+  }
+
+  /**
+   * Gets the status set by the server when it cancels this request while it is running.
+   *
+   * @return the cancel status, i.e. superseded or cancelled, or null if this request is not cancelled
+   */
+  public GraphResultStatus getCancelStatus() {
+    return cancelStatus;
+  }
+
+  /**
+   * Sets the status set by the server when it cancels this request while it is running.
+   *
+   * @param cancelStatus the cancel status, i.e. superseded or cancelled
+   */
+  public void setCancelStatus(final GraphResultStatus cancelStatus) {
+    //Preconditions
+    assert cancelStatus == GraphResultStatus.SUPERSEDED || cancelStatus == GraphResultStatus.CANCELLED : "cancelStatus must be superseded or cancelled";
+
+    this.cancelStatus = cancelStatus;
+  }
+
   /**
    * Gets the graph file name without an extension.
    *
@@ -166,7 +531,6 @@ public class GraphRequest {
   public void setLabeledTree(final String labeledTree) {
     //Preconditions
     assert labeledTree != null : "labeledTree must not be null";
-    assert !labeledTree.isEmpty() : "labeledTree must not be empty";
 
     this.labeledTree = labeledTree;
   }
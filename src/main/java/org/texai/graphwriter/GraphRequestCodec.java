@@ -0,0 +1,300 @@
+/*
+ * GraphRequestCodec.java
+ *
+ * Created on Oct 18, 2026, 2:24:51 PM
+ *
+ * Description: Encodes and decodes graph requests in the length-prefixed, versioned binary wire format.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes graph requests in the binary wire format. All integers are big-endian, and all strings are
+ * UTF-8.
+ *
+ * <pre>
+ * magic         int     0xFE475752, whose first byte never begins a UTF-8 string, so that a legacy
+ *                       NUL-delimited request is told apart by its first byte
+ * version       byte    1
+ * type          byte    the {@link GraphRequestType} code
+ * frameLength   int     the number of bytes that follow
+ * headerCount   byte
+ * headers       headerCount times: key byte, value length short, value bytes
+ * fileName      int length, then the bytes
+ * labeledTree   int length, then the bytes, which are empty unless this is a syntax tree request
+ * </pre>
+ *
+ * Headers carry optional fields, such as the priority, the deadline, the request id, the output format and the inline
+ * indicator. A decoder skips the headers whose keys it does not know, so that new headers can be added without a
+ * version change.
+ *
+ * @author reed
+ */
+public final class GraphRequestCodec {
+
+  /**
+   * the frame magic number
+   */
+  public static final int MAGIC = 0xFE475752;
+
+  /**
+   * the first byte of the magic number
+   */
+  public static final byte MAGIC_FIRST_BYTE = (byte) (MAGIC >>> 24);
+
+  /**
+   * the current protocol version
+   */
+  public static final byte VERSION = 1;
+
+  /**
+   * the number of bytes in the fixed frame prefix, i.e. the magic number, version, type and frame length
+   */
+  public static final int PREFIX_LENGTH = 10;
+
+  /**
+   * the maximum frame length
+   */
+  public static final int MAX_FRAME_LENGTH = Integer.getInteger("org.texai.graphwriter.maxFrameLength", 64 * 1024 * 1024);
+
+  /**
+   * the priority header key, whose value is a one byte priority where zero is the most urgent
+   */
+  public static final byte HEADER_PRIORITY = 1;
+
+  /**
+   * the deadline header key, whose value is a long deadline in milliseconds since the epoch
+   */
+  public static final byte HEADER_DEADLINE = 2;
+
+  /**
+   * the request id header key, whose value is a long request id assigned by the client, for which the server sends a
+   * completion acknowledgement encoded by {@link GraphResultCodec}
+   */
+  public static final byte HEADER_REQUEST_ID = 3;
+
+  /**
+   * the output format header key, whose value is a one byte {@link GraphOutputFormat} code, absent for a PNG image
+   */
+  public static final byte HEADER_OUTPUT_FORMAT = 4;
+
+  /**
+   * the inline header key, whose one byte value is 1 when the rendered images are returned in the completion
+   * acknowledgement instead of in output files, absent otherwise
+   */
+  public static final byte HEADER_INLINE = 5;
+
+  /**
+   * Prevents the instantiation of this utility class.
+   */
+  private GraphRequestCodec() {
+  }
+
+  /**
+   * Encodes the given graph request as a binary frame.
+   *
+   * @param graphRequest the given graph request
+   * @return the binary frame
+   */
+  public static byte[] encode(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    final byte[] fileNameBytes = graphRequest.getFileName().getBytes(StandardCharsets.UTF_8);
+    final byte[] labeledTreeBytes;
+    if (graphRequest.getRequestType() == GraphRequestType.SYNTAX_TREE) {
+      labeledTreeBytes = graphRequest.getLabeledTree().getBytes(StandardCharsets.UTF_8);
+    } else {
+      labeledTreeBytes = new byte[0];
+    }
+    int headerCount = 0;
+    int headersLength = 0;
+    if (graphRequest.getPriority() != 0) {
+      headerCount++;
+      headersLength += 3 + 1;
+    }
+    if (graphRequest.getDeadlineMillis() != 0) {
+      headerCount++;
+      headersLength += 3 + 8;
+    }
+    if (graphRequest.getRequestId() != 0) {
+      headerCount++;
+      headersLength += 3 + 8;
+    }
+    if (graphRequest.getOutputFormat() != GraphOutputFormat.PNG) {
+      headerCount++;
+      headersLength += 3 + 1;
+    }
+    if (graphRequest.isInline()) {
+      headerCount++;
+      headersLength += 3 + 1;
+    }
+    final int frameLength = 1 + headersLength + 4 + fileNameBytes.length + 4 + labeledTreeBytes.length;
+    final ByteBuffer byteBuffer = ByteBuffer.allocate(PREFIX_LENGTH + frameLength);
+    byteBuffer.putInt(MAGIC);
+    byteBuffer.put(VERSION);
+    byteBuffer.put(graphRequest.getRequestType().getCode());
+    byteBuffer.putInt(frameLength);
+    byteBuffer.put((byte) headerCount);
+    if (graphRequest.getPriority() != 0) {
+      byteBuffer.put(HEADER_PRIORITY);
+      byteBuffer.putShort((short) 1);
+      byteBuffer.put((byte) Math.min(graphRequest.getPriority(), Byte.MAX_VALUE));
+    }
+    if (graphRequest.getDeadlineMillis() != 0) {
+      byteBuffer.put(HEADER_DEADLINE);
+      byteBuffer.putShort((short) 8);
+      byteBuffer.putLong(graphRequest.getDeadlineMillis());
+    }
+    if (graphRequest.getRequestId() != 0) {
+      byteBuffer.put(HEADER_REQUEST_ID);
+      byteBuffer.putShort((short) 8);
+      byteBuffer.putLong(graphRequest.getRequestId());
+    }
+    if (graphRequest.getOutputFormat() != GraphOutputFormat.PNG) {
+      byteBuffer.put(HEADER_OUTPUT_FORMAT);
+      byteBuffer.putShort((short) 1);
+      byteBuffer.put(graphRequest.getOutputFormat().getCode());
+    }
+    if (graphRequest.isInline()) {
+      byteBuffer.put(HEADER_INLINE);
+      byteBuffer.putShort((short) 1);
+      byteBuffer.put((byte) 1);
+    }
+    byteBuffer.putInt(fileNameBytes.length);
+    byteBuffer.put(fileNameBytes);
+    byteBuffer.putInt(labeledTreeBytes.length);
+    byteBuffer.put(labeledTreeBytes);
+    return byteBuffer.array();
+  }
+
+  /**
+   * Decodes the frame length from the given fixed frame prefix, validating the magic number and the version.
+   *
+   * @param prefix the fixed frame prefix, positioned at its start
+   * @return the frame length
+   * @throws ProtocolException when the prefix is invalid
+   */
+  public static int decodeFrameLength(final ByteBuffer prefix) throws ProtocolException {
+    //Preconditions
+    assert prefix != null : "prefix must not be null";
+    assert prefix.remaining() >= PREFIX_LENGTH : "prefix must be complete";
+
+    final int magic = prefix.getInt(prefix.position());
+    if (magic != MAGIC) {
+      throw new ProtocolException("bad frame magic number " + Integer.toHexString(magic));
+    }
+    final byte version = prefix.get(prefix.position() + 4);
+    if (version < 1 || version > VERSION) {
+      throw new ProtocolException("unsupported protocol version " + version);
+    }
+    final int frameLength = prefix.getInt(prefix.position() + 6);
+    if (frameLength < 9 || frameLength > MAX_FRAME_LENGTH) {
+      throw new ProtocolException("bad frame length " + frameLength);
+    }
+    return frameLength;
+  }
+
+  /**
+   * Decodes a graph request from the given complete binary frame.
+   *
+   * @param frame the given frame, beginning with its fixed prefix
+   * @return the graph request
+   * @throws ProtocolException when the frame is ill formed
+   */
+  public static GraphRequest decode(final ByteBuffer frame) throws ProtocolException {
+    //Preconditions
+    assert frame != null : "frame must not be null";
+
+    decodeFrameLength(frame);
+    try {
+      frame.position(frame.position() + 5);
+      final byte typeCode = frame.get();
+      final GraphRequestType requestType = GraphRequestType.fromCode(typeCode);
+      if (requestType == null) {
+        throw new ProtocolException("unknown request type " + typeCode);
+      }
+      frame.getInt();
+      final int headerCount = frame.get() & 0xff;
+      int priority = 0;
+      long deadlineMillis = 0;
+      long requestId = 0;
+      GraphOutputFormat outputFormat = GraphOutputFormat.PNG;
+      boolean isInline = false;
+      for (int i = 0; i < headerCount; i++) {
+        final byte key = frame.get();
+        final int valueLength = frame.getShort() & 0xffff;
+        final int valueEnd = frame.position() + valueLength;
+        switch (key) {
+          case HEADER_PRIORITY ->
+            priority = frame.get() & 0xff;
+          case HEADER_DEADLINE ->
+            deadlineMillis = frame.getLong();
+          case HEADER_REQUEST_ID ->
+            requestId = frame.getLong();
+          case HEADER_OUTPUT_FORMAT -> {
+            final byte outputFormatCode = frame.get();
+            outputFormat = GraphOutputFormat.fromCode(outputFormatCode);
+            if (outputFormat == null) {
+              throw new ProtocolException("unknown output format " + outputFormatCode);
+            }
+          }
+          case HEADER_INLINE ->
+            isInline = frame.get() != 0;
+          default -> {
+            // skip an unknown header
+          }
+        }
+        frame.position(valueEnd);
+      }
+      final String fileName = getString(frame);
+      if (fileName.isEmpty()) {
+        throw new ProtocolException("graph request is missing the file name");
+      }
+      final String labeledTree = getString(frame);
+      if (requestType == GraphRequestType.SYNTAX_TREE && labeledTree.isEmpty()) {
+        throw new ProtocolException("graph request is missing the labeled tree, fileName: " + fileName);
+      }
+      final GraphRequest graphRequest = new GraphRequest(requestType, fileName, labeledTree);
+      graphRequest.setPriority(priority);
+      graphRequest.setDeadlineMillis(deadlineMillis);
+      graphRequest.setRequestId(requestId);
+      graphRequest.setOutputFormat(outputFormat);
+      graphRequest.setInline(isInline);
+      return graphRequest;
+    } catch (BufferUnderflowException | IllegalArgumentException ex) {
+      throw new ProtocolException("truncated graph request frame");
+    }
+  }
+
+  /**
+   * Gets a length-prefixed UTF-8 string from the given buffer.
+   *
+   * @param byteBuffer the given buffer
+   * @return the string
+   * @throws ProtocolException when the length is negative
+   */
+  private static String getString(final ByteBuffer byteBuffer) throws ProtocolException {
+    final int length = byteBuffer.getInt();
+    if (length < 0 || length > byteBuffer.remaining()) {
+      throw new ProtocolException("bad string length " + length);
+    }
+    final String string;
+    if (byteBuffer.hasArray()) {
+      string = new String(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), length, StandardCharsets.UTF_8);
+      byteBuffer.position(byteBuffer.position() + length);
+    } else {
+      final byte[] bytes = new byte[length];
+      byteBuffer.get(bytes);
+      string = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return string;
+  }
+}
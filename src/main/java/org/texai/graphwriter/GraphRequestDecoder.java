@@ -0,0 +1,239 @@
+/*
+ * GraphRequestDecoder.java
+ *
+ * Created on Oct 18, 2026, 12:41:09 PM
+ *
+ * Description: Incrementally decodes graph requests from the bytes received on a client connection.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Incrementally decodes graph requests from the bytes received on a client connection. Bytes arrive in arbitrary
+ * chunks, so the decoder keeps the partially received frame between calls, and a single chunk may complete several
+ * pipelined requests.
+ *
+ * Each request is either a binary frame as encoded by {@link GraphRequestCodec}, or during the migration of clients,
+ * a legacy request, which is the file name followed by a NUL character, and then the labeled tree followed by a NUL
+ * character, as serialized by {@link GraphRequest#serialize()}. The two formats are told apart by the first byte of
+ * each request. A legacy field is bounded by the maximum binary frame length, so that a peer that never sends a NUL
+ * character cannot make the decoder buffer without limit.
+ *
+ * @author reed
+ */
+public class GraphRequestDecoder {
+
+  // the initial frame buffer capacity
+  private static final int INITIAL_CAPACITY = 256;
+
+  // the character set of the legacy request fields
+  private final Charset legacyCharset;
+
+  // the maximum length in bytes of a legacy request field
+  private final int maxLegacyFieldLength;
+
+  // the bytes of the frame or legacy field being received
+  private byte[] frameBytes = new byte[INITIAL_CAPACITY];
+
+  // the number of bytes of the frame or legacy field being received
+  private int frameLength = 0;
+
+  // the total length of the binary frame being received, or zero when its fixed prefix is incomplete
+  private int binaryFrameLength = 0;
+
+  // the indicator that a binary frame is being received
+  private boolean isBinary = false;
+
+  // the received legacy file name, or null when the legacy file name is being received
+  private String legacyFileName;
+
+  /**
+   * Constructs a new GraphRequestDecoder instance.
+   *
+   * @param legacyCharset the character set of the legacy request fields
+   */
+  public GraphRequestDecoder(final Charset legacyCharset) {
+    this(legacyCharset, GraphRequestCodec.MAX_FRAME_LENGTH);
+  }
+
+  /**
+   * Constructs a new GraphRequestDecoder instance with the given bound of a legacy request field.
+   *
+   * @param legacyCharset the character set of the legacy request fields
+   * @param maxLegacyFieldLength the maximum length in bytes of a legacy request field
+   */
+  GraphRequestDecoder(
+          final Charset legacyCharset,
+          final int maxLegacyFieldLength) {
+    //Preconditions
+    assert legacyCharset != null : "legacyCharset must not be null";
+    assert maxLegacyFieldLength > 0 : "maxLegacyFieldLength must be positive";
+
+    this.legacyCharset = legacyCharset;
+    this.maxLegacyFieldLength = maxLegacyFieldLength;
+  }
+
+  /**
+   * Decodes the remaining bytes of the given buffer, passing each completed graph request to the given consumer.
+   *
+   * @param buffer the given buffer, which is fully consumed
+   * @param consumer the graph request consumer
+   * @throws ProtocolException when a request is ill formed
+   */
+  public void decode(
+          final ByteBuffer buffer,
+          final Consumer<GraphRequest> consumer) throws ProtocolException {
+    //Preconditions
+    assert buffer != null : "buffer must not be null";
+    assert consumer != null : "consumer must not be null";
+
+    while (buffer.hasRemaining()) {
+      if (frameLength == 0 && legacyFileName == null) {
+        // a new request begins
+        isBinary = buffer.get(buffer.position()) == GraphRequestCodec.MAGIC_FIRST_BYTE;
+      }
+      if (isBinary) {
+        decodeBinary(buffer, consumer);
+      } else {
+        decodeLegacy(buffer, consumer);
+      }
+    }
+  }
+
+  /**
+   * Decodes the bytes of a binary frame from the given buffer, until the frame is complete or the buffer is empty.
+   *
+   * @param buffer the given buffer
+   * @param consumer the graph request consumer
+   * @throws ProtocolException when the frame is ill formed
+   */
+  private void decodeBinary(
+          final ByteBuffer buffer,
+          final Consumer<GraphRequest> consumer) throws ProtocolException {
+    if (binaryFrameLength == 0) {
+      append(buffer, GraphRequestCodec.PREFIX_LENGTH - frameLength);
+      if (frameLength < GraphRequestCodec.PREFIX_LENGTH) {
+        return;
+      }
+      binaryFrameLength = GraphRequestCodec.PREFIX_LENGTH
+              + GraphRequestCodec.decodeFrameLength(ByteBuffer.wrap(frameBytes, 0, frameLength));
+    }
+    append(buffer, binaryFrameLength - frameLength);
+    if (frameLength < binaryFrameLength) {
+      return;
+    }
+    final GraphRequest graphRequest = GraphRequestCodec.decode(ByteBuffer.wrap(frameBytes, 0, frameLength));
+    binaryFrameLength = 0;
+    reset();
+    consumer.accept(graphRequest);
+  }
+
+  /**
+   * Decodes the bytes of a legacy request from the given buffer, until the request is complete or the buffer is
+   * empty.
+   *
+   * @param buffer the given buffer
+   * @param consumer the graph request consumer
+   * @throws ProtocolException when the request is ill formed
+   */
+  private void decodeLegacy(
+          final ByteBuffer buffer,
+          final Consumer<GraphRequest> consumer) throws ProtocolException {
+    while (buffer.hasRemaining()) {
+      final byte b = buffer.get();
+      if (b != 0) {
+        if (frameLength >= maxLegacyFieldLength) {
+          throw new ProtocolException("legacy graph request field longer than " + maxLegacyFieldLength + " bytes");
+        }
+        ensureCapacity(frameLength + 1);
+        frameBytes[frameLength++] = b;
+        continue;
+      }
+      final String field = new String(frameBytes, 0, frameLength, legacyCharset);
+      frameLength = 0;
+      if (legacyFileName == null) {
+        if (field.isEmpty()) {
+          throw new ProtocolException("graph request is missing the file name");
+        }
+        legacyFileName = field;
+      } else {
+        if (field.isEmpty()) {
+          throw new ProtocolException("graph request is missing the labeled tree, fileName: " + legacyFileName);
+        }
+        final GraphRequest graphRequest = new GraphRequest(legacyFileName, field);
+        legacyFileName = null;
+        reset();
+        consumer.accept(graphRequest);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Appends up to the given number of bytes from the given buffer to the frame being received.
+   *
+   * @param buffer the given buffer
+   * @param maxLength the maximum number of bytes to append
+   */
+  private void append(
+          final ByteBuffer buffer,
+          final int maxLength) {
+    final int length = Math.min(maxLength, buffer.remaining());
+    ensureCapacity(frameLength + length);
+    buffer.get(frameBytes, frameLength, length);
+    frameLength += length;
+  }
+
+  /**
+   * Ensures that the frame buffer can hold the given number of bytes.
+   *
+   * @param capacity the given number of bytes
+   */
+  private void ensureCapacity(final int capacity) {
+    if (capacity > frameBytes.length) {
+      frameBytes = Arrays.copyOf(frameBytes, (int) Math.max(capacity, Math.min(frameBytes.length * 2L, Integer.MAX_VALUE - 8)));
+    }
+  }
+
+  /**
+   * Resets the frame buffer after a completed request, releasing the memory held for an unusually large request.
+   */
+  private void reset() {
+    frameLength = 0;
+    if (frameBytes.length > INITIAL_CAPACITY * 64) {
+      frameBytes = new byte[INITIAL_CAPACITY];
+    }
+  }
+
+  /**
+   * Returns whether a request has been partially received.
+   *
+   * @return whether a request has been partially received
+   */
+  public boolean isPartial() {
+    return legacyFileName != null || frameLength > 0;
+  }
+
+  /**
+   * Returns a description of the partially received request, for logging.
+   *
+   * @return a description of the partially received request
+   */
+  public String describePartial() {
+    if (isBinary) {
+      return "truncated graph request frame, received " + frameLength + " bytes";
+    } else if (legacyFileName == null) {
+      return "ill formed file name: " + new String(frameBytes, 0, frameLength, legacyCharset);
+    } else {
+      return "ill formed labeled tree, fileName: " + legacyFileName;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * GraphRequestType.java
+ *
+ * Created on Oct 18, 2026, 2:10:27 PM
+ *
+ * Description: Enumerates the graph request types carried by the binary wire protocol.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+/**
+ * Enumerates the graph request types carried by the binary wire protocol. The legacy NUL-delimited format expresses
+ * these types with the "*GraphViz*" labeled tree sentinel and with the "ignore", "quit", "stats" and "ping" file names,
+ * and has no cancel request.
+ *
+ * @author reed
+ */
+public enum GraphRequestType {
+
+  /**
+   * a labeled syntax tree graph request
+   */
+  SYNTAX_TREE((byte) 1),
+  /**
+   * a GraphViz diagram request, whose DOT file is next to the output file
+   */
+  GRAPHVIZ((byte) 2),
+  /**
+   * a request that is ignored, formerly used to probe whether the server is running
+   */
+  IGNORE((byte) 3),
+  /**
+   * a request to shut down the server
+   */
+  QUIT((byte) 4),
+  /**
+   * a request to cancel the pending and running requests for the file name
+   */
+  CANCEL((byte) 5),
+  /**
+   * a request for the live metrics report, which is answered at once rather than queued behind the renders
+   */
+  STATS((byte) 6),
+  /**
+   * a readiness probe, which the request server answers on its own thread once the server is initialized, without
+   * queuing it
+   */
+  PING((byte) 7);
+
+  // the wire code
+  private final byte code;
+
+  /**
+   * Constructs a new GraphRequestType instance.
+   *
+   * @param code the wire code
+   */
+  GraphRequestType(final byte code) {
+    this.code = code;
+  }
+
+  /**
+   * Gets the wire code.
+   *
+   * @return the wire code
+   */
+  public byte getCode() {
+    return code;
+  }
+
+  /**
+   * Gets the request type having the given wire code.
+   *
+   * @param code the given wire code
+   * @return the request type, or null if the code is unknown
+   */
+  public static GraphRequestType fromCode(final byte code) {
+    for (final GraphRequestType graphRequestType : values()) {
+      if (graphRequestType.code == code) {
+        return graphRequestType;
+      }
+    }
+    return null;
+  }
+}
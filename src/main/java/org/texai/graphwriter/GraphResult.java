@@ -0,0 +1,242 @@
+/*
+ * GraphResult.java
+ *
+ * Created on Oct 18, 2026, 3:18:05 PM
+ *
+ * Description: Provides the completion acknowledgement of a graph request.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides the completion acknowledgement of a graph request, which the server sends on the request connection when
+ * the graph file exists, or when the request has failed. The acknowledgement of an inline request instead carries the
+ * rendered images, and no graph file is left behind.
+ *
+ * @author reed
+ */
+public class GraphResult {
+
+  // the request id assigned by the client
+  private long requestId = 0;
+
+  // the completion status
+  private final GraphResultStatus status;
+
+  // the renderer process exit value, or for renderers without a process of their own, zero when successful and -1
+  // when not
+  private final int exitCode;
+
+  // the output path, or an empty string when there is none
+  private final String outputPath;
+
+  // the size of the graph file in bytes, or of the inline images together
+  private final long byteSize;
+
+  // the rendered images returned inline, in the order of the output format extensions, or empty
+  private final List<InlineImage> inlineImages = new ArrayList<>();
+
+  // the number of microseconds from the receipt of the request until its rendering began
+  private long queueMicros = 0;
+
+  // the number of microseconds taken to render the graph
+  private long renderMicros = 0;
+
+  // the explanatory message, or an empty string
+  private final String message;
+
+  /**
+   * Constructs a new GraphResult instance.
+   *
+   * @param status the completion status
+   * @param exitCode the renderer exit code
+   * @param outputPath the output path, or an empty string when there is none
+   * @param byteSize the size of the graph file in bytes, or of the inline images together
+   * @param message the explanatory message, or an empty string
+   */
+  public GraphResult(
+          final GraphResultStatus status,
+          final int exitCode,
+          final String outputPath,
+          final long byteSize,
+          final String message) {
+    //Preconditions
+    assert status != null : "status must not be null";
+    assert outputPath != null : "outputPath must not be null";
+    assert byteSize >= 0 : "byteSize must not be negative";
+    assert message != null : "message must not be null";
+
+    this.status = status;
+    this.exitCode = exitCode;
+    this.outputPath = outputPath;
+    this.byteSize = byteSize;
+    this.message = message;
+  }
+
+  /**
+   * Gets the request id assigned by the client.
+   *
+   * @return the request id
+   */
+  public long getRequestId() {
+    return requestId;
+  }
+
+  /**
+   * Sets the request id assigned by the client.
+   *
+   * @param requestId the request id
+   */
+  public void setRequestId(final long requestId) {
+    this.requestId = requestId;
+  }
+
+  /**
+   * Gets the completion status.
+   *
+   * @return the completion status
+   */
+  public GraphResultStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * Gets the renderer exit code, which is the renderer process exit value, or for renderers without a process of their
+   * own, zero when successful and -1 when not.
+   *
+   * @return the renderer exit code
+   */
+  public int getExitCode() {
+    return exitCode;
+  }
+
+  /**
+   * Gets the output path.
+   *
+   * @return the output path, or an empty string when there is none
+   */
+  public String getOutputPath() {
+    return outputPath;
+  }
+
+  /**
+   * Gets the size of the graph file in bytes, or of the inline images together.
+   *
+   * @return the size in bytes
+   */
+  public long getByteSize() {
+    return byteSize;
+  }
+
+  /**
+   * Gets the rendered images returned inline.
+   *
+   * @return the inline images, in the order of the output format extensions, or an empty list
+   */
+  public List<InlineImage> getInlineImages() {
+    return inlineImages;
+  }
+
+  /**
+   * Adds a rendered image returned inline.
+   *
+   * @param inlineImage the inline image
+   */
+  public void addInlineImage(final InlineImage inlineImage) {
+    //Preconditions
+    assert inlineImage != null : "inlineImage must not be null";
+
+    inlineImages.add(inlineImage);
+  }
+
+  /**
+   * Closes the file channels of the inline images, when this result is discarded rather than sent.
+   */
+  public void closeInlineImages() {
+    inlineImages.forEach(InlineImage::close);
+  }
+
+  /**
+   * Gets the number of microseconds from the receipt of the request until its rendering began.
+   *
+   * @return the queue time in microseconds
+   */
+  public long getQueueMicros() {
+    return queueMicros;
+  }
+
+  /**
+   * Sets the number of microseconds from the receipt of the request until its rendering began.
+   *
+   * @param queueMicros the queue time in microseconds
+   */
+  public void setQueueMicros(final long queueMicros) {
+    this.queueMicros = queueMicros;
+  }
+
+  /**
+   * Gets the number of microseconds taken to render the graph.
+   *
+   * @return the render time in microseconds
+   */
+  public long getRenderMicros() {
+    return renderMicros;
+  }
+
+  /**
+   * Sets the number of microseconds taken to render the graph.
+   *
+   * @param renderMicros the render time in microseconds
+   */
+  public void setRenderMicros(final long renderMicros) {
+    this.renderMicros = renderMicros;
+  }
+
+  /**
+   * Gets the explanatory message.
+   *
+   * @return the explanatory message, or an empty string
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    final StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append("[GraphResult ")
+            .append(requestId)
+            .append(' ')
+            .append(status)
+            .append(' ')
+            .append(outputPath);
+    if (status.isSuccessful()) {
+      stringBuilder.append(", ").append(byteSize).append(" bytes");
+      if (!inlineImages.isEmpty()) {
+        stringBuilder.append(" inline");
+      }
+    } else {
+      stringBuilder.append(", exit code ").append(exitCode);
+    }
+    stringBuilder.append(", queued ")
+            .append(queueMicros)
+            .append(" us, rendered ")
+            .append(renderMicros)
+            .append(" us");
+    if (!message.isEmpty()) {
+      stringBuilder.append(", ").append(message);
+    }
+    stringBuilder.append(']');
+    return stringBuilder.toString();
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * GraphResultCodec.java
+ *
+ * Created on Oct 18, 2026, 3:27:51 PM
+ *
+ * Description: Encodes and decodes graph request completion acknowledgements in the binary wire format.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes and decodes the completion acknowledgements which the server sends to the client, for each request that
+ * carries a request id. The frame has the same fixed prefix as a request frame, see {@link GraphRequestCodec}, with the
+ * type of the acknowledged request. All integers are big-endian, and all strings are UTF-8.
+ *
+ * <pre>
+ * magic         int     0xFE475752
+ * version       byte    1
+ * type          byte    the {@link GraphRequestType} code of the acknowledged request
+ * frameLength   int     the number of bytes that follow
+ * requestId     long
+ * status        byte    the {@link GraphResultStatus} code
+ * exitCode      int
+ * byteSize      long
+ * queueMicros   long
+ * renderMicros  long
+ * outputPath    int length, then the bytes
+ * message       int length, then the bytes
+ * imageCount    byte    the number of inline images, absent when there are none
+ * images        imageCount times: {@link GraphOutputFormat} code byte, image length int, image bytes
+ * </pre>
+ *
+ * A decoder ignores any bytes that follow the fields it knows, so that fields can be appended without a version
+ * change. The inline images are appended this way, so that their bytes can follow the encoded fields straight from a
+ * file channel, see {@link #encodeHeaders(GraphRequestType, GraphResult)}.
+ *
+ * @author reed
+ */
+public final class GraphResultCodec {
+
+  // the number of bytes in the fixed length fields that follow the prefix
+  private static final int FIXED_FIELDS_LENGTH = 8 + 1 + 4 + 8 + 8 + 8;
+
+  // the number of bytes in the format and length that precede the bytes of an inline image
+  private static final int IMAGE_HEADER_LENGTH = 1 + 4;
+
+  /**
+   * Prevents the instantiation of this utility class.
+   */
+  private GraphResultCodec() {
+  }
+
+  /**
+   * Encodes the given graph result as a binary frame, whose inline images, if any, must be in memory.
+   *
+   * @param requestType the type of the acknowledged request
+   * @param graphResult the given graph result
+   * @return the binary frame
+   */
+  public static byte[] encode(
+          final GraphRequestType requestType,
+          final GraphResult graphResult) {
+    //Preconditions
+    assert requestType != null : "requestType must not be null";
+    assert graphResult != null : "graphResult must not be null";
+
+    final List<ByteBuffer> headers = encodeHeaders(requestType, graphResult);
+    final List<InlineImage> inlineImages = graphResult.getInlineImages();
+    int length = 0;
+    for (final ByteBuffer header : headers) {
+      length += header.remaining();
+    }
+    for (final InlineImage inlineImage : inlineImages) {
+      assert inlineImage.getBytes() != null : "inline image must be in memory";
+      length += inlineImage.getBytes().length;
+    }
+    final ByteBuffer byteBuffer = ByteBuffer.allocate(length);
+    for (int i = 0; i < headers.size(); i++) {
+      byteBuffer.put(headers.get(i));
+      if (i < inlineImages.size()) {
+        byteBuffer.put(inlineImages.get(i).getBytes());
+      }
+    }
+    return byteBuffer.array();
+  }
+
+  /**
+   * Encodes the given graph result as a binary frame without the bytes of its inline images, which the caller writes
+   * after the corresponding header, so that an image in a file channel is not read into the heap.
+   *
+   * @param requestType the type of the acknowledged request
+   * @param graphResult the given graph result
+   * @return the frame headers, where the bytes of inline image i follow header i, and header 0 holds the prefix and the
+   * fixed fields
+   */
+  public static List<ByteBuffer> encodeHeaders(
+          final GraphRequestType requestType,
+          final GraphResult graphResult) {
+    //Preconditions
+    assert requestType != null : "requestType must not be null";
+    assert graphResult != null : "graphResult must not be null";
+    assert graphResult.getInlineImages().size() <= Byte.MAX_VALUE : "too many inline images";
+
+    final byte[] outputPathBytes = graphResult.getOutputPath().getBytes(StandardCharsets.UTF_8);
+    final byte[] messageBytes = graphResult.getMessage().getBytes(StandardCharsets.UTF_8);
+    final List<InlineImage> inlineImages = graphResult.getInlineImages();
+    final int fieldsLength = FIXED_FIELDS_LENGTH + 4 + outputPathBytes.length + 4 + messageBytes.length;
+    final long frameLength = getFrameLength(graphResult);
+    assert frameLength <= GraphRequestCodec.MAX_FRAME_LENGTH : "frame too long";
+    final List<ByteBuffer> headers = new ArrayList<>(Math.max(1, inlineImages.size()));
+    final ByteBuffer byteBuffer = ByteBuffer.allocate(GraphRequestCodec.PREFIX_LENGTH + fieldsLength
+            + (inlineImages.isEmpty() ? 0 : 1 + IMAGE_HEADER_LENGTH));
+    byteBuffer.putInt(GraphRequestCodec.MAGIC);
+    byteBuffer.put(GraphRequestCodec.VERSION);
+    byteBuffer.put(requestType.getCode());
+    byteBuffer.putInt((int) frameLength);
+    byteBuffer.putLong(graphResult.getRequestId());
+    byteBuffer.put(graphResult.getStatus().getCode());
+    byteBuffer.putInt(graphResult.getExitCode());
+    byteBuffer.putLong(graphResult.getByteSize());
+    byteBuffer.putLong(graphResult.getQueueMicros());
+    byteBuffer.putLong(graphResult.getRenderMicros());
+    byteBuffer.putInt(outputPathBytes.length);
+    byteBuffer.put(outputPathBytes);
+    byteBuffer.putInt(messageBytes.length);
+    byteBuffer.put(messageBytes);
+    if (!inlineImages.isEmpty()) {
+      byteBuffer.put((byte) inlineImages.size());
+      putImageHeader(byteBuffer, inlineImages.get(0));
+    }
+    headers.add(byteBuffer.flip());
+    for (int i = 1; i < inlineImages.size(); i++) {
+      final ByteBuffer imageHeader = ByteBuffer.allocate(IMAGE_HEADER_LENGTH);
+      putImageHeader(imageHeader, inlineImages.get(i));
+      headers.add(imageHeader.flip());
+    }
+    return headers;
+  }
+
+  /**
+   * Puts the format and length of the given inline image into the given buffer.
+   *
+   * @param byteBuffer the given buffer
+   * @param inlineImage the given inline image
+   */
+  private static void putImageHeader(
+          final ByteBuffer byteBuffer,
+          final InlineImage inlineImage) {
+    byteBuffer.put(inlineImage.getFormat().getCode());
+    byteBuffer.putInt((int) inlineImage.getByteSize());
+  }
+
+  /**
+   * Gets the frame length of the given graph result, including the bytes of its inline images.
+   *
+   * @param graphResult the given graph result
+   * @return the frame length, which may exceed the maximum frame length
+   */
+  public static long getFrameLength(final GraphResult graphResult) {
+    //Preconditions
+    assert graphResult != null : "graphResult must not be null";
+
+    long frameLength = FIXED_FIELDS_LENGTH
+            + 4 + graphResult.getOutputPath().getBytes(StandardCharsets.UTF_8).length
+            + 4 + graphResult.getMessage().getBytes(StandardCharsets.UTF_8).length;
+    if (!graphResult.getInlineImages().isEmpty()) {
+      frameLength++;
+      for (final InlineImage inlineImage : graphResult.getInlineImages()) {
+        frameLength += IMAGE_HEADER_LENGTH + inlineImage.getByteSize();
+      }
+    }
+    return frameLength;
+  }
+
+  /**
+   * Decodes a graph result from the given complete binary frame.
+   *
+   * @param frame the given frame, beginning with its fixed prefix
+   * @return the graph result
+   * @throws ProtocolException when the frame is ill formed
+   */
+  public static GraphResult decode(final ByteBuffer frame) throws ProtocolException {
+    //Preconditions
+    assert frame != null : "frame must not be null";
+
+    GraphRequestCodec.decodeFrameLength(frame);
+    try {
+      frame.position(frame.position() + GraphRequestCodec.PREFIX_LENGTH);
+      final long requestId = frame.getLong();
+      final byte statusCode = frame.get();
+      final GraphResultStatus status = GraphResultStatus.fromCode(statusCode);
+      if (status == null) {
+        throw new ProtocolException("unknown result status " + statusCode);
+      }
+      final int exitCode = frame.getInt();
+      final long byteSize = frame.getLong();
+      final long queueMicros = frame.getLong();
+      final long renderMicros = frame.getLong();
+      final String outputPath = getString(frame);
+      final String message = getString(frame);
+      final GraphResult graphResult = new GraphResult(
+              status,
+              exitCode,
+              outputPath,
+              Math.max(0, byteSize),
+              message);
+      graphResult.setRequestId(requestId);
+      graphResult.setQueueMicros(queueMicros);
+      graphResult.setRenderMicros(renderMicros);
+      if (frame.hasRemaining()) {
+        final int imageCount = frame.get() & 0xff;
+        for (int i = 0; i < imageCount; i++) {
+          final byte formatCode = frame.get();
+          final GraphOutputFormat format = GraphOutputFormat.fromCode(formatCode);
+          if (format != GraphOutputFormat.PNG && format != GraphOutputFormat.SVG) {
+            throw new ProtocolException("unknown inline image format " + formatCode);
+          }
+          final int length = frame.getInt();
+          if (length < 0 || length > frame.remaining()) {
+            throw new ProtocolException("bad inline image length " + length);
+          }
+          final byte[] bytes = new byte[length];
+          frame.get(bytes);
+          graphResult.addInlineImage(new InlineImage(format, bytes));
+        }
+      }
+      return graphResult;
+    } catch (BufferUnderflowException | IllegalArgumentException ex) {
+      throw new ProtocolException("truncated graph result frame");
+    }
+  }
+
+  /**
+   * Gets a length-prefixed UTF-8 string from the given buffer.
+   *
+   * @param byteBuffer the given buffer
+   * @return the string
+   * @throws ProtocolException when the length is invalid
+   */
+  private static String getString(final ByteBuffer byteBuffer) throws ProtocolException {
+    final int length = byteBuffer.getInt();
+    if (length < 0 || length > byteBuffer.remaining()) {
+      throw new ProtocolException("bad string length " + length);
+    }
+    final byte[] bytes = new byte[length];
+    byteBuffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
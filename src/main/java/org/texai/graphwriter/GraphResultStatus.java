@@ -0,0 +1,93 @@
+/*
+ * GraphResultStatus.java
+ *
+ * Created on Oct 18, 2026, 3:12:40 PM
+ *
+ * Description: Enumerates the completion statuses of graph requests.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+/**
+ * Enumerates the completion statuses reported for graph requests.
+ *
+ * @author reed
+ */
+public enum GraphResultStatus {
+
+  /**
+   * the graph was rendered
+   */
+  OK((byte) 0),
+  /**
+   * the graph was placed from the render cache
+   */
+  CACHED((byte) 1),
+  /**
+   * the renderer failed, or the labeled tree could not be parsed
+   */
+  FAILED((byte) 2),
+  /**
+   * the request deadline passed before the graph was rendered
+   */
+  EXPIRED((byte) 3),
+  /**
+   * the request was shed by admission control because the server was full
+   */
+  REJECTED((byte) 4),
+  /**
+   * a newer request for the same output file replaced this request
+   */
+  SUPERSEDED((byte) 5),
+  /**
+   * a cancel request for the output file cancelled this request
+   */
+  CANCELLED((byte) 6);
+
+  // the wire code
+  private final byte code;
+
+  /**
+   * Constructs a new GraphResultStatus instance.
+   *
+   * @param code the wire code
+   */
+  GraphResultStatus(final byte code) {
+    this.code = code;
+  }
+
+  /**
+   * Gets the wire code.
+   *
+   * @return the wire code
+   */
+  public byte getCode() {
+    return code;
+  }
+
+  /**
+   * Gets the status having the given wire code.
+   *
+   * @param code the given wire code
+   * @return the status, or null if the code is unknown
+   */
+  public static GraphResultStatus fromCode(final byte code) {
+    for (final GraphResultStatus graphResultStatus : values()) {
+      if (graphResultStatus.code == code) {
+        return graphResultStatus;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the graph file exists at the output path.
+   *
+   * @return whether the graph file exists at the output path
+   */
+  public boolean isSuccessful() {
+    return this == OK || this == CACHED;
+  }
+}
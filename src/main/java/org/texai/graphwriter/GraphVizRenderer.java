@@ -0,0 +1,94 @@
+/*
+ * GraphVizRenderer.java
+ *
+ * Created on Oct 19, 2026, 12:07:35 AM
+ *
+ * Description: Renders GraphViz diagrams with the dot program, laying out batches of requests with one dot process.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders GraphViz diagrams with the dot program, laying out batches of requests with one dot process.
+ *
+ * @author reed
+ */
+public class GraphVizRenderer implements Renderer {
+
+  /**
+   * the renderer name
+   */
+  public static final String NAME = "graphviz";
+
+  // the maximum number of GraphViz requests laid out by one dot process
+  private static final int MAX_BATCH_SIZE = Integer.getInteger("org.texai.graphwriter.maxGraphVizBatchSize", 32);
+
+  // the graph writer
+  private GraphWriter graphWriter;
+
+  /**
+   * Constructs a new GraphVizRenderer instance.
+   */
+  public GraphVizRenderer() {
+  }
+
+  /**
+   * Gets the renderer name.
+   *
+   * @return the renderer name
+   */
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Gets the request types that this renderer can render.
+   *
+   * @return the GraphViz request type
+   */
+  @Override
+  public Set<GraphRequestType> getRequestTypes() {
+    return EnumSet.of(GraphRequestType.GRAPHVIZ);
+  }
+
+  /**
+   * Gets the maximum number of GraphViz requests laid out by one dot process.
+   *
+   * @return the maximum batch size
+   */
+  @Override
+  public int getMaxBatchSize() {
+    return MAX_BATCH_SIZE;
+  }
+
+  /**
+   * Initializes this renderer.
+   *
+   * @param graphWriter the graph writer
+   */
+  @Override
+  public void initialize(final GraphWriter graphWriter) {
+    //Preconditions
+    assert graphWriter != null : "graphWriter must not be null";
+
+    this.graphWriter = graphWriter;
+  }
+
+  /**
+   * Renders the given GraphViz requests.
+   *
+   * @param graphRequests the given requests
+   * @return the graph results, in the order of the requests
+   */
+  @Override
+  public List<GraphResult> render(final List<GraphRequest> graphRequests) {
+    return graphWriter.graphVizDiagrams(graphRequests);
+  }
+}
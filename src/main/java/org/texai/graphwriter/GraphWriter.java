@@ -25,31 +25,49 @@ import com.lmax.disruptor.EventTranslatorOneArg;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.util.DaemonThreadFactory;
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.lang.management.ManagementFactory;
-import java.lang.management.OperatingSystemMXBean;
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketAddress;
-import java.net.SocketException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.apache.log4j.Logger;
 
 /**
- * A singleton instance of this class listens on socket port 14446 for
- * graph-writing requests, queues them, and serially emits graphs.
+ * A singleton instance of this class listens on socket port 14446, and on a
+ * Unix domain socket, for graph-writing requests, queues them, and serially
+ * emits graphs.
  *
- * phpsyntaxtree supports SVG images which can contain embedded hyperlinks, as a
- * future enhancement.
+ * Each request asks for a PNG image, an SVG image, or both. An SVG image is
+ * drawn without a raster step, and so is smaller and faster to produce. An
+ * inline request has its images returned in its completion acknowledgement,
+ * rather than written next to its source, so that the caller need neither
+ * read nor delete an output file.
+ *
+ * Each output file is written under a temporary name and renamed into place,
+ * optionally in a hash-prefixed shard subdirectory, whose path is returned in
+ * the completion acknowledgement.
  *
  * @author reed
  */
@@ -65,31 +83,171 @@ public class GraphWriter {
   // the path to the PHP syntax tree tools
   private static final String PHP_SYNTAX_TREE_PATH = GRAPH_WRITER_PATH + "/phpsyntaxtree";
 
+  // the TrueType font used by the syntax tree renderers
+  private static final String SYNTAX_TREE_FONT_PATH = PHP_SYNTAX_TREE_PATH + "/ttf/Vera.ttf";
+
+  // the syntax tree font size in points, as set in phpsyntaxtree/graph.php
+  private static final int SYNTAX_TREE_FONT_SIZE = 14;
+
   // the listening port
   public static final int LISTENING_PORT = 14446;
 
+  // the Unix domain socket path on which the server also listens, or an empty string to listen only on the TCP port
+  public static final String UNIX_SOCKET_PATH = System.getProperty("org.texai.graphwriter.unixSocketPath", GRAPH_WRITER_PATH + "/graph-writer.sock");
+
+  // the maximum number of completion acknowledgements pending on a client connection, at which it stops being read
+  private static final int MAX_PENDING_ACKNOWLEDGEMENTS = Integer.getInteger("org.texai.graphwriter.maxPendingAcknowledgements", 1024);
+
+  // the number of milliseconds that a client waits for the server to answer a ping
+  private static final long PING_TIMEOUT_MILLIS = Long.getLong("org.texai.graphwriter.pingTimeoutMillis", 1_000L);
+
+  // the maximum number of milliseconds that a client waits for a server that it started to become ready
+  private static final long STARTUP_TIMEOUT_MILLIS = Long.getLong("org.texai.graphwriter.startupTimeoutMillis", 30_000L);
+
+  // the maximum number of milliseconds that a quit request without a deadline waits for the admitted requests to drain
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = Long.getLong("org.texai.graphwriter.shutdownTimeoutMillis", 30_000L);
+
+  // the number of milliseconds, after the drain deadline, given to the abandoned renders to stop and to the last
+  // acknowledgements to be written
+  private static final long SHUTDOWN_GRACE_MILLIS = Long.getLong("org.texai.graphwriter.shutdownGraceMillis", 2_000L);
+
+  // the syntax tree renderer mode, either "java" for the in-JVM renderer or "php" for the phpsyntaxtree fallback, which
+  // is the default when no syntax tree renderer is named by org.texai.graphwriter.renderer.SYNTAX_TREE
+  private static final String SYNTAX_TREE_RENDERER = System.getProperty("org.texai.graphwriter.syntaxTreeRenderer", "java");
+
+  // the indicator whether graph requests are acknowledged by the no-op renderer, so that a load test measures the
+  // server overhead with the renderers taken out
+  private static final boolean IS_STUB_RENDERER = Boolean.getBoolean("org.texai.graphwriter.stubRenderer");
+
   // the server thread
   private Thread serverThread;
 
   // the indicator to quit
   private final AtomicBoolean isQuit = new AtomicBoolean(false);
 
+  // the number of requests that were rejected because they arrived after the quit request
+  private final AtomicInteger rejectedAfterQuitCount = new AtomicInteger(0);
+
+  // the number of the requests rejected after the quit request that were journaled, to be replayed by the next run
+  private final AtomicInteger journaledAfterQuitCount = new AtomicInteger(0);
+
   // the ring buffer
   private RingBuffer<GraphRequest> ringBuffer;
 
-  // the server socket
-  private ServerSocket serverSocket = null;
-
   // the disruptor lock-free queue
   private Disruptor<GraphRequest> disruptor;
 
-  // the graphing request thread pool
-  private ExecutorService graphingRequestExecutor = Executors.newCachedThreadPool();
+  // the selector-based request server
+  private RequestServer requestServer;
+
+  // the disruptor event translator (slot populator)
+  static final EventTranslatorOneArg<GraphRequest, GraphRequest> GRAPH_REQUEST_EVENT_TRANSLATOR = new GraphRequestEventTranslatorOneArg();
+
+  // the maximum number of nodes of the labeled tree of a syntax tree request, or zero for no limit
+  private static final int MAX_TREE_NODES = Integer.getInteger("org.texai.graphwriter.maxTreeNodes", 10_000);
+
+  // the number of PHP worker jobs after which the worker process is recycled
+  private static final int PHP_WORKER_MAX_JOBS = Integer.getInteger("org.texai.graphwriter.phpWorkerMaxJobs", 1000);
+
+  // the number of milliseconds after which a renderer process is killed
+  private static final long RENDER_TIMEOUT_MILLIS = Long.getLong("org.texai.graphwriter.renderTimeoutMillis", 60_000L);
+
+  // the launcher of the renderer processes
+  private final ProcessLauncher processLauncher = new ProcessLauncher();
+
+  // the GraphViz dot command, e.g. the path of a particular GraphViz installation
+  private final String dotCommand = System.getProperty("org.texai.graphwriter.dotCommand", "dot");
+
+  // the working directory of the PHP workers, against which a relative syntax tree file path is resolved
+  private final Path phpSyntaxTreePath = Paths.get(System.getProperty("org.texai.graphwriter.phpSyntaxTreePath", PHP_SYNTAX_TREE_PATH));
+
+  // the PHP command, e.g. the path of a particular PHP installation
+  private final String phpCommand = System.getProperty("org.texai.graphwriter.phpCommand", "php");
+
+  // the number of milliseconds after which a PHP worker job is considered hung
+  private static final long PHP_WORKER_TIMEOUT_MILLIS = Long.getLong("org.texai.graphwriter.phpWorkerTimeoutMillis", 30_000L);
+
+  // the maximum number of pending and running graph requests
+  private static final int MAX_IN_FLIGHT = Integer.getInteger("org.texai.graphwriter.maxInFlight", 2048);
+
+  // the number of milliseconds that a request waits for room under the BLOCK admission policy
+  private static final long ADMISSION_TIMEOUT_MILLIS = Long.getLong("org.texai.graphwriter.admissionTimeoutMillis", 5_000L);
+
+  // the number of milliseconds that a graph-making thread waits for more GraphViz requests to fill a batch
+  private static final long GRAPHVIZ_BATCH_WINDOW_MILLIS = Long.getLong("org.texai.graphwriter.graphVizBatchWindowMillis", 5L);
+
+  // the share of the graph-making threads that bulk requests may occupy
+  private static final double BULK_SHARE = Double.parseDouble(System.getProperty("org.texai.graphwriter.bulkShare", "0.5"));
+
+  // the indicator whether a running render is killed when a newer request for the same file arrives
+  private static final boolean IS_KILLING_SUPERSEDED_RENDERS = Boolean.getBoolean("org.texai.graphwriter.killSupersededRenders");
+
+  // the selected renderers, indexed by the request type that each renders
+  private final Map<GraphRequestType, Renderer> renderers = new EnumMap<>(GraphRequestType.class);
+
+  // the bulkheads, i.e. the schedulers which admit the graph requests of each selected renderer and run them on its own
+  // graph-making threads, indexed by renderer name
+  private final Map<String, RenderScheduler> renderSchedulers = new LinkedHashMap<>();
+
+  // the floor of the adaptive limit of concurrent renders
+  private static final int MIN_CONCURRENT_RENDERS = Integer.getInteger("org.texai.graphwriter.minConcurrentRenders", 1);
+
+  // the minimum number of milliseconds between adaptations of the concurrency limit
+  private static final long CONCURRENCY_WINDOW_MILLIS = Long.getLong("org.texai.graphwriter.concurrencyWindowMillis", 1_000L);
 
-  // the GraphViz request indicator which files the labeledTree field otherwise used for a PHP syntax tree string
-  private static final String GRAPHVIZ = "*GraphViz*";
+  // the default number of graph making threads of each renderer
+  private final int graphMakingThreadCount;
 
-  final ExecutorService graphMakingExecutor;
+  // the pool of warm PHP syntax tree workers, started when first needed
+  private PHPWorkerPool phpWorkerPool;
+
+  // the render cache directory
+  private static final String RENDER_CACHE_DIRECTORY = System.getProperty("org.texai.graphwriter.renderCacheDirectory", GRAPH_WRITER_PATH + "/cache");
+
+  // the maximum total size of the cached graphs in bytes, or zero to disable the render cache
+  private static final long RENDER_CACHE_MAX_BYTES = Long.getLong("org.texai.graphwriter.renderCacheMaxBytes", 512L * 1024 * 1024);
+
+  // the content-addressed render cache, or null if disabled
+  private RenderCache renderCache;
+
+  // the write-ahead journal file of the accepted requests
+  private static final String JOURNAL_PATH = System.getProperty("org.texai.graphwriter.journalPath", GRAPH_WRITER_PATH + "/journal/requests.journal");
+
+  // the initial size of the journal file in bytes, or zero to disable the journal
+  private static final long JOURNAL_BYTES = Long.getLong("org.texai.graphwriter.journalBytes", 64L * 1024 * 1024);
+
+  // the maximum number of milliseconds between group commits of the journal
+  private static final long JOURNAL_COMMIT_MILLIS = Long.getLong("org.texai.graphwriter.journalCommitMillis", 5L);
+
+  // the write-ahead journal of the accepted requests, whose unfinished requests are replayed on startup, or null if
+  // disabled
+  private RequestJournal requestJournal;
+
+  // the spool directories, separated by the path separator, which are watched for GraphViz and labeled tree files, or
+  // empty to disable the spool-directory ingestion
+  private static final String SPOOL_DIRECTORIES = System.getProperty("org.texai.graphwriter.spoolDirectories", "");
+
+  // the maximum number of claimed spool files in flight
+  private static final int SPOOL_MAX_IN_FLIGHT = Integer.getInteger("org.texai.graphwriter.spoolMaxInFlight", 256);
+
+  // the watcher of the spool directories, or null if disabled
+  private SpoolWatcher spoolWatcher;
+
+  // the number of levels of hash-prefixed subdirectories into which the graphs are sharded, at most four, or zero to
+  // write each graph next to its source
+  private static final int OUTPUT_SHARD_LEVELS = Integer.getInteger("org.texai.graphwriter.outputShardLevels", 0);
+
+  // the placement of the rendered graphs, each of which is written to a temporary file and renamed into place
+  private final OutputLayout outputLayout = new OutputLayout(OUTPUT_SHARD_LEVELS);
+
+  // the number of milliseconds over which the rendered GraphViz files are collected to be deleted as a batch
+  private static final long DOT_CLEANUP_MILLIS = Long.getLong("org.texai.graphwriter.dotCleanupMillis", 100L);
+
+  // the deleter of the rendered GraphViz files, which runs off the render path
+  private final DotFileCleaner dotFileCleaner = new DotFileCleaner(DOT_CLEANUP_MILLIS);
+
+  // the live metrics, which are registered as a JMX MBean and answered to a stats control request
+  private final GraphWriterMetrics metrics;
 
   /**
    * Constructs a new GraphWriter instance.
@@ -100,24 +258,106 @@ public class GraphWriter {
       LOGGER.info("debug is enabled");
     }
     
-    final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
-    LOGGER.info("OperatingSystemMXBean availableProcessors: " + osBean.getAvailableProcessors());
-    LOGGER.info("Runtime availableProcessors: " + Runtime.getRuntime().availableProcessors());
-    int availableProcessors = Math.max(
-            osBean.getAvailableProcessors() - 3, 
-            Runtime.getRuntime().availableProcessors());
-    
-    assert availableProcessors >= 1;
-    
-    graphMakingExecutor = Executors.newFixedThreadPool(availableProcessors);
-    
-    try {
-      serverSocket = new ServerSocket();
-    } catch (IOException ex) {
-      LOGGER.error("Exception when creating the server socket: " + ex.getMessage());
-      LOGGER.error("Exception class: " + ex.getClass().getName() + ", " + ex);
-      System.exit(1);
+    final int availableProcessors = Runtime.getRuntime().availableProcessors();
+    LOGGER.info("Runtime availableProcessors: " + availableProcessors);
+    // the default ceiling of the concurrency limit of each renderer
+    graphMakingThreadCount = Integer.getInteger("org.texai.graphwriter.maxConcurrentRenders", 2 * availableProcessors);
+    final Map<GraphRequestType, AdmissionPolicy> admissionPolicies = new EnumMap<>(GraphRequestType.class);
+    for (final GraphRequestType requestType : GraphRequestType.values()) {
+      admissionPolicies.put(requestType, AdmissionPolicy.valueOf(System.getProperty(
+              "org.texai.graphwriter.admissionPolicy." + requestType,
+              AdmissionPolicy.BLOCK.toString())));
+    }
+    LOGGER.info("admission policies: " + admissionPolicies + ", bulk share: " + BULK_SHARE);
+    LOGGER.info("output layout: " + outputLayout);
+
+    final Map<String, Renderer> availableRenderers = new HashMap<>();
+    for (final Renderer renderer : ServiceLoader.load(Renderer.class)) {
+      availableRenderers.put(renderer.getName(), renderer);
     }
+    for (final GraphRequestType requestType : List.of(GraphRequestType.GRAPHVIZ, GraphRequestType.SYNTAX_TREE)) {
+      final String rendererName = IS_STUB_RENDERER ? NoOpRenderer.NAME : System.getProperty(
+              "org.texai.graphwriter.renderer." + requestType,
+              requestType == GraphRequestType.GRAPHVIZ ? GraphVizRenderer.NAME : "syntax-tree-" + SYNTAX_TREE_RENDERER);
+      final Renderer renderer = availableRenderers.get(rendererName);
+      if (renderer == null || !renderer.getRequestTypes().contains(requestType)) {
+        throw new IllegalArgumentException("no renderer named " + rendererName + " renders " + requestType
+                + " requests, the available renderers are " + availableRenderers.keySet());
+      }
+      LOGGER.info(requestType + " renderer: " + rendererName);
+      renderers.put(requestType, renderer);
+      if (!renderSchedulers.containsKey(rendererName)) {
+        renderSchedulers.put(rendererName, makeRenderScheduler(renderer, availableProcessors, admissionPolicies));
+      }
+    }
+    metrics = new GraphWriterMetrics(renderSchedulers, processLauncher);
+  }
+
+  /**
+   * Makes the bulkhead of the given renderer, i.e. a render scheduler with its own graph-making threads, adaptive
+   * concurrency limit and bounded queue, which are sized by the system properties named after the renderer, or else by
+   * the server-wide settings.
+   *
+   * @param renderer the given renderer
+   * @param availableProcessors the number of available processors
+   * @param admissionPolicies the admission policies, indexed by request type
+   * @return the render scheduler
+   */
+  private RenderScheduler makeRenderScheduler(
+          final Renderer renderer,
+          final int availableProcessors,
+          final Map<GraphRequestType, AdmissionPolicy> admissionPolicies) {
+    //Preconditions
+    assert renderer != null : "renderer must not be null";
+
+    final int maxConcurrentRenders = getMaxConcurrentRenders(renderer.getName());
+    final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(
+            Math.min(availableProcessors, maxConcurrentRenders), // initialLimit
+            Math.min(MIN_CONCURRENT_RENDERS, maxConcurrentRenders), // minLimit
+            maxConcurrentRenders,
+            CONCURRENCY_WINDOW_MILLIS,
+            System.nanoTime());
+    final int maxInFlight = Integer.getInteger("org.texai.graphwriter." + renderer.getName() + ".maxInFlight", MAX_IN_FLIGHT);
+    LOGGER.info(renderer.getName() + " concurrent renders: " + concurrencyLimit + ", max in flight: " + maxInFlight);
+    return new RenderScheduler(
+            renderer.getName(),
+            concurrencyLimit,
+            Math.max(maxInFlight, maxConcurrentRenders),
+            BULK_SHARE,
+            admissionPolicies,
+            ADMISSION_TIMEOUT_MILLIS,
+            IS_KILLING_SUPERSEDED_RENDERS,
+            renderer.getMaxBatchSize(),
+            GRAPHVIZ_BATCH_WINDOW_MILLIS,
+            graphRequests -> makeGraphs(renderer, graphRequests), // graphMaker
+            (graphRequest, graphResult) -> { // discardHandler
+              finishJournaledRequest(graphRequest);
+              sendGraphResult(graphRequest, graphResult, System.nanoTime());
+            });
+  }
+
+  /**
+   * Gets the ceiling of the concurrency limit of the renderer having the given name.
+   *
+   * @param rendererName the given renderer name
+   * @return the maximum number of concurrent renders
+   */
+  private int getMaxConcurrentRenders(final String rendererName) {
+    return Integer.getInteger("org.texai.graphwriter." + rendererName + ".maxConcurrentRenders", graphMakingThreadCount);
+  }
+
+  /**
+   * Gets the name of the renderer of the given request type, by which the metrics count the requests.
+   *
+   * @param requestType the given request type
+   * @return the renderer name, e.g. "graphviz" or "syntax-tree-java", or null for a control request
+   */
+  String getRendererName(final GraphRequestType requestType) {
+    //Preconditions
+    assert requestType != null : "requestType must not be null";
+
+    final Renderer renderer = renderers.get(requestType);
+    return renderer == null ? null : renderer.getName();
   }
 
   /**
@@ -140,21 +380,92 @@ public class GraphWriter {
     // the handler gets a gueued graph request from the ring buffer and executes a shell script to create the graph image
     disruptor.handleEventsWith(new GraphRequestEventHandler(this));
 
+    List<GraphRequest> unfinishedGraphRequests = Collections.emptyList();
+    if (JOURNAL_BYTES > 0) {
+      final RequestJournal newRequestJournal = new RequestJournal(Paths.get(JOURNAL_PATH), JOURNAL_BYTES, JOURNAL_COMMIT_MILLIS);
+      try {
+        unfinishedGraphRequests = newRequestJournal.open();
+        requestJournal = newRequestJournal;
+      } catch (IOException ex) {
+        LOGGER.error("request journal disabled, cannot open " + JOURNAL_PATH + ": " + ex.getMessage());
+      }
+    }
+
+    dotFileCleaner.start();
+    renderSchedulers.values().forEach(RenderScheduler::start);
     disruptor.start();
     ringBuffer = disruptor.getRingBuffer();
+    metrics.setRingBufferRemainingCapacitySupplier(ringBuffer::remainingCapacity);
+    // registering with the platform MBean server starts JMX, which is slow, and is not needed to serve requests
+    final Thread metricsRegistrationThread = new Thread(metrics::register, "metrics-registration");
+    metricsRegistrationThread.setDaemon(true);
+    metricsRegistrationThread.start();
+
+    if (RENDER_CACHE_MAX_BYTES > 0) {
+      final RenderCache newRenderCache = new RenderCache(Paths.get(RENDER_CACHE_DIRECTORY), RENDER_CACHE_MAX_BYTES);
+      try {
+        newRenderCache.initialize();
+        renderCache = newRenderCache;
+      } catch (IOException ex) {
+        LOGGER.error("render cache disabled, cannot initialize " + RENDER_CACHE_DIRECTORY + ": " + ex.getMessage());
+      }
+    }
+
+    for (final Renderer renderer : new LinkedHashSet<>(renderers.values())) {
+      renderer.initialize(this);
+    }
 
     // start server thread
-    serverThread = new Thread(new RequestServer(this));
+    requestServer = new RequestServer(
+            this::publishGraphRequest,
+            LISTENING_PORT,
+            UNIX_SOCKET_PATH.isEmpty() ? null : Paths.get(UNIX_SOCKET_PATH),
+            MAX_PENDING_ACKNOWLEDGEMENTS);
+    try {
+      requestServer.bind();
+    } catch (IOException ex) {
+      LOGGER.error("Exception when binding the server socket: " + ex.getMessage());
+      LOGGER.error("Exception class: " + ex.getClass().getName() + ", " + ex);
+      System.exit(1);
+    }
+    // replay the requests that were accepted but not finished when the previous run ended, once the server
+    // socket is bound and ahead of the new requests
+    if (!unfinishedGraphRequests.isEmpty()) {
+      LOGGER.info("replaying " + unfinishedGraphRequests.size() + " unfinished requests");
+      for (final GraphRequest graphRequest : unfinishedGraphRequests) {
+        graphRequest.setReceivedNanos(System.nanoTime());
+        admitRenderRequest(graphRequest);
+      }
+    }
+
+    serverThread = new Thread(requestServer);
     serverThread.setName("server");
     LOGGER.info("starting GraphWriter server thread...");
     serverThread.start();
+
+    if (!SPOOL_DIRECTORIES.isEmpty()) {
+      final List<Path> spoolDirectories = new ArrayList<>();
+      for (final String spoolDirectory : SPOOL_DIRECTORIES.split(File.pathSeparator)) {
+        if (!spoolDirectory.isBlank()) {
+          spoolDirectories.add(Paths.get(spoolDirectory.strip()));
+        }
+      }
+      final SpoolWatcher newSpoolWatcher = new SpoolWatcher(spoolDirectories, SPOOL_MAX_IN_FLIGHT, this::publishGraphRequest);
+      try {
+        newSpoolWatcher.start();
+        spoolWatcher = newSpoolWatcher;
+      } catch (IOException ex) {
+        LOGGER.error("spool-directory ingestion disabled, cannot watch " + SPOOL_DIRECTORIES + ": " + ex.getMessage());
+        newSpoolWatcher.close();
+      }
+    }
   }
 
   /**
    * Provides an initialized graph request factory for filling the ring
    * buffer.
    */
-  private static class GraphRequestFactory implements EventFactory<GraphRequest> {
+  static class GraphRequestFactory implements EventFactory<GraphRequest> {
 
     /**
      * Instantiates an event object, with all memory already allocated.
@@ -210,14 +521,90 @@ public class GraphWriter {
       assert sequence >= 0 : "sequence must not be negative";
 
       Thread.currentThread().setName("event-handler");
-      if (!graphWriter.isQuit.get()) {
-
-        final GraphMakingRunnable graphMakingRunnable = new GraphMakingRunnable(
-                graphWriter,
-                graphRequest);
-
-        // multiple threads make the requested graph, manually adjusted for CPU capacity
-        graphWriter.graphMakingExecutor.execute(graphMakingRunnable);
+      if (graphRequest.getRequestType() == GraphRequestType.CANCEL) {
+        final long startNanos = System.nanoTime();
+        int count = 0;
+        for (final RenderScheduler renderScheduler : graphWriter.renderSchedulers.values()) {
+          count += renderScheduler.cancel(graphRequest.getFileName());
+        }
+        sendGraphResult(
+                graphRequest,
+                new GraphResult(
+                        GraphResultStatus.OK,
+                        0, // exitCode
+                        "", // outputPath
+                        0, // byteSize
+                        "cancelled " + count + " requests"), // message
+                startNanos);
+      } else if (graphRequest.getRequestType() == GraphRequestType.STATS) {
+        // answer at once, so that the report is not delayed behind the queued renders
+        final long startNanos = System.nanoTime();
+        final String report = graphWriter.metrics.getReport();
+        if (graphRequest.getResultConsumer() == null) {
+          LOGGER.info(report);
+        } else {
+          sendGraphResult(
+                  graphRequest,
+                  new GraphResult(
+                          GraphResultStatus.OK,
+                          0, // exitCode
+                          "", // outputPath
+                          0, // byteSize
+                          report), // message
+                  startNanos);
+        }
+      } else if (graphWriter.isQuit.get()) {
+        // the server is draining, and renders no more requests, but journals a fire-and-forget render request, whose
+        // client polls for its graph file rather than receiving the rejection, so that the next run renders it
+        graphWriter.rejectedAfterQuitCount.incrementAndGet();
+        if (graphWriter.requestJournal != null
+                && graphWriter.getRendererName(graphRequest.getRequestType()) != null
+                && graphRequest.getResultConsumer() == null
+                && graphRequest.getJournalSequence() == 0) {
+          // copy the request because its ring buffer slot is reused once the handler moves on
+          final GraphRequest journaledGraphRequest = new GraphRequest(graphRequest);
+          graphWriter.requestJournal.append(journaledGraphRequest);
+          if (journaledGraphRequest.getJournalSequence() != 0) {
+            graphWriter.journaledAfterQuitCount.incrementAndGet();
+          }
+        }
+        sendGraphResult(
+                graphRequest,
+                new GraphResult(
+                        GraphResultStatus.REJECTED,
+                        -1, // exitCode
+                        "", // outputPath
+                        0, // byteSize
+                        "the server is shutting down"), // message
+                System.nanoTime());
+      } else if (graphRequest.getRequestType() == GraphRequestType.QUIT) {
+        // drain on another thread, so that this handler keeps taking the requests which are already in the ring buffer
+        graphWriter.isQuit.set(true);
+        final GraphRequest quitGraphRequest = new GraphRequest(graphRequest);
+        final Thread shutdownThread = new Thread(() -> graphWriter.drain(quitGraphRequest), "shutdown");
+        // the handler thread is a daemon, but the application must not end before the drain exits it
+        shutdownThread.setDaemon(false);
+        shutdownThread.start();
+      } else if (graphRequest.getRequestType() == GraphRequestType.IGNORE
+              || graphRequest.getRequestType() == GraphRequestType.PING) {
+        // a control request has no renderer, and is acknowledged at once
+        sendGraphResult(
+                graphRequest,
+                new GraphResult(
+                        GraphResultStatus.OK,
+                        0, // exitCode
+                        "", // outputPath
+                        0, // byteSize
+                        ""), // message
+                System.nanoTime());
+      } else {
+
+        // copy the request because its ring buffer slot is reused once the handler moves on
+        graphWriter.admitRenderRequest(new GraphRequest(graphRequest));
+      }
+      if (endOfBatch && graphWriter.requestJournal != null) {
+        // group commit the requests journaled in this batch
+        graphWriter.requestJournal.commit();
       }
     }
   }
@@ -225,7 +612,7 @@ public class GraphWriter {
   /**
    * Provides a graph making thread.
    */
-  private static class GraphMakingRunnable implements Runnable {
+  static class GraphMakingRunnable implements Runnable {
 
     // the parent GraphWriter instance
     private final GraphWriter graphWriter;
@@ -233,6 +620,12 @@ public class GraphWriter {
     // the graph request
     final GraphRequest graphRequest;
 
+    // the System.nanoTime() at which rendering began
+    private final long startNanos = System.nanoTime();
+
+    // the indicator that the request deadline had passed when rendering began
+    private final boolean isExpired;
+
     GraphMakingRunnable(
             final GraphWriter graphWriter,
             final GraphRequest graphRequest) {
@@ -242,373 +635,1616 @@ public class GraphWriter {
 
       this.graphWriter = graphWriter;
       this.graphRequest = graphRequest;
+      isExpired = graphRequest.getDeadlineMillis() != 0 && System.currentTimeMillis() > graphRequest.getDeadlineMillis();
+      if (isExpired) {
+        LOGGER.info("deadline passed, skipping: " + graphRequest);
+      }
     }
 
     /**
-     * Makes the desired graph.
+     * Makes the desired graph, and sends the completion acknowledgement when one is wanted.
      */
     @Override
     public void run() {
+      makeGraph();
+    }
+
+    /**
+     * Makes the desired graph, and sends the completion acknowledgement when one is wanted.
+     *
+     * @return the graph result
+     */
+    GraphResult makeGraph() {
       // process a new entry as it becomes available.
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("processing: " + graphRequest);
       }
-      switch (graphRequest.getFileName()) {
-        case "quit" -> {
-          graphWriter.finalization();
-          return;
-        }
+      final GraphResult graphResult;
+      if (isExpired) {
+        graphResult = makeExpiredGraphResult();
+      } else {
+        graphResult = graphWriter.renderers.get(graphRequest.getRequestType())
+                .render(Collections.singletonList(graphRequest))
+                .get(0);
+      }
+      return complete(graphResult);
+    }
 
-        case "ignore" -> {
-          return;
-        }
+    /**
+     * Makes the result of a request whose deadline had passed.
+     *
+     * @return the expired graph result
+     */
+    static GraphResult makeExpiredGraphResult() {
+      return new GraphResult(
+              GraphResultStatus.EXPIRED,
+              -1, // exitCode
+              "", // outputPath
+              0, // byteSize
+              "deadline passed"); // message
+    }
 
-        default -> {
-          if (GRAPHVIZ.equals(graphRequest.getLabeledTree())) {
-            graphWriter.graphVizDiagram(graphRequest.getFileName());
-          } else {
-            graphWriter.graphPHPSyntaxTree(
-                    graphRequest.getFileName(),
-                    graphRequest.getLabeledTree());
-          }
-        }
+    /**
+     * Sends the completion acknowledgement with the given graph result, or with the cancel status when the request was
+     * superseded or cancelled while rendering.
+     *
+     * @param graphResult the given graph result
+     * @return the given graph result
+     */
+    GraphResult complete(final GraphResult graphResult) {
+      final GraphResultStatus cancelStatus = graphRequest.getCancelStatus();
+      graphWriter.finishJournaledRequest(graphRequest);
+      final String rendererName = graphWriter.getRendererName(graphRequest.getRequestType());
+      if (rendererName != null) {
+        graphWriter.metrics.recordResult(
+                rendererName,
+                cancelStatus == null ? graphResult.getStatus() : cancelStatus,
+                (startNanos - graphRequest.getReceivedNanos()) / 1000, // queueMicros
+                (System.nanoTime() - startNanos) / 1000); // renderMicros
       }
+      if (cancelStatus != null) {
+        // the request was superseded or cancelled while rendering
+        graphResult.closeInlineImages();
+        sendGraphResult(
+                graphRequest,
+                new GraphResult(
+                        cancelStatus,
+                        graphResult.getExitCode(),
+                        graphResult.getOutputPath(),
+                        0, // byteSize
+                        "interrupted while rendering"), // message
+                startNanos);
+      } else {
+        sendGraphResult(graphRequest, graphResult, startNanos);
+      }
+      return graphResult;
     }
 
   }
 
   /**
-   * Finalizes this application and releases its resources.
+   * Journals the given render request unless it is already journaled, or it
+   * is answered to a result consumer, and admits it to the priority lane of
+   * the bulkhead of its renderer, which never blocks the caller.
+   *
+   * @param graphRequest the given render request
    */
-  public void finalization() {
-    LOGGER.info("finishing GraphWriter...");
-    isQuit.set(true);
-    if (serverThread != null) {
-      serverThread.interrupt();
+  private void admitRenderRequest(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    final String rendererName = getRendererName(graphRequest.getRequestType());
+    assert rendererName != null : "graphRequest must be a render request";
+    if (requestJournal != null && graphRequest.getJournalSequence() == 0) {
+      requestJournal.append(graphRequest);
     }
-    try {
-      serverSocket.close();
-    } catch (IOException ex) {
+    if (renderSchedulers.get(rendererName).admit(graphRequest)) {
+      metrics.recordAccepted(rendererName);
     }
-    graphingRequestExecutor.shutdown();
-    LOGGER.info("GraphWriter shutdown.");
-    System.exit(0);
   }
 
   /**
-   * Provides a request server that listens on a certain port for graphing
-   * requests, and then queues them.
+   * Records in the journal that the given request is finished, i.e. that it
+   * is rendered, or that it is shed, superseded or cancelled.
+   *
+   * @param graphRequest the given request
    */
-  private static class RequestServer implements Runnable {
-
-    // the graph writer
-    private final GraphWriter graphWriter;
-
-    /**
-     * Constructs a new RequestServer instance.
-     *
-     * @param graphWriter the graph writer
-     */
-    RequestServer(final GraphWriter graphWriter) {
-      //Preconditions
-      assert graphWriter != null : "graphWriter must not be null";
-
-      this.graphWriter = graphWriter;
-    }
-
-    /**
-     * Executes this request server.
-     */
-    @Override
-    public void run() {
-      // listen on the socket
-      try {
-        try {
-          final SocketAddress socketAddress = new InetSocketAddress(
-                  InetAddress.getLoopbackAddress(), // ip,
-                  LISTENING_PORT);
-          graphWriter.serverSocket.bind(socketAddress);
-        } catch (IOException ex) {
-          LOGGER.error("ServerSocket exception: " + ex.getMessage());
-          System.exit(1);
-        }
-        assert graphWriter.serverSocket != null;
-        LOGGER.info("  listening for connections on " + graphWriter.serverSocket.getLocalPort() + "...");
-
-        // handle client graphing requests
-        while (true) {
-          final Socket clientSocket = graphWriter.serverSocket.accept();
-          if (graphWriter.isQuit.get()) {
-            return;
-          }
-          LOGGER.info("  accepted request...");
-          final RequestHandler requestHandler = new RequestHandler(graphWriter, clientSocket);
-          graphWriter.graphingRequestExecutor.execute(requestHandler);
-        }
-
-      } catch (SocketException ex) {
-        if (!graphWriter.isQuit.get()) {
-          throw new RuntimeException(ex);
-        }
-      } catch (IOException ex) {
-        throw new RuntimeException(ex);
-      }
+  private void finishJournaledRequest(final GraphRequest graphRequest) {
+    if (requestJournal != null) {
+      requestJournal.finish(graphRequest);
     }
   }
 
   /**
-   * Provides a runnable to handle a graph request on the server socket.
+   * Makes the graphs of the given requests with the given renderer, which are
+   * a single request or a batch of GraphViz requests taken together by the
+   * bulkhead of the renderer, and sends their completion acknowledgements.
+   *
+   * @param renderer the given renderer
+   * @param graphRequests the given requests
+   * @return the graph results, in the order of the requests
    */
-  private static class RequestHandler implements Runnable {
-
-    // the graph writer
-    private final GraphWriter graphWriter;
-
-    // the disruptor event translator (slot populator)
-    private final EventTranslatorOneArg graphRequestEventTranslatorOneArg = new GraphRequestEventTranslatorOneArg();
-
-    // the connection to the client
-    final Socket clientSocket;
-
-    /**
-     * Constructs a new RequestHandler instance.
-     *
-     * @param graphWriter the graph writer
-     * @param clientSocket the client socket
-     */
-    RequestHandler(
-            final GraphWriter graphWriter,
-            final Socket clientSocket) {
-      //Preconditions
-      assert graphWriter != null : "graphWriter must not be null";
+  private List<GraphResult> makeGraphs(final Renderer renderer, final List<GraphRequest> graphRequests) {
+    //Preconditions
+    assert renderer != null : "renderer must not be null";
+    assert graphRequests != null : "graphRequests must not be null";
+    assert !graphRequests.isEmpty() : "graphRequests must not be empty";
 
-      this.graphWriter = graphWriter;
-      this.clientSocket = clientSocket;
+    if (graphRequests.size() == 1) {
+      return Collections.singletonList(new GraphMakingRunnable(this, graphRequests.get(0)).makeGraph());
     }
-
-    /**
-     * Gets the graph request and puts into the ring buffer.
-     */
-    @Override
-    public void run() {
-      final BufferedReader bufferedReader;
-      try {
-        bufferedReader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-      } catch (IOException ex) {
-        throw new RuntimeException(ex);
+    final List<GraphMakingRunnable> graphMakingRunnables = new ArrayList<>(graphRequests.size());
+    final List<GraphRequest> renderedGraphRequests = new ArrayList<>(graphRequests.size());
+    for (final GraphRequest graphRequest : graphRequests) {
+      assert renderer.getRequestTypes().contains(graphRequest.getRequestType()) : "request type not rendered by " + renderer.getName();
+      final GraphMakingRunnable graphMakingRunnable = new GraphMakingRunnable(this, graphRequest);
+      graphMakingRunnables.add(graphMakingRunnable);
+      if (!graphMakingRunnable.isExpired) {
+        renderedGraphRequests.add(graphRequest);
       }
-      final GraphRequest graphRequest = GraphRequest.makeGraphRequest(bufferedReader);
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("queuing: " + graphRequest);
+    }
+    final Iterator<GraphResult> renderedGraphResults = renderedGraphRequests.isEmpty()
+            ? Collections.emptyIterator()
+            : renderer.render(renderedGraphRequests).iterator();
+    final List<GraphResult> graphResults = new ArrayList<>(graphRequests.size());
+    for (final GraphMakingRunnable graphMakingRunnable : graphMakingRunnables) {
+      if (graphMakingRunnable.isExpired) {
+        graphResults.add(graphMakingRunnable.complete(GraphMakingRunnable.makeExpiredGraphResult()));
+      } else {
+        graphResults.add(graphMakingRunnable.complete(renderedGraphResults.next()));
       }
-
-      // put the request into the ring buffer
-      graphWriter.ringBuffer.publishEvent(
-              graphRequestEventTranslatorOneArg,
-              graphRequest); // arg0, the request to be moved field by field into the next ring buffer slot
     }
-
+    return graphResults;
   }
 
   /**
-   * Provides a disruptor event translator that populates a graph request slot
-   * in the ring buffer with a received graph request.
+   * Returns whether the rendered images of the given graph request are
+   * returned in its completion acknowledgement, which is only sent when the
+   * request has a request id.
+   *
+   * @param graphRequest the given graph request
+   * @return whether the rendered images are returned inline
    */
-  private static class GraphRequestEventTranslatorOneArg implements EventTranslatorOneArg<GraphRequest, GraphRequest> {
-
-    /**
-     * Translates a data representation into fields set in the given event
-     *
-     * @param event the ring buffer graph request into which the data should
-     * be translated
-     * @param sequence the event sequence number
-     * @param arg0 the received graph request from the client app
-     */
-    @Override
-    public void translateTo(
-            final GraphRequest event,
-            final long sequence,
-            final GraphRequest arg0) {
-      //Preconditions
-      assert event != null : "event must not be null";
-      assert sequence >= 0 : "sequence must not be negative";
-      assert arg0 != null : "arg0 must not be null";
+  static boolean isInline(final GraphRequest graphRequest) {
+    return graphRequest.isInline() && graphRequest.getResultConsumer() != null;
+  }
 
-      event.setFileName(arg0.getFileName());
-      event.setLabeledTree(arg0.getLabeledTree());
+  /**
+   * Sends the completion acknowledgement of the given graph request, when one
+   * is wanted.
+   *
+   * @param graphRequest the given graph request
+   * @param graphResult the graph result
+   * @param startNanos the System.nanoTime() at which rendering began
+   */
+  private static void sendGraphResult(
+          final GraphRequest graphRequest,
+          final GraphResult graphResult,
+          final long startNanos) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+    assert graphResult != null : "graphResult must not be null";
+
+    final Consumer<GraphResult> resultConsumer = graphRequest.getResultConsumer();
+    if (resultConsumer != null) {
+      final long endNanos = System.nanoTime();
+      graphResult.setRequestId(graphRequest.getRequestId());
+      graphResult.setQueueMicros(Math.max(0, (startNanos - graphRequest.getReceivedNanos()) / 1000));
+      graphResult.setRenderMicros((endNanos - startNanos) / 1000);
+      resultConsumer.accept(graphResult);
     }
   }
 
   /**
-   * Emits a labeled tree graph for the parsing interpretation tree.
-   * Synchronized to issue only one graph at at time.
+   * Shuts down this application gracefully in response to the given quit
+   * request. No more connections are accepted and no more requests are
+   * rendered, while the requests already admitted are drained until the quit
+   * deadline, or else the shutdown timeout, passes. The requests remaining at
+   * the deadline are abandoned, which kills their renderer processes, and
+   * stay unfinished in the journal so that the next run replays them. The
+   * requests that arrive after the quit request are rejected, and those
+   * without a completion acknowledgement are journaled to be replayed too,
+   * while the journal is open. The quit request is acknowledged with the
+   * numbers of completed, failed, abandoned and rejected requests before
+   * the application exits, where the completed and failed requests are
+   * those that the metrics counted during the drain.
    *
-   * @param filePath the graph file path
-   * @param labeledTree the labeled tree
+   * @param quitGraphRequest the given quit request
    */
-  public void graphPHPSyntaxTree(
-          final String filePath,
-          final String labeledTree) {
+  void drain(final GraphRequest quitGraphRequest) {
     //Preconditions
-    assert filePath != null : "filePath must not be null";
-    assert !filePath.isEmpty() : "filePath must not be empty";
-    assert labeledTree != null : "labeledTree must not be null";
-    assert !labeledTree.isEmpty() : "labeledTree must not be empty for: " + filePath;
-
-    if (System.getProperty("file.separator").equals("\\")) {
-      // do not try to create a PHP syntax tree on Windows
-      return;
+    assert quitGraphRequest != null : "quitGraphRequest must not be null";
+
+    final long startNanos = System.nanoTime();
+    final long timeoutMillis = quitGraphRequest.getDeadlineMillis() == 0
+            ? SHUTDOWN_TIMEOUT_MILLIS
+            : Math.max(0, quitGraphRequest.getDeadlineMillis() - System.currentTimeMillis());
+    final long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    if (spoolWatcher != null) {
+      // the unclaimed spool files are left for another server or the next run
+      spoolWatcher.close();
     }
-    String[] cmdArray = {
-      "sh",
-      "-c",
-      ""
-    };
-    final StringBuilder stringBuilder = new StringBuilder(1000);
-    stringBuilder.append("cd ");
-    stringBuilder.append(PHP_SYNTAX_TREE_PATH);
-    stringBuilder.append(" ; php graph.php ");
-    stringBuilder.append(filePath);
-    stringBuilder.append(".png \"");
-    stringBuilder.append(labeledTree);
-    stringBuilder.append("\"");
-    cmdArray[2] = stringBuilder.toString();
-    if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("  shell cmd: " + cmdArray[2]);
+    if (requestServer != null) {
+      requestServer.stopAccepting();
     }
-
+    // the requests that finish from here on are counted by the drain report
+    final long initialCompletedCount = sumCounts(metrics.getCompletedCounts());
+    final long initialFailedCount = sumCounts(metrics.getFailedCounts());
+    int inFlightCount = 0;
+    for (final RenderScheduler renderScheduler : renderSchedulers.values()) {
+      inFlightCount += renderScheduler.getInFlightCount();
+    }
+    LOGGER.info("draining GraphWriter, with " + inFlightCount + " requests in flight and a timeout of " + timeoutMillis + " ms...");
+    int abandonedCount = 0;
     try {
-      final Process process = Runtime.getRuntime().exec(cmdArray);
-      final StreamConsumer errorConsumer = new StreamConsumer(process.getErrorStream(), LOGGER);
-      final StreamConsumer outputConsumer = new StreamConsumer(process.getInputStream(), LOGGER);
-      errorConsumer.setName("errorConsumer");
-      errorConsumer.start();
-      outputConsumer.setName("outputConsumer");
-      outputConsumer.start();
-      int exitVal = process.waitFor();
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("  exitVal: " + exitVal);
-      } else if (exitVal != 0) {
-        LOGGER.warn("process terminated with a non-zero exit value " + exitVal);
-        LOGGER.warn("labeledTree...\n " + labeledTree);
+      boolean isDrained = true;
+      for (final RenderScheduler renderScheduler : renderSchedulers.values()) {
+        isDrained &= renderScheduler.awaitIdle(deadlineNanos);
       }
-
-      process.getInputStream().close();
-      process.getOutputStream().close();
-    } catch (InterruptedException ex) {
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("interrupted");
+      if (!isDrained) {
+        if (requestJournal != null) {
+          // close the journal first, so that the abandoned requests are not journaled as finished
+          requestJournal.close();
+        }
+        for (final RenderScheduler renderScheduler : renderSchedulers.values()) {
+          abandonedCount += renderScheduler.abandon();
+        }
       }
-    } catch (final IOException ex) {
-      throw new RuntimeException(ex);
+      for (final RenderScheduler renderScheduler : renderSchedulers.values()) {
+        renderScheduler.shutdown();
+      }
+      // the interrupted renders stop once their renderer processes are killed
+      final long terminationDeadlineNanos = Math.max(deadlineNanos, System.nanoTime())
+              + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_GRACE_MILLIS);
+      for (final RenderScheduler renderScheduler : renderSchedulers.values()) {
+        if (!renderScheduler.awaitTermination(terminationDeadlineNanos)) {
+          LOGGER.warn("the graph-making threads of " + renderScheduler + " did not stop");
+        }
+      }
+    } catch (InterruptedException ex) {
+      LOGGER.warn("the drain was interrupted");
     }
+    final String report = "drained in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)
+            + " ms, completed " + (sumCounts(metrics.getCompletedCounts()) - initialCompletedCount)
+            + ", failed " + (sumCounts(metrics.getFailedCounts()) - initialFailedCount) + ", abandoned " + abandonedCount
+            + ", rejected after quit " + rejectedAfterQuitCount.get() + " (journaled " + journaledAfterQuitCount.get() + ")";
+    LOGGER.info(report);
+    sendGraphResult(
+            quitGraphRequest,
+            new GraphResult(
+                    GraphResultStatus.OK,
+                    0, // exitCode
+                    "", // outputPath
+                    0, // byteSize
+                    report), // message
+            startNanos);
+    finalization();
   }
 
   /**
-   * Emits a GraphViz diagram. Synchronized to issue only one graph at at
-   * time.
+   * Sums the given request counts of the renderer types.
    *
-   * @param filePath the graph file path
+   * @param counts the request counts, keyed by renderer type
+   * @return the total count
    */
-  public void graphVizDiagram(final String filePath) {
-    //Preconditions
+  private static long sumCounts(final Map<String, Long> counts) {
+    long totalCount = 0;
+    for (final long count : counts.values()) {
+      totalCount += count;
+    }
+    return totalCount;
+  }
+
+  /**
+   * Finalizes this application and releases its resources. The requests
+   * still pending are left unfinished in the journal, to be replayed by the
+   * next run.
+   */
+  public void finalization() {
+    LOGGER.info("finishing GraphWriter...");
+    isQuit.set(true);
+    if (requestServer != null) {
+      // write the queued completion acknowledgements, including the one of the quit request, before exiting
+      requestServer.close(SHUTDOWN_GRACE_MILLIS);
+      try {
+        serverThread.join(SHUTDOWN_GRACE_MILLIS + 1_000);
+      } catch (InterruptedException ex) {
+        // ignore
+      }
+    }
+    for (final RenderScheduler renderScheduler : renderSchedulers.values()) {
+      renderScheduler.shutdown();
+      LOGGER.info(renderScheduler.toString());
+    }
+    dotFileCleaner.close();
+    LOGGER.info(dotFileCleaner.toString());
+    if (spoolWatcher != null) {
+      spoolWatcher.close();
+    }
+    if (requestJournal != null) {
+      // leave the pending requests to be replayed by the next run
+      requestJournal.close();
+    }
+    metrics.unregister();
+    LOGGER.info(metrics.getReport());
+    if (renderCache != null) {
+      LOGGER.info(renderCache.toString());
+    }
+    synchronized (this) {
+      if (phpWorkerPool != null) {
+        phpWorkerPool.shutdown();
+      }
+    }
+    for (final Renderer renderer : new LinkedHashSet<>(renderers.values())) {
+      renderer.shutdown();
+    }
+    processLauncher.shutdown();
+    LOGGER.info(processLauncher.toString());
+    LOGGER.info("GraphWriter shutdown.");
+    System.exit(0);
+  }
+
+  /**
+   * Puts the given graph request into the next ring buffer slot, field by
+   * field. The request server thread must never block, so when the ring
+   * buffer is full the request is shed rather than waiting for a free slot.
+   * A syntax tree request whose labeled tree is malformed fails at once,
+   * without taking a ring buffer slot or a render slot.
+   *
+   * @param graphRequest the given graph request
+   */
+  void publishGraphRequest(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    if (graphRequest.getRequestType() == GraphRequestType.SYNTAX_TREE && !validateLabeledTree(graphRequest)) {
+      return;
+    }
+    if (!ringBuffer.tryPublishEvent(
+            GRAPH_REQUEST_EVENT_TRANSLATOR,
+            graphRequest)) { // arg0, the request to be moved field by field into the next ring buffer slot
+      final RenderScheduler renderScheduler = renderSchedulers.get(getRendererName(graphRequest.getRequestType()));
+      if (renderScheduler == null) {
+        // a control request is shed by any bulkhead, which only acknowledges it
+        renderSchedulers.values().iterator().next().shed(graphRequest, "the request ring buffer is full");
+      } else {
+        renderScheduler.shed(graphRequest, "the request ring buffer is full");
+      }
+    }
+  }
+
+  /**
+   * Validates the labeled tree of the given syntax tree request, and records
+   * its number of nodes and depth in the request as size hints. A request
+   * whose labeled tree is invalid is acknowledged as failed.
+   *
+   * @param graphRequest the given syntax tree request
+   * @return whether the labeled tree is valid
+   */
+  private boolean validateLabeledTree(final GraphRequest graphRequest) {
+    final LabeledTreeValidator labeledTreeValidator = new LabeledTreeValidator(graphRequest.getLabeledTree(), MAX_TREE_NODES);
+    graphRequest.setTreeNodeCount(labeledTreeValidator.getNodeCount());
+    graphRequest.setTreeDepth(labeledTreeValidator.getDepth());
+    if (labeledTreeValidator.isValid()) {
+      return true;
+    }
+    metrics.recordInvalid();
+    if (graphRequest.getResultConsumer() == null) {
+      LOGGER.warn(labeledTreeValidator.getErrorMessage() + ", not rendering " + graphRequest);
+    } else {
+      sendGraphResult(
+              graphRequest,
+              new GraphResult(
+                      GraphResultStatus.FAILED,
+                      -1, // exitCode
+                      "", // outputPath
+                      0, // byteSize
+                      labeledTreeValidator.getErrorMessage()), // message
+              System.nanoTime());
+    }
+    return false;
+  }
+
+  /**
+   * Gets the bulkhead of the given request type, i.e. the scheduler which
+   * admits its graph requests and runs them on the graph-making threads of
+   * its renderer.
+   *
+   * @param requestType the given request type
+   * @return the render scheduler, or null for a control request
+   */
+  public RenderScheduler getRenderScheduler(final GraphRequestType requestType) {
+    return renderSchedulers.get(getRendererName(requestType));
+  }
+
+  /**
+   * Gets the bulkheads, indexed by renderer name.
+   *
+   * @return the render schedulers
+   */
+  public Map<String, RenderScheduler> getRenderSchedulers() {
+    return Collections.unmodifiableMap(renderSchedulers);
+  }
+
+  /**
+   * Provides a disruptor event translator that populates a graph request slot
+   * in the ring buffer with a received graph request.
+   */
+  static class GraphRequestEventTranslatorOneArg implements EventTranslatorOneArg<GraphRequest, GraphRequest> {
+
+    /**
+     * Translates a data representation into fields set in the given event
+     *
+     * @param event the ring buffer graph request into which the data should
+     * be translated
+     * @param sequence the event sequence number
+     * @param arg0 the received graph request from the client app
+     */
+    @Override
+    public void translateTo(
+            final GraphRequest event,
+            final long sequence,
+            final GraphRequest arg0) {
+      //Preconditions
+      assert event != null : "event must not be null";
+      assert sequence >= 0 : "sequence must not be negative";
+      assert arg0 != null : "arg0 must not be null";
+
+      event.setRequestType(arg0.getRequestType());
+      event.setFileName(arg0.getFileName());
+      event.setLabeledTree(arg0.getLabeledTree());
+      event.setOutputFormat(arg0.getOutputFormat());
+      event.setInline(arg0.isInline());
+      event.setPriority(arg0.getPriority());
+      event.setDeadlineMillis(arg0.getDeadlineMillis());
+      event.setRequestId(arg0.getRequestId());
+      event.setReceivedNanos(arg0.getReceivedNanos());
+      event.setResultConsumer(arg0.getResultConsumer());
+      event.setJournalSequence(arg0.getJournalSequence());
+      event.setTreeNodeCount(arg0.getTreeNodeCount());
+      event.setTreeDepth(arg0.getTreeDepth());
+    }
+  }
+
+  /**
+   * Emits a labeled tree graph for the parsing interpretation tree, using the
+   * Java or the PHP syntax tree renderer, in each image format of the given output
+   * format that is not already cached. The Java renderer draws the images of
+   * an inline request in memory, whereas the PHP workers can only write files,
+   * which are opened for the acknowledgement and deleted.
+   *
+   * @param filePath the graph file path
+   * @param labeledTree the labeled tree
+   * @param outputFormat the output format
+   * @param isInline whether the images are returned in the acknowledgement
+   * instead of in output files
+   * @param isPHPRenderer whether the phpsyntaxtree workers render the graph
+   * instead of the in-JVM renderer
+   * @return the graph result
+   */
+  public GraphResult graphSyntaxTree(
+          final String filePath,
+          final String labeledTree,
+          final GraphOutputFormat outputFormat,
+          final boolean isInline,
+          final boolean isPHPRenderer) {
+    //Preconditions
+    assert filePath != null : "filePath must not be null";
+    assert !filePath.isEmpty() : "filePath must not be empty";
+    assert labeledTree != null : "labeledTree must not be null";
+    assert !labeledTree.isEmpty() : "labeledTree must not be empty for: " + filePath;
+    assert outputFormat != null : "outputFormat must not be null";
+
+    final List<String> extensions = outputFormat.getExtensions();
+    final Path[] outputPaths = new Path[extensions.size()];
+    final String[] cacheKeys = new String[extensions.size()];
+    final InlineImage[] inlineImages = new InlineImage[extensions.size()];
+    final List<String> renderedExtensions = new ArrayList<>(extensions.size());
+    for (int i = 0; i < outputPaths.length; i++) {
+      final String extension = extensions.get(i);
+      outputPaths[i] = resolveSyntaxTreePath(filePath, extension);
+      if (renderCache != null) {
+        cacheKeys[i] = RenderCache.makeKey(
+                makeRendererType(isPHPRenderer ? PHPSyntaxTreeRenderer.NAME : JavaSyntaxTreeRenderer.NAME, extension), // rendererType
+                labeledTree.getBytes(StandardCharsets.UTF_8)); // payload
+        if (isInline) {
+          inlineImages[i] = renderCache.fetchInline(cacheKeys[i], GraphOutputFormat.fromExtension(extension));
+          if (inlineImages[i] != null) {
+            continue;
+          }
+        } else if (fetchCachedGraph(cacheKeys[i], GraphOutputFormat.fromExtension(extension), outputPaths[i])) {
+          continue;
+        }
+      }
+      renderedExtensions.add(extension);
+    }
+    if (renderedExtensions.isEmpty()) {
+      if (isInline) {
+        return makeInlineGraphResult(GraphResultStatus.CACHED, 0, inlineImages, outputPaths);
+      }
+      return makeGraphResult(GraphResultStatus.CACHED, 0, outputPaths);
+    }
+    if (isInline && !isPHPRenderer) {
+      final byte[][] renderedImages = drawJavaSyntaxTree(labeledTree, renderedExtensions);
+      if (renderedImages == null) {
+        Arrays.stream(inlineImages).filter(inlineImage -> inlineImage != null).forEach(InlineImage::close);
+        return new GraphResult(GraphResultStatus.FAILED, -1, "", 0, "no graph was written");
+      }
+      int renderedIndex = 0;
+      for (int i = 0; i < inlineImages.length; i++) {
+        if (inlineImages[i] == null) {
+          final byte[] renderedImage = renderedImages[renderedIndex++];
+          inlineImages[i] = new InlineImage(GraphOutputFormat.fromExtension(extensions.get(i)), renderedImage);
+          if (renderCache != null) {
+            renderCache.store(cacheKeys[i], GraphOutputFormat.fromExtension(extensions.get(i)), renderedImage);
+          }
+        }
+      }
+      return makeInlineGraphResult(GraphResultStatus.OK, 0, inlineImages, outputPaths);
+    }
+    final boolean isRendered;
+    if (isPHPRenderer) {
+      isRendered = graphPHPSyntaxTree(filePath, labeledTree, renderedExtensions);
+    } else {
+      isRendered = graphJavaSyntaxTree(filePath, labeledTree, renderedExtensions);
+    }
+    if (isRendered && renderCache != null) {
+      for (int i = 0; i < outputPaths.length; i++) {
+        if (renderedExtensions.contains(extensions.get(i))) {
+          renderCache.store(cacheKeys[i], GraphOutputFormat.fromExtension(extensions.get(i)), outputPaths[i]);
+        }
+      }
+    }
+    if (isInline) {
+      return makeInlineGraphResult(GraphResultStatus.OK, isRendered ? 0 : -1, inlineImages, outputPaths);
+    }
+    return makeGraphResult(
+            GraphResultStatus.OK,
+            isRendered ? 0 : -1, // exitCode
+            outputPaths);
+  }
+
+  /**
+   * Makes the renderer type of the render cache key for the given image
+   * format, which is the given renderer name for a PNG image, so that the
+   * cached PNG images keep their keys.
+   *
+   * @param rendererName the given renderer name
+   * @param extension the image format extension
+   * @return the renderer type
+   */
+  private static String makeRendererType(
+          final String rendererName,
+          final String extension) {
+    return "png".equals(extension) ? rendererName : rendererName + "-" + extension;
+  }
+
+  /**
+   * Makes the result of a graph request from the graph files at the given
+   * output paths, which is a failure when the renderer did not write all of
+   * them. The result has the first output path, i.e. that of the PNG image
+   * when one is wanted, and the total size of the graph files.
+   *
+   * @param status the status when the graph files exist
+   * @param exitCode the renderer exit code
+   * @param outputPaths the output paths, one for each image format
+   * @return the graph result
+   */
+  private static GraphResult makeGraphResult(
+          final GraphResultStatus status,
+          final int exitCode,
+          final Path... outputPaths) {
+    //Preconditions
+    assert status != null : "status must not be null";
+    assert outputPaths != null : "outputPaths must not be null";
+    assert outputPaths.length > 0 : "outputPaths must not be empty";
+
+    long byteSize = 0;
+    boolean isWritten = exitCode == 0;
+    for (final Path outputPath : outputPaths) {
+      long fileSize = 0;
+      try {
+        if (Files.isRegularFile(outputPath)) {
+          fileSize = Files.size(outputPath);
+        }
+      } catch (IOException ex) {
+        // reported as a failure
+      }
+      isWritten &= fileSize > 0;
+      byteSize += fileSize;
+    }
+    if (isWritten) {
+      return new GraphResult(status, exitCode, outputPaths[0].toString(), byteSize, "");
+    } else {
+      return new GraphResult(GraphResultStatus.FAILED, exitCode, outputPaths[0].toString(), 0, "no graph was written");
+    }
+  }
+
+  /**
+   * Makes the result of an inline graph request from the given images, whose
+   * missing entries are taken from the graph files that a renderer wrote at
+   * the given output paths. Each such file is opened for the acknowledgement
+   * and deleted at once, so that no output file persists. The result is a
+   * failure when an image is missing, or when the images together exceed the
+   * maximum frame length, and then the files that the renderer wrote are
+   * deleted too.
+   *
+   * @param status the status when all the images exist
+   * @param exitCode the renderer exit code
+   * @param inlineImages the images in memory or from the render cache, in the
+   * order of the output format extensions, whose null entries are taken from
+   * the output paths
+   * @param outputPaths the output paths, one for each image format
+   * @return the graph result
+   */
+  private static GraphResult makeInlineGraphResult(
+          final GraphResultStatus status,
+          final int exitCode,
+          final InlineImage[] inlineImages,
+          final Path[] outputPaths) {
+    //Preconditions
+    assert status != null : "status must not be null";
+    assert inlineImages != null : "inlineImages must not be null";
+    assert outputPaths != null : "outputPaths must not be null";
+    assert inlineImages.length == outputPaths.length : "there must be an output path for each image";
+
+    String message = "no graph was written";
+    final List<Path> renderedPaths = new ArrayList<>(outputPaths.length);
+    for (int i = 0; i < inlineImages.length; i++) {
+      if (inlineImages[i] == null) {
+        renderedPaths.add(outputPaths[i]);
+      }
+    }
+    if (exitCode == 0) {
+      for (int i = 0; i < inlineImages.length; i++) {
+        if (inlineImages[i] == null && Files.isRegularFile(outputPaths[i])) {
+          try {
+            final String fileName = outputPaths[i].getFileName().toString();
+            inlineImages[i] = InlineImage.open(
+                    GraphOutputFormat.fromExtension(fileName.substring(fileName.lastIndexOf('.') + 1)), // format
+                    outputPaths[i],
+                    true); // isDeleted
+          } catch (IOException ex) {
+            LOGGER.warn("cannot open the graph " + outputPaths[i] + ": " + ex.getMessage());
+          }
+        }
+      }
+    }
+    long byteSize = 0;
+    boolean isWritten = exitCode == 0;
+    for (final InlineImage inlineImage : inlineImages) {
+      isWritten &= inlineImage != null && inlineImage.getByteSize() > 0;
+      if (inlineImage != null) {
+        byteSize += inlineImage.getByteSize();
+      }
+    }
+    final GraphResult graphResult = new GraphResult(status, exitCode, "", byteSize, "");
+    for (final InlineImage inlineImage : inlineImages) {
+      if (inlineImage != null) {
+        graphResult.addInlineImage(inlineImage);
+      }
+    }
+    if (isWritten && GraphResultCodec.getFrameLength(graphResult) > GraphRequestCodec.MAX_FRAME_LENGTH) {
+      isWritten = false;
+      message = "the images exceed the maximum frame length of " + GraphRequestCodec.MAX_FRAME_LENGTH + " bytes";
+    }
+    if (isWritten) {
+      return graphResult;
+    } else {
+      graphResult.closeInlineImages();
+      deleteGraphs(renderedPaths.toArray(Path[]::new));
+      return new GraphResult(GraphResultStatus.FAILED, exitCode, "", 0, message);
+    }
+  }
+
+  /**
+   * Makes the result of an inline graph request from the given result of
+   * rendering its graph files, opening and deleting the files when they were
+   * written.
+   *
+   * @param graphResult the given result of rendering the graph files
+   * @param outputPaths the output paths, one for each image format
+   * @return the inline graph result
+   */
+  private static GraphResult inlineGraphFiles(
+          final GraphResult graphResult,
+          final Path[] outputPaths) {
+    if (graphResult.getStatus().isSuccessful()) {
+      return makeInlineGraphResult(
+              graphResult.getStatus(),
+              graphResult.getExitCode(),
+              new InlineImage[outputPaths.length],
+              outputPaths);
+    } else {
+      deleteGraphs(outputPaths);
+      return new GraphResult(
+              graphResult.getStatus(),
+              graphResult.getExitCode(),
+              "", // outputPath
+              0, // byteSize
+              graphResult.getMessage());
+    }
+  }
+
+  /**
+   * Resolves the output path of a syntax tree graph in the given image
+   * format. A relative file path is resolved against the working directory
+   * of the PHP workers, where the legacy "cd phpsyntaxtree; php graph.php"
+   * command wrote it, whichever renderer draws the graph.
+   *
+   * @param filePath the graph file path
+   * @param extension the extension of the image format, i.e. png or svg
+   * @return the output path in its shard directory
+   */
+  private Path resolveSyntaxTreePath(
+          final String filePath,
+          final String extension) {
+    return outputLayout.resolve(phpSyntaxTreePath.resolve(filePath + "." + extension));
+  }
+
+  /**
+   * Places the cached graph having the given key at the given output path,
+   * by way of a temporary hard link that is renamed over any existing output
+   * file, so that a reader never finds the output path missing.
+   *
+   * @param cacheKey the render cache key
+   * @param format the image format, either PNG or SVG
+   * @param outputPath the output path
+   * @return whether the graph was cached
+   */
+  private boolean fetchCachedGraph(
+          final String cacheKey,
+          final GraphOutputFormat format,
+          final Path outputPath) {
+    //Preconditions
+    assert cacheKey != null : "cacheKey must not be null";
+    assert format != null : "format must not be null";
+    assert outputPath != null : "outputPath must not be null";
+
+    final Path temporaryPath;
+    try {
+      temporaryPath = outputLayout.makeTemporaryPath(outputPath);
+    } catch (IOException ex) {
+      LOGGER.warn("cannot create the directory of the graph " + outputPath + ": " + ex.getMessage());
+      return false;
+    }
+    if (!renderCache.fetch(cacheKey, format, temporaryPath)) {
+      return false;
+    }
+    try {
+      OutputLayout.install(temporaryPath, outputPath);
+    } catch (IOException ex) {
+      LOGGER.warn("cannot install the cached graph " + outputPath + ": " + ex.getMessage());
+      OutputLayout.discard(temporaryPath);
+      return false;
+    }
+    // renaming a link over another link to the same cached image does nothing, and leaves the temporary link
+    OutputLayout.discard(temporaryPath);
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("  render cache hit: " + outputPath);
+    }
+    return true;
+  }
+
+  /**
+   * Emits a labeled tree graph for the parsing interpretation tree within
+   * this JVM, using the Java port of the phpsyntaxtree renderer, laying out
+   * the tree once for all the given image formats. Each image is written to
+   * a temporary file that is renamed into place.
+   *
+   * @param filePath the graph file path
+   * @param labeledTree the labeled tree
+   * @param extensions the extensions of the image formats, i.e. png or svg
+   * @return whether the graphs were written
+   */
+  public boolean graphJavaSyntaxTree(
+          final String filePath,
+          final String labeledTree,
+          final List<String> extensions) {
+    //Preconditions
+    assert filePath != null : "filePath must not be null";
+    assert !filePath.isEmpty() : "filePath must not be empty";
+    assert labeledTree != null : "labeledTree must not be null";
+    assert !labeledTree.isEmpty() : "labeledTree must not be empty for: " + filePath;
+    assert extensions != null : "extensions must not be null";
+
+    final SyntaxTreeGraph syntaxTreeGraph = makeSyntaxTreeGraph(labeledTree);
+    if (syntaxTreeGraph == null) {
+      return false;
+    }
+    for (final String extension : extensions) {
+      final Path outputPath = resolveSyntaxTreePath(filePath, extension);
+      Path temporaryPath = null;
+      try {
+        temporaryPath = outputLayout.makeTemporaryPath(outputPath);
+        if ("svg".equals(extension)) {
+          // the vector path, which draws no pixels
+          syntaxTreeGraph.saveSVG(temporaryPath.toFile());
+        } else {
+          syntaxTreeGraph.save(temporaryPath.toFile());
+        }
+        OutputLayout.install(temporaryPath, outputPath);
+      } catch (final IOException ex) {
+        LOGGER.warn("cannot write the graph " + outputPath + ": " + ex.getMessage());
+        if (temporaryPath != null) {
+          OutputLayout.discard(temporaryPath);
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Draws a labeled tree graph for the parsing interpretation tree in memory,
+   * using the Java port of the phpsyntaxtree renderer, for an inline request
+   * which leaves no output file.
+   *
+   * @param labeledTree the labeled tree
+   * @param extensions the extensions of the image formats, i.e. png or svg
+   * @return the images, in the order of the extensions, or null if the tree
+   * could not be drawn
+   */
+  public byte[][] drawJavaSyntaxTree(
+          final String labeledTree,
+          final List<String> extensions) {
+    //Preconditions
+    assert labeledTree != null : "labeledTree must not be null";
+    assert !labeledTree.isEmpty() : "labeledTree must not be empty";
+    assert extensions != null : "extensions must not be null";
+
+    final SyntaxTreeGraph syntaxTreeGraph = makeSyntaxTreeGraph(labeledTree);
+    if (syntaxTreeGraph == null) {
+      return null;
+    }
+    final byte[][] images = new byte[extensions.size()][];
+    for (int i = 0; i < images.length; i++) {
+      final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(16 * 1024);
+      try {
+        if ("svg".equals(extensions.get(i))) {
+          syntaxTreeGraph.writeSVG(byteArrayOutputStream);
+        } else {
+          syntaxTreeGraph.write(byteArrayOutputStream);
+        }
+      } catch (final IOException ex) {
+        LOGGER.warn("cannot draw the graph: " + ex.getMessage());
+        return null;
+      }
+      images[i] = byteArrayOutputStream.toByteArray();
+    }
+    return images;
+  }
+
+  /**
+   * Parses the given labeled tree and lays out its graph.
+   *
+   * @param labeledTree the given labeled tree
+   * @return the laid out syntax tree graph, or null if the labeled tree could
+   * not be parsed
+   */
+  private static SyntaxTreeGraph makeSyntaxTreeGraph(final String labeledTree) {
+    final SyntaxTreeParser syntaxTreeParser = new SyntaxTreeParser(labeledTree);
+    if (!syntaxTreeParser.validate()) {
+      LOGGER.warn("phrase could not be parsed correctly, labeledTree...\n " + labeledTree);
+      return null;
+    }
+    return new SyntaxTreeGraph(
+            syntaxTreeParser.parse(),
+            true, // isColor
+            true, // isAntialias
+            false, // isTriangles
+            SYNTAX_TREE_FONT_PATH,
+            SYNTAX_TREE_FONT_SIZE);
+  }
+
+  /**
+   * Emits a labeled tree graph for the parsing interpretation tree using the
+   * phpsyntaxtree renderer, as one job for one of the warm PHP workers per
+   * image format. The worker draws an SVG image as a document with the
+   * CSVGGraph class, and a PNG image as a raster with the CTreeGraph class.
+   * Each image is written to a temporary file that is renamed into place.
+   *
+   * @param filePath the graph file path
+   * @param labeledTree the labeled tree
+   * @param extensions the extensions of the image formats, i.e. png or svg
+   * @return whether the graphs were written
+   */
+  public boolean graphPHPSyntaxTree(
+          final String filePath,
+          final String labeledTree,
+          final List<String> extensions) {
+    //Preconditions
     assert filePath != null : "filePath must not be null";
     assert !filePath.isEmpty() : "filePath must not be empty";
+    assert labeledTree != null : "labeledTree must not be null";
+    assert !labeledTree.isEmpty() : "labeledTree must not be empty for: " + filePath;
+    assert extensions != null : "extensions must not be null";
 
+    if (System.getProperty("file.separator").equals("\\")) {
+      // do not try to create a PHP syntax tree on Windows
+      return false;
+    }
+    try {
+      for (final String extension : extensions) {
+        final Path outputPath = resolveSyntaxTreePath(filePath, extension);
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("  PHP worker job: " + outputPath);
+        }
+        final Path temporaryPath;
+        try {
+          temporaryPath = outputLayout.makeTemporaryPath(outputPath);
+        } catch (IOException ex) {
+          LOGGER.warn("cannot create the directory of the graph " + outputPath + ": " + ex.getMessage());
+          return false;
+        }
+        // the worker runs in its own directory, so it is given the absolute path
+        if (getPHPWorkerPool().render(temporaryPath.toAbsolutePath().toString(), labeledTree) != PHPWorkerPool.JobStatus.OK) {
+          OutputLayout.discard(temporaryPath);
+          return false;
+        }
+        try {
+          OutputLayout.install(temporaryPath, outputPath);
+        } catch (IOException ex) {
+          LOGGER.warn("cannot install the graph " + outputPath + ": " + ex.getMessage());
+          OutputLayout.discard(temporaryPath);
+          return false;
+        }
+      }
+      return true;
+    } catch (InterruptedException ex) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("interrupted");
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Gets the pool of warm PHP syntax tree workers, starting it when first
+   * needed.
+   *
+   * @return the PHP worker pool
+   */
+  synchronized PHPWorkerPool getPHPWorkerPool() {
+    if (phpWorkerPool == null) {
+      phpWorkerPool = new PHPWorkerPool(
+              processLauncher,
+              phpSyntaxTreePath.toString(),
+              List.of(phpCommand, "worker.php"),
+              getMaxConcurrentRenders(PHPSyntaxTreeRenderer.NAME), // poolSize
+              PHP_WORKER_MAX_JOBS,
+              PHP_WORKER_TIMEOUT_MILLIS);
+      phpWorkerPool.start();
+    }
+    return phpWorkerPool;
+  }
+
+  /**
+   * Emits a GraphViz diagram in each image format of the given output format.
+   * The single image of an inline request is captured from the standard
+   * output stream of dot, whereas the images of an inline request for both
+   * formats are written to files, which are opened for the acknowledgement
+   * and deleted.
+   *
+   * @param filePath the graph file path
+   * @param outputFormat the output format
+   * @param isInline whether the images are returned in the acknowledgement
+   * instead of in output files
+   * @return the graph result
+   */
+  public GraphResult graphVizDiagram(
+          final String filePath,
+          final GraphOutputFormat outputFormat,
+          final boolean isInline) {
+    //Preconditions
+    assert filePath != null : "filePath must not be null";
+    assert !filePath.isEmpty() : "filePath must not be empty";
+    assert outputFormat != null : "outputFormat must not be null";
+
+    // the file path is relative to the home directory
+    final Path homePath = Paths.get(System.getProperty("user.home"));
+    final Path dotPath = homePath.resolve(filePath + ".dot");
+    final Path[] outputPaths = makeOutputPaths(homePath, filePath, outputFormat);
     if (System.getProperty("file.separator").equals("\\")) {
       // do not try to create a GraphViz syntax tree on Windows
-      return;
+      return makeGraphResult(GraphResultStatus.OK, -1, outputPaths);
+    }
+    final String[] cacheKeys = makeGraphVizCacheKeys(dotPath, outputFormat);
+    if (isInline) {
+      final InlineImage[] inlineImages = fetchInlineCachedGraphs(cacheKeys, outputFormat);
+      if (inlineImages != null) {
+        dotFileCleaner.discard(dotPath);
+        return makeInlineGraphResult(GraphResultStatus.CACHED, 0, inlineImages, outputPaths);
+      } else if (outputFormat == GraphOutputFormat.PNG_AND_SVG) {
+        return inlineGraphFiles(
+                renderGraphViz(homePath, dotPath, outputFormat, outputPaths, cacheKeys, RENDER_TIMEOUT_MILLIS),
+                outputPaths);
+      } else {
+        return renderInlineGraphViz(homePath, dotPath, outputFormat, outputPaths, cacheKeys);
+      }
+    }
+    if (fetchCachedGraphs(cacheKeys, outputFormat, outputPaths)) {
+      dotFileCleaner.discard(dotPath);
+      return makeGraphResult(GraphResultStatus.CACHED, 0, outputPaths);
+    }
+    return renderGraphViz(homePath, dotPath, outputFormat, outputPaths, cacheKeys, RENDER_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Makes the output paths of the given graph file path, one for each image
+   * format of the given output format, in the shard directory of the graph
+   * when the graphs are sharded.
+   *
+   * @param homePath the home directory path
+   * @param filePath the graph file path, relative to the home directory
+   * @param outputFormat the output format
+   * @return the output paths, in the order of the output format extensions
+   */
+  private Path[] makeOutputPaths(
+          final Path homePath,
+          final String filePath,
+          final GraphOutputFormat outputFormat) {
+    final List<String> extensions = outputFormat.getExtensions();
+    final Path[] outputPaths = new Path[extensions.size()];
+    for (int i = 0; i < outputPaths.length; i++) {
+      outputPaths[i] = outputLayout.resolve(homePath.resolve(filePath + "." + extensions.get(i)));
+    }
+    return outputPaths;
+  }
+
+  /**
+   * Makes the render cache keys of the given GraphViz file, one for each
+   * image format of the given output format.
+   *
+   * @param dotPath the given GraphViz file path
+   * @param outputFormat the output format
+   * @return the render cache keys, or null if the render cache is disabled or
+   * the file cannot be read
+   */
+  private String[] makeGraphVizCacheKeys(
+          final Path dotPath,
+          final GraphOutputFormat outputFormat) {
+    if (renderCache == null) {
+      return null;
+    }
+    final byte[] payload;
+    try {
+      payload = Files.readAllBytes(dotPath);
+    } catch (IOException ex) {
+      LOGGER.warn("cannot read the GraphViz file " + dotPath + ": " + ex.getMessage());
+      return null;
+    }
+    final List<String> extensions = outputFormat.getExtensions();
+    final String[] cacheKeys = new String[extensions.size()];
+    for (int i = 0; i < cacheKeys.length; i++) {
+      cacheKeys[i] = RenderCache.makeKey(
+              makeRendererType("graphviz", extensions.get(i)), // rendererType
+              payload);
+    }
+    return cacheKeys;
+  }
+
+  /**
+   * Places the cached graphs having the given keys at the given output paths
+   * when all of them are cached, because dot renders all the image formats of
+   * a diagram together.
+   *
+   * @param cacheKeys the render cache keys, or null if the graphs are not
+   * cached
+   * @param outputFormat the output format
+   * @param outputPaths the output paths
+   * @return whether all the graphs were cached
+   */
+  private boolean fetchCachedGraphs(
+          final String[] cacheKeys,
+          final GraphOutputFormat outputFormat,
+          final Path[] outputPaths) {
+    if (cacheKeys == null) {
+      return false;
+    }
+    final List<String> extensions = outputFormat.getExtensions();
+    for (int i = 0; i < cacheKeys.length; i++) {
+      if (!fetchCachedGraph(cacheKeys[i], GraphOutputFormat.fromExtension(extensions.get(i)), outputPaths[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Opens the cached graphs having the given keys for an inline
+   * acknowledgement when all of them are cached, because dot renders all the
+   * image formats of a diagram together.
+   *
+   * @param cacheKeys the render cache keys, or null if the graphs are not
+   * cached
+   * @param outputFormat the output format
+   * @return the cached images, in the order of the output format extensions,
+   * or null unless all the graphs were cached
+   */
+  private InlineImage[] fetchInlineCachedGraphs(
+          final String[] cacheKeys,
+          final GraphOutputFormat outputFormat) {
+    if (cacheKeys == null) {
+      return null;
+    }
+    final List<String> extensions = outputFormat.getExtensions();
+    final InlineImage[] inlineImages = new InlineImage[cacheKeys.length];
+    for (int i = 0; i < cacheKeys.length; i++) {
+      inlineImages[i] = renderCache.fetchInline(cacheKeys[i], GraphOutputFormat.fromExtension(extensions.get(i)));
+      if (inlineImages[i] == null) {
+        for (int j = 0; j < i; j++) {
+          inlineImages[j].close();
+        }
+        return null;
+      }
+    }
+    return inlineImages;
+  }
+
+  /**
+   * Stores the given rendered graphs in the render cache.
+   *
+   * @param cacheKeys the render cache keys, or null if the graphs are not
+   * cached
+   * @param outputFormat the output format
+   * @param outputPaths the output paths of the rendered graphs
+   */
+  private void storeCachedGraphs(
+          final String[] cacheKeys,
+          final GraphOutputFormat outputFormat,
+          final Path[] outputPaths) {
+    if (cacheKeys != null) {
+      final List<String> extensions = outputFormat.getExtensions();
+      for (int i = 0; i < cacheKeys.length; i++) {
+        renderCache.store(cacheKeys[i], GraphOutputFormat.fromExtension(extensions.get(i)), outputPaths[i]);
+      }
+    }
+  }
+
+  /**
+   * Deletes the graphs at the given output paths, which were written for an
+   * inline request that leaves no output file.
+   *
+   * @param outputPaths the given output paths
+   */
+  private static void deleteGraphs(final Path[] outputPaths) {
+    for (final Path outputPath : outputPaths) {
+      try {
+        Files.deleteIfExists(outputPath);
+      } catch (IOException ex) {
+        LOGGER.warn("cannot delete the previous graph " + outputPath + ": " + ex.getMessage());
+      }
     }
-    String[] cmdArray = {
-      "sh",
-      "-c",
-      ""
-    };
-    final StringBuilder stringBuilder = new StringBuilder(200)
-            .append("cd; dot -Tpng ")
-            .append(filePath)
-            .append(".dot -o ")
-            .append(filePath)
-            .append(".png");
-//    LOGGER.setLevel(Level.DEBUG);
-//        if (!filePath.contains("/temp/")) {
-    stringBuilder
-            .append("; rm ")
-            .append(filePath)
-            .append(".dot");
-//        }
-    cmdArray[2] = stringBuilder.toString();
+  }
 
+  /**
+   * Renders the given GraphViz file with its own dot process, in each image
+   * format of the given output format, and discards the GraphViz file. The
+   * diagrams are written to temporary files, which are renamed into place
+   * once dot succeeds, so that a reader never sees a half-written diagram.
+   *
+   * @param homePath the home directory path
+   * @param dotPath the GraphViz file path
+   * @param outputFormat the output format
+   * @param outputPaths the output paths, one for each image format
+   * @param cacheKeys the render cache keys, or null if the graphs are not
+   * cached
+   * @param timeoutMillis the number of milliseconds after which dot is killed
+   * @return the graph result
+   */
+  private GraphResult renderGraphViz(
+          final Path homePath,
+          final Path dotPath,
+          final GraphOutputFormat outputFormat,
+          final Path[] outputPaths,
+          final String[] cacheKeys,
+          final long timeoutMillis) {
+    final Path[] temporaryPaths = new Path[outputPaths.length];
+    try {
+      for (int i = 0; i < outputPaths.length; i++) {
+        temporaryPaths[i] = outputLayout.makeTemporaryPath(outputPaths[i]);
+      }
+    } catch (IOException ex) {
+      LOGGER.warn("cannot create the directory of the graph " + outputPaths[0] + ": " + ex.getMessage());
+      dotFileCleaner.discard(dotPath);
+      return new GraphResult(
+              GraphResultStatus.FAILED,
+              -1, // exitCode
+              outputPaths[0].toString(),
+              0, // byteSize
+              "cannot create the directory of the graph: " + ex.getMessage());
+    }
+    // each -o option names the output file of the preceding -T option
+    final List<String> extensions = outputFormat.getExtensions();
+    final List<String> command = new ArrayList<>(2 + 3 * extensions.size());
+    command.add(dotCommand);
+    for (int i = 0; i < outputPaths.length; i++) {
+      command.add("-T" + extensions.get(i));
+      command.add("-o");
+      command.add(temporaryPaths[i].toString());
+    }
+    command.add(dotPath.toString());
     if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("  shell cmd: " + cmdArray[2]);
+      LOGGER.debug("  command: " + command);
     }
 
+    boolean isInstalled = false;
     try {
-      final Process process = Runtime.getRuntime().exec(cmdArray);
-      final StreamConsumer errorConsumer = new StreamConsumer(process.getErrorStream(), LOGGER);
-      final StreamConsumer outputConsumer = new StreamConsumer(process.getInputStream(), LOGGER);
-      errorConsumer.setName("errorConsumer");
-      errorConsumer.start();
-      outputConsumer.setName("outputConsumer");
-      outputConsumer.start();
-      int exitVal = process.waitFor();
+      final ProcessLauncher.Outcome outcome;
+      try {
+        outcome = processLauncher.run(command, homePath, timeoutMillis);
+      } finally {
+        dotFileCleaner.discard(dotPath);
+      }
+      final int exitVal = outcome.getExitCode();
       if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("  exitVal: " + exitVal);
+        LOGGER.debug("  " + outcome);
+      }
+      if (outcome.isTimedOut()) {
+        return new GraphResult(
+                GraphResultStatus.FAILED,
+                exitVal,
+                outputPaths[0].toString(),
+                0, // byteSize
+                "the renderer exceeded its timeout of " + timeoutMillis + " milliseconds");
       } else if (exitVal != 0) {
         LOGGER.warn("process terminated with a non-zero exit value " + exitVal);
+      } else {
+        for (int i = 0; i < outputPaths.length; i++) {
+          if (Files.isRegularFile(temporaryPaths[i])) {
+            OutputLayout.install(temporaryPaths[i], outputPaths[i]);
+          }
+        }
+        isInstalled = true;
       }
-
-      process.getInputStream().close();
-      process.getOutputStream().close();
+      final GraphResult graphResult = makeGraphResult(GraphResultStatus.OK, exitVal, outputPaths);
+      if (graphResult.getStatus() == GraphResultStatus.OK) {
+        storeCachedGraphs(cacheKeys, outputFormat, outputPaths);
+      }
+      return graphResult;
     } catch (InterruptedException ex) {
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("interrupted");
       }
+      return makeGraphResult(GraphResultStatus.OK, -1, outputPaths);
     } catch (final IOException ex) {
-      throw new RuntimeException(ex);
+      LOGGER.warn("cannot run " + command + ": " + ex.getMessage());
+      return new GraphResult(
+              GraphResultStatus.FAILED,
+              -1, // exitCode
+              outputPaths[0].toString(),
+              0, // byteSize
+              "cannot run the renderer: " + ex.getMessage());
+    } finally {
+      if (!isInstalled) {
+        for (final Path temporaryPath : temporaryPaths) {
+          OutputLayout.discard(temporaryPath);
+        }
+      }
     }
   }
 
-  private static class StreamConsumer extends Thread {
-
-    // the input stream that consumes the launched process standard output or standard error stream
-    private final InputStream inputStream;
-    // the logger
-    private final Logger logger;
+  /**
+   * Renders the given GraphViz file with its own dot process in the single
+   * image format of the given output format, capturing the diagram from the
+   * standard output stream of dot rather than writing an output file, and
+   * discards the GraphViz file.
+   *
+   * @param homePath the home directory path
+   * @param dotPath the GraphViz file path
+   * @param outputFormat the output format, either PNG or SVG
+   * @param outputPaths the output path, which is not written
+   * @param cacheKeys the render cache keys, or null if the graphs are not
+   * cached
+   * @return the inline graph result
+   */
+  private GraphResult renderInlineGraphViz(
+          final Path homePath,
+          final Path dotPath,
+          final GraphOutputFormat outputFormat,
+          final Path[] outputPaths,
+          final String[] cacheKeys) {
+    //Preconditions
+    assert outputFormat != GraphOutputFormat.PNG_AND_SVG : "outputFormat must be a single image format";
 
-    /**
-     * Constructs a new StreamConsumer instance.
-     *
-     * @param inputStream the input stream
-     * @param logger the logger
-     */
-    StreamConsumer(
-            final InputStream inputStream,
-            final Logger logger) {
-      //Preconditions
-      assert inputStream != null : "inputStream must not be null";
-      assert logger != null : "logger must not be null";
+    final String extension = outputFormat.getExtensions().get(0);
+    final List<String> command = List.of(dotCommand, "-T" + extension, dotPath.toString());
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("  inline command: " + command);
+    }
+    try {
+      final ProcessLauncher.Outcome outcome;
+      try {
+        outcome = processLauncher.runCapturingOutput(command, homePath, RENDER_TIMEOUT_MILLIS);
+      } finally {
+        dotFileCleaner.discard(dotPath);
+      }
+      final int exitVal = outcome.getExitCode();
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("  " + outcome);
+      }
+      if (outcome.isTimedOut()) {
+        return new GraphResult(
+                GraphResultStatus.FAILED,
+                exitVal,
+                "", // outputPath
+                0, // byteSize
+                "the renderer exceeded its timeout of " + RENDER_TIMEOUT_MILLIS + " milliseconds");
+      } else if (exitVal != 0 || outcome.getOutput().length == 0) {
+        LOGGER.warn("process terminated with the exit value " + exitVal + " and " + outcome.getOutput().length + " output bytes");
+        return new GraphResult(GraphResultStatus.FAILED, exitVal, "", 0, "no graph was written");
+      }
+      if (cacheKeys != null) {
+        renderCache.store(cacheKeys[0], outputFormat, outcome.getOutput());
+      }
+      return makeInlineGraphResult(
+              GraphResultStatus.OK,
+              exitVal,
+              new InlineImage[]{new InlineImage(outputFormat, outcome.getOutput())},
+              outputPaths);
+    } catch (InterruptedException ex) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("interrupted");
+      }
+      return new GraphResult(GraphResultStatus.FAILED, -1, "", 0, "no graph was written");
+    } catch (final IOException ex) {
+      LOGGER.warn("cannot run " + command + ": " + ex.getMessage());
+      return new GraphResult(
+              GraphResultStatus.FAILED,
+              -1, // exitCode
+              "", // outputPath
+              0, // byteSize
+              "cannot run the renderer: " + ex.getMessage());
+    }
+  }
 
-      this.inputStream = inputStream;
-      this.logger = logger;
+  /**
+   * Emits the GraphViz diagrams of the given batch of requests with one dot
+   * process, which lays out all of their files. The diagrams are taken from
+   * the batch only when dot exits normally. Otherwise, e.g. when a file is ill
+   * formed, or another request of the batch was cancelled, each request is
+   * rendered with its own dot process, so that it succeeds or fails on its
+   * own, within the time left of the render timeout of the whole batch. Any
+   * other interrupt fails the batch. The requests of a batch have the same
+   * output format. The diagrams of an inline request are written to files by
+   * the batch too, which are opened for its acknowledgement and deleted.
+   * The batch renders hidden links to the GraphViz files, so that it writes
+   * under hidden temporary names, from which each diagram is installed with
+   * an atomic rename, and a failed batch leaves no partial diagram behind.
+   *
+   * @param graphRequests the given GraphViz requests
+   * @return the graph results, in the order of the requests
+   */
+  public List<GraphResult> graphVizDiagrams(final List<GraphRequest> graphRequests) {
+    //Preconditions
+    assert graphRequests != null : "graphRequests must not be null";
+
+    final int size = graphRequests.size();
+    final GraphResult[] graphResults = new GraphResult[size];
+    if (System.getProperty("file.separator").equals("\\") || size < 2) {
+      for (int i = 0; i < size; i++) {
+        graphResults[i] = graphVizDiagram(
+                graphRequests.get(i).getFileName(),
+                graphRequests.get(i).getOutputFormat(),
+                isInline(graphRequests.get(i)));
+      }
+      return Arrays.asList(graphResults);
+    }
+    final GraphOutputFormat outputFormat = graphRequests.get(0).getOutputFormat();
+    final List<String> extensions = outputFormat.getExtensions();
+    // the file paths are relative to the home directory
+    final Path homePath = Paths.get(System.getProperty("user.home"));
+    final Path[] dotPaths = new Path[size];
+    final Path[] batchInputPaths = new Path[size];
+    final Path[][] outputPaths = new Path[size][];
+    final String[][] cacheKeys = new String[size][];
+    final List<String> command = new ArrayList<>(size + 2 + extensions.size());
+    command.add(dotCommand);
+    for (final String extension : extensions) {
+      command.add("-T" + extension);
+    }
+    command.add("-O");
+    final int optionCount = command.size();
+    for (int i = 0; i < size; i++) {
+      assert graphRequests.get(i).getOutputFormat() == outputFormat : "a batch must have one output format";
+      final String filePath = graphRequests.get(i).getFileName();
+      dotPaths[i] = homePath.resolve(filePath + ".dot");
+      outputPaths[i] = makeOutputPaths(homePath, filePath, outputFormat);
+      cacheKeys[i] = makeGraphVizCacheKeys(dotPaths[i], outputFormat);
+      final boolean isInline = isInline(graphRequests.get(i));
+      final InlineImage[] inlineImages = isInline ? fetchInlineCachedGraphs(cacheKeys[i], outputFormat) : null;
+      if (inlineImages != null) {
+        graphResults[i] = makeInlineGraphResult(GraphResultStatus.CACHED, 0, inlineImages, outputPaths[i]);
+      } else if (!isInline && fetchCachedGraphs(cacheKeys[i], outputFormat, outputPaths[i])) {
+        graphResults[i] = makeGraphResult(GraphResultStatus.CACHED, 0, outputPaths[i]);
+      } else {
+        // a request whose GraphViz file cannot be linked is rendered on its own
+        batchInputPaths[i] = linkBatchInput(dotPaths[i], i);
+        if (batchInputPaths[i] != null) {
+          command.add(batchInputPaths[i].toString());
+        }
+      }
+    }
+    // the batch and the renders of its requests one by one share the render timeout
+    final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RENDER_TIMEOUT_MILLIS);
+    boolean isBatchWritten = false;
+    boolean isInterrupted = false;
+    if (command.size() > optionCount) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("  batch command: " + command);
+      }
+      try {
+        final ProcessLauncher.Outcome outcome = processLauncher.run(command, homePath, RENDER_TIMEOUT_MILLIS);
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("  " + (command.size() - optionCount) + " GraphViz files, " + outcome);
+        }
+        isBatchWritten = !outcome.isTimedOut() && outcome.getExitCode() == 0;
+        if (!isBatchWritten) {
+          LOGGER.warn("the batch dot process " + (outcome.isTimedOut() ? "timed out" : "exited with " + outcome.getExitCode())
+                  + ", rendering its " + (command.size() - optionCount) + " GraphViz files one by one");
+        }
+      } catch (InterruptedException ex) {
+        // an interrupt that cancelled a request of the batch is consumed by the cancellation
+        isInterrupted = graphRequests.stream().allMatch(graphRequest -> graphRequest.getCancelStatus() == null);
+        if (isInterrupted) {
+          Thread.currentThread().interrupt();
+        }
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("batch interrupted");
+        }
+      } catch (IOException ex) {
+        LOGGER.warn("cannot run " + command + ": " + ex.getMessage());
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      if (graphResults[i] == null && isInterrupted) {
+        deleteBatchOutputs(batchInputPaths[i], extensions);
+        graphResults[i] = new GraphResult(
+                GraphResultStatus.FAILED,
+                -1, // exitCode
+                isInline(graphRequests.get(i)) ? "" : outputPaths[i][0].toString(),
+                0, // byteSize
+                "the batch was interrupted");
+      } else if (graphResults[i] == null) {
+        graphResults[i] = moveBatchOutputs(
+                homePath,
+                graphRequests.get(i),
+                dotPaths[i],
+                batchInputPaths[i],
+                outputPaths[i],
+                cacheKeys[i],
+                isBatchWritten,
+                deadlineNanos);
+        if (isInline(graphRequests.get(i))) {
+          graphResults[i] = inlineGraphFiles(graphResults[i], outputPaths[i]);
+        }
+      }
+      if (batchInputPaths[i] != null) {
+        OutputLayout.discard(batchInputPaths[i]);
+      }
+      dotFileCleaner.discard(dotPaths[i]);
     }
+    return Arrays.asList(graphResults);
+  }
 
-    /**
-     * Runs this stream consumer.
-     */
-    @Override
-    @SuppressWarnings("NestedAssignment")
-    public void run() {
+  /**
+   * Atomically moves the diagrams that a batch dot process wrote for the
+   * given request to its output paths, or renders the request with its own
+   * dot process, within the time left before the batch deadline, when the
+   * batch failed or did not write all of them.
+   *
+   * @param homePath the home directory path
+   * @param graphRequest the given GraphViz request
+   * @param dotPath the GraphViz file path
+   * @param batchInputPath the hidden link to the GraphViz file that the
+   * batch dot process rendered, or null if it was left out of the batch
+   * @param outputPaths the output paths, one for each image format
+   * @param cacheKeys the render cache keys, or null if the graphs are not
+   * cached
+   * @param isBatchWritten whether the batch dot process exited normally
+   * @param deadlineNanos the System.nanoTime() of the batch deadline
+   * @return the graph result
+   */
+  private GraphResult moveBatchOutputs(
+          final Path homePath,
+          final GraphRequest graphRequest,
+          final Path dotPath,
+          final Path batchInputPath,
+          final Path[] outputPaths,
+          final String[] cacheKeys,
+          final boolean isBatchWritten,
+          final long deadlineNanos) {
+    final List<String> extensions = graphRequest.getOutputFormat().getExtensions();
+    boolean isWritten = isBatchWritten && batchInputPath != null;
+    for (int i = 0; isWritten && i < outputPaths.length; i++) {
+      // dot -O writes the diagram of .tmp-15-0-X.dot to the hidden .tmp-15-0-X.dot.png, .tmp-15-0-X.dot.svg and so on
+      final Path batchOutputPath = Paths.get(batchInputPath + "." + extensions.get(i));
       try {
-        try (final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"))) {
-          @SuppressWarnings("UnusedAssignment")
-          String line = null;
-          while ((line = bufferedReader.readLine()) != null) {
-            logger.info("> " + line);
-          }
+        if (Files.isRegularFile(batchOutputPath) && Files.size(batchOutputPath) > 0) {
+          outputLayout.createDirectory(outputPaths[i]);
+          OutputLayout.install(batchOutputPath, outputPaths[i]);
+        } else {
+          isWritten = false;
         }
-      } catch (IOException ioe) {
-        logger.info(ioe.getMessage());
+      } catch (IOException ex) {
+        isWritten = false;
+        LOGGER.warn("cannot move the graph " + batchOutputPath + ": " + ex.getMessage());
+      }
+    }
+    if (!isWritten && batchInputPath != null) {
+      // a failed batch leaves its partial diagrams under their hidden names
+      deleteBatchOutputs(batchInputPath, extensions);
+    }
+    if (isWritten) {
+      storeCachedGraphs(cacheKeys, graphRequest.getOutputFormat(), outputPaths);
+      return makeGraphResult(GraphResultStatus.OK, 0, outputPaths);
+    } else if (graphRequest.getCancelStatus() != null) {
+      return makeGraphResult(GraphResultStatus.OK, -1, outputPaths);
+    }
+    final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    if (remainingMillis <= 0) {
+      return new GraphResult(
+              GraphResultStatus.FAILED,
+              -1, // exitCode
+              outputPaths[0].toString(),
+              0, // byteSize
+              "the batch exceeded its render timeout of " + RENDER_TIMEOUT_MILLIS + " milliseconds");
+    }
+    return renderGraphViz(homePath, dotPath, graphRequest.getOutputFormat(), outputPaths, cacheKeys, remainingMillis);
+  }
+
+  /**
+   * Links the given GraphViz file under a hidden temporary name in its
+   * directory. dot -O names the diagrams of a batch after their input files,
+   * so a batch renders the links, and writes its diagrams to hidden temporary
+   * files that are then installed atomically, and that a reader polling for a
+   * graph never sees half-written.
+   *
+   * @param dotPath the given GraphViz file path
+   * @param index the index of the request in its batch
+   * @return the link path, or null if the link cannot be made
+   */
+  private static Path linkBatchInput(
+          final Path dotPath,
+          final int index) {
+    final Path batchInputPath = dotPath.resolveSibling(OutputLayout.TEMPORARY_PREFIX
+            + Thread.currentThread().getId() + "-" + index + "-" + dotPath.getFileName());
+    try {
+      try {
+        Files.createLink(batchInputPath, dotPath);
+      } catch (FileAlreadyExistsException ex) {
+        // the orphan of a crashed batch
+        Files.delete(batchInputPath);
+        Files.createLink(batchInputPath, dotPath);
+      }
+      return batchInputPath;
+    } catch (IOException | UnsupportedOperationException ex) {
+      LOGGER.warn("cannot link the GraphViz file " + dotPath + ": " + ex.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Deletes the diagrams that a batch dot process wrote for the given
+   * hidden link to a GraphViz file.
+   *
+   * @param batchInputPath the given link path, or null if the GraphViz file
+   * was left out of the batch
+   * @param extensions the extensions of the image formats
+   */
+  private static void deleteBatchOutputs(
+          final Path batchInputPath,
+          final List<String> extensions) {
+    if (batchInputPath == null) {
+      return;
+    }
+    for (final String extension : extensions) {
+      final Path batchOutputPath = Paths.get(batchInputPath + "." + extension);
+      try {
+        Files.deleteIfExists(batchOutputPath);
+      } catch (IOException ex) {
+        LOGGER.warn("cannot delete the graph " + batchOutputPath + ": " + ex.getMessage());
       }
     }
   }
@@ -619,56 +2255,80 @@ public class GraphWriter {
    * @param args the command line arguments - not used
    */
   public static void main(final String[] args) {
+    // the syntax tree renderer draws with Java2D, which needs no display
+    System.setProperty("java.awt.headless", "true");
     final GraphWriter graphWriter = new GraphWriter();
     graphWriter.initialialization();
   }
 
   /**
    * Conveniently as a static method, called from within client code to
-   * determine whether the graph-writing server is running.
+   * determine whether the graph-writing server is running, with a ping
+   * request that the server answers without queuing it.
    *
    * @return whether the graph-writing server is running
    */
   public static boolean isGraphServerRunning() {
     if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("issuing a graph request to see if the graph-writing server is running...");
+      LOGGER.debug("pinging to see if the graph-writing server is running...");
+    }
+    return GraphWriterClient.getSharedInstance().ping(PING_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Waits until the graph-writing server answers a ping, which it does once
+   * it is initialized.
+   *
+   * @param timeoutMillis the maximum number of milliseconds to wait
+   * @return whether the server became ready within the timeout
+   */
+  public static boolean awaitGraphServerReady(final long timeoutMillis) {
+    final long deadlineMillis = System.currentTimeMillis() + timeoutMillis;
+    long pollMillis = 10;
+    while (true) {
+      if (GraphWriterClient.getSharedInstance().ping(PING_TIMEOUT_MILLIS)) {
+        return true;
+      }
+      final long remainingMillis = deadlineMillis - System.currentTimeMillis();
+      if (remainingMillis <= 0) {
+        return false;
+      }
+      try {
+        Thread.sleep(Math.min(pollMillis, remainingMillis));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      pollMillis = Math.min(2 * pollMillis, 200);
     }
-    return issuePHPGraphRequest("ignore", "ignore");
   }
 
   /**
    * Conveniently as a static method, called from within client code to ensure
-   * that the graph-writing server is running.
+   * that the graph-writing server is running, returning as soon as a newly
+   * started server is ready.
    */
   public static void ensureRunningGraphServer() {
     if (isGraphServerRunning()) {
       LOGGER.info("graph-writing server is already running");
     } else {
       LOGGER.info("starting graph-writing server");
-      String[] cmdArray = {
-        "sh",
-        "-c",
-        ""
-      };
-      final StringBuilder stringBuilder = new StringBuilder(100);
-      stringBuilder.append("cd ");
-      stringBuilder.append(GRAPH_WRITER_PATH);
-      stringBuilder.append(" ; ./run-graph-writer.sh");
-      cmdArray[2] = stringBuilder.toString();
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("shell cmd: " + cmdArray[2]);
-      }
       try {
-        Runtime.getRuntime().exec(cmdArray);
+        new ProcessBuilder("./run-graph-writer.sh")
+                .directory(new File(GRAPH_WRITER_PATH))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
       } catch (IOException ex1) {
         throw new RuntimeException(ex1);
       }
-      LOGGER.info("waiting 10 seconds for the graph server to start...");
-      try {
-        Thread.sleep(10_000);
-      } catch (InterruptedException ex2) {
+      LOGGER.info("waiting for the graph server to start...");
+      final long startMillis = System.currentTimeMillis();
+      if (awaitGraphServerReady(STARTUP_TIMEOUT_MILLIS)) {
+        LOGGER.info("graph-writing server ready in " + (System.currentTimeMillis() - startMillis) + " ms");
+      } else {
+        LOGGER.error("the graph-writing server is not ready after " + STARTUP_TIMEOUT_MILLIS + " ms");
       }
-
     }
   }
 
@@ -692,28 +2352,15 @@ public class GraphWriter {
     assert labeledTree != null : "labeledTree must not be null";
     assert !labeledTree.isEmpty() : "labeledTree must not be empty";
 
-    try {
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("    connecting to localhost graph server on port: " + GraphWriter.LISTENING_PORT);
-        if (labeledTree.length() > 30) {
-          LOGGER.debug("    labeledTree: " + labeledTree.substring(0, 30) + " ...");
-        } else {
-          LOGGER.debug("    labeledTree: " + labeledTree);
-        }
-      }
-      final Socket socket = new Socket("127.0.0.1", GraphWriter.LISTENING_PORT);
-      try (PrintWriter printWriter = new PrintWriter(socket.getOutputStream(), true)) {
-        final GraphRequest graphRequest = new GraphRequest(fileName, labeledTree);
-        printWriter.print(graphRequest.serialize());
-        printWriter.flush();
-      }
-      return true;
-    } catch (IOException ex) {
-      if (!fileName.equals("ignore")) {
-        LOGGER.error("  received exception: " + ex.getMessage());
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("    sending to localhost graph server on port: " + GraphWriter.LISTENING_PORT);
+      if (labeledTree.length() > 30) {
+        LOGGER.debug("    labeledTree: " + labeledTree.substring(0, 30) + " ...");
+      } else {
+        LOGGER.debug("    labeledTree: " + labeledTree);
       }
-      return false;
     }
+    return issueGraphRequest(new GraphRequest(fileName, labeledTree));
   }
 
   /**
@@ -730,37 +2377,328 @@ public class GraphWriter {
     assert fileName != null : "fileName must not be null";
     assert !fileName.isEmpty() : "fileName must not be empty";
 
-    try {
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("  connecting to localhost graph server on port: " + GraphWriter.LISTENING_PORT);
-      }
-      final Socket socket = new Socket("127.0.0.1", GraphWriter.LISTENING_PORT);
-      try (PrintWriter printWriter = new PrintWriter(socket.getOutputStream(), true)) {
-        final GraphRequest graphRequest = new GraphRequest(
-                fileName,
-                GRAPHVIZ); // labeledTree
-        printWriter.print(graphRequest.serialize());
-        printWriter.flush();
-      }
-      return true;
-    } catch (IOException ex) {
-      if (!fileName.equals("ignore")) {
-        LOGGER.error("  received exception: " + ex.getMessage());
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("  sending to localhost graph server on port: " + GraphWriter.LISTENING_PORT);
+    }
+    return issueGraphRequest(new GraphRequest(
+            GraphRequestType.GRAPHVIZ,
+            fileName,
+            "")); // labeledTree
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * submit a syntax tree graph request whose result is wanted.
+   *
+   * @param fileName the file name without the .png extension
+   * @param labeledTree the labeled tree
+   *
+   * @return the future graph result, which completes when the graph file
+   * exists or the request has failed, or which completes exceptionally if
+   * the server is not running
+   */
+  public static CompletableFuture<GraphResult> submitSyntaxTreeRequest(
+          final String fileName,
+          final String labeledTree) {
+    return submitSyntaxTreeRequest(fileName, labeledTree, GraphOutputFormat.PNG);
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * submit a syntax tree graph request in the given output format whose
+   * result is wanted.
+   *
+   * @param fileName the file name without an extension
+   * @param labeledTree the labeled tree
+   * @param outputFormat the output format
+   *
+   * @return the future graph result, which completes when the graph files
+   * exist or the request has failed, or which completes exceptionally if the
+   * server is not running
+   */
+  public static CompletableFuture<GraphResult> submitSyntaxTreeRequest(
+          final String fileName,
+          final String labeledTree,
+          final GraphOutputFormat outputFormat) {
+    //Preconditions
+    assert fileName != null : "fileName must not be null";
+    assert !fileName.isEmpty() : "fileName must not be empty";
+    assert labeledTree != null : "labeledTree must not be null";
+    assert !labeledTree.isEmpty() : "labeledTree must not be empty";
+    assert outputFormat != null : "outputFormat must not be null";
+
+    final GraphRequest graphRequest = new GraphRequest(
+            GraphRequestType.SYNTAX_TREE,
+            fileName,
+            labeledTree);
+    graphRequest.setOutputFormat(outputFormat);
+    return GraphWriterClient.getSharedInstance().submit(graphRequest);
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * submit a syntax tree graph request in the given output format whose
+   * images are returned in the graph result rather than written to files.
+   *
+   * @param fileName the file name without an extension, which names the
+   * request but is not written
+   * @param labeledTree the labeled tree
+   * @param outputFormat the output format
+   *
+   * @return the future graph result, whose inline images are in the order of
+   * the output format extensions, or which completes exceptionally if the
+   * server is not running
+   */
+  public static CompletableFuture<GraphResult> submitInlineSyntaxTreeRequest(
+          final String fileName,
+          final String labeledTree,
+          final GraphOutputFormat outputFormat) {
+    //Preconditions
+    assert fileName != null : "fileName must not be null";
+    assert !fileName.isEmpty() : "fileName must not be empty";
+    assert labeledTree != null : "labeledTree must not be null";
+    assert !labeledTree.isEmpty() : "labeledTree must not be empty";
+    assert outputFormat != null : "outputFormat must not be null";
+
+    final GraphRequest graphRequest = new GraphRequest(
+            GraphRequestType.SYNTAX_TREE,
+            fileName,
+            labeledTree);
+    graphRequest.setOutputFormat(outputFormat);
+    graphRequest.setInline(true);
+    return GraphWriterClient.getSharedInstance().submit(graphRequest);
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * submit a bulk syntax tree graph request whose result is wanted, such as
+   * one of a corpus dump, which yields to the interactive requests.
+   *
+   * @param fileName the file name without the .png extension
+   * @param labeledTree the labeled tree
+   *
+   * @return the future graph result, which completes when the graph file
+   * exists or the request has failed, or which completes exceptionally if
+   * the server is not running
+   */
+  public static CompletableFuture<GraphResult> submitBulkSyntaxTreeRequest(
+          final String fileName,
+          final String labeledTree) {
+    //Preconditions
+    assert fileName != null : "fileName must not be null";
+    assert !fileName.isEmpty() : "fileName must not be empty";
+    assert labeledTree != null : "labeledTree must not be null";
+    assert !labeledTree.isEmpty() : "labeledTree must not be empty";
+
+    final GraphRequest graphRequest = new GraphRequest(
+            GraphRequestType.SYNTAX_TREE,
+            fileName,
+            labeledTree);
+    graphRequest.setPriority(GraphRequest.BULK_PRIORITY);
+    return GraphWriterClient.getSharedInstance().submit(graphRequest);
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * submit a GraphViz diagram request whose result is wanted.
+   *
+   * @param fileName the file name without .dot extension
+   *
+   * @return the future graph result, which completes when the graph file
+   * exists or the request has failed, or which completes exceptionally if
+   * the server is not running
+   */
+  public static CompletableFuture<GraphResult> submitGraphVizRequest(final String fileName) {
+    return submitGraphVizRequest(fileName, GraphOutputFormat.PNG);
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * submit a GraphViz diagram request in the given output format whose
+   * result is wanted.
+   *
+   * @param fileName the file name without .dot extension
+   * @param outputFormat the output format
+   *
+   * @return the future graph result, which completes when the graph files
+   * exist or the request has failed, or which completes exceptionally if the
+   * server is not running
+   */
+  public static CompletableFuture<GraphResult> submitGraphVizRequest(
+          final String fileName,
+          final GraphOutputFormat outputFormat) {
+    //Preconditions
+    assert fileName != null : "fileName must not be null";
+    assert !fileName.isEmpty() : "fileName must not be empty";
+    assert outputFormat != null : "outputFormat must not be null";
+
+    final GraphRequest graphRequest = new GraphRequest(
+            GraphRequestType.GRAPHVIZ,
+            fileName,
+            ""); // labeledTree
+    graphRequest.setOutputFormat(outputFormat);
+    return GraphWriterClient.getSharedInstance().submit(graphRequest);
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * submit a GraphViz diagram request in the given output format whose
+   * images are returned in the graph result rather than written next to the
+   * .dot file, which the server deletes as usual.
+   *
+   * @param fileName the file name without .dot extension
+   * @param outputFormat the output format
+   *
+   * @return the future graph result, whose inline images are in the order of
+   * the output format extensions, or which completes exceptionally if the
+   * server is not running
+   */
+  public static CompletableFuture<GraphResult> submitInlineGraphVizRequest(
+          final String fileName,
+          final GraphOutputFormat outputFormat) {
+    //Preconditions
+    assert fileName != null : "fileName must not be null";
+    assert !fileName.isEmpty() : "fileName must not be empty";
+    assert outputFormat != null : "outputFormat must not be null";
+
+    final GraphRequest graphRequest = new GraphRequest(
+            GraphRequestType.GRAPHVIZ,
+            fileName,
+            ""); // labeledTree
+    graphRequest.setOutputFormat(outputFormat);
+    graphRequest.setInline(true);
+    return GraphWriterClient.getSharedInstance().submit(graphRequest);
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * cancel the pending and running requests for the given file.
+   *
+   * @param fileName the file name without an extension
+   *
+   * @return the future graph result, whose message tells the number of
+   * cancelled requests, or which completes exceptionally if the server is not
+   * running
+   */
+  public static CompletableFuture<GraphResult> cancelGraphRequests(final String fileName) {
+    //Preconditions
+    assert fileName != null : "fileName must not be null";
+    assert !fileName.isEmpty() : "fileName must not be empty";
+
+    return GraphWriterClient.getSharedInstance().submit(new GraphRequest(
+            GraphRequestType.CANCEL,
+            fileName,
+            "")); // labeledTree
+  }
+
+  /**
+   * Conveniently as a static method, called from within client code to
+   * request the live metrics report of the graph server, which is answered
+   * ahead of the queued renders.
+   *
+   * @return the future graph result, whose message is the metrics report, or
+   * which completes exceptionally if the server is not running
+   */
+  public static CompletableFuture<GraphResult> requestStats() {
+    return GraphWriterClient.getSharedInstance().submit(new GraphRequest(
+            GraphRequestType.STATS,
+            "stats", // fileName
+            "")); // labeledTree
+  }
+
+  /**
+   * Issues the given graph request using the shared pipelining client. The
+   * control requests are sent at once on their own connection, after any
+   * buffered requests, so that the result tells whether the server received
+   * them.
+   *
+   * @param graphRequest the given graph request
+   * @return true if no errors occurred, or return false if the server is not
+   * running
+   */
+  private static boolean issueGraphRequest(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    final GraphWriterClient graphWriterClient = GraphWriterClient.getSharedInstance();
+    final String fileName = graphRequest.getFileName();
+    final boolean isOK;
+    switch (graphRequest.getRequestType()) {
+      case QUIT, IGNORE, STATS, PING -> {
+        graphWriterClient.flush();
+        isOK = graphWriterClient.sendImmediately(graphRequest);
       }
-      return false;
+      default ->
+        isOK = graphWriterClient.send(graphRequest);
+    }
+    if (!isOK && graphRequest.getRequestType() != GraphRequestType.IGNORE) {
+      LOGGER.error("  cannot send " + graphRequest + ", the graph server is not running");
     }
+    return isOK;
+  }
+
+  /**
+   * Conveniently issues a shutdown request from a client, and waits for the
+   * graph server to drain the requests already sent, for up to the server's
+   * shutdown timeout.
+   *
+   * @return the acknowledgement of the quit request, whose message reports
+   * the numbers of completed and abandoned requests, or null if the graph
+   * server is not running
+   */
+  public static GraphResult shutDown() {
+    return shutDown(0);
   }
 
   /**
-   * Conveniently issues a shutdown request from a client.
+   * Conveniently issues a shutdown request from a client, and waits for the
+   * graph server to drain the requests already sent, for up to the given
+   * timeout. The requests that remain at the timeout are abandoned, and are
+   * replayed by the next run of the graph server.
+   *
+   * @param timeoutMillis the given timeout in milliseconds, or zero for the
+   * server's shutdown timeout
+   * @return the acknowledgement of the quit request, whose message reports
+   * the numbers of completed and abandoned requests, or null if the graph
+   * server is not running
    */
-  public static void shutDown() {
-    LOGGER.warn("quitting - waiting 10 seconds for the graph server to finish...");
+  public static GraphResult shutDown(final long timeoutMillis) {
+    //Preconditions
+    assert timeoutMillis >= 0 : "timeoutMillis must not be negative";
+
+    final GraphWriterClient graphWriterClient = GraphWriterClient.getSharedInstance();
+    final GraphRequest graphRequest = new GraphRequest(
+            GraphRequestType.QUIT,
+            "quit", // fileName
+            ""); // labeledTree
+    if (timeoutMillis > 0) {
+      graphRequest.setDeadlineMillis(System.currentTimeMillis() + timeoutMillis);
+    }
+    LOGGER.info("quitting - waiting for the graph server to drain...");
+    // make sure that the server has received the requests sent on every pooled connection, which are then drained
+    // rather than rejected because they arrived after the quit request
+    if (!graphWriterClient.pingAll(PING_TIMEOUT_MILLIS)) {
+      LOGGER.info("the graph server is not running");
+      return null;
+    }
+    final CompletableFuture<GraphResult> result = graphWriterClient.submit(graphRequest);
+    graphWriterClient.flush();
     try {
-      Thread.sleep(10_000);
-    } catch (InterruptedException ex2) {
+      final GraphResult graphResult = result.get(
+              (timeoutMillis > 0 ? timeoutMillis : SHUTDOWN_TIMEOUT_MILLIS) + SHUTDOWN_GRACE_MILLIS + PING_TIMEOUT_MILLIS,
+              TimeUnit.MILLISECONDS);
+      LOGGER.info("the graph server shut down, " + graphResult.getMessage());
+      return graphResult;
+    } catch (ExecutionException ex) {
+      LOGGER.info("the graph server is not running");
+      return null;
+    } catch (TimeoutException ex) {
+      LOGGER.warn("the graph server did not acknowledge the quit request");
+      return null;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return null;
     }
-    issuePHPGraphRequest("quit", "quit");
   }
 
 }
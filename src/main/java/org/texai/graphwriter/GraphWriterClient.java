@@ -0,0 +1,592 @@
+/*
+ * GraphWriterClient.java
+ *
+ * Created on Oct 18, 2026, 1:34:52 PM
+ *
+ * Description: Provides a graph-writing client that pipelines batched requests over a small pool of persistent
+ * connections.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * Provides a graph-writing client that keeps a small pool of persistent connections to the graph-writing server, and
+ * pipelines many requests over each one. Requests are buffered per connection and written in a batch when the batch
+ * is full, or when the flush interval has elapsed since the first buffered request, whichever comes first.
+ *
+ * Requests submitted with {@link #submit(GraphRequest)} carry a request id, and the server acknowledges each one on
+ * its connection when the graph file exists or the request has failed. A reader thread per connection completes the
+ * corresponding futures, so that callers can pipeline thousands of requests and react as each graph lands.
+ *
+ * The connections use the server Unix domain socket when it exists, and otherwise the loopback TCP port.
+ *
+ * The static client methods of {@link GraphWriter} delegate to the shared instance, which flushes its buffered
+ * requests when the JVM exits.
+ *
+ * @author reed
+ */
+public class GraphWriterClient implements AutoCloseable {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(GraphWriterClient.class);
+
+  // the default number of pooled connections
+  private static final int DEFAULT_POOL_SIZE = Integer.getInteger("org.texai.graphwriter.clientPoolSize", 2);
+
+  // the default number of buffered requests that triggers a flush
+  private static final int DEFAULT_BATCH_SIZE = Integer.getInteger("org.texai.graphwriter.clientBatchSize", 64);
+
+  // the default number of microseconds after which buffered requests are flushed
+  private static final long DEFAULT_FLUSH_INTERVAL_MICROS = Long.getLong("org.texai.graphwriter.clientFlushIntervalMicros", 200L);
+
+  // the indicator whether to connect over the Unix domain socket when it exists
+  private static final boolean IS_UNIX_SOCKET_PREFERRED = Boolean.parseBoolean(System.getProperty("org.texai.graphwriter.clientUseUnixSocket", "true"));
+
+  // the shared instance, created when first needed
+  private static GraphWriterClient sharedInstance;
+
+  // the loopback TCP port of the server
+  private final int port;
+
+  // the Unix domain socket path of the server, or null if connecting only over the TCP port
+  private final Path unixSocketPath;
+
+  // the pooled connections
+  private final ClientConnection[] clientConnections;
+
+  // the number of buffered requests that triggers a flush
+  private final int batchSize;
+
+  // the number of microseconds after which buffered requests are flushed
+  private final long flushIntervalMicros;
+
+  // the index of the next connection to use
+  private final AtomicInteger nextConnectionIndex = new AtomicInteger(0);
+
+  // the next request id
+  private final AtomicLong nextRequestId = new AtomicLong(1);
+
+  // the timer which flushes the buffered requests after the flush interval
+  private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "graph-writer-client-flusher");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Constructs a new GraphWriterClient instance.
+   *
+   * @param poolSize the number of pooled connections
+   * @param batchSize the number of buffered requests that triggers a flush
+   * @param flushIntervalMicros the number of microseconds after which buffered requests are flushed
+   */
+  public GraphWriterClient(
+          final int poolSize,
+          final int batchSize,
+          final long flushIntervalMicros) {
+    this(
+            poolSize,
+            batchSize,
+            flushIntervalMicros,
+            GraphWriter.LISTENING_PORT,
+            IS_UNIX_SOCKET_PREFERRED && !GraphWriter.UNIX_SOCKET_PATH.isEmpty() ? Paths.get(GraphWriter.UNIX_SOCKET_PATH) : null);
+  }
+
+  /**
+   * Constructs a new GraphWriterClient instance that connects to the server at the given address.
+   *
+   * @param poolSize the number of pooled connections
+   * @param batchSize the number of buffered requests that triggers a flush
+   * @param flushIntervalMicros the number of microseconds after which buffered requests are flushed
+   * @param port the loopback TCP port of the server
+   * @param unixSocketPath the Unix domain socket path of the server, or null if connecting only over the TCP port
+   */
+  GraphWriterClient(
+          final int poolSize,
+          final int batchSize,
+          final long flushIntervalMicros,
+          final int port,
+          final Path unixSocketPath) {
+    //Preconditions
+    assert poolSize > 0 : "poolSize must be positive";
+    assert batchSize > 0 : "batchSize must be positive";
+    assert flushIntervalMicros >= 0 : "flushIntervalMicros must not be negative";
+    assert port > 0 : "port must be positive";
+
+    this.port = port;
+    this.unixSocketPath = unixSocketPath;
+    this.batchSize = batchSize;
+    this.flushIntervalMicros = flushIntervalMicros;
+    clientConnections = new ClientConnection[poolSize];
+    for (int i = 0; i < poolSize; i++) {
+      clientConnections[i] = new ClientConnection();
+    }
+  }
+
+  /**
+   * Gets the shared instance, which is configured by system properties and flushed when the JVM exits.
+   *
+   * @return the shared instance
+   */
+  public static synchronized GraphWriterClient getSharedInstance() {
+    if (sharedInstance == null) {
+      sharedInstance = new GraphWriterClient(
+              DEFAULT_POOL_SIZE,
+              DEFAULT_BATCH_SIZE,
+              DEFAULT_FLUSH_INTERVAL_MICROS);
+      final Thread shutdownHook = new Thread(sharedInstance::close, "graph-writer-client-shutdown");
+      Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+    return sharedInstance;
+  }
+
+  /**
+   * Buffers the given graph request on one of the pooled connections, connecting it first if required.
+   *
+   * @param graphRequest the given graph request
+   * @return true if the request was buffered, or false if the server is not running
+   */
+  public boolean send(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    final int index = Math.floorMod(nextConnectionIndex.getAndIncrement(), clientConnections.length);
+    return clientConnections[index].send(graphRequest, null);
+  }
+
+  /**
+   * Buffers the given graph request on one of the pooled connections, and returns a future that completes with its
+   * result when the server acknowledges it. The future completes exceptionally when the server is not running, or
+   * when the connection is lost before the acknowledgement arrives.
+   *
+   * @param graphRequest the given graph request, to which a request id is assigned
+   * @return the future graph result
+   */
+  public CompletableFuture<GraphResult> submit(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    graphRequest.setRequestId(nextRequestId.getAndIncrement());
+    final CompletableFuture<GraphResult> result = new CompletableFuture<>();
+    final int index = Math.floorMod(nextConnectionIndex.getAndIncrement(), clientConnections.length);
+    if (!clientConnections[index].send(graphRequest, result)) {
+      result.completeExceptionally(new IOException("the graph server is not running"));
+    }
+    return result;
+  }
+
+  /**
+   * Sends the given graph request immediately on a new connection, which is then closed. This is used for control
+   * requests, for which the caller must know whether the server received it.
+   *
+   * @param graphRequest the given graph request
+   * @return true if the request was sent, or false if the server is not running
+   */
+  public boolean sendImmediately(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    try (SocketChannel socketChannel = connect()) {
+      writeFully(socketChannel, GraphRequestCodec.encode(graphRequest));
+      return true;
+    } catch (IOException ex) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("  cannot send " + graphRequest + ": " + ex.getMessage());
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Probes whether the graph-writing server is running and initialized, with a ping request that the server answers
+   * at once rather than queuing it behind the renders.
+   *
+   * @param timeoutMillis the number of milliseconds to wait for the answer
+   * @return whether the server answered within the timeout
+   */
+  public boolean ping(final long timeoutMillis) {
+    //Preconditions
+    assert timeoutMillis > 0 : "timeoutMillis must be positive";
+
+    final CompletableFuture<GraphResult> result = submit(new GraphRequest(
+            GraphRequestType.PING,
+            "ping", // fileName
+            "")); // labeledTree
+    flush();
+    try {
+      return result.get(timeoutMillis, TimeUnit.MILLISECONDS).getStatus() == GraphResultStatus.OK;
+    } catch (ExecutionException | TimeoutException ex) {
+      return false;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Pings the server on each of the pooled connections, and waits for the answers. The server reads the requests of a
+   * connection in order, so once every connection is answered, every request sent before has been received.
+   *
+   * @param timeoutMillis the number of milliseconds to wait for the answers
+   * @return whether every connection was answered within the timeout
+   */
+  public boolean pingAll(final long timeoutMillis) {
+    //Preconditions
+    assert timeoutMillis > 0 : "timeoutMillis must be positive";
+
+    final List<CompletableFuture<GraphResult>> results = new ArrayList<>(clientConnections.length);
+    for (final ClientConnection clientConnection : clientConnections) {
+      final GraphRequest graphRequest = new GraphRequest(
+              GraphRequestType.PING,
+              "ping", // fileName
+              ""); // labeledTree
+      graphRequest.setRequestId(nextRequestId.getAndIncrement());
+      final CompletableFuture<GraphResult> result = new CompletableFuture<>();
+      if (!clientConnection.send(graphRequest, result)) {
+        return false;
+      }
+      results.add(result);
+    }
+    flush();
+    final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    try {
+      for (final CompletableFuture<GraphResult> result : results) {
+        if (result.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS).getStatus() != GraphResultStatus.OK) {
+          return false;
+        }
+      }
+      return true;
+    } catch (ExecutionException | TimeoutException ex) {
+      return false;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Writes the buffered requests of all the pooled connections.
+   */
+  public void flush() {
+    for (final ClientConnection clientConnection : clientConnections) {
+      clientConnection.flush();
+    }
+  }
+
+  /**
+   * Flushes the buffered requests and closes the pooled connections. The futures of the requests that have not yet
+   * been acknowledged complete exceptionally.
+   */
+  @Override
+  public void close() {
+    flush();
+    flushExecutor.shutdownNow();
+    for (final ClientConnection clientConnection : clientConnections) {
+      clientConnection.close();
+    }
+  }
+
+  /**
+   * Connects to the graph-writing server, over its Unix domain socket if it exists and is preferred, otherwise over
+   * the loopback TCP port.
+   *
+   * @return the connected socket channel
+   * @throws IOException when the server is not running
+   */
+  private SocketChannel connect() throws IOException {
+    if (unixSocketPath != null) {
+      if (Files.exists(unixSocketPath)) {
+        final SocketChannel socketChannel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+          socketChannel.connect(UnixDomainSocketAddress.of(unixSocketPath));
+          return socketChannel;
+        } catch (IOException ex) {
+          // a stale socket file left by a killed server, so try the TCP port
+          socketChannel.close();
+        }
+      }
+    }
+    final SocketChannel socketChannel = SocketChannel.open();
+    try {
+      socketChannel.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+      socketChannel.socket().setTcpNoDelay(true);
+    } catch (IOException ex) {
+      socketChannel.close();
+      throw ex;
+    }
+    return socketChannel;
+  }
+
+  /**
+   * Writes all the given bytes to the given socket channel.
+   *
+   * @param socketChannel the given socket channel
+   * @param bytes the given bytes
+   * @throws IOException when the bytes cannot be written
+   */
+  private static void writeFully(
+          final SocketChannel socketChannel,
+          final byte[] bytes) throws IOException {
+    final ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    while (byteBuffer.hasRemaining()) {
+      socketChannel.write(byteBuffer);
+    }
+  }
+
+  /**
+   * Provides a pooled persistent connection with its buffered requests.
+   */
+  private class ClientConnection {
+
+    // the current link, or null if not connected
+    private Link link;
+
+    // the buffered requests
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+
+    // the number of buffered requests
+    private int bufferedCount = 0;
+
+    // the end offset of each buffered request in the buffer
+    private final List<Integer> bufferedFrameEnds = new ArrayList<>();
+
+    // the request id of each buffered request that has a completion future, otherwise zero
+    private final List<Long> bufferedRequestIds = new ArrayList<>();
+
+    // the completion futures of the buffered requests that carry a request id, indexed by request id
+    private final Map<Long, CompletableFuture<GraphResult>> bufferedResults = new HashMap<>();
+
+    /**
+     * Buffers the given request, connecting first if required, and flushes when the batch is full.
+     *
+     * @param graphRequest the given request
+     * @param result the completion future, or null if no completion acknowledgement is wanted
+     * @return true if the request was buffered, or false if the server is not running
+     */
+    synchronized boolean send(
+            final GraphRequest graphRequest,
+            final CompletableFuture<GraphResult> result) {
+      if (link == null || link.isClosed) {
+        try {
+          link = new Link(connect());
+        } catch (IOException ex) {
+          return false;
+        }
+      }
+      final byte[] bytes = GraphRequestCodec.encode(graphRequest);
+      buffer.write(bytes, 0, bytes.length);
+      bufferedCount++;
+      bufferedFrameEnds.add(buffer.size());
+      if (result != null) {
+        bufferedResults.put(graphRequest.getRequestId(), result);
+        bufferedRequestIds.add(graphRequest.getRequestId());
+      } else {
+        bufferedRequestIds.add(0L);
+      }
+      if (bufferedCount >= batchSize || flushIntervalMicros == 0) {
+        flush();
+      } else if (bufferedCount == 1) {
+        flushExecutor.schedule(this::flush, flushIntervalMicros, TimeUnit.MICROSECONDS);
+      }
+      return true;
+    }
+
+    /**
+     * Writes the buffered requests, reconnecting once if the server closed the connection. When a write fails part way
+     * through the batch, the requests written in full may have reached the server, so only the remaining requests are
+     * written again on the new connection, and the futures of the written requests fail with the broken connection.
+     * The futures of a batch that is written just as its connection is found closed fail too, rather than wait for a
+     * reader that has gone.
+     */
+    synchronized void flush() {
+      if (bufferedCount == 0) {
+        return;
+      }
+      final byte[] bytes = buffer.toByteArray();
+      final int count = bufferedCount;
+      final Map<Long, CompletableFuture<GraphResult>> results = new HashMap<>(bufferedResults);
+      final List<Integer> frameEnds = new ArrayList<>(bufferedFrameEnds);
+      final List<Long> requestIds = new ArrayList<>(bufferedRequestIds);
+      buffer.reset();
+      bufferedCount = 0;
+      bufferedResults.clear();
+      bufferedFrameEnds.clear();
+      bufferedRequestIds.clear();
+      // the number of requests written in full, which are not written again
+      int writtenCount = 0;
+      for (int attempt = 1; attempt <= 2; attempt++) {
+        final int offset = writtenCount == 0 ? 0 : frameEnds.get(writtenCount - 1);
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, offset, bytes.length - offset);
+        try {
+          if (link == null || link.isClosed) {
+            link = new Link(connect());
+          }
+          // register the futures before writing, because the acknowledgements may arrive at once
+          link.pendingResults.putAll(results);
+          while (byteBuffer.hasRemaining()) {
+            link.socketChannel.write(byteBuffer);
+          }
+          if (link.isClosed) {
+            // the reader may have failed the pending futures before those of this batch were registered, and a write
+            // to a connection that the server has closed usually succeeds, so the batch may or may not have arrived
+            final IOException exception = new IOException("the graph server closed the connection");
+            for (final Long requestId : results.keySet()) {
+              final CompletableFuture<GraphResult> result = link.pendingResults.remove(requestId);
+              if (result != null) {
+                result.completeExceptionally(exception);
+              }
+            }
+          }
+          return;
+        } catch (IOException ex) {
+          final List<CompletableFuture<GraphResult>> writtenResults = new ArrayList<>();
+          while (writtenCount < count && frameEnds.get(writtenCount) <= byteBuffer.position()) {
+            final CompletableFuture<GraphResult> result = results.remove(requestIds.get(writtenCount));
+            if (result != null) {
+              writtenResults.add(result);
+            }
+            writtenCount++;
+          }
+          if (link != null) {
+            // keep the futures of the unwritten requests for the retry rather than failing them with the broken link
+            link.pendingResults.keySet().removeAll(results.keySet());
+            link.close();
+            link = null;
+          }
+          writtenResults.forEach(result -> result.completeExceptionally(ex));
+          if (writtenCount == count) {
+            return;
+          } else if (attempt == 2) {
+            LOGGER.error("  cannot send " + (count - writtenCount) + " graph requests: " + ex.getMessage());
+            results.values().forEach(result -> result.completeExceptionally(ex));
+          }
+        }
+      }
+    }
+
+    /**
+     * Closes this connection.
+     */
+    synchronized void close() {
+      if (link != null) {
+        link.close();
+        link = null;
+      }
+    }
+  }
+
+  /**
+   * Provides a connected socket channel, whose reader thread completes the futures of the requests written on it as
+   * their acknowledgements arrive.
+   */
+  private static class Link implements Runnable {
+
+    // the connected socket channel
+    private final SocketChannel socketChannel;
+
+    // the completion futures of the written requests, indexed by request id
+    private final Map<Long, CompletableFuture<GraphResult>> pendingResults = new ConcurrentHashMap<>();
+
+    // the indicator that this link is closed, by either end
+    private volatile boolean isClosed = false;
+
+    /**
+     * Constructs a new Link instance, and starts its reader thread.
+     *
+     * @param socketChannel the connected socket channel
+     */
+    Link(final SocketChannel socketChannel) {
+      //Preconditions
+      assert socketChannel != null : "socketChannel must not be null";
+
+      this.socketChannel = socketChannel;
+      final Thread readerThread = new Thread(this, "graph-writer-client-reader");
+      readerThread.setDaemon(true);
+      readerThread.start();
+    }
+
+    /**
+     * Reads the completion acknowledgements until the connection is closed, then fails the futures of the requests
+     * that remain unacknowledged.
+     */
+    @Override
+    public void run() {
+      IOException exception = null;
+      try (DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(socketChannel)))) {
+        final byte[] prefix = new byte[GraphRequestCodec.PREFIX_LENGTH];
+        while (true) {
+          dataInputStream.readFully(prefix);
+          final int frameLength = GraphRequestCodec.decodeFrameLength(ByteBuffer.wrap(prefix));
+          final byte[] frame = Arrays.copyOf(prefix, GraphRequestCodec.PREFIX_LENGTH + frameLength);
+          dataInputStream.readFully(frame, GraphRequestCodec.PREFIX_LENGTH, frameLength);
+          final GraphResult graphResult = GraphResultCodec.decode(ByteBuffer.wrap(frame));
+          final CompletableFuture<GraphResult> result = pendingResults.remove(graphResult.getRequestId());
+          if (result != null) {
+            result.complete(graphResult);
+          }
+        }
+      } catch (EOFException ex) {
+        exception = new IOException("the graph server closed the connection");
+      } catch (IOException ex) {
+        exception = ex;
+      } finally {
+        isClosed = true;
+      }
+      if (!pendingResults.isEmpty()) {
+        LOGGER.warn("  " + pendingResults.size() + " graph requests are unacknowledged: " + exception.getMessage());
+        // remove the futures one at a time, because a flush may still be registering those of its batch
+        for (final Long requestId : pendingResults.keySet()) {
+          final CompletableFuture<GraphResult> result = pendingResults.remove(requestId);
+          if (result != null) {
+            result.completeExceptionally(exception);
+          }
+        }
+      }
+    }
+
+    /**
+     * Closes this link, which fails the futures of the requests that remain unacknowledged.
+     */
+    void close() {
+      isClosed = true;
+      try {
+        socketChannel.close();
+      } catch (IOException ex) {
+        // ignore
+      }
+    }
+  }
+}
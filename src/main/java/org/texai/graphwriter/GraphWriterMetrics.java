@@ -0,0 +1,448 @@
+/*
+ * GraphWriterMetrics.java
+ *
+ * Created on Oct 18, 2026, 10:03:29 PM
+ *
+ * Description: Collects the live metrics of the graph writing server, and exposes them as a JMX MBean and as the text
+ * report answered to a stats control request.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.log4j.Logger;
+
+/**
+ * Collects the live metrics of the graph writing server. The request counts are kept per renderer type, and the
+ * latencies in lock-free histograms, so that recording a sample costs a graph-making thread a few atomic increments.
+ * The gauges, such as the ring buffer remaining capacity and the queue depth, are read from their owners when
+ * reported, and are summed over the bulkheads of the renderers, whose own gauges are in the text report.
+ *
+ * @author reed
+ */
+public class GraphWriterMetrics implements GraphWriterMetricsMXBean {
+
+  /**
+   * the JMX object name under which the metrics are registered
+   */
+  public static final String OBJECT_NAME = "org.texai.graphwriter:type=GraphWriter,name=Metrics";
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(GraphWriterMetrics.class);
+
+  // the bulkheads, i.e. the render schedulers of the renderers, whose queue depths and active renders are reported,
+  // indexed by renderer type
+  private final Map<String, RenderScheduler> renderSchedulers;
+
+  // the process launcher, whose spawn latencies are reported
+  private final ProcessLauncher processLauncher;
+
+  // the request counts, keyed by renderer type, which are fixed at construction
+  private final Map<String, RendererCounts> rendererCountsMap = new LinkedHashMap<>();
+
+  // the number of syntax tree requests whose labeled trees were invalid
+  private final AtomicLong invalidCount = new AtomicLong(0);
+
+  // the queue wait histogram
+  private final LatencyHistogram queueWaitHistogram = new LatencyHistogram("queue wait");
+
+  // the render time histogram
+  private final LatencyHistogram renderHistogram = new LatencyHistogram("render");
+
+  // the supplier of the ring buffer remaining capacity, or null before the ring buffer is started
+  private volatile LongSupplier ringBufferRemainingCapacitySupplier;
+
+  // the registered object name, or null if not registered
+  private ObjectName objectName;
+
+  // the indicator that these metrics were unregistered, after which they are not registered again
+  private boolean isUnregistered = false;
+
+  /**
+   * Constructs a new GraphWriterMetrics instance.
+   *
+   * @param renderSchedulers the render schedulers of the renderers, indexed by renderer type, e.g. "graphviz" and
+   * "syntax-tree-java"
+   * @param processLauncher the process launcher
+   */
+  public GraphWriterMetrics(
+          final Map<String, RenderScheduler> renderSchedulers,
+          final ProcessLauncher processLauncher) {
+    //Preconditions
+    assert renderSchedulers != null : "renderSchedulers must not be null";
+    assert !renderSchedulers.isEmpty() : "renderSchedulers must not be empty";
+    assert processLauncher != null : "processLauncher must not be null";
+
+    this.renderSchedulers = new LinkedHashMap<>(renderSchedulers);
+    this.processLauncher = processLauncher;
+    for (final String rendererType : renderSchedulers.keySet()) {
+      rendererCountsMap.put(rendererType, new RendererCounts());
+    }
+  }
+
+  /**
+   * Sets the supplier of the ring buffer remaining capacity, once the ring buffer is started.
+   *
+   * @param ringBufferRemainingCapacitySupplier the supplier of the ring buffer remaining capacity
+   */
+  public void setRingBufferRemainingCapacitySupplier(final LongSupplier ringBufferRemainingCapacitySupplier) {
+    this.ringBufferRemainingCapacitySupplier = ringBufferRemainingCapacitySupplier;
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server, unless they were already unregistered by a shutdown that
+   * overtook the registration. A failure is logged, because the server runs without JMX.
+   */
+  public synchronized void register() {
+    if (isUnregistered) {
+      return;
+    }
+    try {
+      final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName newObjectName = new ObjectName(OBJECT_NAME);
+      if (mBeanServer.isRegistered(newObjectName)) {
+        mBeanServer.unregisterMBean(newObjectName);
+      }
+      mBeanServer.registerMBean(this, newObjectName);
+      objectName = newObjectName;
+    } catch (JMException ex) {
+      LOGGER.warn("cannot register the metrics MBean: " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Unregisters these metrics from the platform MBean server.
+   */
+  public synchronized void unregister() {
+    isUnregistered = true;
+    if (objectName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      } catch (JMException ex) {
+        LOGGER.warn("cannot unregister the metrics MBean: " + ex.getMessage());
+      }
+      objectName = null;
+    }
+  }
+
+  /**
+   * Records a request of the given renderer type that was admitted to the render scheduler.
+   *
+   * @param rendererType the given renderer type
+   */
+  public void recordAccepted(final String rendererType) {
+    getRendererCounts(rendererType).acceptedCount.incrementAndGet();
+  }
+
+  /**
+   * Records the result of a rendered request of the given renderer type, and its latencies. A superseded or cancelled
+   * request is neither completed nor failed, and is counted by the render scheduler.
+   *
+   * @param rendererType the given renderer type
+   * @param status the result status
+   * @param queueMicros the time from the receipt of the request until its rendering began, in microseconds
+   * @param renderMicros the render time in microseconds
+   */
+  public void recordResult(
+          final String rendererType,
+          final GraphResultStatus status,
+          final long queueMicros,
+          final long renderMicros) {
+    //Preconditions
+    assert status != null : "status must not be null";
+
+    final RendererCounts rendererCounts = getRendererCounts(rendererType);
+    if (status.isSuccessful()) {
+      rendererCounts.completedCount.incrementAndGet();
+    } else if (status != GraphResultStatus.SUPERSEDED && status != GraphResultStatus.CANCELLED) {
+      rendererCounts.failedCount.incrementAndGet();
+    }
+    queueWaitHistogram.record(queueMicros);
+    renderHistogram.record(renderMicros);
+  }
+
+  /**
+   * Gets the request counts of the given renderer type.
+   *
+   * @param rendererType the given renderer type
+   * @return the request counts
+   */
+  private RendererCounts getRendererCounts(final String rendererType) {
+    final RendererCounts rendererCounts = rendererCountsMap.get(rendererType);
+    assert rendererCounts != null : "unknown renderer type " + rendererType;
+    return rendererCounts;
+  }
+
+  /**
+   * Gets the number of free slots in the request ring buffer.
+   *
+   * @return the ring buffer remaining capacity, or -1 before the ring buffer is started
+   */
+  @Override
+  public long getRingBufferRemainingCapacity() {
+    final LongSupplier supplier = ringBufferRemainingCapacitySupplier;
+    return supplier == null ? -1 : supplier.getAsLong();
+  }
+
+  /**
+   * Gets the number of admitted requests that wait for a graph-making thread.
+   *
+   * @return the number of pending requests
+   */
+  @Override
+  public int getPendingCount() {
+    return (int) sum(RenderScheduler::getPendingCount);
+  }
+
+  /**
+   * Gets the number of requests that wait for room under the BLOCK admission policy.
+   *
+   * @return the number of waiting requests
+   */
+  @Override
+  public int getWaitingCount() {
+    return (int) sum(RenderScheduler::getWaitingCount);
+  }
+
+  /**
+   * Gets the number of running renders.
+   *
+   * @return the number of running renders
+   */
+  @Override
+  public int getActiveRenderCount() {
+    return (int) sum(RenderScheduler::getRunningCount);
+  }
+
+  /**
+   * Gets the current limit of concurrent renders.
+   *
+   * @return the current limit of concurrent renders
+   */
+  @Override
+  public int getConcurrencyLimit() {
+    return (int) sum(RenderScheduler::getConcurrencyLimit);
+  }
+
+  /**
+   * Sums the given gauge or count over the render schedulers of the renderers.
+   *
+   * @param getter the getter of the given gauge or count
+   * @return the sum
+   */
+  private long sum(final ToLongFunction<RenderScheduler> getter) {
+    long sum = 0;
+    for (final RenderScheduler renderScheduler : renderSchedulers.values()) {
+      sum += getter.applyAsLong(renderScheduler);
+    }
+    return sum;
+  }
+
+  /**
+   * Gets the numbers of accepted requests.
+   *
+   * @return the numbers of requests admitted to the render scheduler, keyed by renderer type
+   */
+  @Override
+  public Map<String, Long> getAcceptedCounts() {
+    return getCounts(rendererCounts -> rendererCounts.acceptedCount);
+  }
+
+  /**
+   * Gets the numbers of completed requests, whose graphs were rendered or cached.
+   *
+   * @return the numbers of completed requests, keyed by renderer type
+   */
+  @Override
+  public Map<String, Long> getCompletedCounts() {
+    return getCounts(rendererCounts -> rendererCounts.completedCount);
+  }
+
+  /**
+   * Gets the numbers of failed requests, whose graphs were not written or whose deadlines passed.
+   *
+   * @return the numbers of failed requests, keyed by renderer type
+   */
+  @Override
+  public Map<String, Long> getFailedCounts() {
+    return getCounts(rendererCounts -> rendererCounts.failedCount);
+  }
+
+  /**
+   * Gets the given count of each renderer type.
+   *
+   * @param countGetter the getter of the given count
+   * @return the counts, keyed by renderer type
+   */
+  private Map<String, Long> getCounts(final Function<RendererCounts, AtomicLong> countGetter) {
+    final Map<String, Long> counts = new LinkedHashMap<>();
+    for (final Map.Entry<String, RendererCounts> entry : rendererCountsMap.entrySet()) {
+      counts.put(entry.getKey(), countGetter.apply(entry.getValue()).get());
+    }
+    return Collections.unmodifiableMap(counts);
+  }
+
+  /**
+   * Gets the number of shed requests.
+   *
+   * @return the number of shed requests
+   */
+  @Override
+  public long getShedCount() {
+    return sum(RenderScheduler::getShedCount);
+  }
+
+  /**
+   * Records a syntax tree request whose labeled tree was invalid, and which failed before it was queued.
+   */
+  public void recordInvalid() {
+    invalidCount.incrementAndGet();
+  }
+
+  /**
+   * Gets the number of syntax tree requests whose labeled trees were invalid.
+   *
+   * @return the number of invalid requests
+   */
+  @Override
+  public long getInvalidCount() {
+    return invalidCount.get();
+  }
+
+  /**
+   * Gets the number of superseded requests.
+   *
+   * @return the number of superseded requests
+   */
+  @Override
+  public long getSupersededCount() {
+    return sum(RenderScheduler::getSupersededCount);
+  }
+
+  /**
+   * Gets the number of cancelled requests.
+   *
+   * @return the number of cancelled requests
+   */
+  @Override
+  public long getCancelledCount() {
+    return sum(RenderScheduler::getCancelledCount);
+  }
+
+  /**
+   * Gets the percentiles of the time from the receipt of a request until its rendering began.
+   *
+   * @return the queue wait percentiles in microseconds
+   */
+  @Override
+  public Map<String, Long> getQueueWaitMicros() {
+    return getPercentiles(queueWaitHistogram);
+  }
+
+  /**
+   * Gets the percentiles of the renderer process spawn latency.
+   *
+   * @return the process spawn percentiles in microseconds
+   */
+  @Override
+  public Map<String, Long> getProcessSpawnMicros() {
+    return getPercentiles(processLauncher.getSpawnHistogram());
+  }
+
+  /**
+   * Gets the percentiles of the render time.
+   *
+   * @return the render time percentiles in microseconds
+   */
+  @Override
+  public Map<String, Long> getRenderMicros() {
+    return getPercentiles(renderHistogram);
+  }
+
+  /**
+   * Gets the reported percentiles of the given histogram.
+   *
+   * @param latencyHistogram the given histogram
+   * @return the count, p50, p99, p999 and max, in microseconds
+   */
+  private static Map<String, Long> getPercentiles(final LatencyHistogram latencyHistogram) {
+    final Map<String, Long> percentiles = new LinkedHashMap<>();
+    percentiles.put("count", latencyHistogram.getCount());
+    percentiles.put("p50", latencyHistogram.getPercentile(50.0));
+    percentiles.put("p99", latencyHistogram.getPercentile(99.0));
+    percentiles.put("p999", latencyHistogram.getPercentile(99.9));
+    percentiles.put("max", latencyHistogram.getMax());
+    return Collections.unmodifiableMap(percentiles);
+  }
+
+  /**
+   * Gets the text report of all the metrics, as answered to a stats control request.
+   *
+   * @return the text report, one metric per line
+   */
+  @Override
+  public String getReport() {
+    final StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append("ring buffer remaining capacity: ").append(getRingBufferRemainingCapacity()).append('\n');
+    stringBuilder.append("queue depth: ").append(getPendingCount())
+            .append(" pending, ").append(getWaitingCount()).append(" waiting\n");
+    stringBuilder.append("active renders: ").append(getActiveRenderCount())
+            .append(" of a limit of ").append(getConcurrencyLimit()).append('\n');
+    for (final Map.Entry<String, RendererCounts> entry : rendererCountsMap.entrySet()) {
+      final RendererCounts rendererCounts = entry.getValue();
+      final RenderScheduler renderScheduler = renderSchedulers.get(entry.getKey());
+      stringBuilder.append(entry.getKey())
+              .append(": accepted ").append(rendererCounts.acceptedCount.get())
+              .append(", completed ").append(rendererCounts.completedCount.get())
+              .append(", failed ").append(rendererCounts.failedCount.get())
+              .append("; ").append(renderScheduler.getPendingCount()).append(" pending, ")
+              .append(renderScheduler.getRunningCount()).append(" active of a limit of ")
+              .append(renderScheduler.getConcurrencyLimit()).append('\n');
+    }
+    stringBuilder.append("shed: ").append(getShedCount())
+            .append(", superseded: ").append(getSupersededCount())
+            .append(", cancelled: ").append(getCancelledCount())
+            .append(", invalid: ").append(getInvalidCount()).append('\n');
+    stringBuilder.append(queueWaitHistogram).append('\n');
+    stringBuilder.append(processLauncher.getSpawnHistogram()).append('\n');
+    stringBuilder.append(renderHistogram);
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[GraphWriterMetrics " + getReport().replace("\n", "; ") + "]";
+  }
+
+  /**
+   * Provides the request counts of a renderer type.
+   */
+  private static final class RendererCounts {
+
+    // the number of accepted requests
+    private final AtomicLong acceptedCount = new AtomicLong(0);
+
+    // the number of completed requests
+    private final AtomicLong completedCount = new AtomicLong(0);
+
+    // the number of failed requests
+    private final AtomicLong failedCount = new AtomicLong(0);
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * GraphWriterMetricsMXBean.java
+ *
+ * Created on Oct 18, 2026, 9:56:02 PM
+ *
+ * Description: Defines the live metrics of the graph writing server, as registered with the platform MBean server.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.Map;
+
+/**
+ * Defines the live metrics of the graph writing server, which are registered with the platform MBean server under
+ * {@link GraphWriterMetrics#OBJECT_NAME}, so that JConsole, VisualVM or a JMX exporter can read them. The counts are
+ * keyed by renderer type, e.g. "graphviz" or "syntax-tree-java", and the latency percentiles are keyed by "count",
+ * "p50", "p99", "p999" and "max", in microseconds.
+ *
+ * @author reed
+ */
+public interface GraphWriterMetricsMXBean {
+
+  /**
+   * Gets the number of free slots in the request ring buffer.
+   *
+   * @return the ring buffer remaining capacity, or -1 before the ring buffer is started
+   */
+  long getRingBufferRemainingCapacity();
+
+  /**
+   * Gets the number of admitted requests that wait for a graph-making thread.
+   *
+   * @return the number of pending requests
+   */
+  int getPendingCount();
+
+  /**
+   * Gets the number of requests that wait for room under the BLOCK admission policy.
+   *
+   * @return the number of waiting requests
+   */
+  int getWaitingCount();
+
+  /**
+   * Gets the number of running renders.
+   *
+   * @return the number of running renders
+   */
+  int getActiveRenderCount();
+
+  /**
+   * Gets the current limit of concurrent renders.
+   *
+   * @return the current limit of concurrent renders
+   */
+  int getConcurrencyLimit();
+
+  /**
+   * Gets the numbers of accepted requests.
+   *
+   * @return the numbers of requests admitted to the render scheduler, keyed by renderer type
+   */
+  Map<String, Long> getAcceptedCounts();
+
+  /**
+   * Gets the numbers of completed requests, whose graphs were rendered or cached.
+   *
+   * @return the numbers of completed requests, keyed by renderer type
+   */
+  Map<String, Long> getCompletedCounts();
+
+  /**
+   * Gets the numbers of failed requests, whose graphs were not written or whose deadlines passed.
+   *
+   * @return the numbers of failed requests, keyed by renderer type
+   */
+  Map<String, Long> getFailedCounts();
+
+  /**
+   * Gets the number of shed requests.
+   *
+   * @return the number of shed requests
+   */
+  long getShedCount();
+
+  /**
+   * Gets the number of syntax tree requests whose labeled trees were invalid.
+   *
+   * @return the number of invalid requests
+   */
+  long getInvalidCount();
+
+  /**
+   * Gets the number of superseded requests.
+   *
+   * @return the number of superseded requests
+   */
+  long getSupersededCount();
+
+  /**
+   * Gets the number of cancelled requests.
+   *
+   * @return the number of cancelled requests
+   */
+  long getCancelledCount();
+
+  /**
+   * Gets the percentiles of the time from the receipt of a request until its rendering began.
+   *
+   * @return the queue wait percentiles in microseconds
+   */
+  Map<String, Long> getQueueWaitMicros();
+
+  /**
+   * Gets the percentiles of the renderer process spawn latency.
+   *
+   * @return the process spawn percentiles in microseconds
+   */
+  Map<String, Long> getProcessSpawnMicros();
+
+  /**
+   * Gets the percentiles of the render time.
+   *
+   * @return the render time percentiles in microseconds
+   */
+  Map<String, Long> getRenderMicros();
+
+  /**
+   * Gets the text report of all the metrics, as answered to a stats control request.
+   *
+   * @return the text report
+   */
+  String getReport();
+}
@@ -0,0 +1,167 @@
+/*
+ * InlineImage.java
+ *
+ * Created on Oct 18, 2026, 9:05:43 PM
+ *
+ * Description: Provides a rendered image that is returned in a completion acknowledgement rather than left in an
+ * output file.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Provides a rendered image that is returned in a completion acknowledgement rather than left in an output file.
+ *
+ * On the server the image is either in memory, as captured from the renderer, or in an open file channel, which the
+ * request server transfers to the connection without reading the image into the heap. A rendered file is deleted as
+ * soon as its channel is open, so that no output file persists, while the open channel keeps its contents readable.
+ * On the client the image is always in memory.
+ *
+ * @author reed
+ */
+public final class InlineImage {
+
+  // the image format, either PNG or SVG
+  private final GraphOutputFormat format;
+
+  // the image bytes, or null when the image is in a file channel
+  private final byte[] bytes;
+
+  // the file channel positioned at the start of the image, or null when the image is in memory
+  private final FileChannel fileChannel;
+
+  // the image size in bytes
+  private final long byteSize;
+
+  /**
+   * Constructs a new InlineImage instance whose image is in memory.
+   *
+   * @param format the image format, either PNG or SVG
+   * @param bytes the image bytes
+   */
+  public InlineImage(
+          final GraphOutputFormat format,
+          final byte[] bytes) {
+    //Preconditions
+    assert format == GraphOutputFormat.PNG || format == GraphOutputFormat.SVG : "format must be PNG or SVG";
+    assert bytes != null : "bytes must not be null";
+
+    this.format = format;
+    this.bytes = bytes;
+    fileChannel = null;
+    byteSize = bytes.length;
+  }
+
+  /**
+   * Constructs a new InlineImage instance whose image is in the given open file channel.
+   *
+   * @param format the image format, either PNG or SVG
+   * @param fileChannel the file channel, which this instance closes
+   * @throws IOException when the file size cannot be read
+   */
+  private InlineImage(
+          final GraphOutputFormat format,
+          final FileChannel fileChannel) throws IOException {
+    this.format = format;
+    bytes = null;
+    this.fileChannel = fileChannel;
+    byteSize = fileChannel.size();
+  }
+
+  /**
+   * Opens the image file at the given path for transfer, deleting the file once it is open when it is a rendered
+   * output file, but not when it is a cached image.
+   *
+   * @param format the image format, either PNG or SVG
+   * @param path the image file path
+   * @param isDeleted whether the file is deleted once it is open
+   * @return the inline image
+   * @throws IOException when the file cannot be opened
+   */
+  public static InlineImage open(
+          final GraphOutputFormat format,
+          final Path path,
+          final boolean isDeleted) throws IOException {
+    //Preconditions
+    assert format == GraphOutputFormat.PNG || format == GraphOutputFormat.SVG : "format must be PNG or SVG";
+    assert path != null : "path must not be null";
+
+    final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      if (isDeleted) {
+        Files.deleteIfExists(path);
+      }
+      return new InlineImage(format, fileChannel);
+    } catch (IOException ex) {
+      fileChannel.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Gets the image format.
+   *
+   * @return the image format, either PNG or SVG
+   */
+  public GraphOutputFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * Gets the image bytes.
+   *
+   * @return the image bytes, or null when the image is in a file channel
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Gets the file channel positioned at the start of the image.
+   *
+   * @return the file channel, or null when the image is in memory
+   */
+  public FileChannel getFileChannel() {
+    return fileChannel;
+  }
+
+  /**
+   * Gets the image size in bytes.
+   *
+   * @return the image size in bytes
+   */
+  public long getByteSize() {
+    return byteSize;
+  }
+
+  /**
+   * Closes the file channel, if any, which releases a deleted file.
+   */
+  public void close() {
+    if (fileChannel != null) {
+      try {
+        fileChannel.close();
+      } catch (IOException ex) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[InlineImage " + format + ", " + byteSize + " bytes" + (fileChannel == null ? "" : ", from a file") + "]";
+  }
+}
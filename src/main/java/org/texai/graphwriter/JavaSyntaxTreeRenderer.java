@@ -0,0 +1,94 @@
+/*
+ * JavaSyntaxTreeRenderer.java
+ *
+ * Created on Oct 19, 2026, 12:12:18 AM
+ *
+ * Description: Renders syntax trees in the JVM with Java2D, which spawns no process.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders syntax trees in the JVM with Java2D, which spawns no process.
+ *
+ * @author reed
+ */
+public class JavaSyntaxTreeRenderer implements Renderer {
+
+  /**
+   * the renderer name
+   */
+  public static final String NAME = "syntax-tree-java";
+
+  // the graph writer
+  private GraphWriter graphWriter;
+
+  /**
+   * Constructs a new JavaSyntaxTreeRenderer instance.
+   */
+  public JavaSyntaxTreeRenderer() {
+  }
+
+  /**
+   * Gets the renderer name.
+   *
+   * @return the renderer name
+   */
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Gets the request types that this renderer can render.
+   *
+   * @return the syntax tree request type
+   */
+  @Override
+  public Set<GraphRequestType> getRequestTypes() {
+    return EnumSet.of(GraphRequestType.SYNTAX_TREE);
+  }
+
+  /**
+   * Initializes this renderer.
+   *
+   * @param graphWriter the graph writer
+   */
+  @Override
+  public void initialize(final GraphWriter graphWriter) {
+    //Preconditions
+    assert graphWriter != null : "graphWriter must not be null";
+
+    this.graphWriter = graphWriter;
+  }
+
+  /**
+   * Renders the given syntax tree requests.
+   *
+   * @param graphRequests the given requests
+   * @return the graph results, in the order of the requests
+   */
+  @Override
+  public List<GraphResult> render(final List<GraphRequest> graphRequests) {
+    //Preconditions
+    assert graphRequests != null : "graphRequests must not be null";
+
+    final List<GraphResult> graphResults = new ArrayList<>(graphRequests.size());
+    for (final GraphRequest graphRequest : graphRequests) {
+      graphResults.add(graphWriter.graphSyntaxTree(
+              graphRequest.getFileName(),
+              graphRequest.getLabeledTree(),
+              graphRequest.getOutputFormat(),
+              GraphWriter.isInline(graphRequest),
+              false)); // isPHPRenderer
+    }
+    return graphResults;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * LabeledTreeValidator.java
+ *
+ * Created on Oct 19, 2026, 4:37:21 AM
+ *
+ * Description: Validates a labeled tree in one pass while its request is decoded, and measures its size.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+/**
+ * Validates a labeled tree, such as "[S [NP John] [VP runs]]", in one pass over its characters while its request is
+ * decoded, so that a malformed tree is rejected before it is queued for a renderer. The PHP CStringParser::Validate()
+ * only checks that the brackets balance, and is reached after a renderer process is already paid for. This validator
+ * also rejects a closing bracket that has no opening bracket, and a tree with more nodes than the given limit, in
+ * which case it stops scanning at once.
+ *
+ * The number of nodes, i.e. opening brackets, and the depth of the deepest node are kept as cheap size hints for the
+ * request.
+ *
+ * @author reed
+ */
+public final class LabeledTreeValidator {
+
+  // the number of nodes, i.e. opening brackets, scanned
+  private int nodeCount = 0;
+
+  // the depth of the deepest node scanned
+  private int depth = 0;
+
+  // the reason that the labeled tree is invalid, or null if it is valid
+  private final String errorMessage;
+
+  /**
+   * Constructs a new LabeledTreeValidator instance, which validates the given labeled tree.
+   *
+   * @param labeledTree the given labeled tree
+   * @param maxNodeCount the maximum number of nodes, or zero for no limit
+   */
+  public LabeledTreeValidator(
+          final String labeledTree,
+          final int maxNodeCount) {
+    //Preconditions
+    assert labeledTree != null : "labeledTree must not be null";
+    assert maxNodeCount >= 0 : "maxNodeCount must not be negative";
+
+    errorMessage = validate(labeledTree, maxNodeCount);
+  }
+
+  /**
+   * Scans the given labeled tree, counting its nodes and measuring its depth.
+   *
+   * @param labeledTree the given labeled tree
+   * @param maxNodeCount the maximum number of nodes, or zero for no limit
+   * @return the reason that the labeled tree is invalid, or null if it is valid
+   */
+  private String validate(
+          final String labeledTree,
+          final int maxNodeCount) {
+    if (labeledTree.isBlank()) {
+      return "the labeled tree is empty";
+    }
+    int open = 0;
+    final int length = labeledTree.length();
+    for (int i = 0; i < length; i++) {
+      switch (labeledTree.charAt(i)) {
+        case '[' -> {
+          nodeCount++;
+          if (maxNodeCount > 0 && nodeCount > maxNodeCount) {
+            return "the labeled tree has more than " + maxNodeCount + " nodes";
+          }
+          open++;
+          depth = Math.max(depth, open);
+        }
+        case ']' -> {
+          if (open == 0) {
+            return "the labeled tree has an unmatched ']' at position " + i;
+          }
+          open--;
+        }
+        default -> {
+        }
+      }
+    }
+    if (open > 0) {
+      return "the labeled tree has " + open + " unmatched '['";
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the labeled tree is non-empty, has matching brackets, and has no more nodes than the limit.
+   *
+   * @return whether the labeled tree is valid
+   */
+  public boolean isValid() {
+    return errorMessage == null;
+  }
+
+  /**
+   * Gets the reason that the labeled tree is invalid.
+   *
+   * @return the reason that the labeled tree is invalid, or null if it is valid
+   */
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  /**
+   * Gets the number of nodes, i.e. opening brackets, which is complete only for a valid labeled tree.
+   *
+   * @return the number of nodes
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Gets the depth of the deepest node, where the root is at depth one, which is complete only for a valid labeled
+   * tree.
+   *
+   * @return the depth of the deepest node
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[LabeledTreeValidator " + (isValid() ? "valid" : errorMessage) + ", nodes: " + nodeCount
+            + ", depth: " + depth + ']';
+  }
+}
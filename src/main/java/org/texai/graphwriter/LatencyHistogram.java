@@ -0,0 +1,200 @@
+/*
+ * LatencyHistogram.java
+ *
+ * Created on Oct 18, 2026, 9:48:16 PM
+ *
+ * Description: Provides a lock-free histogram of latencies in microseconds, whose percentiles are reported by the
+ * metrics MBean and the stats control request.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Provides a lock-free histogram of latencies in microseconds, so that the graph-making threads record their samples
+ * without contending for a lock.
+ *
+ * The buckets are log-linear, as in HdrHistogram: the values below 2^SUB_BUCKET_BITS microseconds each have their own
+ * bucket, and each higher power-of-two range is split into 2^SUB_BUCKET_BITS equal buckets, so that a reported
+ * percentile is within about 3% of the recorded value, from microseconds to days, in a few kilobytes. A percentile is
+ * reported as the highest value of its bucket, which never understates a latency.
+ *
+ * @author reed
+ */
+public final class LatencyHistogram {
+
+  // the number of bits of the sub-bucket index, i.e. 32 buckets per power of two
+  private static final int SUB_BUCKET_BITS = 5;
+
+  // the number of sub-buckets per power of two
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  // the number of power-of-two ranges above the linear range, which covers values up to 2^63 - 1
+  private static final int RANGE_COUNT = Long.SIZE - 1 - SUB_BUCKET_BITS;
+
+  // the histogram name
+  private final String name;
+
+  // the bucket counts
+  private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKET_COUNT * (RANGE_COUNT + 1));
+
+  // the number of recorded values
+  private final AtomicLong totalCount = new AtomicLong(0);
+
+  // the maximum recorded value
+  private final AtomicLong maxValue = new AtomicLong(0);
+
+  /**
+   * Constructs a new LatencyHistogram instance.
+   *
+   * @param name the histogram name, e.g. "queue wait"
+   */
+  public LatencyHistogram(final String name) {
+    //Preconditions
+    assert name != null : "name must not be null";
+
+    this.name = name;
+  }
+
+  /**
+   * Records the given latency.
+   *
+   * @param micros the given latency in microseconds, where a negative value is recorded as zero
+   */
+  public void record(final long micros) {
+    final long value = Math.max(0, micros);
+    counts.incrementAndGet(getBucketIndex(value));
+    totalCount.incrementAndGet();
+    maxValue.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Records the given latency of a closed-loop client, correcting for coordinated omission as HdrHistogram does. A
+   * client that waits for each response sends nothing while the server stalls, so when the latency exceeds the
+   * expected interval between requests, the requests that would have been sent meanwhile are recorded too, with
+   * latencies that decrease by the expected interval.
+   *
+   * @param micros the given latency in microseconds
+   * @param expectedIntervalMicros the expected interval between requests in microseconds, or zero for no correction
+   */
+  public void recordWithExpectedInterval(
+          final long micros,
+          final long expectedIntervalMicros) {
+    //Preconditions
+    assert expectedIntervalMicros >= 0 : "expectedIntervalMicros must not be negative";
+
+    record(micros);
+    if (expectedIntervalMicros > 0) {
+      for (long missingMicros = micros - expectedIntervalMicros; missingMicros >= expectedIntervalMicros; missingMicros -= expectedIntervalMicros) {
+        record(missingMicros);
+      }
+    }
+  }
+
+  /**
+   * Gets the bucket index of the given value.
+   *
+   * @param value the given non-negative value
+   * @return the bucket index
+   */
+  static int getBucketIndex(final long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    // the range is the position of the highest one bit above the linear range
+    final int range = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    final int subBucket = (int) (value >>> (range - 1)) - SUB_BUCKET_COUNT;
+    return range * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * Gets the highest value of the bucket having the given index.
+   *
+   * @param bucketIndex the given bucket index
+   * @return the highest value of the bucket
+   */
+  static long getBucketHighestValue(final int bucketIndex) {
+    final int range = bucketIndex / SUB_BUCKET_COUNT;
+    if (range == 0) {
+      return bucketIndex;
+    }
+    final long subBucket = (bucketIndex % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+    final long lowestValue = subBucket << (range - 1);
+    return lowestValue + (1L << (range - 1)) - 1;
+  }
+
+  /**
+   * Gets the given percentile of the recorded latencies.
+   *
+   * @param percentile the given percentile, e.g. 99.9
+   * @return the latency in microseconds at or below which the given percentage of the recorded latencies lie, or zero
+   * if none has been recorded
+   */
+  public long getPercentile(final double percentile) {
+    //Preconditions
+    assert percentile >= 0.0 && percentile <= 100.0 : "percentile must be between 0 and 100";
+
+    // the counts are read without a snapshot, so samples recorded meanwhile may or may not be seen
+    long count = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      count += counts.get(i);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    long cumulativeCount = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      cumulativeCount += counts.get(i);
+      if (cumulativeCount >= rank) {
+        return Math.min(getBucketHighestValue(i), maxValue.get());
+      }
+    }
+    return maxValue.get();
+  }
+
+  /**
+   * Gets the histogram name.
+   *
+   * @return the histogram name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the number of recorded latencies.
+   *
+   * @return the number of recorded latencies
+   */
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  /**
+   * Gets the maximum recorded latency.
+   *
+   * @return the maximum recorded latency in microseconds
+   */
+  public long getMax() {
+    return maxValue.get();
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return name + ": count " + getCount()
+            + ", p50 " + getPercentile(50.0)
+            + " us, p99 " + getPercentile(99.0)
+            + " us, p999 " + getPercentile(99.9)
+            + " us, max " + getMax() + " us";
+  }
+}
@@ -0,0 +1,554 @@
+/*
+ * LoadGenerator.java
+ *
+ * Created on Oct 18, 2026, 11:24:51 PM
+ *
+ * Description: Drives a running graph-writing server with a configurable mix of syntax tree and GraphViz requests, in
+ * an open loop at a fixed rate or in a closed loop of concurrent clients, and reports the throughput and the latency
+ * percentiles corrected for coordinated omission.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.log4j.Logger;
+
+/**
+ * Drives a running graph-writing server with a configurable mix of syntax tree and GraphViz requests, and reports the
+ * throughput and the latency percentiles. It runs from the command line, e.g.
+ *
+ * <pre>
+ * java -cp $CLASSPATH org.texai.graphwriter.LoadGenerator --mode=open --rate=200 --graphVizShare=0.3
+ * </pre>
+ *
+ * In the open loop, requests are sent at a fixed rate whatever the server does, and each latency is measured from the
+ * time at which its request was due, so that a stalled server or client is charged for the requests it delayed. In
+ * the closed loop, each of the concurrent clients sends its next request when the previous one is acknowledged, and
+ * the response times are corrected for coordinated omission with an expected interval between requests, which by
+ * default is the median service time of the warmup. Both loops also report the raw service time, from sending a
+ * request until its acknowledgement.
+ *
+ * The requests cycle through a pool of request templates, whose syntax tree sizes in bytes and GraphViz sizes in
+ * edges are drawn from weighted distributions, e.g. --treeSizes=100:8,10000:2. The server discards each .dot file once
+ * it is rendered, so each GraphViz request writes its template as a .dot file of its own in the load directory, and
+ * deletes its graph once it is acknowledged. A failed acknowledgement is counted, but is not a latency sample, so that
+ * the fast error paths do not pass for renders. The server caches identical renders, so it should be run with
+ * -Dorg.texai.graphwriter.renderCacheMaxBytes=0 to measure the renderers, or with
+ * -Dorg.texai.graphwriter.stubRenderer=true to measure the server overhead with the renderers taken out.
+ *
+ * @author reed
+ */
+public final class LoadGenerator {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(LoadGenerator.class);
+
+  // the number of seconds to wait for the outstanding acknowledgements when the load ends
+  private static final long DRAIN_TIMEOUT_SECONDS = 60;
+
+  // the indicator whether this is an open loop at a fixed rate, otherwise a closed loop of concurrent clients
+  private final boolean isOpenLoop;
+
+  // the open-loop rate in requests per second
+  private final double rate;
+
+  // the number of closed-loop clients
+  private final int clientCount;
+
+  // the number of nanoseconds of warmup, whose latencies are not reported
+  private final long warmupNanos;
+
+  // the number of nanoseconds of measured load
+  private final long durationNanos;
+
+  // the closed-loop expected interval between requests in microseconds, or -1 for the median warmup service time
+  private long expectedIntervalMicros;
+
+  // the request templates, through which the requests cycle
+  private final List<GraphRequest> requestTemplates = new ArrayList<>();
+
+  // the GraphViz diagrams of the request templates, or null for a syntax tree template
+  private final List<String> templateDiagrams = new ArrayList<>();
+
+  // the load directory, in which the .dot files and the graphs are written
+  private final Path loadDirectory;
+
+  // the client, whose connections pipeline the requests
+  private final GraphWriterClient graphWriterClient;
+
+  // the sequence number of the next request
+  private final AtomicLong nextSequence = new AtomicLong(0);
+
+  // the service times of the warmup, from which the default expected interval is taken
+  private final LatencyHistogram warmupHistogram = new LatencyHistogram("warmup service time");
+
+  // the service times, from sending a request until its acknowledgement
+  private final LatencyHistogram serviceHistogram = new LatencyHistogram("service time");
+
+  // the response times corrected for coordinated omission
+  private final LatencyHistogram responseHistogram = new LatencyHistogram("corrected response time");
+
+  // the numbers of measured acknowledgements, keyed by result status
+  private final Map<GraphResultStatus, AtomicLong> statusCounts = new EnumMap<>(GraphResultStatus.class);
+
+  // the number of measured requests that were not acknowledged
+  private final AtomicLong errorCount = new AtomicLong(0);
+
+  // the number of measured requests that were acknowledged as failed, which are not latency samples
+  private final AtomicLong failedCount = new AtomicLong(0);
+
+  /**
+   * Constructs a new LoadGenerator instance.
+   *
+   * @param options the command line options, keyed by name without the leading dashes
+   * @throws IOException when the load directory cannot be created
+   */
+  LoadGenerator(final Map<String, String> options) throws IOException {
+    //Preconditions
+    assert options != null : "options must not be null";
+
+    final String mode = options.getOrDefault("mode", "closed");
+    if (!"open".equals(mode) && !"closed".equals(mode)) {
+      throw new IllegalArgumentException("mode must be open or closed: " + mode);
+    }
+    isOpenLoop = "open".equals(mode);
+    rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+    clientCount = Integer.parseInt(options.getOrDefault("clients", "4"));
+    warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "5")));
+    durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+    expectedIntervalMicros = Long.parseLong(options.getOrDefault("expectedIntervalMicros", "-1"));
+    if (rate <= 0 || clientCount <= 0 || durationNanos <= 0) {
+      throw new IllegalArgumentException("rate, clients and duration must be positive");
+    }
+    for (final GraphResultStatus status : GraphResultStatus.values()) {
+      statusCounts.put(status, new AtomicLong(0));
+    }
+    graphWriterClient = new GraphWriterClient(
+            Integer.parseInt(options.getOrDefault("connections", "2")), // poolSize
+            Integer.parseInt(options.getOrDefault("batchSize", "64")),
+            Long.parseLong(options.getOrDefault("flushIntervalMicros", "200")));
+    loadDirectory = Paths.get(options.getOrDefault("directory", System.getProperty("user.home") + "/GraphWriter-1.0/graphs/load"))
+            .toAbsolutePath();
+    Files.createDirectories(loadDirectory);
+    makeRequestTemplates(
+            Integer.parseInt(options.getOrDefault("templates", "1000")),
+            Double.parseDouble(options.getOrDefault("graphVizShare", "0.5")),
+            parseWeightedSizes(options.getOrDefault("treeSizes", "100:8,1000:2")),
+            parseWeightedSizes(options.getOrDefault("graphSizes", "10:8,100:2")),
+            new Random(Long.parseLong(options.getOrDefault("seed", "1"))));
+  }
+
+  /**
+   * Runs the load generator from the command line, whose options have the form --name=value.
+   *
+   * @param args the command line options
+   */
+  public static void main(final String[] args) {
+    final Map<String, String> options = new HashMap<>();
+    for (final String arg : args) {
+      final int index = arg.indexOf('=');
+      if (!arg.startsWith("--") || index < 0) {
+        System.err.println("usage: LoadGenerator [--mode=open|closed] [--rate=requests/s] [--clients=n] [--warmup=s] [--duration=s]"
+                + " [--graphVizShare=0..1] [--treeSizes=bytes:weight,...] [--graphSizes=edges:weight,...] [--templates=n]"
+                + " [--directory=path] [--expectedIntervalMicros=us] [--connections=n] [--batchSize=n] [--flushIntervalMicros=us]"
+                + " [--seed=n]");
+        System.exit(2);
+      }
+      options.put(arg.substring(2, index), arg.substring(index + 1));
+    }
+    try {
+      final LoadGenerator loadGenerator = new LoadGenerator(options);
+      loadGenerator.run();
+      System.out.println(loadGenerator.getReport());
+    } catch (IOException | InterruptedException | IllegalArgumentException ex) {
+      LOGGER.error("load generator failed: " + ex.getMessage());
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Parses a weighted size distribution, e.g. "100:8,10000:2", in which a size without a weight has weight one.
+   *
+   * @param specification the distribution specification
+   * @return the sizes and their cumulative weights, as a two-row array
+   */
+  static long[][] parseWeightedSizes(final String specification) {
+    //Preconditions
+    assert specification != null : "specification must not be null";
+
+    final String[] items = specification.split(",");
+    final long[][] weightedSizes = new long[2][items.length];
+    long cumulativeWeight = 0;
+    for (int i = 0; i < items.length; i++) {
+      final String[] parts = items[i].trim().split(":");
+      final long size = Long.parseLong(parts[0]);
+      final long weight = parts.length > 1 ? Long.parseLong(parts[1]) : 1;
+      if (size <= 0 || weight <= 0) {
+        throw new IllegalArgumentException("sizes and weights must be positive: " + specification);
+      }
+      cumulativeWeight += weight;
+      weightedSizes[0][i] = size;
+      weightedSizes[1][i] = cumulativeWeight;
+    }
+    return weightedSizes;
+  }
+
+  /**
+   * Draws a size from the given weighted size distribution.
+   *
+   * @param weightedSizes the sizes and their cumulative weights
+   * @param random the random number generator
+   * @return the drawn size
+   */
+  static long drawSize(
+          final long[][] weightedSizes,
+          final Random random) {
+    final long[] cumulativeWeights = weightedSizes[1];
+    final long draw = (long) (random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1]);
+    int i = 0;
+    while (cumulativeWeights[i] <= draw) {
+      i++;
+    }
+    return weightedSizes[0][i];
+  }
+
+  /**
+   * Makes a labeled tree of at least the given size, whose branching is that of a typical parse.
+   *
+   * @param size the given size in bytes
+   * @return the labeled tree
+   */
+  static String makeLabeledTree(final long size) {
+    final StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append("[S");
+    for (int i = 0; stringBuilder.length() + 1 < size; i++) {
+      stringBuilder.append(" [NP [D the] [N word").append(i).append("]]");
+    }
+    stringBuilder.append(']');
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Makes a GraphViz diagram having the given number of edges, which form a binary tree.
+   *
+   * @param edgeCount the given number of edges
+   * @return the GraphViz diagram
+   */
+  static String makeGraphVizDiagram(final long edgeCount) {
+    final StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append("digraph load {\n");
+    for (long i = 1; i <= edgeCount; i++) {
+      stringBuilder.append("  n").append((i - 1) / 2).append(" -> n").append(i).append(";\n");
+    }
+    stringBuilder.append("}\n");
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Makes the request templates.
+   *
+   * @param templateCount the number of request templates
+   * @param graphVizShare the share of GraphViz requests
+   * @param treeSizes the distribution of syntax tree sizes in bytes
+   * @param graphSizes the distribution of GraphViz sizes in edges
+   * @param random the random number generator
+   */
+  private void makeRequestTemplates(
+          final int templateCount,
+          final double graphVizShare,
+          final long[][] treeSizes,
+          final long[][] graphSizes,
+          final Random random) {
+    //Preconditions
+    assert templateCount > 0 : "templateCount must be positive";
+
+    for (int i = 0; i < templateCount; i++) {
+      final String fileName = loadDirectory.resolve("load" + i).toString();
+      if (random.nextDouble() < graphVizShare) {
+        requestTemplates.add(new GraphRequest(
+                GraphRequestType.GRAPHVIZ,
+                fileName,
+                "")); // labeledTree
+        templateDiagrams.add(makeGraphVizDiagram(drawSize(graphSizes, random)));
+      } else {
+        requestTemplates.add(new GraphRequest(
+                GraphRequestType.SYNTAX_TREE,
+                fileName,
+                makeLabeledTree(drawSize(treeSizes, random))));
+        templateDiagrams.add(null);
+      }
+    }
+  }
+
+  /**
+   * Makes the next request, from the next request template. A GraphViz request writes its diagram as a .dot file of
+   * its own, because the server discards the .dot file of each request that it renders.
+   *
+   * @return the next request
+   * @throws IOException when the .dot file cannot be written
+   */
+  private GraphRequest makeNextGraphRequest() throws IOException {
+    final long sequence = nextSequence.getAndIncrement();
+    final int index = (int) (sequence % requestTemplates.size());
+    final String graphVizDiagram = templateDiagrams.get(index);
+    if (graphVizDiagram == null) {
+      return new GraphRequest(requestTemplates.get(index));
+    }
+    final String fileName = loadDirectory.resolve("load-" + sequence).toString();
+    Files.write(Paths.get(fileName + ".dot"), graphVizDiagram.getBytes(StandardCharsets.UTF_8));
+    return new GraphRequest(
+            GraphRequestType.GRAPHVIZ,
+            fileName,
+            ""); // labeledTree
+  }
+
+  /**
+   * Runs the load, and waits for the outstanding acknowledgements.
+   *
+   * @throws IOException when a .dot file cannot be written
+   * @throws InterruptedException when interrupted
+   */
+  void run() throws IOException, InterruptedException {
+    LOGGER.info((isOpenLoop ? "open loop at " + rate + " requests/s" : "closed loop of " + clientCount + " clients")
+            + ", " + requestTemplates.size() + " request templates, warming up for "
+            + TimeUnit.NANOSECONDS.toSeconds(warmupNanos) + " s...");
+    final long startNanos = System.nanoTime();
+    final long measureStartNanos = startNanos + warmupNanos;
+    final long endNanos = measureStartNanos + durationNanos;
+    try {
+      if (isOpenLoop) {
+        runOpenLoop(startNanos, measureStartNanos, endNanos);
+      } else {
+        runClosedLoop(measureStartNanos, endNanos);
+      }
+    } finally {
+      graphWriterClient.close();
+    }
+  }
+
+  /**
+   * Sends the requests at the fixed rate until the end of the load, measuring each latency from the time at which its
+   * request was due.
+   *
+   * @param startNanos the System.nanoTime() at which the load starts
+   * @param measureStartNanos the System.nanoTime() at which the warmup ends
+   * @param endNanos the System.nanoTime() at which the load ends
+   * @throws IOException when a .dot file cannot be written
+   * @throws InterruptedException when interrupted while waiting for the outstanding acknowledgements
+   */
+  private void runOpenLoop(
+          final long startNanos,
+          final long measureStartNanos,
+          final long endNanos) throws IOException, InterruptedException {
+    final double periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    final List<CompletableFuture<Void>> acknowledgements = new ArrayList<>();
+    for (long i = 0;; i++) {
+      final long dueNanos = startNanos + (long) (i * periodNanos);
+      if (dueNanos >= endNanos) {
+        break;
+      }
+      long delayNanos;
+      while ((delayNanos = dueNanos - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(delayNanos);
+      }
+      final boolean isMeasured = dueNanos >= measureStartNanos;
+      final GraphRequest graphRequest = makeNextGraphRequest();
+      final long sendNanos = System.nanoTime();
+      acknowledgements.add(graphWriterClient.submit(graphRequest).handle((graphResult, throwable) -> {
+        final long acknowledgedNanos = System.nanoTime();
+        if (record(graphRequest, isMeasured, graphResult, (acknowledgedNanos - sendNanos) / 1000)) {
+          responseHistogram.record((acknowledgedNanos - dueNanos) / 1000);
+        }
+        return null;
+      }));
+    }
+    awaitAcknowledgements(acknowledgements);
+  }
+
+  /**
+   * Runs the concurrent clients until the end of the load, each of which sends its next request when the previous one
+   * is acknowledged.
+   *
+   * @param measureStartNanos the System.nanoTime() at which the warmup ends
+   * @param endNanos the System.nanoTime() at which the load ends
+   * @throws InterruptedException when interrupted while waiting for the clients
+   */
+  private void runClosedLoop(
+          final long measureStartNanos,
+          final long endNanos) throws InterruptedException {
+    final List<Thread> clientThreads = new ArrayList<>(clientCount);
+    for (int i = 0; i < clientCount; i++) {
+      final Thread clientThread = new Thread(() -> {
+        while (true) {
+          if (System.nanoTime() >= endNanos) {
+            return;
+          }
+          final GraphRequest graphRequest;
+          try {
+            graphRequest = makeNextGraphRequest();
+          } catch (IOException ex) {
+            LOGGER.error("cannot write the GraphViz file: " + ex.getMessage());
+            return;
+          }
+          final long sendNanos = System.nanoTime();
+          final boolean isMeasured = sendNanos >= measureStartNanos;
+          GraphResult graphResult;
+          try {
+            graphResult = graphWriterClient.submit(graphRequest).get(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+          } catch (ExecutionException | TimeoutException ex) {
+            graphResult = null;
+          } catch (InterruptedException ex) {
+            return;
+          }
+          final long serviceMicros = (System.nanoTime() - sendNanos) / 1000;
+          if (record(graphRequest, isMeasured, graphResult, serviceMicros)) {
+            responseHistogram.recordWithExpectedInterval(serviceMicros, getExpectedIntervalMicros());
+          }
+        }
+      }, "load-client-" + i);
+      clientThread.setDaemon(true);
+      clientThreads.add(clientThread);
+      clientThread.start();
+    }
+    for (final Thread clientThread : clientThreads) {
+      clientThread.join();
+    }
+  }
+
+  /**
+   * Gets the closed-loop expected interval between requests, which by default is the median service time of the
+   * warmup.
+   *
+   * @return the expected interval in microseconds, or zero for no correction
+   */
+  private synchronized long getExpectedIntervalMicros() {
+    if (expectedIntervalMicros < 0) {
+      expectedIntervalMicros = warmupHistogram.getPercentile(50.0);
+    }
+    return expectedIntervalMicros;
+  }
+
+  /**
+   * Records the acknowledgement of a request, whose service time is a latency sample only when its graph was written.
+   * The graph of a GraphViz request is then deleted, and so is its .dot file when the server has not discarded it, e.g.
+   * when the request failed or was not acknowledged, so that the load directory does not fill up.
+   *
+   * @param graphRequest the request
+   * @param isMeasured whether the request was sent after the warmup
+   * @param graphResult the graph result, or null if the request was not acknowledged
+   * @param serviceMicros the time from sending the request until its acknowledgement, in microseconds
+   * @return whether the service time is a measured latency sample
+   */
+  private boolean record(
+          final GraphRequest graphRequest,
+          final boolean isMeasured,
+          final GraphResult graphResult,
+          final long serviceMicros) {
+    final boolean isSuccessful = graphResult != null && graphResult.getStatus().isSuccessful();
+    // the graph may be in a shard subdirectory of the load directory
+    final Path outputPath = isSuccessful && !graphResult.getOutputPath().isEmpty() ? Paths.get(graphResult.getOutputPath()) : null;
+    if (outputPath != null && outputPath.startsWith(loadDirectory) && outputPath.getFileName().toString().startsWith("load-")) {
+      try {
+        Files.deleteIfExists(outputPath);
+      } catch (IOException ex) {
+        LOGGER.warn("cannot delete the graph " + graphResult.getOutputPath() + ": " + ex.getMessage());
+      }
+    }
+    if (graphRequest.getRequestType() == GraphRequestType.GRAPHVIZ
+            && Paths.get(graphRequest.getFileName()).getFileName().toString().startsWith("load-")) {
+      try {
+        Files.deleteIfExists(Paths.get(graphRequest.getFileName() + ".dot"));
+      } catch (IOException ex) {
+        LOGGER.warn("cannot delete the GraphViz file " + graphRequest.getFileName() + ".dot: " + ex.getMessage());
+      }
+    }
+    if (!isMeasured) {
+      if (isSuccessful) {
+        warmupHistogram.record(serviceMicros);
+      }
+      return false;
+    } else if (graphResult == null) {
+      errorCount.incrementAndGet();
+      return false;
+    }
+    statusCounts.get(graphResult.getStatus()).incrementAndGet();
+    if (!isSuccessful) {
+      failedCount.incrementAndGet();
+      return false;
+    }
+    serviceHistogram.record(serviceMicros);
+    return true;
+  }
+
+  /**
+   * Waits for the outstanding acknowledgements, or until the drain timeout.
+   *
+   * @param acknowledgements the acknowledgements
+   * @throws InterruptedException when interrupted
+   */
+  private void awaitAcknowledgements(final List<CompletableFuture<Void>> acknowledgements) throws InterruptedException {
+    try {
+      CompletableFuture.allOf(acknowledgements.toArray(new CompletableFuture<?>[0])).get(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (ExecutionException | TimeoutException ex) {
+      LOGGER.warn("not all requests were acknowledged within " + DRAIN_TIMEOUT_SECONDS + " seconds");
+    }
+  }
+
+  /**
+   * Gets the report of the measured load.
+   *
+   * @return the report
+   */
+  String getReport() {
+    long acknowledgedCount = 0;
+    long succeededCount = 0;
+    final StringBuilder statusStringBuilder = new StringBuilder();
+    for (final Map.Entry<GraphResultStatus, AtomicLong> entry : statusCounts.entrySet()) {
+      final long count = entry.getValue().get();
+      acknowledgedCount += count;
+      if (entry.getKey().isSuccessful()) {
+        succeededCount += count;
+      }
+      if (count > 0) {
+        statusStringBuilder.append(statusStringBuilder.length() == 0 ? "" : ", ").append(entry.getKey()).append(' ').append(count);
+      }
+    }
+    final double seconds = durationNanos / 1e9;
+    final StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(isOpenLoop ? "open loop at " + rate + " requests/s" : "closed loop of " + clientCount + " clients")
+            .append(", measured for ").append(seconds).append(" s\n");
+    stringBuilder.append("acknowledged: ").append(acknowledgedCount)
+            .append(" (").append(statusStringBuilder).append("), not acknowledged: ").append(errorCount.get())
+            .append(", failed acknowledgements, which are not latency samples: ").append(failedCount.get()).append('\n');
+    stringBuilder.append(String.format("throughput: %.1f requests/s, %.1f successful requests/s%n",
+            acknowledgedCount / seconds,
+            succeededCount / seconds));
+    stringBuilder.append(serviceHistogram).append('\n');
+    stringBuilder.append(responseHistogram);
+    if (isOpenLoop) {
+      stringBuilder.append(", measured from the due time of each request");
+    } else {
+      stringBuilder.append(", with an expected interval of ").append(getExpectedIntervalMicros()).append(" us");
+    }
+    return stringBuilder.toString();
+  }
+}
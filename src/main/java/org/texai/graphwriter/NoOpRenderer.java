@@ -0,0 +1,90 @@
+/*
+ * NoOpRenderer.java
+ *
+ * Created on Oct 19, 2026, 12:19:06 AM
+ *
+ * Description: Acknowledges graph requests without rendering them, so that benchmarks and load tests measure the
+ * server overhead with the renderers taken out.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Acknowledges graph requests without rendering them, so that benchmarks and load tests measure the server overhead
+ * with the renderers taken out. It is selected for a request type with e.g.
+ * -Dorg.texai.graphwriter.renderer.GRAPHVIZ=noop, or for all of them with -Dorg.texai.graphwriter.stubRenderer=true.
+ *
+ * @author reed
+ */
+public class NoOpRenderer implements Renderer {
+
+  /**
+   * the renderer name
+   */
+  public static final String NAME = "noop";
+
+  /**
+   * Constructs a new NoOpRenderer instance.
+   */
+  public NoOpRenderer() {
+  }
+
+  /**
+   * Gets the renderer name.
+   *
+   * @return the renderer name
+   */
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Gets the request types that this renderer can render.
+   *
+   * @return the GraphViz and syntax tree request types
+   */
+  @Override
+  public Set<GraphRequestType> getRequestTypes() {
+    return EnumSet.of(GraphRequestType.GRAPHVIZ, GraphRequestType.SYNTAX_TREE);
+  }
+
+  /**
+   * Initializes this renderer, which needs nothing.
+   *
+   * @param graphWriter the graph writer
+   */
+  @Override
+  public void initialize(final GraphWriter graphWriter) {
+  }
+
+  /**
+   * Acknowledges the given requests without rendering them.
+   *
+   * @param graphRequests the given requests
+   * @return the graph results, in the order of the requests
+   */
+  @Override
+  public List<GraphResult> render(final List<GraphRequest> graphRequests) {
+    //Preconditions
+    assert graphRequests != null : "graphRequests must not be null";
+
+    final List<GraphResult> graphResults = new ArrayList<>(graphRequests.size());
+    for (int i = 0; i < graphRequests.size(); i++) {
+      graphResults.add(new GraphResult(
+              GraphResultStatus.OK,
+              0, // exitCode
+              "", // outputPath
+              0, // byteSize
+              "not rendered")); // message
+    }
+    return graphResults;
+  }
+}
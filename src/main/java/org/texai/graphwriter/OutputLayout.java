@@ -0,0 +1,191 @@
+/*
+ * OutputLayout.java
+ *
+ * Created on Oct 19, 2026, 6:24:13 AM
+ *
+ * Description: Places the rendered graphs, optionally sharded into hash-prefixed subdirectories, and installs each
+ * one atomically from a temporary file in the same directory.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Places the rendered graphs, and installs each one atomically, so that a reader polling for a graph file never sees
+ * a half-written image. A renderer writes to a hidden temporary file in the directory of the graph, which is then
+ * renamed over the graph file. The rename also leaves intact a cached image that an earlier request hard-linked at
+ * the graph path.
+ *
+ * With one or more shard levels, the graph X.png in a directory is placed at ab/X.png, or ab/cd/X.png and so on,
+ * where each level is named by two hexadecimal digits of a hash of the graph name, so that a directory of hundreds
+ * of thousands of graphs is split into directories that stay fast to list. All the image formats of a graph share
+ * its shard, and the final path is returned in the graph result.
+ *
+ * @author reed
+ */
+public final class OutputLayout {
+
+  // the maximum number of shard levels, i.e. the number of bytes of the 32-bit hash
+  public static final int MAX_SHARD_LEVELS = 4;
+
+  // the prefix of the hidden temporary files
+  static final String TEMPORARY_PREFIX = ".tmp-";
+
+  // the number of levels of hash-prefixed subdirectories, or zero for none
+  private final int shardLevels;
+
+  // the shard directories that are known to exist
+  private final Set<Path> shardDirectories = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Constructs a new OutputLayout instance.
+   *
+   * @param shardLevels the number of levels of hash-prefixed subdirectories, or zero for none
+   */
+  public OutputLayout(final int shardLevels) {
+    //Preconditions
+    assert shardLevels >= 0 : "shardLevels must not be negative";
+    assert shardLevels <= MAX_SHARD_LEVELS : "shardLevels must not exceed " + MAX_SHARD_LEVELS;
+
+    this.shardLevels = shardLevels;
+  }
+
+  /**
+   * Resolves the final path of the graph at the given unsharded path, which is the given path itself unless the
+   * graphs are sharded.
+   *
+   * @param graphPath the given unsharded graph path, e.g. graphs/X.png
+   * @return the final graph path, e.g. graphs/3f/X.png
+   */
+  public Path resolve(final Path graphPath) {
+    //Preconditions
+    assert graphPath != null : "graphPath must not be null";
+
+    if (shardLevels == 0) {
+      return graphPath;
+    }
+    final String fileName = graphPath.getFileName().toString();
+    // the image formats of a graph share its shard
+    final int extensionIndex = fileName.lastIndexOf('.');
+    final String graphName = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+    final CRC32 crc32 = new CRC32();
+    crc32.update(graphName.getBytes(StandardCharsets.UTF_8));
+    final long hash = crc32.getValue();
+    final StringBuilder stringBuilder = new StringBuilder(3 * shardLevels + fileName.length());
+    for (int level = 0; level < shardLevels; level++) {
+      final int b = (int) (hash >>> (8 * level)) & 0xff;
+      stringBuilder.append(Character.forDigit((b >> 4) & 0xf, 16));
+      stringBuilder.append(Character.forDigit(b & 0xf, 16));
+      stringBuilder.append('/');
+    }
+    stringBuilder.append(fileName);
+    final Path parentPath = graphPath.getParent();
+    if (parentPath == null) {
+      return graphPath.getFileSystem().getPath(stringBuilder.toString());
+    }
+    return parentPath.resolve(stringBuilder.toString());
+  }
+
+  /**
+   * Creates the directory of the given final graph path when it is a shard directory that is not known to exist.
+   *
+   * @param outputPath the given final graph path
+   * @throws IOException when the shard directory cannot be created
+   */
+  public void createDirectory(final Path outputPath) throws IOException {
+    //Preconditions
+    assert outputPath != null : "outputPath must not be null";
+
+    final Path directoryPath = outputPath.getParent();
+    if (shardLevels > 0 && directoryPath != null && !shardDirectories.contains(directoryPath)) {
+      Files.createDirectories(directoryPath);
+      shardDirectories.add(directoryPath);
+    }
+  }
+
+  /**
+   * Makes the hidden temporary path, next to the given final graph path, to which the calling thread writes the graph
+   * before it is installed. The temporary path keeps the graph extension, from which the PHP worker chooses its
+   * image format. The shard directory is created when needed.
+   *
+   * @param outputPath the given final graph path
+   * @return the temporary path
+   * @throws IOException when the shard directory cannot be created
+   */
+  public Path makeTemporaryPath(final Path outputPath) throws IOException {
+    //Preconditions
+    assert outputPath != null : "outputPath must not be null";
+
+    createDirectory(outputPath);
+    return outputPath.resolveSibling(TEMPORARY_PREFIX + Thread.currentThread().getId() + "-" + outputPath.getFileName());
+  }
+
+  /**
+   * Atomically renames the given written temporary file over the given final graph path, replacing any existing
+   * graph there.
+   *
+   * @param temporaryPath the given temporary path
+   * @param outputPath the given final graph path
+   * @throws IOException when the graph cannot be installed
+   */
+  public static void install(
+          final Path temporaryPath,
+          final Path outputPath) throws IOException {
+    //Preconditions
+    assert temporaryPath != null : "temporaryPath must not be null";
+    assert outputPath != null : "outputPath must not be null";
+
+    try {
+      Files.move(temporaryPath, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      // the temporary file is in the same directory, so this happens only on an exotic file system
+      Files.move(temporaryPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Deletes the given temporary file, which a failed render may have left behind.
+   *
+   * @param temporaryPath the given temporary path
+   */
+  public static void discard(final Path temporaryPath) {
+    //Preconditions
+    assert temporaryPath != null : "temporaryPath must not be null";
+
+    try {
+      Files.deleteIfExists(temporaryPath);
+    } catch (IOException ex) {
+      // the orphan is hidden, and overwritten by the next render of the graph on the same thread
+    }
+  }
+
+  /**
+   * Gets the number of levels of hash-prefixed subdirectories.
+   *
+   * @return the number of shard levels, or zero for none
+   */
+  public int getShardLevels() {
+    return shardLevels;
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[OutputLayout " + (shardLevels == 0 ? "unsharded" : shardLevels + " shard levels") + ']';
+  }
+}
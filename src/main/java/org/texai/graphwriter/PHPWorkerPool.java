@@ -0,0 +1,385 @@
+/*
+ * PHPWorkerPool.java
+ *
+ * Created on Oct 18, 2026, 11:02:47 AM
+ *
+ * Description: Provides a pool of long-lived PHP syntax tree worker processes.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * Provides a pool of long-lived PHP worker processes, each running phpsyntaxtree/worker.php with the phpsyntaxtree
+ * sources already loaded. A syntax tree job is a framed (output file, labeled tree) pair written to the worker
+ * standard input, which the worker answers with a single status line on its standard output.
+ *
+ * A worker that crashes, or that does not answer within the job timeout, is killed and replaced. A worker is also
+ * recycled after a configured number of jobs to bound any growth of the PHP heap. A job waits for an idle worker for
+ * at most the job timeout, and a job whose rendering thread is interrupted, i.e. whose request is cancelled or
+ * superseded, kills its worker, which is then replaced.
+ *
+ * @author reed
+ */
+public class PHPWorkerPool {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(PHPWorkerPool.class);
+
+  // the delay before retrying a worker that failed to start
+  private static final long RESTART_DELAY_MILLIS = 1_000;
+
+  // the number of milliseconds between the watchdog checks of a running job for its timeout and its cancellation
+  private static final long WATCHDOG_PERIOD_MILLIS = 50;
+
+  /**
+   * the outcome of a syntax tree job
+   */
+  public enum JobStatus {
+
+    /**
+     * the graph was written
+     */
+    OK,
+    /**
+     * the worker reported an error, or crashed
+     */
+    FAILED,
+    /**
+     * no worker became idle, or the worker did not answer, within the job timeout
+     */
+    TIMEOUT
+  }
+
+  // the launcher of the worker processes
+  private final ProcessLauncher processLauncher;
+
+  // the phpsyntaxtree directory path
+  private final String phpSyntaxTreePath;
+
+  // the worker command
+  private final List<String> workerCommand;
+
+  // the number of workers
+  private final int poolSize;
+
+  // the number of jobs after which a worker is recycled
+  private final int maxJobsPerWorker;
+
+  // the number of milliseconds after which a job is considered hung
+  private final long jobTimeoutMillis;
+
+  // the idle workers
+  private final BlockingQueue<PHPWorker> idleWorkers = new LinkedBlockingQueue<>();
+
+  // the watchdog which kills hung workers, and which restarts workers that failed to start
+  private final ScheduledExecutorService watchdogExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "php-worker-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // the indicator that this pool is shut down
+  private final AtomicBoolean isShutdown = new AtomicBoolean(false);
+
+  // the worker sequence number, used to name the workers
+  private final AtomicInteger workerSequence = new AtomicInteger(0);
+
+  // the number of workers started
+  private final AtomicInteger startedCount = new AtomicInteger(0);
+
+  /**
+   * Constructs a new PHPWorkerPool instance.
+   *
+   * @param processLauncher the launcher of the worker processes
+   * @param phpSyntaxTreePath the phpsyntaxtree directory path
+   * @param poolSize the number of workers
+   * @param maxJobsPerWorker the number of jobs after which a worker is recycled
+   * @param jobTimeoutMillis the number of milliseconds after which a job is considered hung
+   */
+  public PHPWorkerPool(
+          final ProcessLauncher processLauncher,
+          final String phpSyntaxTreePath,
+          final int poolSize,
+          final int maxJobsPerWorker,
+          final long jobTimeoutMillis) {
+    this(processLauncher,
+            phpSyntaxTreePath,
+            List.of("php", "worker.php"), // workerCommand
+            poolSize,
+            maxJobsPerWorker,
+            jobTimeoutMillis);
+  }
+
+  /**
+   * Constructs a new PHPWorkerPool instance with the given worker command, e.g. a stand-in worker for testing.
+   *
+   * @param processLauncher the launcher of the worker processes
+   * @param phpSyntaxTreePath the directory in which the workers run
+   * @param workerCommand the worker command and its arguments
+   * @param poolSize the number of workers
+   * @param maxJobsPerWorker the number of jobs after which a worker is recycled
+   * @param jobTimeoutMillis the number of milliseconds after which a job is considered hung
+   */
+  PHPWorkerPool(
+          final ProcessLauncher processLauncher,
+          final String phpSyntaxTreePath,
+          final List<String> workerCommand,
+          final int poolSize,
+          final int maxJobsPerWorker,
+          final long jobTimeoutMillis) {
+    //Preconditions
+    assert processLauncher != null : "processLauncher must not be null";
+    assert phpSyntaxTreePath != null : "phpSyntaxTreePath must not be null";
+    assert workerCommand != null : "workerCommand must not be null";
+    assert !workerCommand.isEmpty() : "workerCommand must not be empty";
+    assert poolSize > 0 : "poolSize must be positive";
+    assert maxJobsPerWorker > 0 : "maxJobsPerWorker must be positive";
+    assert jobTimeoutMillis > 0 : "jobTimeoutMillis must be positive";
+
+    this.processLauncher = processLauncher;
+    this.phpSyntaxTreePath = phpSyntaxTreePath;
+    this.workerCommand = List.copyOf(workerCommand);
+    this.poolSize = poolSize;
+    this.maxJobsPerWorker = maxJobsPerWorker;
+    this.jobTimeoutMillis = jobTimeoutMillis;
+  }
+
+  /**
+   * Starts the workers.
+   */
+  public void start() {
+    LOGGER.info("starting " + poolSize + " PHP syntax tree workers...");
+    for (int i = 0; i < poolSize; i++) {
+      startWorker();
+    }
+  }
+
+  /**
+   * Emits a syntax tree graph using an idle worker, waiting for at most the job timeout for one to become available.
+   *
+   * @param outputFilePath the output image file path, whose extension chooses the image format
+   * @param labeledTree the labeled tree
+   * @return the job status
+   * @throws InterruptedException when interrupted while waiting for a worker, or while the worker runs the job, in
+   * which case the worker is killed and replaced
+   */
+  public JobStatus render(
+          final String outputFilePath,
+          final String labeledTree) throws InterruptedException {
+    //Preconditions
+    assert outputFilePath != null : "outputFilePath must not be null";
+    assert labeledTree != null : "labeledTree must not be null";
+
+    final PHPWorker phpWorker = idleWorkers.poll(jobTimeoutMillis, TimeUnit.MILLISECONDS);
+    if (phpWorker == null) {
+      LOGGER.warn("no PHP worker became idle within " + jobTimeoutMillis + " milliseconds, labeledTree...\n " + labeledTree);
+      return JobStatus.TIMEOUT;
+    }
+    boolean isHealthy = false;
+    JobStatus jobStatus = JobStatus.FAILED;
+    final Thread renderThread = Thread.currentThread();
+    final AtomicBoolean isTimedOut = new AtomicBoolean(false);
+    try {
+      // a blocked read from the worker is not interruptible, so the watchdog kills the worker of a cancelled job
+      final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(jobTimeoutMillis);
+      final ScheduledFuture<?> watchdog = watchdogExecutor.scheduleAtFixedRate(
+              () -> {
+                if (renderThread.isInterrupted()) {
+                  phpWorker.kill();
+                } else if (System.nanoTime() - deadlineNanos >= 0) {
+                  isTimedOut.set(true);
+                  phpWorker.kill();
+                }
+              },
+              WATCHDOG_PERIOD_MILLIS, // initialDelay
+              WATCHDOG_PERIOD_MILLIS, // period
+              TimeUnit.MILLISECONDS);
+      final String response;
+      try {
+        response = phpWorker.process(outputFilePath, labeledTree);
+      } finally {
+        watchdog.cancel(false);
+      }
+      if (response == null) {
+        if (isTimedOut.get()) {
+          LOGGER.warn(phpWorker.name + " hung for more than " + jobTimeoutMillis + " milliseconds, labeledTree...\n " + labeledTree);
+          jobStatus = JobStatus.TIMEOUT;
+        } else if (!phpWorker.isKilled.get()) {
+          LOGGER.warn(phpWorker.name + " terminated unexpectedly, labeledTree...\n " + labeledTree);
+        }
+      } else {
+        isHealthy = true;
+        if (response.equals("OK")) {
+          jobStatus = JobStatus.OK;
+        } else {
+          LOGGER.warn(phpWorker.name + " " + response + ", labeledTree...\n " + labeledTree);
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.warn(phpWorker.name + " cannot process the job: " + ex.getMessage());
+    } finally {
+      if (isShutdown.get()) {
+        phpWorker.kill();
+      } else if (!isHealthy || phpWorker.isKilled.get() || phpWorker.jobCount >= maxJobsPerWorker) {
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("replacing " + phpWorker.name + " after " + phpWorker.jobCount + " jobs");
+        }
+        phpWorker.kill();
+        startWorker();
+      } else {
+        idleWorkers.add(phpWorker);
+      }
+    }
+    if (renderThread.isInterrupted()) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("killed " + phpWorker.name + " of a cancelled job");
+      }
+      // the interrupt is consumed by the exception
+      Thread.interrupted();
+      throw new InterruptedException("the PHP worker job was cancelled");
+    }
+    return jobStatus;
+  }
+
+  /**
+   * Shuts down this pool, terminating the idle workers. Busy workers are terminated when their current job
+   * completes.
+   */
+  public void shutdown() {
+    isShutdown.set(true);
+    watchdogExecutor.shutdownNow();
+    PHPWorker phpWorker;
+    while ((phpWorker = idleWorkers.poll()) != null) {
+      phpWorker.kill();
+    }
+  }
+
+  /**
+   * Gets the number of workers started, including those that replaced crashed, hung, cancelled or recycled workers.
+   *
+   * @return the number of workers started
+   */
+  public int getStartedCount() {
+    return startedCount.get();
+  }
+
+  /**
+   * Starts a new worker and adds it to the idle workers, retrying later if the worker process cannot be started.
+   */
+  private void startWorker() {
+    if (isShutdown.get()) {
+      return;
+    }
+    final String name = "php-worker-" + workerSequence.incrementAndGet();
+    try {
+      final Process process = processLauncher.startLongLived(
+              workerCommand, // command
+              Paths.get(phpSyntaxTreePath), // directory
+              name);
+      startedCount.incrementAndGet();
+      idleWorkers.add(new PHPWorker(name, process));
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("started " + name);
+      }
+    } catch (IOException ex) {
+      LOGGER.error("cannot start " + name + ": " + ex.getMessage());
+      if (!watchdogExecutor.isShutdown()) {
+        watchdogExecutor.schedule(this::startWorker, RESTART_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * Provides a PHP worker process.
+   */
+  private static class PHPWorker {
+
+    // the worker name
+    private final String name;
+
+    // the worker process
+    private final Process process;
+
+    // the worker standard input
+    private final OutputStream outputStream;
+
+    // the worker standard output
+    private final BufferedReader bufferedReader;
+
+    // the number of jobs given to this worker
+    private int jobCount = 0;
+
+    // the indicator that this worker was killed
+    private final AtomicBoolean isKilled = new AtomicBoolean(false);
+
+    /**
+     * Constructs a new PHPWorker instance.
+     *
+     * @param name the worker name
+     * @param process the worker process
+     */
+    PHPWorker(
+            final String name,
+            final Process process) {
+      //Preconditions
+      assert name != null : "name must not be null";
+      assert process != null : "process must not be null";
+
+      this.name = name;
+      this.process = process;
+      outputStream = new BufferedOutputStream(process.getOutputStream());
+      bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends the given job to this worker and waits for its response.
+     *
+     * @param outputFilePath the output PNG file path
+     * @param labeledTree the labeled tree
+     * @return the response line, or null if the worker terminated
+     * @throws IOException when the job cannot be sent
+     */
+    String process(
+            final String outputFilePath,
+            final String labeledTree) throws IOException {
+      jobCount++;
+      final byte[] outputFilePathBytes = outputFilePath.getBytes(StandardCharsets.UTF_8);
+      final byte[] labeledTreeBytes = labeledTree.getBytes(StandardCharsets.UTF_8);
+      final String header = outputFilePathBytes.length + " " + labeledTreeBytes.length + "\n";
+      outputStream.write(header.getBytes(StandardCharsets.US_ASCII));
+      outputStream.write(outputFilePathBytes);
+      outputStream.write(labeledTreeBytes);
+      outputStream.flush();
+      return bufferedReader.readLine();
+    }
+
+    /**
+     * Kills this worker process.
+     */
+    void kill() {
+      if (isKilled.compareAndSet(false, true)) {
+        ProcessLauncher.killTree(process);
+      }
+    }
+  }
+}
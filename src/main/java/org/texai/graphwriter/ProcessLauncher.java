@@ -0,0 +1,431 @@
+/*
+ * ProcessLauncher.java
+ *
+ * Created on Oct 18, 2026, 5:12:26 PM
+ *
+ * Description: Launches renderer processes directly from their argument vectors, drains their output on a shared
+ * pool, and kills the whole process tree of a render that exceeds its wall-clock timeout.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * Launches renderer processes directly from their argument vectors with {@link ProcessBuilder}, so that no shell
+ * parses a command string built by concatenation, and a file name never needs quoting.
+ *
+ * The output of a launched process is logged by a task on a shared pool of daemon threads, which are reused from one
+ * render to the next, rather than by two new threads per render. A render has a wall-clock timeout, after which the
+ * process and all of its descendants are killed, as they are when the waiting graph-making thread is interrupted. The
+ * spawn latency, i.e. the time taken by {@link ProcessBuilder#start()}, is measured for every launch. A renderer that
+ * can write its image to the standard output stream is run with that stream captured, so that no output file is
+ * written for an inline request.
+ *
+ * @author reed
+ */
+public final class ProcessLauncher {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(ProcessLauncher.class);
+
+  // the drain thread sequence number, used to name the drain threads
+  private final AtomicInteger drainThreadSequence = new AtomicInteger(0);
+
+  // the shared pool of daemon threads that log the output of the launched processes
+  private final ExecutorService drainExecutor = Executors.newCachedThreadPool(runnable -> {
+    final Thread thread = new Thread(runnable, "process-drain-" + drainThreadSequence.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // the number of launched processes
+  private final AtomicLong launchCount = new AtomicLong(0);
+
+  // the number of processes killed because they exceeded their timeout
+  private final AtomicLong timeoutCount = new AtomicLong(0);
+
+  // the total spawn latency in microseconds
+  private final AtomicLong totalSpawnMicros = new AtomicLong(0);
+
+  // the maximum spawn latency in microseconds
+  private final AtomicLong maxSpawnMicros = new AtomicLong(0);
+
+  // the spawn latency histogram
+  private final LatencyHistogram spawnHistogram = new LatencyHistogram("process spawn");
+
+  /**
+   * Constructs a new ProcessLauncher instance.
+   */
+  public ProcessLauncher() {
+  }
+
+  /**
+   * Runs the given command to completion in the given directory, killing its process tree when it exceeds the given
+   * wall-clock timeout or when the calling thread is interrupted. The standard error stream is merged into the
+   * standard output stream, which is logged.
+   *
+   * @param command the command and its arguments
+   * @param directory the working directory
+   * @param timeoutMillis the wall-clock timeout in milliseconds
+   * @return the launch outcome
+   * @throws IOException when the process cannot be started
+   * @throws InterruptedException when interrupted while waiting for the process, which is then killed
+   */
+  public Outcome run(
+          final List<String> command,
+          final Path directory,
+          final long timeoutMillis) throws IOException, InterruptedException {
+    return run(command, directory, timeoutMillis, false);
+  }
+
+  /**
+   * Runs the given command to completion in the given directory as {@link #run(List, Path, long)} does, but captures
+   * the standard output stream, such as the image written by a renderer that is given no output file, and logs the
+   * standard error stream.
+   *
+   * @param command the command and its arguments
+   * @param directory the working directory
+   * @param timeoutMillis the wall-clock timeout in milliseconds
+   * @return the launch outcome, whose output is the captured standard output stream
+   * @throws IOException when the process cannot be started, or its output cannot be read
+   * @throws InterruptedException when interrupted while waiting for the process, which is then killed
+   */
+  public Outcome runCapturingOutput(
+          final List<String> command,
+          final Path directory,
+          final long timeoutMillis) throws IOException, InterruptedException {
+    return run(command, directory, timeoutMillis, true);
+  }
+
+  /**
+   * Runs the given command to completion in the given directory, optionally capturing its standard output stream.
+   *
+   * @param command the command and its arguments
+   * @param directory the working directory
+   * @param timeoutMillis the wall-clock timeout in milliseconds
+   * @param isCapturingOutput whether the standard output stream is captured rather than logged
+   * @return the launch outcome
+   * @throws IOException when the process cannot be started, or its output cannot be read
+   * @throws InterruptedException when interrupted while waiting for the process, which is then killed
+   */
+  private Outcome run(
+          final List<String> command,
+          final Path directory,
+          final long timeoutMillis,
+          final boolean isCapturingOutput) throws IOException, InterruptedException {
+    //Preconditions
+    assert command != null : "command must not be null";
+    assert !command.isEmpty() : "command must not be empty";
+    assert directory != null : "directory must not be null";
+    assert timeoutMillis > 0 : "timeoutMillis must be positive";
+
+    final ProcessBuilder processBuilder = new ProcessBuilder(command)
+            .directory(directory.toFile())
+            .redirectErrorStream(!isCapturingOutput);
+    final long startNanos = System.nanoTime();
+    final Process process = processBuilder.start();
+    final long spawnMicros = (System.nanoTime() - startNanos) / 1000;
+    recordSpawn(spawnMicros);
+    final Future<byte[]> capturedOutput;
+    if (isCapturingOutput) {
+      drain(process.getErrorStream(), command.get(0));
+      capturedOutput = drainExecutor.submit(() -> process.getInputStream().readAllBytes());
+    } else {
+      drain(process.getInputStream(), command.get(0));
+      capturedOutput = null;
+    }
+    process.getOutputStream().close();
+    final boolean isExited;
+    try {
+      isExited = process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      // the request was superseded or cancelled
+      killTree(process);
+      throw ex;
+    }
+    if (!isExited) {
+      timeoutCount.incrementAndGet();
+      LOGGER.warn(command + " exceeded its timeout of " + timeoutMillis + " milliseconds, and was killed");
+      killTree(process);
+    }
+    byte[] output = new byte[0];
+    if (capturedOutput != null && isExited) {
+      try {
+        // the stream ends when the exited process closes it, unless a descendant holds it open
+        output = capturedOutput.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (ExecutionException ex) {
+        throw new IOException("cannot read the output of " + command, ex.getCause());
+      } catch (TimeoutException ex) {
+        killTree(process);
+        throw new IOException("the output of " + command + " did not end");
+      }
+    }
+    final long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("  " + command + " spawned in " + spawnMicros + " us, ran for " + elapsedMicros + " us");
+    }
+    return new Outcome(
+            isExited ? process.exitValue() : -1, // exitCode
+            !isExited, // isTimedOut
+            spawnMicros,
+            elapsedMicros,
+            output);
+  }
+
+  /**
+   * Starts a long-lived process from the given command in the given directory, whose standard input and output
+   * remain with the caller, and whose standard error stream is logged.
+   *
+   * @param command the command and its arguments
+   * @param directory the working directory
+   * @param name the name used when logging the standard error stream
+   * @return the started process
+   * @throws IOException when the process cannot be started
+   */
+  public Process startLongLived(
+          final List<String> command,
+          final Path directory,
+          final String name) throws IOException {
+    //Preconditions
+    assert command != null : "command must not be null";
+    assert !command.isEmpty() : "command must not be empty";
+    assert directory != null : "directory must not be null";
+    assert name != null : "name must not be null";
+
+    final long startNanos = System.nanoTime();
+    final Process process = new ProcessBuilder(command).directory(directory.toFile()).start();
+    recordSpawn((System.nanoTime() - startNanos) / 1000);
+    drain(process.getErrorStream(), name);
+    return process;
+  }
+
+  /**
+   * Records the given spawn latency.
+   *
+   * @param spawnMicros the given spawn latency in microseconds
+   */
+  private void recordSpawn(final long spawnMicros) {
+    launchCount.incrementAndGet();
+    totalSpawnMicros.addAndGet(spawnMicros);
+    maxSpawnMicros.accumulateAndGet(spawnMicros, Math::max);
+    spawnHistogram.record(spawnMicros);
+  }
+
+  /**
+   * Logs the lines of the given launched process output stream on the shared drain pool, until the stream ends.
+   *
+   * @param inputStream the given output stream of the launched process
+   * @param name the name of the launched process
+   */
+  private void drain(
+          final InputStream inputStream,
+          final String name) {
+    drainExecutor.execute(() -> {
+      try (final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+          LOGGER.info(name + "> " + line);
+        }
+      } catch (IOException ex) {
+        // the process was killed
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug(name + ": " + ex.getMessage());
+        }
+      }
+    });
+  }
+
+  /**
+   * Kills the given process and all of its descendants.
+   *
+   * @param process the given process
+   */
+  public static void killTree(final Process process) {
+    //Preconditions
+    assert process != null : "process must not be null";
+
+    process.descendants().forEach(ProcessHandle::destroyForcibly);
+    process.destroyForcibly();
+  }
+
+  /**
+   * Shuts down the drain pool. The drain tasks end when their processes exit.
+   */
+  public void shutdown() {
+    drainExecutor.shutdown();
+  }
+
+  /**
+   * Gets the number of launched processes.
+   *
+   * @return the number of launched processes
+   */
+  public long getLaunchCount() {
+    return launchCount.get();
+  }
+
+  /**
+   * Gets the number of processes killed because they exceeded their timeout.
+   *
+   * @return the number of timed out processes
+   */
+  public long getTimeoutCount() {
+    return timeoutCount.get();
+  }
+
+  /**
+   * Gets the mean spawn latency in microseconds.
+   *
+   * @return the mean spawn latency in microseconds, or zero if no process has been launched
+   */
+  public long getMeanSpawnMicros() {
+    final long count = launchCount.get();
+    return count == 0 ? 0 : totalSpawnMicros.get() / count;
+  }
+
+  /**
+   * Gets the maximum spawn latency in microseconds.
+   *
+   * @return the maximum spawn latency in microseconds
+   */
+  public long getMaxSpawnMicros() {
+    return maxSpawnMicros.get();
+  }
+
+  /**
+   * Gets the spawn latency histogram.
+   *
+   * @return the spawn latency histogram
+   */
+  public LatencyHistogram getSpawnHistogram() {
+    return spawnHistogram;
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[ProcessLauncher launched: " + launchCount.get() + ", timed out: " + timeoutCount.get()
+            + ", mean spawn: " + getMeanSpawnMicros() + " us, max spawn: " + maxSpawnMicros.get() + " us]";
+  }
+
+  /**
+   * Provides the outcome of a process run to completion.
+   */
+  public static final class Outcome {
+
+    // the process exit code, or -1 if the process was killed
+    private final int exitCode;
+
+    // the indicator that the process exceeded its timeout and was killed
+    private final boolean isTimedOut;
+
+    // the spawn latency in microseconds
+    private final long spawnMicros;
+
+    // the elapsed time in microseconds from the launch until the process exited or was killed
+    private final long elapsedMicros;
+
+    // the captured standard output stream, or empty when it was logged instead
+    private final byte[] output;
+
+    /**
+     * Constructs a new Outcome instance.
+     *
+     * @param exitCode the process exit code, or -1 if the process was killed
+     * @param isTimedOut the indicator that the process exceeded its timeout and was killed
+     * @param spawnMicros the spawn latency in microseconds
+     * @param elapsedMicros the elapsed time in microseconds
+     * @param output the captured standard output stream, or empty when it was logged instead
+     */
+    Outcome(
+            final int exitCode,
+            final boolean isTimedOut,
+            final long spawnMicros,
+            final long elapsedMicros,
+            final byte[] output) {
+      this.exitCode = exitCode;
+      this.isTimedOut = isTimedOut;
+      this.spawnMicros = spawnMicros;
+      this.elapsedMicros = elapsedMicros;
+      this.output = output;
+    }
+
+    /**
+     * Gets the process exit code.
+     *
+     * @return the process exit code, or -1 if the process was killed
+     */
+    public int getExitCode() {
+      return exitCode;
+    }
+
+    /**
+     * Returns whether the process exceeded its timeout and was killed.
+     *
+     * @return whether the process timed out
+     */
+    public boolean isTimedOut() {
+      return isTimedOut;
+    }
+
+    /**
+     * Gets the spawn latency in microseconds.
+     *
+     * @return the spawn latency in microseconds
+     */
+    public long getSpawnMicros() {
+      return spawnMicros;
+    }
+
+    /**
+     * Gets the elapsed time in microseconds from the launch until the process exited or was killed.
+     *
+     * @return the elapsed time in microseconds
+     */
+    public long getElapsedMicros() {
+      return elapsedMicros;
+    }
+
+    /**
+     * Gets the captured standard output stream.
+     *
+     * @return the captured standard output stream, or empty when it was logged instead
+     */
+    public byte[] getOutput() {
+      return output;
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return a string representation of this object
+     */
+    @Override
+    public String toString() {
+      return "[Outcome exit code: " + exitCode + (isTimedOut ? ", timed out" : "") + ", spawn: " + spawnMicros
+              + " us, elapsed: " + elapsedMicros + " us]";
+    }
+  }
+}
@@ -0,0 +1,471 @@
+/*
+ * RenderCache.java
+ *
+ * Created on Oct 18, 2026, 11:48:20 AM
+ *
+ * Description: Provides a content-addressed cache of rendered graph images.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+
+/**
+ * Provides a content-addressed cache of rendered graph images, keyed by a SHA-256 hash of the renderer type and the
+ * render payload, which is either the labeled tree or the DOT file contents.
+ *
+ * A cache hit is hard-linked to the requested output path, or copied when a link cannot be made, so that no renderer is
+ * spawned. The cached images are kept in two-character subdirectories of the cache directory, named by their key and
+ * the extension of their image format, e.g. 3f/3fa4...e1.svg. The in-memory index is kept in least recently used order,
+ * and is rebuilt on startup from the cached files ordered by their last modified times, which are touched on each hit.
+ * The least recently used images are evicted when the total size exceeds the configured cap.
+ *
+ * Because a hit shares its inode with the cached image, callers must delete an existing output file before rendering
+ * into it, rather than overwriting it in place.
+ *
+ * @author reed
+ */
+public class RenderCache {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RenderCache.class);
+
+  // the cache directory
+  private final Path cacheDirectory;
+
+  // the maximum total size of the cached images in bytes
+  private final long maxBytes;
+
+  // the cached image sizes in least recently used order, cached file name --> size in bytes
+  private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(1024, 0.75f, true);
+
+  // the total size of the cached images in bytes
+  private long totalBytes = 0;
+
+  // the number of cache hits
+  private final AtomicLong hitCount = new AtomicLong(0);
+
+  // the number of cache misses
+  private final AtomicLong missCount = new AtomicLong(0);
+
+  // the number of evicted images
+  private final AtomicLong evictionCount = new AtomicLong(0);
+
+  /**
+   * Constructs a new RenderCache instance.
+   *
+   * @param cacheDirectory the cache directory
+   * @param maxBytes the maximum total size of the cached images in bytes
+   */
+  public RenderCache(
+          final Path cacheDirectory,
+          final long maxBytes) {
+    //Preconditions
+    assert cacheDirectory != null : "cacheDirectory must not be null";
+    assert maxBytes > 0 : "maxBytes must be positive";
+
+    this.cacheDirectory = cacheDirectory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Creates the cache directory if required, and rebuilds the in-memory index from the cached images.
+   *
+   * @throws IOException when the cache directory cannot be read
+   */
+  public synchronized void initialize() throws IOException {
+    Files.createDirectories(cacheDirectory);
+    index.clear();
+    totalBytes = 0;
+    final List<Path> paths = new ArrayList<>();
+    try (Stream<Path> stream = Files.walk(cacheDirectory, 2)) {
+      stream
+              .filter(path -> isCachedFileName(path.getFileName().toString()))
+              .filter(Files::isRegularFile)
+              .forEach(paths::add);
+    }
+    final Map<Path, FileTime> lastModifiedTimes = new LinkedHashMap<>();
+    for (final Path path : paths) {
+      lastModifiedTimes.put(path, Files.getLastModifiedTime(path));
+    }
+    paths.sort(Comparator.comparing(lastModifiedTimes::get));
+    for (final Path path : paths) {
+      final long size = Files.size(path);
+      index.put(path.getFileName().toString(), size);
+      totalBytes += size;
+    }
+    evict();
+    LOGGER.info("render cache " + cacheDirectory + " has " + index.size() + " images, " + totalBytes + " bytes");
+  }
+
+  /**
+   * Makes the cache key for the given renderer type and payload.
+   *
+   * @param rendererType the renderer type
+   * @param payload the render payload
+   * @return the cache key, a hexadecimal SHA-256 hash
+   */
+  public static String makeKey(
+          final String rendererType,
+          final byte[] payload) {
+    //Preconditions
+    assert rendererType != null : "rendererType must not be null";
+    assert payload != null : "payload must not be null";
+
+    final MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex);
+    }
+    messageDigest.update(rendererType.getBytes(StandardCharsets.UTF_8));
+    messageDigest.update((byte) 0);
+    messageDigest.update(payload);
+    final byte[] digest = messageDigest.digest();
+    final StringBuilder stringBuilder = new StringBuilder(digest.length * 2);
+    for (final byte b : digest) {
+      stringBuilder.append(Character.forDigit((b >> 4) & 0xf, 16));
+      stringBuilder.append(Character.forDigit(b & 0xf, 16));
+    }
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Places the cached image having the given key at the given output path, replacing any existing file there.
+   *
+   * @param key the cache key
+   * @param format the image format, either PNG or SVG
+   * @param outputPath the output path
+   * @return whether the image was cached
+   */
+  public boolean fetch(
+          final String key,
+          final GraphOutputFormat format,
+          final Path outputPath) {
+    //Preconditions
+    assert key != null : "key must not be null";
+    assert format == GraphOutputFormat.PNG || format == GraphOutputFormat.SVG : "format must be PNG or SVG";
+    assert outputPath != null : "outputPath must not be null";
+
+    final String cachedFileName = makeCachedFileName(key, format);
+    final Path cachedPath = getCachedPath(cachedFileName);
+    synchronized (this) {
+      if (index.get(cachedFileName) == null) {
+        missCount.incrementAndGet();
+        return false;
+      }
+    }
+    try {
+      Files.deleteIfExists(outputPath);
+      linkOrCopy(cachedPath, outputPath);
+      Files.setLastModifiedTime(cachedPath, FileTime.fromMillis(System.currentTimeMillis()));
+      hitCount.incrementAndGet();
+      return true;
+    } catch (IOException ex) {
+      // the cached image was removed behind our back
+      LOGGER.warn("cannot fetch the cached image " + cachedPath + ": " + ex.getMessage());
+      synchronized (this) {
+        final Long size = index.remove(cachedFileName);
+        if (size != null) {
+          totalBytes -= size;
+        }
+      }
+      missCount.incrementAndGet();
+      return false;
+    }
+  }
+
+  /**
+   * Opens the cached image having the given key for an inline acknowledgement, without placing it at an output path.
+   *
+   * @param key the cache key
+   * @param format the image format, either PNG or SVG
+   * @return the inline image, or null if the image is not cached
+   */
+  public InlineImage fetchInline(
+          final String key,
+          final GraphOutputFormat format) {
+    //Preconditions
+    assert key != null : "key must not be null";
+    assert format == GraphOutputFormat.PNG || format == GraphOutputFormat.SVG : "format must be PNG or SVG";
+
+    final String cachedFileName = makeCachedFileName(key, format);
+    final Path cachedPath = getCachedPath(cachedFileName);
+    synchronized (this) {
+      if (index.get(cachedFileName) == null) {
+        missCount.incrementAndGet();
+        return null;
+      }
+    }
+    try {
+      // the open channel keeps the image readable should it be evicted before it is sent
+      final InlineImage inlineImage = InlineImage.open(format, cachedPath, false);
+      Files.setLastModifiedTime(cachedPath, FileTime.fromMillis(System.currentTimeMillis()));
+      hitCount.incrementAndGet();
+      return inlineImage;
+    } catch (IOException ex) {
+      // the cached image was removed behind our back
+      LOGGER.warn("cannot fetch the cached image " + cachedPath + ": " + ex.getMessage());
+      synchronized (this) {
+        final Long size = index.remove(cachedFileName);
+        if (size != null) {
+          totalBytes -= size;
+        }
+      }
+      missCount.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Stores the given rendered image in this cache under the given key.
+   *
+   * @param key the cache key
+   * @param format the image format, either PNG or SVG
+   * @param renderedPath the rendered image path
+   */
+  public void store(
+          final String key,
+          final GraphOutputFormat format,
+          final Path renderedPath) {
+    //Preconditions
+    assert key != null : "key must not be null";
+    assert format == GraphOutputFormat.PNG || format == GraphOutputFormat.SVG : "format must be PNG or SVG";
+    assert renderedPath != null : "renderedPath must not be null";
+
+    final String cachedFileName = makeCachedFileName(key, format);
+    final Path cachedPath = getCachedPath(cachedFileName);
+    try {
+      final long size = Files.size(renderedPath);
+      if (size > maxBytes) {
+        return;
+      }
+      final Path temporaryPath = makeTemporaryPath(key, cachedPath);
+      linkOrCopy(renderedPath, temporaryPath);
+      install(cachedFileName, temporaryPath, cachedPath, size);
+    } catch (IOException ex) {
+      LOGGER.warn("cannot cache the rendered image " + renderedPath + ": " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Stores the given rendered image bytes, such as those of an inline image, in this cache under the given key.
+   *
+   * @param key the cache key
+   * @param format the image format, either PNG or SVG
+   * @param bytes the rendered image bytes
+   */
+  public void store(
+          final String key,
+          final GraphOutputFormat format,
+          final byte[] bytes) {
+    //Preconditions
+    assert key != null : "key must not be null";
+    assert format == GraphOutputFormat.PNG || format == GraphOutputFormat.SVG : "format must be PNG or SVG";
+    assert bytes != null : "bytes must not be null";
+
+    if (bytes.length > maxBytes) {
+      return;
+    }
+    final String cachedFileName = makeCachedFileName(key, format);
+    final Path cachedPath = getCachedPath(cachedFileName);
+    try {
+      final Path temporaryPath = makeTemporaryPath(key, cachedPath);
+      Files.write(temporaryPath, bytes);
+      install(cachedFileName, temporaryPath, cachedPath, bytes.length);
+    } catch (IOException ex) {
+      LOGGER.warn("cannot cache the rendered image bytes " + key + ": " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Makes an empty temporary path, next to the given cached image path, to which the calling thread writes an image
+   * before installing it.
+   *
+   * @param key the cache key
+   * @param cachedPath the cached image path
+   * @return the temporary path
+   * @throws IOException when the cache subdirectory cannot be created
+   */
+  private static Path makeTemporaryPath(
+          final String key,
+          final Path cachedPath) throws IOException {
+    Files.createDirectories(cachedPath.getParent());
+    final Path temporaryPath = cachedPath.resolveSibling(key + "." + Thread.currentThread().getId() + ".tmp");
+    Files.deleteIfExists(temporaryPath);
+    return temporaryPath;
+  }
+
+  /**
+   * Atomically moves the given temporary image into place, and indexes it.
+   *
+   * @param cachedFileName the cached file name
+   * @param temporaryPath the temporary image path
+   * @param cachedPath the cached image path
+   * @param size the image size in bytes
+   * @throws IOException when the image cannot be moved
+   */
+  private void install(
+          final String cachedFileName,
+          final Path temporaryPath,
+          final Path cachedPath,
+          final long size) throws IOException {
+    Files.move(temporaryPath, cachedPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    synchronized (this) {
+      final Long previousSize = index.put(cachedFileName, size);
+      if (previousSize != null) {
+        totalBytes -= previousSize;
+      }
+      totalBytes += size;
+      evict();
+    }
+  }
+
+  /**
+   * Evicts the least recently used images until the total size is within the cap.
+   */
+  private synchronized void evict() {
+    final Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      final Map.Entry<String, Long> entry = iterator.next();
+      iterator.remove();
+      totalBytes -= entry.getValue();
+      evictionCount.incrementAndGet();
+      try {
+        Files.deleteIfExists(getCachedPath(entry.getKey()));
+      } catch (IOException ex) {
+        LOGGER.warn("cannot evict the cached image " + entry.getKey() + ": " + ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Hard-links the given source file at the given target path, or copies it when a link cannot be made, for example
+   * across file systems.
+   *
+   * @param sourcePath the source path
+   * @param targetPath the target path
+   * @throws IOException when the file can be neither linked nor copied
+   */
+  private static void linkOrCopy(
+          final Path sourcePath,
+          final Path targetPath) throws IOException {
+    try {
+      Files.createLink(targetPath, sourcePath);
+    } catch (FileAlreadyExistsException ex) {
+      throw ex;
+    } catch (IOException | UnsupportedOperationException ex) {
+      Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Makes the name of the cached file of the image having the given key and format.
+   *
+   * @param key the cache key
+   * @param format the image format, either PNG or SVG
+   * @return the cached file name, i.e. the key followed by the format extension
+   */
+  private static String makeCachedFileName(
+          final String key,
+          final GraphOutputFormat format) {
+    return key + "." + format.getExtensions().get(0);
+  }
+
+  /**
+   * Returns whether the given file name is that of a cached image, rather than that of a temporary image.
+   *
+   * @param fileName the given file name
+   * @return whether the file name ends with the extension of a single image format
+   */
+  private static boolean isCachedFileName(final String fileName) {
+    return fileName.endsWith("." + GraphOutputFormat.PNG.getExtensions().get(0))
+            || fileName.endsWith("." + GraphOutputFormat.SVG.getExtensions().get(0));
+  }
+
+  /**
+   * Gets the path of the cached image having the given file name.
+   *
+   * @param cachedFileName the cached file name
+   * @return the cached image path
+   */
+  private Path getCachedPath(final String cachedFileName) {
+    return cacheDirectory.resolve(Paths.get(cachedFileName.substring(0, 2), cachedFileName));
+  }
+
+  /**
+   * Gets the number of cache hits.
+   *
+   * @return the number of cache hits
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Gets the number of cache misses.
+   *
+   * @return the number of cache misses
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Gets the number of evicted images.
+   *
+   * @return the number of evicted images
+   */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  /**
+   * Gets the number of cached images.
+   *
+   * @return the number of cached images
+   */
+  public synchronized int size() {
+    return index.size();
+  }
+
+  /**
+   * Gets the total size of the cached images in bytes.
+   *
+   * @return the total size in bytes
+   */
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[RenderCache " + size() + " images, " + getTotalBytes() + " bytes, hits: " + hitCount.get()
+            + ", misses: " + missCount.get() + ", evictions: " + evictionCount.get() + "]";
+  }
+}
@@ -0,0 +1,1104 @@
+/*
+ * RenderScheduler.java
+ *
+ * Created on Oct 18, 2026, 4:03:38 PM
+ *
+ * Description: Admits graph requests up to a bound of work in flight, sheds the excess according to a per request
+ * type policy, coalesces the requests for the same output file, and runs the admitted requests on a fixed set of
+ * graph-making threads, serving the interactive priority lane ahead of the bulk lane, under an adaptive limit of
+ * concurrent renders, and taking GraphViz requests in batches.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.apache.log4j.Logger;
+
+/**
+ * Admits graph requests up to a bound of work in flight, which counts both the pending and the running requests, and
+ * runs the admitted requests on a fixed set of graph-making threads. This replaces a fixed thread pool whose unbounded
+ * queue let a burst of requests grow the heap without limit.
+ *
+ * There are as many graph-making threads as the ceiling of the {@link AdaptiveConcurrencyLimit}, but no more requests
+ * run at once than its current limit, which is adapted to the measured render latency and throughput as each render
+ * completes.
+ *
+ * A graph-making thread that takes a GraphViz request also takes the other pending GraphViz requests of the same lane
+ * and output format, up to the maximum batch size, waiting up to the batch window for more to arrive. The graph maker
+ * then lays out the whole batch with one renderer process, while each request still succeeds or fails on its own. A
+ * batch occupies one render slot of the concurrency limit, but each of its requests counts toward the bound of work in
+ * flight.
+ *
+ * Requests are served from two priority lanes, each with its own queue and its own bound of work in flight. A request
+ * whose priority is {@link GraphRequest#INTERACTIVE_PRIORITY} goes to the interactive lane, and any other request to
+ * the bulk lane. The interactive lane has strict priority, i.e. a free graph-making thread always takes the oldest
+ * pending interactive request first, and bulk requests never run on more than the configured share of the concurrency
+ * limit, so that a nightly corpus dump leaves threads free for a developer who wants one graph right now.
+ *
+ * When the bound of a lane is reached, the {@link AdmissionPolicy} configured for the request type decides whether the
+ * arriving request is rejected, the oldest pending request of the same type in that lane is dropped, or the request
+ * waits for up to the admission timeout for room in its lane. A waiting request does not block the caller, because a
+ * full bulk lane must not hold up the interactive requests behind it in the ring buffer. A waiting request whose
+ * timeout has passed is rejected at the next admission or completion in its lane. Every shed request is counted by
+ * type, and acknowledged with the {@link GraphResultStatus#REJECTED} status so that the client can back off.
+ *
+ * Only the newest pending request for each output file is kept. A request for a file that already has a pending request
+ * takes over the queue position of the older request, which is acknowledged as {@link GraphResultStatus#SUPERSEDED},
+ * unless the older request waits in the bulk lane and the newer one is interactive, in which case the newer request is
+ * admitted to the interactive lane instead. Interactive tools that re-emit a graph many times per second therefore see
+ * only the latest version rendered, without losing their place in the queue. The newer request takes the output formats
+ * of both, so that neither image of the file is left stale. Optionally a running render of the older request is
+ * interrupted too, which kills its renderer process. A cancel request removes the pending request for its file, and
+ * interrupts the running renders of that file.
+ *
+ * The graph writer runs one render scheduler per {@link Renderer}, i.e. a bulkhead, so that the requests of a slow
+ * renderer queue and run apart from those of the others.
+ *
+ * @author reed
+ */
+public class RenderScheduler {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RenderScheduler.class);
+
+  // the scheduler name, which is the name of its renderer
+  private final String name;
+
+  // the number of graph-making threads, which is the ceiling of the concurrency limit
+  private final int threadCount;
+
+  // the adaptive limit of concurrent renders, guarded by the lock
+  private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+  // the maximum number of pending and running requests in each priority lane
+  private final int maxInFlight;
+
+  // the share of the concurrency limit that bulk requests may occupy
+  private final double bulkShare;
+
+  // the admission policies, indexed by request type
+  private final Map<GraphRequestType, AdmissionPolicy> admissionPolicies;
+
+  // the number of milliseconds that a request waits for room under the BLOCK admission policy
+  private final long admissionTimeoutMillis;
+
+  // the graph maker, which renders a single admitted request or a batch of GraphViz requests, and returns their results
+  private final Function<List<GraphRequest>, List<GraphResult>> graphMaker;
+
+  // the maximum number of GraphViz requests in a batch
+  private final int maxBatchSize;
+
+  // the number of nanoseconds that a thread waits for more GraphViz requests to fill a batch
+  private final long batchWindowNanos;
+
+  // the indicator whether a running render is interrupted when a newer request for the same file arrives
+  private final boolean isKillingSupersededRenders;
+
+  // the discard handler, which acknowledges a request that is shed, superseded or cancelled with the given result
+  private final BiConsumer<GraphRequest, GraphResult> discardHandler;
+
+  // the lock that guards the pending and running requests
+  private final ReentrantLock lock = new ReentrantLock();
+
+  // the condition signalled when a request becomes pending, or when a bulk request completes
+  private final Condition notEmpty = lock.newCondition();
+
+  // the condition signalled when a GraphViz request becomes pending, which wakes the threads that fill a batch
+  private final Condition batchable = lock.newCondition();
+
+  // the condition signalled when no request is pending, waiting or running, which wakes a draining shutdown
+  private final Condition idle = lock.newCondition();
+
+  // the number of threads that are making graphs
+  private int busyThreadCount = 0;
+
+  // the interactive priority lane
+  private final Lane interactiveLane = new Lane("interactive");
+
+  // the bulk priority lane
+  private final Lane bulkLane = new Lane("bulk");
+
+  // the slots of the pending and waiting render requests in both lanes, indexed by file name
+  private final Map<String, PendingSlot> pendingSlotsByFileName = new HashMap<>();
+
+  // the threads of the running requests, indexed by request
+  private final Map<GraphRequest, Thread> runningThreads = new HashMap<>();
+
+  // the indicator that this scheduler is shut down
+  private boolean isShutdown = false;
+
+  // the graph-making threads
+  private final Thread[] graphMakingThreads;
+
+  // the numbers of shed requests, indexed by request type
+  private final Map<GraphRequestType, AtomicLong> shedCounts = new EnumMap<>(GraphRequestType.class);
+
+  // the number of superseded requests
+  private final AtomicLong supersededCount = new AtomicLong(0);
+
+  // the number of cancelled requests
+  private final AtomicLong cancelledCount = new AtomicLong(0);
+
+  /**
+   * Constructs a new RenderScheduler instance.
+   *
+   * @param name the scheduler name, which prefixes the names of its graph-making threads
+   * @param concurrencyLimit the adaptive limit of concurrent renders, whose ceiling is the number of graph-making
+   * threads
+   * @param maxInFlight the maximum number of pending and running requests in each priority lane
+   * @param bulkShare the share of the concurrency limit that bulk requests may occupy, which allows at least one
+   * @param admissionPolicies the admission policies, indexed by request type
+   * @param admissionTimeoutMillis the number of milliseconds that a request waits for room under the BLOCK admission
+   * policy
+   * @param isKillingSupersededRenders whether a running render is interrupted when a newer request for the same file
+   * arrives
+   * @param maxBatchSize the maximum number of GraphViz requests in a batch
+   * @param batchWindowMillis the number of milliseconds that a thread waits for more GraphViz requests to fill a batch
+   * @param graphMaker the graph maker, which renders a single admitted request or a batch of GraphViz requests, and
+   * returns their results, each of which is null if the request has none
+   * @param discardHandler the discard handler, which acknowledges a request that is shed, superseded or cancelled with
+   * the given result
+   */
+  public RenderScheduler(
+          final String name,
+          final AdaptiveConcurrencyLimit concurrencyLimit,
+          final int maxInFlight,
+          final double bulkShare,
+          final Map<GraphRequestType, AdmissionPolicy> admissionPolicies,
+          final long admissionTimeoutMillis,
+          final boolean isKillingSupersededRenders,
+          final int maxBatchSize,
+          final long batchWindowMillis,
+          final Function<List<GraphRequest>, List<GraphResult>> graphMaker,
+          final BiConsumer<GraphRequest, GraphResult> discardHandler) {
+    //Preconditions
+    assert name != null : "name must not be null";
+    assert !name.isEmpty() : "name must not be empty";
+    assert concurrencyLimit != null : "concurrencyLimit must not be null";
+    assert maxInFlight >= concurrencyLimit.getMaxLimit() : "maxInFlight must be at least the ceiling of the concurrency limit";
+    assert bulkShare > 0.0 && bulkShare <= 1.0 : "bulkShare must be in (0, 1]";
+    assert admissionPolicies != null : "admissionPolicies must not be null";
+    assert admissionTimeoutMillis >= 0 : "admissionTimeoutMillis must not be negative";
+    assert maxBatchSize > 0 : "maxBatchSize must be positive";
+    assert batchWindowMillis >= 0 : "batchWindowMillis must not be negative";
+    assert graphMaker != null : "graphMaker must not be null";
+    assert discardHandler != null : "discardHandler must not be null";
+
+    this.name = name;
+    this.concurrencyLimit = concurrencyLimit;
+    threadCount = concurrencyLimit.getMaxLimit();
+    this.maxInFlight = maxInFlight;
+    this.bulkShare = bulkShare;
+    this.admissionPolicies = new EnumMap<>(admissionPolicies);
+    this.admissionTimeoutMillis = admissionTimeoutMillis;
+    this.isKillingSupersededRenders = isKillingSupersededRenders;
+    this.maxBatchSize = maxBatchSize;
+    batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+    this.graphMaker = graphMaker;
+    this.discardHandler = discardHandler;
+    graphMakingThreads = new Thread[threadCount];
+    for (final GraphRequestType requestType : GraphRequestType.values()) {
+      shedCounts.put(requestType, new AtomicLong(0));
+    }
+  }
+
+  /**
+   * Starts the graph-making threads.
+   */
+  public void start() {
+    for (int i = 0; i < threadCount; i++) {
+      graphMakingThreads[i] = new Thread(this::makeGraphs, name + "-graph-maker-" + (i + 1));
+      graphMakingThreads[i].start();
+    }
+  }
+
+  /**
+   * Admits the given graph request to its priority lane, coalescing it with a pending request for the same file, or
+   * applies the admission policy of its type when the bound of work in flight of its lane has been reached.
+   *
+   * @param graphRequest the given graph request
+   * @return whether the given request was admitted, which includes waiting for room under the BLOCK policy
+   */
+  public boolean admit(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+    assert graphRequest.getRequestType() != GraphRequestType.CANCEL : "cancel requests are not admitted";
+    assert graphRequest.getRequestType() != GraphRequestType.STATS : "stats requests are not admitted";
+    assert graphRequest.getRequestType() != GraphRequestType.PING : "ping requests are not admitted";
+    assert graphRequest.getRequestType() != GraphRequestType.QUIT : "quit requests are not admitted";
+    assert graphRequest.getRequestType() != GraphRequestType.IGNORE : "ignore requests are not admitted";
+
+    final GraphRequestType requestType = graphRequest.getRequestType();
+    final Lane lane = graphRequest.isBulk() ? bulkLane : interactiveLane;
+    GraphRequest shedGraphRequest = null;
+    String message = null;
+    GraphRequest supersededGraphRequest = null;
+    final List<GraphRequest> expiredGraphRequests = new ArrayList<>();
+    lock.lock();
+    try {
+      final PendingSlot pendingSlot = pendingSlotsByFileName.get(graphRequest.getFileName());
+      if (isShutdown) {
+        shedGraphRequest = graphRequest;
+        message = "the server is shutting down";
+      } else if (pendingSlot != null && (pendingSlot.lane == interactiveLane || lane == bulkLane)) {
+        // take over the queue position of the older request, which needs no more room
+        supersededGraphRequest = pendingSlot.graphRequest;
+        graphRequest.setOutputFormat(graphRequest.getOutputFormat().union(supersededGraphRequest.getOutputFormat()));
+        pendingSlot.graphRequest = graphRequest;
+        if (isKillingSupersededRenders) {
+          interruptRunning(graphRequest.getFileName(), GraphResultStatus.SUPERSEDED);
+        }
+      } else {
+        if (pendingSlot != null) {
+          // an interactive request supersedes a bulk request for the same file, and moves to the interactive lane
+          supersededGraphRequest = pendingSlot.graphRequest;
+          graphRequest.setOutputFormat(graphRequest.getOutputFormat().union(supersededGraphRequest.getOutputFormat()));
+          removeSlot(pendingSlot);
+        }
+        if (isKillingSupersededRenders) {
+          interruptRunning(graphRequest.getFileName(), GraphResultStatus.SUPERSEDED);
+        }
+        if (lane.getInFlightCount() < maxInFlight) {
+          enqueue(lane, graphRequest);
+        } else {
+          switch (admissionPolicies.getOrDefault(requestType, AdmissionPolicy.REJECT)) {
+            case REJECT -> {
+              shedGraphRequest = graphRequest;
+              message = "the server is full";
+            }
+
+            case DROP_OLDEST -> {
+              shedGraphRequest = removeOldestPending(lane, requestType);
+              if (shedGraphRequest == null) {
+                shedGraphRequest = graphRequest;
+                message = "the server is full";
+              } else {
+                enqueue(lane, graphRequest);
+                message = "dropped for a newer request because the server is full";
+              }
+            }
+
+            case BLOCK -> {
+              if (admissionTimeoutMillis > 0 && lane.waitingSlots.size() < maxInFlight) {
+                final PendingSlot waitingSlot = new PendingSlot(graphRequest, lane);
+                waitingSlot.admissionDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(admissionTimeoutMillis);
+                lane.waitingSlots.addLast(waitingSlot);
+                pendingSlotsByFileName.put(graphRequest.getFileName(), waitingSlot);
+              } else {
+                shedGraphRequest = graphRequest;
+                message = "the server is full";
+              }
+            }
+          }
+        }
+      }
+      promoteWaiting(interactiveLane, expiredGraphRequests);
+      promoteWaiting(bulkLane, expiredGraphRequests);
+    } finally {
+      lock.unlock();
+    }
+    if (supersededGraphRequest != null) {
+      supersededCount.incrementAndGet();
+      discard(supersededGraphRequest, GraphResultStatus.SUPERSEDED, "superseded by a newer request for the same file");
+    }
+    if (shedGraphRequest != null) {
+      shed(shedGraphRequest, message);
+    }
+    shedExpired(expiredGraphRequests);
+    return shedGraphRequest != graphRequest;
+  }
+
+  /**
+   * Cancels the pending request for the given file name, and interrupts the running renders of that file, which kills
+   * their renderer processes.
+   *
+   * @param fileName the given file name
+   * @return the number of cancelled requests
+   */
+  public int cancel(final String fileName) {
+    //Preconditions
+    assert fileName != null : "fileName must not be null";
+
+    GraphRequest cancelledGraphRequest = null;
+    final List<GraphRequest> expiredGraphRequests = new ArrayList<>();
+    int count;
+    lock.lock();
+    try {
+      final PendingSlot pendingSlot = pendingSlotsByFileName.get(fileName);
+      if (pendingSlot != null) {
+        removeSlot(pendingSlot);
+        cancelledGraphRequest = pendingSlot.graphRequest;
+        promoteWaiting(pendingSlot.lane, expiredGraphRequests);
+      }
+      count = interruptRunning(fileName, GraphResultStatus.CANCELLED);
+      signalIfIdle();
+    } finally {
+      lock.unlock();
+    }
+    shedExpired(expiredGraphRequests);
+    if (cancelledGraphRequest != null) {
+      count++;
+      cancelledCount.incrementAndGet();
+      discard(cancelledGraphRequest, GraphResultStatus.CANCELLED, "cancelled");
+    }
+    return count;
+  }
+
+  /**
+   * Interrupts the threads running requests for the given file name, after marking those requests with the given
+   * cancel status. The lock must be held, so that a thread is never interrupted after it has finished the request.
+   *
+   * @param fileName the given file name
+   * @param cancelStatus the cancel status
+   * @return the number of interrupted requests
+   */
+  private int interruptRunning(
+          final String fileName,
+          final GraphResultStatus cancelStatus) {
+    int count = 0;
+    for (final Map.Entry<GraphRequest, Thread> entry : runningThreads.entrySet()) {
+      final GraphRequest runningGraphRequest = entry.getKey();
+      if (runningGraphRequest.getFileName().equals(fileName) && runningGraphRequest.getCancelStatus() == null) {
+        runningGraphRequest.setCancelStatus(cancelStatus);
+        entry.getValue().interrupt();
+        count++;
+        if (cancelStatus == GraphResultStatus.SUPERSEDED) {
+          supersededCount.incrementAndGet();
+        } else {
+          cancelledCount.incrementAndGet();
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Counts the given shed graph request, and passes it to the shed handler.
+   *
+   * @param graphRequest the given graph request
+   * @param message the reason it was shed
+   */
+  public void shed(
+          final GraphRequest graphRequest,
+          final String message) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+    assert message != null : "message must not be null";
+
+    shedCounts.get(graphRequest.getRequestType()).incrementAndGet();
+    discard(graphRequest, GraphResultStatus.REJECTED, message);
+  }
+
+  /**
+   * Acknowledges the given graph request, which will not be rendered, with the given status.
+   *
+   * @param graphRequest the given graph request
+   * @param status the status
+   * @param message the reason it will not be rendered
+   */
+  private void discard(
+          final GraphRequest graphRequest,
+          final GraphResultStatus status,
+          final String message) {
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(status + " " + graphRequest + ", " + message);
+    }
+    discardHandler.accept(
+            graphRequest,
+            new GraphResult(
+                    status,
+                    -1, // exitCode
+                    "", // outputPath
+                    0, // byteSize
+                    message));
+  }
+
+  /**
+   * Appends the given request to the pending requests of the given lane, and wakes a graph-making thread. The lock must
+   * be held.
+   *
+   * @param lane the given lane
+   * @param graphRequest the given request
+   */
+  private void enqueue(
+          final Lane lane,
+          final GraphRequest graphRequest) {
+    final PendingSlot pendingSlot = new PendingSlot(graphRequest, lane);
+    lane.pendingSlots.addLast(pendingSlot);
+    pendingSlotsByFileName.put(graphRequest.getFileName(), pendingSlot);
+    signalPending(graphRequest);
+  }
+
+  /**
+   * Wakes a graph-making thread for the given newly pending request, and the threads that fill a batch when it is a
+   * GraphViz request. The lock must be held.
+   *
+   * @param graphRequest the given request
+   */
+  private void signalPending(final GraphRequest graphRequest) {
+    notEmpty.signal();
+    if (graphRequest.getRequestType() == GraphRequestType.GRAPHVIZ) {
+      batchable.signalAll();
+    }
+  }
+
+  /**
+   * Removes the given pending or waiting slot from its lane. The lock must be held.
+   *
+   * @param pendingSlot the given slot
+   */
+  private void removeSlot(final PendingSlot pendingSlot) {
+    pendingSlotsByFileName.remove(pendingSlot.graphRequest.getFileName(), pendingSlot);
+    if (pendingSlot.admissionDeadlineNanos == 0) {
+      pendingSlot.lane.pendingSlots.remove(pendingSlot);
+    } else {
+      pendingSlot.lane.waitingSlots.remove(pendingSlot);
+    }
+  }
+
+  /**
+   * Removes the oldest pending request of the given type from the given lane. The lock must be held.
+   *
+   * @param lane the given lane
+   * @param requestType the given request type
+   * @return the removed request, or null if none of the given type is pending
+   */
+  private GraphRequest removeOldestPending(
+          final Lane lane,
+          final GraphRequestType requestType) {
+    final Iterator<PendingSlot> iterator = lane.pendingSlots.iterator();
+    while (iterator.hasNext()) {
+      final PendingSlot pendingSlot = iterator.next();
+      if (pendingSlot.graphRequest.getRequestType() == requestType) {
+        iterator.remove();
+        pendingSlotsByFileName.remove(pendingSlot.graphRequest.getFileName());
+        return pendingSlot.graphRequest;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Removes the waiting requests of the given lane whose admission timeout has passed, and then moves the oldest
+   * waiting requests to the pending requests while the lane has room. The lock must be held.
+   *
+   * @param lane the given lane
+   * @param expiredGraphRequests the list to which the expired waiting requests are added, for shedding once the lock is
+   * released
+   */
+  private void promoteWaiting(
+          final Lane lane,
+          final List<GraphRequest> expiredGraphRequests) {
+    if (lane.waitingSlots.isEmpty()) {
+      return;
+    }
+    // the waiting slots share one timeout, so their deadlines are in queue order
+    final long nowNanos = System.nanoTime();
+    while (!lane.waitingSlots.isEmpty() && lane.waitingSlots.peekFirst().admissionDeadlineNanos - nowNanos <= 0) {
+      final PendingSlot waitingSlot = lane.waitingSlots.pollFirst();
+      pendingSlotsByFileName.remove(waitingSlot.graphRequest.getFileName(), waitingSlot);
+      expiredGraphRequests.add(waitingSlot.graphRequest);
+    }
+    while (!lane.waitingSlots.isEmpty() && lane.getInFlightCount() < maxInFlight) {
+      final PendingSlot waitingSlot = lane.waitingSlots.pollFirst();
+      waitingSlot.admissionDeadlineNanos = 0;
+      lane.pendingSlots.addLast(waitingSlot);
+      signalPending(waitingSlot.graphRequest);
+    }
+  }
+
+  /**
+   * Sheds the given waiting requests whose admission timeout has passed.
+   *
+   * @param expiredGraphRequests the given expired waiting requests
+   */
+  private void shedExpired(final List<GraphRequest> expiredGraphRequests) {
+    for (final GraphRequest expiredGraphRequest : expiredGraphRequests) {
+      shed(expiredGraphRequest, "the server remained full for " + admissionTimeoutMillis + " milliseconds");
+    }
+  }
+
+  /**
+   * Takes the next pending request that may run when fewer threads than the concurrency limit are busy, which is the
+   * oldest interactive request, or else the oldest bulk request when fewer than the maximum number of threads are busy
+   * with bulk requests. The lock must be held.
+   *
+   * @return the slot of the next request, or null if no pending request may run now
+   */
+  private PendingSlot pollNext() {
+    if (busyThreadCount >= concurrencyLimit.getLimit()) {
+      return null;
+    } else if (!interactiveLane.pendingSlots.isEmpty()) {
+      return interactiveLane.pendingSlots.pollFirst();
+    } else if (!bulkLane.pendingSlots.isEmpty() && bulkLane.busyThreadCount < computeMaxBulkRunning()) {
+      return bulkLane.pendingSlots.pollFirst();
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Moves the pending GraphViz requests of the given lane to the given batch, until the batch is full. A newer request
+   * for a file that is already in the batch stays pending, because one renderer process cannot write a file twice. The
+   * lock must be held.
+   *
+   * @param lane the given lane
+   * @param batch the given batch
+   */
+  private void fillBatch(
+          final Lane lane,
+          final List<GraphRequest> batch) {
+    final Iterator<PendingSlot> iterator = lane.pendingSlots.iterator();
+    while (batch.size() < maxBatchSize && iterator.hasNext()) {
+      final PendingSlot pendingSlot = iterator.next();
+      final GraphRequest graphRequest = pendingSlot.graphRequest;
+      if (graphRequest.getRequestType() == GraphRequestType.GRAPHVIZ
+              && graphRequest.getOutputFormat() == batch.get(0).getOutputFormat()
+              && !isInBatch(graphRequest.getFileName(), batch)) {
+        iterator.remove();
+        pendingSlotsByFileName.remove(graphRequest.getFileName(), pendingSlot);
+        runningThreads.put(graphRequest, Thread.currentThread());
+        lane.runningCount++;
+        batch.add(graphRequest);
+      }
+    }
+  }
+
+  /**
+   * Returns whether the given batch has a request for the given file name.
+   *
+   * @param fileName the given file name
+   * @param batch the given batch
+   * @return whether the given batch has a request for the given file name
+   */
+  private static boolean isInBatch(
+          final String fileName,
+          final List<GraphRequest> batch) {
+    for (final GraphRequest graphRequest : batch) {
+      if (graphRequest.getFileName().equals(fileName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Takes the pending requests one at a time, or a batch of GraphViz requests at a time, and makes their graphs, until
+   * this scheduler is shut down.
+   */
+  private void makeGraphs() {
+    while (true) {
+      final List<GraphRequest> batch = new ArrayList<>(1);
+      final Lane lane;
+      lock.lock();
+      try {
+        PendingSlot pendingSlot = null;
+        while (!isShutdown && (pendingSlot = pollNext()) == null) {
+          notEmpty.awaitUninterruptibly();
+        }
+        if (pendingSlot == null) {
+          return;
+        }
+        final GraphRequest graphRequest = pendingSlot.graphRequest;
+        lane = pendingSlot.lane;
+        pendingSlotsByFileName.remove(graphRequest.getFileName(), pendingSlot);
+        runningThreads.put(graphRequest, Thread.currentThread());
+        lane.runningCount++;
+        lane.busyThreadCount++;
+        busyThreadCount++;
+        batch.add(graphRequest);
+        if (graphRequest.getRequestType() == GraphRequestType.GRAPHVIZ && maxBatchSize > 1) {
+          fillBatch(lane, batch);
+          long nanos = batchWindowNanos;
+          try {
+            while (batch.size() < maxBatchSize && nanos > 0 && !isShutdown) {
+              nanos = batchable.awaitNanos(nanos);
+              fillBatch(lane, batch);
+            }
+          } catch (InterruptedException ex) {
+            // a request of the batch was cancelled, which the graph maker observes when it starts the renderer
+            Thread.currentThread().interrupt();
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+      final long startNanos = System.nanoTime();
+      List<GraphResult> graphResults = null;
+      try {
+        graphResults = graphMaker.apply(batch);
+      } catch (RuntimeException ex) {
+        LOGGER.error("cannot make the graphs for " + batch + ": " + ex.getMessage(), ex);
+      } finally {
+        final List<GraphRequest> expiredGraphRequests = new ArrayList<>();
+        lock.lock();
+        try {
+          final boolean isSaturated = busyThreadCount >= concurrencyLimit.getLimit()
+                  && !(interactiveLane.pendingSlots.isEmpty() && bulkLane.pendingSlots.isEmpty());
+          for (final GraphRequest graphRequest : batch) {
+            runningThreads.remove(graphRequest);
+          }
+          lane.runningCount -= batch.size();
+          lane.busyThreadCount--;
+          busyThreadCount--;
+          final long nowNanos = System.nanoTime();
+          // only a completed render is a latency sample, and not a cache hit, a failure or a cancelled render, and a
+          // batch is one sample of the mean latency of its requests
+          final GraphRequest graphRequest = batch.get(0);
+          final GraphResult graphResult = graphResults == null ? null : graphResults.get(0);
+          if (graphResult != null && graphResult.getStatus() == GraphResultStatus.OK
+                  && graphRequest.getCancelStatus() == null
+                  && concurrencyLimit.onSample(
+                          graphRequest.getRequestType(),
+                          (nowNanos - startNanos) / 1000 / batch.size(), // latencyMicros
+                          isSaturated,
+                          nowNanos)) {
+            if (LOGGER.isDebugEnabled()) {
+              LOGGER.debug("concurrency limit: " + concurrencyLimit);
+            }
+            // a raised limit lets the idle threads take pending requests
+            notEmpty.signalAll();
+          } else if (lane == bulkLane && !bulkLane.pendingSlots.isEmpty()) {
+            // a pending bulk request may now run on another thread
+            notEmpty.signal();
+          }
+          promoteWaiting(lane, expiredGraphRequests);
+          signalIfIdle();
+        } finally {
+          lock.unlock();
+        }
+        shedExpired(expiredGraphRequests);
+        // clear an interrupt that cancelled a request, which can no longer arrive once the requests are removed
+        Thread.interrupted();
+      }
+    }
+  }
+
+  /**
+   * Shuts down this scheduler. The running requests complete, and the graph-making threads then stop without taking
+   * the pending requests.
+   */
+  public void shutdown() {
+    lock.lock();
+    try {
+      isShutdown = true;
+      notEmpty.signalAll();
+      batchable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until no request is pending, waiting or running, or until the given deadline passes. The caller stops the
+   * admission of new requests first, otherwise this scheduler may never become idle.
+   *
+   * @param deadlineNanos the System.nanoTime() deadline
+   * @return whether this scheduler became idle before the deadline
+   * @throws InterruptedException when the waiting thread is interrupted
+   */
+  public boolean awaitIdle(final long deadlineNanos) throws InterruptedException {
+    lock.lock();
+    try {
+      long nanos = deadlineNanos - System.nanoTime();
+      while (!isIdle()) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = idle.awaitNanos(nanos);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Shuts down this scheduler, abandoning its pending and waiting requests, and interrupting its running requests,
+   * which kills their renderer processes. The abandoned requests are acknowledged as rejected, and the interrupted ones
+   * as cancelled.
+   *
+   * @return the number of abandoned requests
+   */
+  public int abandon() {
+    final List<GraphRequest> abandonedGraphRequests = new ArrayList<>();
+    int count;
+    lock.lock();
+    try {
+      isShutdown = true;
+      for (final Lane lane : new Lane[]{interactiveLane, bulkLane}) {
+        for (final PendingSlot pendingSlot : lane.pendingSlots) {
+          abandonedGraphRequests.add(pendingSlot.graphRequest);
+        }
+        for (final PendingSlot waitingSlot : lane.waitingSlots) {
+          abandonedGraphRequests.add(waitingSlot.graphRequest);
+        }
+        lane.pendingSlots.clear();
+        lane.waitingSlots.clear();
+      }
+      pendingSlotsByFileName.clear();
+      count = abandonedGraphRequests.size();
+      for (final Map.Entry<GraphRequest, Thread> entry : runningThreads.entrySet()) {
+        if (entry.getKey().getCancelStatus() == null) {
+          entry.getKey().setCancelStatus(GraphResultStatus.CANCELLED);
+          entry.getValue().interrupt();
+        }
+        count++;
+      }
+      notEmpty.signalAll();
+      batchable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    for (final GraphRequest abandonedGraphRequest : abandonedGraphRequests) {
+      discard(abandonedGraphRequest, GraphResultStatus.REJECTED, "abandoned by the server shutdown");
+    }
+    return count;
+  }
+
+  /**
+   * Waits for the graph-making threads to stop after this scheduler is shut down, or until the given deadline passes.
+   *
+   * @param deadlineNanos the System.nanoTime() deadline
+   * @return whether the graph-making threads stopped before the deadline
+   * @throws InterruptedException when the waiting thread is interrupted
+   */
+  public boolean awaitTermination(final long deadlineNanos) throws InterruptedException {
+    for (final Thread graphMakingThread : graphMakingThreads) {
+      final long millis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+      if (millis <= 0) {
+        break;
+      }
+      graphMakingThread.join(millis);
+    }
+    for (final Thread graphMakingThread : graphMakingThreads) {
+      if (graphMakingThread.isAlive()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the number of pending, waiting and running requests.
+   *
+   * @return the number of pending, waiting and running requests
+   */
+  public int getInFlightCount() {
+    lock.lock();
+    try {
+      return interactiveLane.getInFlightCount() + interactiveLane.waitingSlots.size()
+              + bulkLane.getInFlightCount() + bulkLane.waitingSlots.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns whether no request is pending, waiting or running. The lock must be held.
+   *
+   * @return whether no request is pending, waiting or running
+   */
+  private boolean isIdle() {
+    return pendingSlotsByFileName.isEmpty() && runningThreads.isEmpty()
+            && interactiveLane.pendingSlots.isEmpty() && bulkLane.pendingSlots.isEmpty();
+  }
+
+  /**
+   * Wakes the threads that wait for this scheduler to become idle, when it is. The lock must be held.
+   */
+  private void signalIfIdle() {
+    if (isIdle()) {
+      idle.signalAll();
+    }
+  }
+
+  /**
+   * Gets the number of pending requests in both lanes.
+   *
+   * @return the number of pending requests
+   */
+  public int getPendingCount() {
+    lock.lock();
+    try {
+      return interactiveLane.pendingSlots.size() + bulkLane.pendingSlots.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of requests in both lanes that wait for room under the BLOCK admission policy.
+   *
+   * @return the number of waiting requests
+   */
+  public int getWaitingCount() {
+    lock.lock();
+    try {
+      return interactiveLane.waitingSlots.size() + bulkLane.waitingSlots.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of running requests.
+   *
+   * @return the number of running requests
+   */
+  public int getRunningCount() {
+    lock.lock();
+    try {
+      return runningThreads.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of running bulk requests, where each request of a batch counts.
+   *
+   * @return the number of running bulk requests
+   */
+  public int getBulkRunningCount() {
+    lock.lock();
+    try {
+      return bulkLane.runningCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the maximum number of pending and running requests in each priority lane.
+   *
+   * @return the maximum number of pending and running requests in each priority lane
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * Gets the maximum number of running bulk requests, which is the bulk share of the current concurrency limit.
+   *
+   * @return the maximum number of running bulk requests
+   */
+  public int getMaxBulkRunning() {
+    lock.lock();
+    try {
+      return computeMaxBulkRunning();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Computes the maximum number of running bulk requests. The lock must be held.
+   *
+   * @return the maximum number of running bulk requests
+   */
+  private int computeMaxBulkRunning() {
+    return Math.max(1, (int) (concurrencyLimit.getLimit() * bulkShare));
+  }
+
+  /**
+   * Gets the current limit of concurrent renders.
+   *
+   * @return the current limit of concurrent renders
+   */
+  public int getConcurrencyLimit() {
+    lock.lock();
+    try {
+      return concurrencyLimit.getLimit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of shed requests of the given type.
+   *
+   * @param requestType the given request type
+   * @return the number of shed requests of the given type
+   */
+  public long getShedCount(final GraphRequestType requestType) {
+    //Preconditions
+    assert requestType != null : "requestType must not be null";
+
+    return shedCounts.get(requestType).get();
+  }
+
+  /**
+   * Gets the total number of shed requests.
+   *
+   * @return the total number of shed requests
+   */
+  public long getShedCount() {
+    long shedCount = 0;
+    for (final AtomicLong count : shedCounts.values()) {
+      shedCount += count.get();
+    }
+    return shedCount;
+  }
+
+  /**
+   * Gets the number of requests superseded by a newer request for the same file.
+   *
+   * @return the number of superseded requests
+   */
+  public long getSupersededCount() {
+    return supersededCount.get();
+  }
+
+  /**
+   * Gets the number of cancelled requests.
+   *
+   * @return the number of cancelled requests
+   */
+  public long getCancelledCount() {
+    return cancelledCount.get();
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    final StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append("[RenderScheduler ")
+            .append(name)
+            .append(", ")
+            .append(threadCount)
+            .append(" threads, max in flight: ")
+            .append(maxInFlight)
+            .append(", bulk share: ")
+            .append(bulkShare)
+            .append(", ")
+            .append(getConcurrencyLimitString())
+            .append(", shed: ")
+            .append(getShedCount());
+    for (final Map.Entry<GraphRequestType, AtomicLong> entry : shedCounts.entrySet()) {
+      if (entry.getValue().get() > 0) {
+        stringBuilder.append(", ")
+                .append(entry.getKey())
+                .append(": ")
+                .append(entry.getValue().get());
+      }
+    }
+    stringBuilder.append(", superseded: ")
+            .append(supersededCount.get())
+            .append(", cancelled: ")
+            .append(cancelledCount.get())
+            .append(']');
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Gets the string representation of the concurrency limit.
+   *
+   * @return the string representation of the concurrency limit
+   */
+  private String getConcurrencyLimitString() {
+    lock.lock();
+    try {
+      return concurrencyLimit.toString();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Provides a priority lane, which has its own pending requests, waiting requests and bound of work in flight.
+   */
+  private static final class Lane {
+
+    // the lane name
+    private final String name;
+
+    // the slots of the pending requests, oldest first
+    private final Deque<PendingSlot> pendingSlots = new ArrayDeque<>();
+
+    // the slots of the requests that wait for room under the BLOCK admission policy, oldest first
+    private final Deque<PendingSlot> waitingSlots = new ArrayDeque<>();
+
+    // the number of running requests, where each request of a batch counts
+    private int runningCount = 0;
+
+    // the number of threads that are making graphs of this lane
+    private int busyThreadCount = 0;
+
+    /**
+     * Constructs a new Lane instance.
+     *
+     * @param name the lane name
+     */
+    Lane(final String name) {
+      this.name = name;
+    }
+
+    /**
+     * Gets the number of pending and running requests.
+     *
+     * @return the number of pending and running requests
+     */
+    int getInFlightCount() {
+      return pendingSlots.size() + runningCount;
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return a string representation of this object
+     */
+    @Override
+    public String toString() {
+      return "[Lane " + name + ", pending: " + pendingSlots.size() + ", waiting: " + waitingSlots.size()
+              + ", running: " + runningCount + ']';
+    }
+  }
+
+  /**
+   * Provides a queue position that holds the newest pending request for its file.
+   */
+  private static final class PendingSlot {
+
+    // the pending request
+    private GraphRequest graphRequest;
+
+    // the lane of the pending request
+    private final Lane lane;
+
+    // the System.nanoTime() after which a waiting request is rejected, or zero once the request is pending
+    private long admissionDeadlineNanos = 0;
+
+    /**
+     * Constructs a new PendingSlot instance.
+     *
+     * @param graphRequest the pending request
+     * @param lane the lane of the pending request
+     */
+    PendingSlot(
+            final GraphRequest graphRequest,
+            final Lane lane) {
+      this.graphRequest = graphRequest;
+      this.lane = lane;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Renderer.java
+ *
+ * Created on Oct 18, 2026, 11:58:12 PM
+ *
+ * Description: Defines a graph renderer, which is discovered through the ServiceLoader and runs in its own bulkhead of
+ * graph-making threads.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Defines a graph renderer. The renderers are discovered with {@link java.util.ServiceLoader} from the
+ * META-INF/services/org.texai.graphwriter.Renderer files on the class path, and each request type is rendered by the
+ * renderer named by the system property org.texai.graphwriter.renderer.&lt;REQUEST_TYPE&gt;, e.g.
+ * -Dorg.texai.graphwriter.renderer.SYNTAX_TREE=syntax-tree-php.
+ *
+ * Each selected renderer runs in its own bulkhead, i.e. its own {@link RenderScheduler} with its own graph-making
+ * threads, adaptive concurrency limit and bounded queue, so that a flood of slow GraphViz layouts cannot starve the
+ * fast syntax tree renders. The bulkhead of a renderer named e.g. "graphviz" is sized by the system properties
+ * org.texai.graphwriter.graphviz.maxConcurrentRenders and org.texai.graphwriter.graphviz.maxInFlight, which default to
+ * the server-wide settings.
+ *
+ * A renderer must have a public no-argument constructor, and is called concurrently from the graph-making threads of
+ * its bulkhead.
+ *
+ * @author reed
+ */
+public interface Renderer {
+
+  /**
+   * Gets the renderer name, by which it is selected and its requests are counted, e.g. "graphviz".
+   *
+   * @return the renderer name
+   */
+  String getName();
+
+  /**
+   * Gets the request types that this renderer can render.
+   *
+   * @return the request types
+   */
+  Set<GraphRequestType> getRequestTypes();
+
+  /**
+   * Gets the maximum number of GraphViz requests that this renderer lays out together, which is one unless it renders
+   * batches.
+   *
+   * @return the maximum batch size
+   */
+  default int getMaxBatchSize() {
+    return 1;
+  }
+
+  /**
+   * Initializes this renderer once the graph writer is initialized, and before the first request arrives.
+   *
+   * @param graphWriter the graph writer, whose caches and process launcher the built-in renderers share
+   */
+  void initialize(GraphWriter graphWriter);
+
+  /**
+   * Renders the given requests, which are a single request, or a batch of GraphViz requests having the same output
+   * format when the maximum batch size is more than one. Each request succeeds or fails on its own.
+   *
+   * @param graphRequests the given requests
+   * @return the graph results, in the order of the requests
+   */
+  List<GraphResult> render(List<GraphRequest> graphRequests);
+
+  /**
+   * Releases the resources of this renderer, when the graph writer is finalized.
+   */
+  default void shutdown() {
+  }
+}
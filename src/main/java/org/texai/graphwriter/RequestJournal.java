@@ -0,0 +1,517 @@
+/*
+ * RequestJournal.java
+ *
+ * Created on Oct 19, 2026, 1:07:44 AM
+ *
+ * Description: Provides a memory-mapped write-ahead journal of the accepted graph requests, with group commit, so that
+ * the unfinished requests are replayed when the server restarts.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import org.apache.log4j.Logger;
+
+/**
+ * Provides a write-ahead journal of the accepted graph requests, which is appended through a {@link MappedByteBuffer}
+ * so that an append is a memory copy rather than a system call. The journal file has a fixed size, and begins with a
+ * magic number, followed by records of this form, where the integers are big-endian.
+ *
+ * <pre>
+ * bodyLength    int     the number of bytes in the body, where zero marks the end of the records
+ * checksum      int     the CRC-32 checksum of the body
+ * kind          byte    1 for an accepted request, 2 for a finished request
+ * sequence      long    the journal sequence number of the request
+ * frame                 the request encoded by {@link GraphRequestCodec}, only for an accepted request
+ * </pre>
+ *
+ * Appended records are made durable by group commit, i.e. a single journal thread forces the dirty pages of the
+ * mapping to disk when the event handler reaches the end of a ring buffer batch, and at least once per commit
+ * interval, so that a burst of requests costs one flush rather than one per request. Because requests are only
+ * acknowledged when their render completes, no caller waits for the flush.
+ *
+ * Only a request whose graph is written to the file that its client polls for is journaled. A request answered to a
+ * result consumer, such as an inline request, is not, because the consumer does not survive a restart, and a replayed
+ * render would write files that nobody receives.
+ *
+ * A request is finished when its render completes, or when it is shed, superseded or cancelled. On startup the records
+ * are read up to the first torn or corrupt record, and the accepted requests that were not finished are copied with
+ * their sequence numbers to a fresh journal file, which atomically replaces the old one, before they are replayed. The
+ * same compaction takes place whenever the journal file fills up. A finished record that was lost in a crash only
+ * causes the graph to be rendered once more.
+ *
+ * @author reed
+ */
+public class RequestJournal {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RequestJournal.class);
+
+  // the journal file magic number
+  private static final int MAGIC = 0x47574A31;
+
+  // the accepted request record kind
+  private static final byte ACCEPTED = 1;
+
+  // the finished request record kind
+  private static final byte FINISHED = 2;
+
+  // the number of bytes in a record header, i.e. the body length and the checksum
+  private static final int RECORD_HEADER_LENGTH = 8;
+
+  // the number of bytes in a finished record body, i.e. the kind and the sequence
+  private static final int FINISHED_BODY_LENGTH = 9;
+
+  // the journal file path
+  private final Path journalPath;
+
+  // the size of the journal file in bytes
+  private long journalBytes;
+
+  // the number of milliseconds between forced flushes when no commit is requested
+  private final long commitIntervalMillis;
+
+  // the lock that guards the mapping, the append position and the unfinished records
+  private final ReentrantLock lock = new ReentrantLock();
+
+  // the condition signalled when a commit is requested
+  private final Condition commitRequested = lock.newCondition();
+
+  // the mapping of the journal file
+  private MappedByteBuffer mappedByteBuffer;
+
+  // the position at which the next record is appended
+  private int appendPosition;
+
+  // the position up to which the mapping has been forced to disk
+  private int forcedPosition;
+
+  // the indicator that a commit is requested
+  private boolean isCommitRequested = false;
+
+  // the indicator that this journal is closed
+  private boolean isClosed = false;
+
+  // the positions of the accepted records that are not finished, in acceptance order, sequence --> position
+  private final Map<Long, Integer> unfinishedPositions = new LinkedHashMap<>();
+
+  // the last assigned sequence number
+  private long sequence = 0;
+
+  // the journal thread, which forces the appended records to disk
+  private Thread journalThread;
+
+  // the number of forced flushes
+  private final AtomicLong commitCount = new AtomicLong(0);
+
+  // the number of accepted records
+  private final AtomicLong acceptedCount = new AtomicLong(0);
+
+  // the number of compactions
+  private final AtomicLong compactionCount = new AtomicLong(0);
+
+  /**
+   * Constructs a new RequestJournal instance.
+   *
+   * @param journalPath the journal file path
+   * @param journalBytes the size of the journal file in bytes
+   * @param commitIntervalMillis the number of milliseconds between forced flushes when no commit is requested
+   */
+  public RequestJournal(
+          final Path journalPath,
+          final long journalBytes,
+          final long commitIntervalMillis) {
+    //Preconditions
+    assert journalPath != null : "journalPath must not be null";
+    assert journalBytes > 4 && journalBytes <= Integer.MAX_VALUE : "journalBytes must be in (4, Integer.MAX_VALUE]";
+    assert commitIntervalMillis > 0 : "commitIntervalMillis must be positive";
+
+    this.journalPath = journalPath;
+    this.journalBytes = journalBytes;
+    this.commitIntervalMillis = commitIntervalMillis;
+  }
+
+  /**
+   * Opens the journal, reads the unfinished requests of the previous run, compacts them into a fresh journal file and
+   * starts the journal thread.
+   *
+   * @return the unfinished requests of the previous run in acceptance order, each of which has its journal sequence
+   * number
+   * @throws IOException when the journal file cannot be read or written
+   */
+  public List<GraphRequest> open() throws IOException {
+    final List<GraphRequest> unfinishedGraphRequests = new ArrayList<>();
+    lock.lock();
+    try {
+      Files.createDirectories(journalPath.toAbsolutePath().getParent());
+      final Map<Long, byte[]> unfinishedFrames = new LinkedHashMap<>();
+      if (Files.exists(journalPath)) {
+        readUnfinishedFrames(unfinishedFrames);
+      }
+      compact(unfinishedFrames);
+      final List<Long> skippedSequences = new ArrayList<>();
+      for (final Map.Entry<Long, Integer> entry : unfinishedPositions.entrySet()) {
+        final GraphRequest graphRequest;
+        try {
+          graphRequest = GraphRequestCodec.decode(ByteBuffer.wrap(readFrame(entry.getValue())));
+        } catch (ProtocolException ex) {
+          // the checksum matched, so the request was written by an incompatible version
+          LOGGER.warn("skipping an undecodable journaled request: " + ex.getMessage());
+          skippedSequences.add(entry.getKey());
+          continue;
+        }
+        if (graphRequest.isInline()) {
+          // journaled by an earlier version, and its images would have nobody to receive them
+          LOGGER.warn("skipping a journaled inline request: " + graphRequest);
+          skippedSequences.add(entry.getKey());
+          continue;
+        }
+        graphRequest.setJournalSequence(entry.getKey());
+        unfinishedGraphRequests.add(graphRequest);
+      }
+      for (final long skippedSequence : skippedSequences) {
+        unfinishedPositions.remove(skippedSequence);
+        appendRecord(FINISHED, skippedSequence, null);
+      }
+    } finally {
+      lock.unlock();
+    }
+    journalThread = new Thread(this::commitLoop, "journal");
+    journalThread.setDaemon(true);
+    journalThread.start();
+    LOGGER.info("journal " + journalPath + " opened with " + unfinishedGraphRequests.size() + " unfinished requests");
+    return unfinishedGraphRequests;
+  }
+
+  /**
+   * Reads the frames of the accepted and unfinished requests from the existing journal file, up to the first torn or
+   * corrupt record.
+   *
+   * @param unfinishedFrames the unfinished frames in acceptance order, sequence --> frame
+   * @throws IOException when the journal file cannot be read
+   */
+  private void readUnfinishedFrames(final Map<Long, byte[]> unfinishedFrames) throws IOException {
+    final ByteBuffer byteBuffer = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+    if (byteBuffer.remaining() < 4 || byteBuffer.getInt() != MAGIC) {
+      LOGGER.warn("ignoring the journal " + journalPath + ", which has no magic number");
+      return;
+    }
+    final CRC32 crc32 = new CRC32();
+    while (byteBuffer.remaining() >= RECORD_HEADER_LENGTH) {
+      final int bodyLength = byteBuffer.getInt();
+      final int checksum = byteBuffer.getInt();
+      if (bodyLength < FINISHED_BODY_LENGTH || bodyLength > byteBuffer.remaining()) {
+        break;
+      }
+      crc32.reset();
+      crc32.update(byteBuffer.array(), byteBuffer.position(), bodyLength);
+      if ((int) crc32.getValue() != checksum) {
+        LOGGER.warn("the journal " + journalPath + " ends with a torn record at " + (byteBuffer.position() - RECORD_HEADER_LENGTH));
+        break;
+      }
+      final byte kind = byteBuffer.get();
+      final long recordSequence = byteBuffer.getLong();
+      final byte[] frame = new byte[bodyLength - FINISHED_BODY_LENGTH];
+      byteBuffer.get(frame);
+      sequence = Math.max(sequence, recordSequence);
+      if (kind == ACCEPTED) {
+        unfinishedFrames.put(recordSequence, frame);
+      } else {
+        unfinishedFrames.remove(recordSequence);
+      }
+    }
+  }
+
+  /**
+   * Appends an accepted record for the given request, and assigns its journal sequence number, unless the request is
+   * answered to a result consumer. The record is made durable by the next commit.
+   *
+   * @param graphRequest the given request
+   */
+  public void append(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+    assert graphRequest.getJournalSequence() == 0 : "graphRequest must not be journaled already";
+
+    if (graphRequest.getResultConsumer() != null) {
+      return;
+    }
+    final byte[] frame = GraphRequestCodec.encode(graphRequest);
+    lock.lock();
+    try {
+      if (isClosed) {
+        return;
+      }
+      final long recordSequence = ++sequence;
+      unfinishedPositions.put(recordSequence, appendRecord(ACCEPTED, recordSequence, frame));
+      graphRequest.setJournalSequence(recordSequence);
+    } catch (IOException ex) {
+      LOGGER.error("cannot journal " + graphRequest + ": " + ex.getMessage());
+    } finally {
+      lock.unlock();
+    }
+    acceptedCount.incrementAndGet();
+  }
+
+  /**
+   * Appends a finished record for the given request, when it was journaled.
+   *
+   * @param graphRequest the given request
+   */
+  public void finish(final GraphRequest graphRequest) {
+    //Preconditions
+    assert graphRequest != null : "graphRequest must not be null";
+
+    final long recordSequence = graphRequest.getJournalSequence();
+    if (recordSequence == 0) {
+      return;
+    }
+    lock.lock();
+    try {
+      if (!isClosed && unfinishedPositions.remove(recordSequence) != null) {
+        appendRecord(FINISHED, recordSequence, null);
+      }
+    } catch (IOException ex) {
+      LOGGER.error("cannot journal the finish of " + graphRequest + ": " + ex.getMessage());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Requests a group commit of the appended records, without waiting for it.
+   */
+  public void commit() {
+    lock.lock();
+    try {
+      if (appendPosition > forcedPosition) {
+        isCommitRequested = true;
+        commitRequested.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Appends a record at the append position, compacting the journal first when it is full. The lock must be held.
+   *
+   * @param kind the record kind
+   * @param recordSequence the journal sequence number of the request
+   * @param frame the encoded request of an accepted record, or null for a finished record
+   * @return the position of the record
+   * @throws IOException when a compacted journal file cannot be written
+   */
+  private int appendRecord(
+          final byte kind,
+          final long recordSequence,
+          final byte[] frame) throws IOException {
+    final int bodyLength = FINISHED_BODY_LENGTH + (frame == null ? 0 : frame.length);
+    if ((long) appendPosition + RECORD_HEADER_LENGTH + bodyLength + RECORD_HEADER_LENGTH > journalBytes) {
+      final Map<Long, byte[]> unfinishedFrames = new LinkedHashMap<>();
+      for (final Map.Entry<Long, Integer> entry : unfinishedPositions.entrySet()) {
+        unfinishedFrames.put(entry.getKey(), readFrame(entry.getValue()));
+      }
+      // leave at least half of the compacted journal free, so that compactions stay rare
+      while (liveBytes(unfinishedFrames) + RECORD_HEADER_LENGTH + bodyLength + RECORD_HEADER_LENGTH > journalBytes / 2
+              && journalBytes < Integer.MAX_VALUE) {
+        journalBytes = Math.min(2 * journalBytes, Integer.MAX_VALUE);
+        LOGGER.info("the journal grows to " + journalBytes + " bytes");
+      }
+      compact(unfinishedFrames);
+    }
+    final int position = appendPosition;
+    final ByteBuffer body = ByteBuffer.allocate(bodyLength);
+    body.put(kind);
+    body.putLong(recordSequence);
+    if (frame != null) {
+      body.put(frame);
+    }
+    final CRC32 crc32 = new CRC32();
+    crc32.update(body.array());
+    mappedByteBuffer.position(position + RECORD_HEADER_LENGTH);
+    mappedByteBuffer.put(body.array());
+    mappedByteBuffer.putInt(position + 4, (int) crc32.getValue());
+    // the body length is written last, so that a torn record is never taken for a complete one
+    mappedByteBuffer.putInt(position, bodyLength);
+    appendPosition = position + RECORD_HEADER_LENGTH + bodyLength;
+    return position;
+  }
+
+  /**
+   * Returns the number of bytes that the given unfinished frames occupy as accepted records.
+   *
+   * @param unfinishedFrames the given unfinished frames
+   * @return the number of bytes
+   */
+  private static long liveBytes(final Map<Long, byte[]> unfinishedFrames) {
+    long liveBytes = 4;
+    for (final byte[] frame : unfinishedFrames.values()) {
+      liveBytes += RECORD_HEADER_LENGTH + FINISHED_BODY_LENGTH + frame.length;
+    }
+    return liveBytes;
+  }
+
+  /**
+   * Writes the given unfinished frames as accepted records, keeping their sequence numbers, into a fresh journal file,
+   * which atomically replaces the current one, and maps it for appending. The lock must be held.
+   *
+   * @param unfinishedFrames the given unfinished frames in acceptance order, sequence --> frame
+   * @throws IOException when the fresh journal file cannot be written
+   */
+  private void compact(final Map<Long, byte[]> unfinishedFrames) throws IOException {
+    while (liveBytes(unfinishedFrames) + RECORD_HEADER_LENGTH > journalBytes) {
+      journalBytes = Math.min(2 * journalBytes, Integer.MAX_VALUE);
+    }
+    final Path compactedPath = journalPath.resolveSibling(journalPath.getFileName() + ".compacted");
+    try (FileChannel fileChannel = FileChannel.open(
+            compactedPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, journalBytes);
+    }
+    mappedByteBuffer.putInt(0, MAGIC);
+    appendPosition = 4;
+    unfinishedPositions.clear();
+    for (final Map.Entry<Long, byte[]> entry : unfinishedFrames.entrySet()) {
+      unfinishedPositions.put(entry.getKey(), appendRecord(ACCEPTED, entry.getKey(), entry.getValue()));
+    }
+    mappedByteBuffer.force();
+    Files.move(compactedPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    forcedPosition = appendPosition;
+    compactionCount.incrementAndGet();
+  }
+
+  /**
+   * Reads the request frame of the accepted record at the given position of the mapping. The lock must be held.
+   *
+   * @param position the given position
+   * @return the request frame
+   */
+  private byte[] readFrame(final int position) {
+    final int bodyLength = mappedByteBuffer.getInt(position);
+    final byte[] frame = new byte[bodyLength - FINISHED_BODY_LENGTH];
+    mappedByteBuffer.get(position + RECORD_HEADER_LENGTH + FINISHED_BODY_LENGTH, frame);
+    return frame;
+  }
+
+  /**
+   * Forces the appended records to disk whenever a commit is requested, or once per commit interval.
+   */
+  private void commitLoop() {
+    while (true) {
+      final MappedByteBuffer forcedByteBuffer;
+      final int fromPosition;
+      final int toPosition;
+      lock.lock();
+      try {
+        while (!isClosed && !isCommitRequested) {
+          if (!commitRequested.await(commitIntervalMillis, TimeUnit.MILLISECONDS)) {
+            break;
+          }
+        }
+        if (isClosed) {
+          return;
+        }
+        isCommitRequested = false;
+        if (appendPosition <= forcedPosition) {
+          continue;
+        }
+        forcedByteBuffer = mappedByteBuffer;
+        fromPosition = forcedPosition;
+        toPosition = appendPosition;
+      } catch (InterruptedException ex) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+      // flush without the lock, so that appends continue meanwhile
+      forcedByteBuffer.force(fromPosition, toPosition - fromPosition);
+      commitCount.incrementAndGet();
+      lock.lock();
+      try {
+        if (forcedByteBuffer == mappedByteBuffer && toPosition > forcedPosition) {
+          forcedPosition = toPosition;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Forces the appended records to disk and closes this journal, leaving the unfinished requests to be replayed by the
+   * next run.
+   */
+  public void close() {
+    lock.lock();
+    try {
+      if (isClosed) {
+        return;
+      }
+      isClosed = true;
+      commitRequested.signal();
+      mappedByteBuffer.force();
+      forcedPosition = appendPosition;
+    } finally {
+      lock.unlock();
+    }
+    LOGGER.info(toString());
+  }
+
+  /**
+   * Gets the number of accepted requests that are not finished.
+   *
+   * @return the number of unfinished requests
+   */
+  public int getUnfinishedCount() {
+    lock.lock();
+    try {
+      return unfinishedPositions.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of forced flushes by the journal thread.
+   *
+   * @return the number of group commits
+   */
+  public long getCommitCount() {
+    return commitCount.get();
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[RequestJournal " + journalPath + ", accepted: " + acceptedCount.get() + ", unfinished: "
+            + getUnfinishedCount() + ", group commits: " + commitCount.get() + ", compactions: "
+            + compactionCount.get() + ']';
+  }
+}
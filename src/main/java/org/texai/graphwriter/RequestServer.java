@@ -0,0 +1,682 @@
+/*
+ * RequestServer.java
+ *
+ * Created on Oct 18, 2026, 12:58:37 PM
+ *
+ * Description: Provides a selector-based request server that accepts graph requests on the loopback TCP port and on a
+ * Unix domain socket, queues them, and writes their completion acknowledgements.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * Provides a request server whose single thread runs a selector event loop. The loop accepts connections on the
+ * loopback TCP port and, when configured, on a Unix domain socket, decodes the requests incrementally from a direct
+ * byte buffer as their bytes arrive, and publishes each decoded request straight into the ring buffer.
+ *
+ * When a request carries a request id, the graph-making thread that completes it queues a completion acknowledgement
+ * on its connection and wakes the selector, and the loop writes the queued acknowledgements as the connection becomes
+ * writable. A client may shut down its output once it has sent its requests, and the connection then stays open until
+ * the acknowledgements of its requests have been written. The inline images of an acknowledgement follow its encoded
+ * fields, and an image that a renderer could only write to a file is sent with {@link FileChannel#transferTo}, from
+ * a file that was deleted once opened, so that neither the image is copied into the heap nor the file persists.
+ *
+ * The acknowledgements pending on a connection, i.e. those of its requests still in flight and those queued but not
+ * yet written, are bounded. A connection stops being read once it reaches the maximum number of pending
+ * acknowledgements, e.g. when its client sends faster than it reads, and is read again once the acknowledgements
+ * written fall to half the maximum. Because a read decodes every request in the bytes it read, a connection has at
+ * most the maximum plus one read buffer of requests pending.
+ *
+ * @author reed
+ */
+public class RequestServer implements Runnable {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RequestServer.class);
+
+  // the read buffer size
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  // the publisher of the decoded graph requests
+  private final Consumer<GraphRequest> publisher;
+
+  // the TCP port, or zero for an ephemeral port
+  private final int port;
+
+  // the maximum number of pending completion acknowledgements of a connection, at which it stops being read
+  private final int maxPendingAcknowledgements;
+
+  // the number of times that a connection stopped being read because of its pending completion acknowledgements
+  private final AtomicLong readPauseCount = new AtomicLong(0);
+
+  // the Unix domain socket path, or null if not listening on a Unix domain socket
+  private final Path unixSocketPath;
+
+  // the selector
+  private Selector selector;
+
+  // the TCP server channel
+  private ServerSocketChannel tcpServerChannel;
+
+  // the Unix domain server channel, or null if not listening on a Unix domain socket
+  private ServerSocketChannel unixServerChannel;
+
+  // the read buffer shared by all connections
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+  // the indicator that this server is closed
+  private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+  // the indicator that the server channels are to be closed, so that no more connections are accepted
+  private volatile boolean isAcceptingStopped = false;
+
+  // the indicator that this server closes once the queued completion acknowledgements are written
+  private volatile boolean isLingering = false;
+
+  // the System.nanoTime() after which a lingering server closes with acknowledgements still unwritten
+  private volatile long lingerDeadlineNanos;
+
+  // the number of milliseconds between the checks of a lingering server for unwritten acknowledgements
+  private static final long LINGER_POLL_MILLIS = 10;
+
+  /**
+   * Constructs a new RequestServer instance.
+   *
+   * @param publisher the publisher of the decoded graph requests, which must not block
+   * @param port the TCP port, or zero for an ephemeral port
+   * @param unixSocketPath the Unix domain socket path, or null if not listening on a Unix domain socket
+   * @param maxPendingAcknowledgements the maximum number of pending completion acknowledgements of a connection, at
+   * which it stops being read
+   */
+  public RequestServer(
+          final Consumer<GraphRequest> publisher,
+          final int port,
+          final Path unixSocketPath,
+          final int maxPendingAcknowledgements) {
+    //Preconditions
+    assert publisher != null : "publisher must not be null";
+    assert port >= 0 : "port must not be negative";
+    assert maxPendingAcknowledgements > 1 : "maxPendingAcknowledgements must be greater than one";
+
+    this.publisher = publisher;
+    this.port = port;
+    this.unixSocketPath = unixSocketPath;
+    this.maxPendingAcknowledgements = maxPendingAcknowledgements;
+  }
+
+  /**
+   * Opens the selector and binds the server channels.
+   *
+   * @throws IOException when a server channel cannot be bound
+   */
+  public void bind() throws IOException {
+    selector = Selector.open();
+    tcpServerChannel = ServerSocketChannel.open();
+    tcpServerChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    tcpServerChannel.configureBlocking(false);
+    tcpServerChannel.register(selector, SelectionKey.OP_ACCEPT);
+    LOGGER.info("  listening for connections on " + getPort() + "...");
+
+    if (unixSocketPath != null) {
+      // remove the socket file left behind by a server that was killed
+      Files.deleteIfExists(unixSocketPath);
+      unixServerChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+      unixServerChannel.bind(UnixDomainSocketAddress.of(unixSocketPath));
+      unixServerChannel.configureBlocking(false);
+      unixServerChannel.register(selector, SelectionKey.OP_ACCEPT);
+      LOGGER.info("  listening for connections on " + unixSocketPath + "...");
+    }
+  }
+
+  /**
+   * Executes this request server.
+   */
+  @Override
+  public void run() {
+    //Preconditions
+    assert selector != null : "bind must be called first";
+
+    try {
+      while (!isClosed.get()) {
+        selector.select(isLingering ? LINGER_POLL_MILLIS : 0);
+        if (isAcceptingStopped && tcpServerChannel.isOpen()) {
+          closeServerChannels();
+        }
+        final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+        while (selectedKeys.hasNext()) {
+          final SelectionKey selectionKey = selectedKeys.next();
+          selectedKeys.remove();
+          if (!selectionKey.isValid()) {
+            continue;
+          }
+          if (selectionKey.isAcceptable()) {
+            accept((ServerSocketChannel) selectionKey.channel());
+            continue;
+          }
+          if (selectionKey.isReadable()) {
+            read(selectionKey);
+          }
+          if (selectionKey.isValid() && selectionKey.isWritable()) {
+            write(selectionKey);
+          }
+        }
+        if (isLingering && (!hasOutboundFrames() || System.nanoTime() - lingerDeadlineNanos > 0)) {
+          isClosed.set(true);
+        }
+      }
+    } catch (ClosedSelectorException ex) {
+      // closed while quitting
+    } catch (IOException ex) {
+      if (!isClosed.get()) {
+        throw new RuntimeException(ex);
+      }
+    } finally {
+      closeChannels();
+    }
+  }
+
+  /**
+   * Accepts a pending connection on the given server channel.
+   *
+   * @param serverChannel the given server channel
+   * @throws IOException when the connection cannot be registered
+   */
+  private void accept(final ServerSocketChannel serverChannel) throws IOException {
+    final SocketChannel socketChannel = serverChannel.accept();
+    if (socketChannel == null) {
+      return;
+    }
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("  accepted connection...");
+    }
+    socketChannel.configureBlocking(false);
+    final SelectionKey selectionKey = socketChannel.register(selector, SelectionKey.OP_READ);
+    selectionKey.attach(new Connection(selectionKey));
+  }
+
+  /**
+   * Reads the available bytes on the connection having the given selection key, and queues the decoded graph
+   * requests.
+   *
+   * @param selectionKey the given selection key
+   */
+  private void read(final SelectionKey selectionKey) {
+    final SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
+    final Connection connection = (Connection) selectionKey.attachment();
+    final GraphRequestDecoder graphRequestDecoder = connection.graphRequestDecoder;
+    try {
+      while (true) {
+        readBuffer.clear();
+        final int nbrBytesRead = socketChannel.read(readBuffer);
+        if (nbrBytesRead < 0) {
+          if (graphRequestDecoder.isPartial()) {
+            LOGGER.warn(graphRequestDecoder.describePartial());
+          }
+          connection.shutdownInput();
+          return;
+        } else if (nbrBytesRead == 0) {
+          return;
+        }
+        readBuffer.flip();
+        graphRequestDecoder.decode(readBuffer, connection::queue);
+        if (connection.getPendingCount() >= maxPendingAcknowledgements) {
+          // leave the rest of the requests in the socket until the client reads its acknowledgements
+          connection.pauseReading();
+          return;
+        }
+      }
+    } catch (ProtocolException ex) {
+      LOGGER.warn("closing the connection: " + ex.getMessage());
+      close(selectionKey);
+    } catch (IOException ex) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("connection closed: " + ex.getMessage());
+      }
+      close(selectionKey);
+    }
+  }
+
+  /**
+   * Writes the queued completion acknowledgements on the connection having the given selection key.
+   *
+   * @param selectionKey the given selection key
+   */
+  private void write(final SelectionKey selectionKey) {
+    final SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
+    final Connection connection = (Connection) selectionKey.attachment();
+    try {
+      OutboundFrame outboundFrame;
+      while ((outboundFrame = connection.outboundFrames.peek()) != null) {
+        if (!outboundFrame.writeTo(socketChannel)) {
+          // the socket send buffer is full
+          return;
+        }
+        connection.outboundFrames.poll();
+        connection.outboundFrameCount.decrementAndGet();
+        connection.resumeReading();
+      }
+      selectionKey.interestOpsAnd(~SelectionKey.OP_WRITE);
+      if (!connection.outboundFrames.isEmpty()) {
+        // an acknowledgement was queued after the queue was found empty
+        selectionKey.interestOpsOr(SelectionKey.OP_WRITE);
+      } else if (connection.isInputShutdown && connection.inFlightCount.get() == 0) {
+        close(selectionKey);
+      }
+    } catch (IOException ex) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("connection closed: " + ex.getMessage());
+      }
+      close(selectionKey);
+    }
+  }
+
+  /**
+   * Closes the connection having the given selection key, discarding its unwritten completion acknowledgements.
+   *
+   * @param selectionKey the given selection key
+   */
+  private static void close(final SelectionKey selectionKey) {
+    selectionKey.cancel();
+    try {
+      selectionKey.channel().close();
+    } catch (IOException ex) {
+      // ignore
+    }
+    if (selectionKey.attachment() != null) {
+      ((Connection) selectionKey.attachment()).discardOutboundFrames();
+    }
+  }
+
+  /**
+   * Closes this request server, which stops accepting connections and stops reading requests.
+   */
+  public void close() {
+    if (isClosed.compareAndSet(false, true) && selector != null) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Stops accepting connections, while the open connections are still read and their completion acknowledgements
+   * are still written.
+   */
+  public void stopAccepting() {
+    isAcceptingStopped = true;
+    if (selector != null) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Closes this request server once the queued completion acknowledgements are written, or once the given linger
+   * time has passed, whichever comes first.
+   *
+   * @param lingerMillis the given linger time in milliseconds
+   */
+  public void close(final long lingerMillis) {
+    //Preconditions
+    assert lingerMillis >= 0 : "lingerMillis must not be negative";
+
+    lingerDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    isLingering = true;
+    if (selector != null) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Gets the bound TCP port, which is the ephemeral port chosen by the system when the port is zero.
+   *
+   * @return the bound TCP port
+   */
+  public int getPort() {
+    //Preconditions
+    assert tcpServerChannel != null : "bind must be called first";
+
+    return ((InetSocketAddress) tcpServerChannel.socket().getLocalSocketAddress()).getPort();
+  }
+
+  /**
+   * Gets the number of times that a connection stopped being read because of its pending completion
+   * acknowledgements.
+   *
+   * @return the number of read pauses
+   */
+  public long getReadPauseCount() {
+    return readPauseCount.get();
+  }
+
+  /**
+   * Returns whether any connection has completion acknowledgements waiting to be written.
+   *
+   * @return whether any connection has completion acknowledgements waiting to be written
+   */
+  private boolean hasOutboundFrames() {
+    for (final SelectionKey selectionKey : selector.keys()) {
+      final Connection connection = (Connection) selectionKey.attachment();
+      if (selectionKey.isValid() && connection != null && !connection.outboundFrames.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Closes the server channels, and removes the Unix domain socket file.
+   */
+  private void closeServerChannels() {
+    try {
+      tcpServerChannel.close();
+      if (unixServerChannel != null) {
+        unixServerChannel.close();
+        Files.deleteIfExists(unixSocketPath);
+      }
+    } catch (IOException ex) {
+      // ignore
+    }
+  }
+
+  /**
+   * Closes the connections, the server channels and the selector.
+   */
+  private void closeChannels() {
+    if (selector.isOpen()) {
+      for (final SelectionKey selectionKey : selector.keys()) {
+        close(selectionKey);
+      }
+      try {
+        selector.close();
+      } catch (IOException ex) {
+        // ignore
+      }
+    }
+    closeServerChannels();
+  }
+
+  /**
+   * Provides the state of a client connection.
+   */
+  private class Connection {
+
+    // the selection key of the connection
+    private final SelectionKey selectionKey;
+
+    // the request decoder
+    private final GraphRequestDecoder graphRequestDecoder = new GraphRequestDecoder(Charset.defaultCharset());
+
+    // the encoded completion acknowledgements waiting to be written
+    private final Queue<OutboundFrame> outboundFrames = new ConcurrentLinkedQueue<>();
+
+    // the number of encoded completion acknowledgements waiting to be written, which the queue does not count cheaply
+    private final AtomicInteger outboundFrameCount = new AtomicInteger(0);
+
+    // the indicator that the connection is not read until its pending acknowledgements fall to the low-water mark,
+    // which is only accessed by the server thread
+    private boolean isReadPaused = false;
+
+    // the number of queued requests whose completion acknowledgements have not yet been queued
+    private final AtomicInteger inFlightCount = new AtomicInteger(0);
+
+    // the indicator that the client has shut down its output
+    private volatile boolean isInputShutdown = false;
+
+    /**
+     * Constructs a new Connection instance.
+     *
+     * @param selectionKey the selection key of the connection
+     */
+    Connection(final SelectionKey selectionKey) {
+      //Preconditions
+      assert selectionKey != null : "selectionKey must not be null";
+
+      this.selectionKey = selectionKey;
+    }
+
+    /**
+     * Puts the given graph request into the ring buffer, arranging for its completion acknowledgement when it
+     * carries a request id. A ping request is answered at once instead, because this server only runs once the graph
+     * writer is initialized.
+     *
+     * @param graphRequest the given graph request
+     */
+    void queue(final GraphRequest graphRequest) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("queuing: " + graphRequest);
+      }
+      graphRequest.setReceivedNanos(System.nanoTime());
+      final GraphRequestType requestType = graphRequest.getRequestType();
+      if (requestType == GraphRequestType.PING) {
+        if (graphRequest.getRequestId() != 0) {
+          inFlightCount.incrementAndGet();
+          final GraphResult graphResult = new GraphResult(
+                  GraphResultStatus.OK,
+                  0, // exitCode
+                  "", // outputPath
+                  0, // byteSize
+                  "ready"); // message
+          graphResult.setRequestId(graphRequest.getRequestId());
+          reply(requestType, graphResult);
+        }
+        return;
+      }
+      if (graphRequest.getRequestId() != 0) {
+        inFlightCount.incrementAndGet();
+        graphRequest.setResultConsumer(graphResult -> reply(requestType, graphResult));
+      }
+      publisher.accept(graphRequest);
+    }
+
+    /**
+     * Gets the number of pending completion acknowledgements, i.e. those of the requests in flight and those queued but
+     * not yet written.
+     *
+     * @return the number of pending completion acknowledgements
+     */
+    int getPendingCount() {
+      return inFlightCount.get() + outboundFrameCount.get();
+    }
+
+    /**
+     * Stops reading the connection until its pending completion acknowledgements fall to the low-water mark.
+     */
+    void pauseReading() {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("pausing a connection with " + getPendingCount() + " pending acknowledgements");
+      }
+      isReadPaused = true;
+      readPauseCount.incrementAndGet();
+      selectionKey.interestOpsAnd(~SelectionKey.OP_READ);
+    }
+
+    /**
+     * Reads the connection again once its pending completion acknowledgements have fallen to half their maximum,
+     * unless the client has shut down its output.
+     */
+    void resumeReading() {
+      if (isReadPaused && getPendingCount() <= maxPendingAcknowledgements / 2) {
+        isReadPaused = false;
+        if (!isInputShutdown) {
+          selectionKey.interestOpsOr(SelectionKey.OP_READ);
+        }
+      }
+    }
+
+    /**
+     * Queues the given completion acknowledgement, and wakes the selector to write it. This is called by the
+     * graph-making threads.
+     *
+     * @param requestType the type of the acknowledged request
+     * @param graphResult the completion acknowledgement
+     */
+    void reply(
+            final GraphRequestType requestType,
+            final GraphResult graphResult) {
+      outboundFrames.add(new OutboundFrame(
+              GraphResultCodec.encodeHeaders(requestType, graphResult),
+              graphResult.getInlineImages()));
+      outboundFrameCount.incrementAndGet();
+      inFlightCount.decrementAndGet();
+      if (selectionKey.isValid()) {
+        try {
+          selectionKey.interestOpsOr(SelectionKey.OP_WRITE);
+          selector.wakeup();
+        } catch (CancelledKeyException ex) {
+          // the client has gone away
+          discardOutboundFrames();
+        }
+      } else {
+        // the client has gone away
+        discardOutboundFrames();
+      }
+    }
+
+    /**
+     * Discards the unwritten completion acknowledgements, releasing the files of their inline images.
+     */
+    void discardOutboundFrames() {
+      OutboundFrame outboundFrame;
+      while ((outboundFrame = outboundFrames.poll()) != null) {
+        outboundFrameCount.decrementAndGet();
+        outboundFrame.discard();
+      }
+    }
+
+    /**
+     * Stops reading once the client has shut down its output, closing the connection unless completion
+     * acknowledgements remain to be written.
+     */
+    void shutdownInput() {
+      isInputShutdown = true;
+      if (inFlightCount.get() == 0 && outboundFrames.isEmpty()) {
+        close(selectionKey);
+      } else {
+        selectionKey.interestOpsAnd(~SelectionKey.OP_READ);
+        selectionKey.interestOpsOr(SelectionKey.OP_WRITE);
+      }
+    }
+  }
+
+  /**
+   * Provides an encoded completion acknowledgement waiting to be written, whose inline images follow their headers
+   * straight from memory, or are transferred from their file channels to the connection.
+   */
+  private static final class OutboundFrame {
+
+    // the frame headers, where the bytes of inline image i follow header i
+    private final List<ByteBuffer> headers;
+
+    // the inline images
+    private final List<InlineImage> inlineImages;
+
+    // the index of the part being written, where part 2i is header i and part 2i + 1 is inline image i
+    private int partIndex = 0;
+
+    // the remaining bytes of the inline image in memory being written, or null
+    private ByteBuffer imageBuffer;
+
+    // the position in the file channel of the inline image being transferred
+    private long transferPosition = 0;
+
+    /**
+     * Constructs a new OutboundFrame instance.
+     *
+     * @param headers the frame headers, where the bytes of inline image i follow header i
+     * @param inlineImages the inline images
+     */
+    OutboundFrame(
+            final List<ByteBuffer> headers,
+            final List<InlineImage> inlineImages) {
+      //Preconditions
+      assert headers != null : "headers must not be null";
+      assert inlineImages != null : "inlineImages must not be null";
+
+      this.headers = headers;
+      this.inlineImages = inlineImages;
+    }
+
+    /**
+     * Writes as much of this frame as the given socket channel accepts, closing the file channel of each inline image
+     * once it has been transferred.
+     *
+     * @param socketChannel the given socket channel
+     * @return whether the whole frame has been written
+     * @throws IOException when the connection is closed, or an image file cannot be read
+     */
+    boolean writeTo(final SocketChannel socketChannel) throws IOException {
+      final int partCount = headers.size() + inlineImages.size();
+      while (partIndex < partCount) {
+        if (partIndex % 2 == 0) {
+          final ByteBuffer header = headers.get(partIndex / 2);
+          socketChannel.write(header);
+          if (header.hasRemaining()) {
+            return false;
+          }
+        } else {
+          final InlineImage inlineImage = inlineImages.get(partIndex / 2);
+          final FileChannel fileChannel = inlineImage.getFileChannel();
+          if (fileChannel == null) {
+            if (imageBuffer == null) {
+              imageBuffer = ByteBuffer.wrap(inlineImage.getBytes());
+            }
+            socketChannel.write(imageBuffer);
+            if (imageBuffer.hasRemaining()) {
+              return false;
+            }
+            imageBuffer = null;
+          } else {
+            final long byteSize = inlineImage.getByteSize();
+            final long nbrBytesTransferred = fileChannel.transferTo(transferPosition, byteSize - transferPosition, socketChannel);
+            transferPosition += nbrBytesTransferred;
+            if (transferPosition < byteSize) {
+              if (nbrBytesTransferred == 0 && transferPosition >= fileChannel.size()) {
+                throw new IOException("the inline image file was truncated");
+              }
+              return false;
+            }
+            transferPosition = 0;
+            inlineImage.close();
+          }
+        }
+        partIndex++;
+      }
+      return true;
+    }
+
+    /**
+     * Discards this frame, releasing the files of its inline images.
+     */
+    void discard() {
+      inlineImages.forEach(InlineImage::close);
+    }
+  }
+}
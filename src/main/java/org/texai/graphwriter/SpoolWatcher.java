@@ -0,0 +1,505 @@
+/*
+ * SpoolWatcher.java
+ *
+ * Created on Oct 19, 2026, 5:24:48 AM
+ *
+ * Description: Watches spool directories for new GraphViz and labeled tree files, and claims and submits them as bulk
+ * graph requests without any socket traffic.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * Watches spool directories with a {@link WatchService} for new GraphViz files, named X.dot, and labeled tree files,
+ * named X.tree, so that a batch corpus run can write thousands of graph files without opening a socket for each of
+ * them. A producer writes each file under another name, e.g. X.dot.tmp, and renames it when it is complete, because a
+ * file is claimed as soon as its name appears.
+ *
+ * A file is claimed by atomically moving it into the claimed subdirectory of its spool directory, where its images
+ * are written. Only one of several servers watching the same spool directory wins the move, and the others skip the
+ * file. The claimed file is submitted as a bulk graph request, which yields to the interactive requests. The GraphViz
+ * file is deleted by its render as usual, and the labeled tree file is deleted once its graph is written. A file whose
+ * render fails stays in the claimed subdirectory. So does a file whose request was in flight when the server crashed,
+ * because a request with a completion consumer is not journaled, and is not replayed.
+ *
+ * A file whose request is rejected, e.g. while the server sheds load, is moved to the deferred subdirectory of its
+ * spool directory, which is not watched, so that the move does not trigger another claim at once. The deferred files
+ * are claimed again by a retry sweep after a backoff, which doubles with each rejection up to a maximum, and which is
+ * reset when a claimed file completes. The files deferred when the server quit are retried when it restarts.
+ *
+ * At most a given number of claimed files are in flight at once, so that a spool directory of any size never fills
+ * the ring buffer or the bulk lane. The files left unclaimed meanwhile, and the files that were already in the spool
+ * directories when the watcher started, are claimed by a sweep of the spool directories.
+ *
+ * @author reed
+ */
+public class SpoolWatcher implements Runnable {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(SpoolWatcher.class);
+
+  /**
+   * the name of the subdirectory of a spool directory, into which its files are claimed
+   */
+  public static final String CLAIMED_DIRECTORY_NAME = "claimed";
+
+  /**
+   * the name of the subdirectory of a spool directory, into which its rejected files are moved until they are retried
+   */
+  public static final String DEFERRED_DIRECTORY_NAME = "deferred";
+
+  // the number of milliseconds before the deferred files are retried after a first rejection
+  static final long MIN_RETRY_MILLIS = 250;
+
+  // the maximum number of milliseconds before the deferred files are retried
+  static final long MAX_RETRY_MILLIS = 30_000;
+
+  // the number of milliseconds between the checks for room to claim the files left unclaimed
+  private static final long POLL_MILLIS = 100;
+
+  // the spool directories
+  private final List<Path> spoolDirectories;
+
+  // the publisher of the graph requests of the claimed files
+  private final Consumer<GraphRequest> publisher;
+
+  // the permits for the claimed files in flight
+  private final Semaphore inFlightPermits;
+
+  // the watch service, or null before the watcher starts
+  private WatchService watchService;
+
+  // the spool directories, indexed by their watch keys
+  private final Map<WatchKey, Path> spoolDirectoriesByWatchKey = new HashMap<>();
+
+  // the indicator that a spool directory has files left unclaimed, which are claimed by the next sweep
+  private volatile boolean isSweepNeeded = true;
+
+  // the number of milliseconds of the current retry backoff, or zero when no claimed file was rejected since the last
+  // completed one
+  private long retryBackoffMillis = 0;
+
+  // the System.nanoTime() at which the deferred files are next retried
+  private long retryNanos = System.nanoTime();
+
+  // the indicator that a retry sweep is scheduled, which is true at startup for the files deferred by an earlier run
+  private boolean isRetryScheduled = true;
+
+  // the indicator that the watcher is closed
+  private volatile boolean isClosed = false;
+
+  // the watcher thread
+  private Thread watcherThread;
+
+  // the number of claimed files
+  private final AtomicLong claimedCount = new AtomicLong(0);
+
+  // the number of claimed files whose graphs were written
+  private final AtomicLong completedCount = new AtomicLong(0);
+
+  // the number of claimed files whose renders failed
+  private final AtomicLong failedCount = new AtomicLong(0);
+
+  // the number of claimed files that were rejected and deferred
+  private final AtomicLong deferredCount = new AtomicLong(0);
+
+  /**
+   * Constructs a new SpoolWatcher instance.
+   *
+   * @param spoolDirectories the spool directories
+   * @param maxInFlight the maximum number of claimed files in flight
+   * @param publisher the publisher of the graph requests of the claimed files
+   */
+  public SpoolWatcher(
+          final List<Path> spoolDirectories,
+          final int maxInFlight,
+          final Consumer<GraphRequest> publisher) {
+    //Preconditions
+    assert spoolDirectories != null : "spoolDirectories must not be null";
+    assert !spoolDirectories.isEmpty() : "spoolDirectories must not be empty";
+    assert maxInFlight > 0 : "maxInFlight must be positive";
+    assert publisher != null : "publisher must not be null";
+
+    this.spoolDirectories = new ArrayList<>(spoolDirectories);
+    this.publisher = publisher;
+    inFlightPermits = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Creates the spool directories and their claimed subdirectories when missing, registers the spool directories with
+   * the watch service, and starts the watcher thread, which first sweeps the spool directories for existing files.
+   *
+   * @throws IOException when a spool directory cannot be created or watched
+   */
+  public void start() throws IOException {
+    watchService = spoolDirectories.get(0).getFileSystem().newWatchService();
+    for (final Path spoolDirectory : spoolDirectories) {
+      Files.createDirectories(spoolDirectory.resolve(CLAIMED_DIRECTORY_NAME));
+      Files.createDirectories(spoolDirectory.resolve(DEFERRED_DIRECTORY_NAME));
+      spoolDirectoriesByWatchKey.put(
+              spoolDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE),
+              spoolDirectory);
+      LOGGER.info("  watching the spool directory " + spoolDirectory + "...");
+    }
+    watcherThread = new Thread(this, "spool-watcher");
+    watcherThread.setDaemon(true);
+    watcherThread.start();
+  }
+
+  /**
+   * Claims the files named by the watch events, sweeps the spool directories whenever files were left unclaimed and
+   * there is room to claim them, and sweeps the deferred subdirectories when their retry is due, until the watcher is
+   * closed.
+   */
+  @Override
+  public void run() {
+    try {
+      while (!isClosed) {
+        if (isSweepNeeded && inFlightPermits.availablePermits() > 0) {
+          isSweepNeeded = false;
+          for (final Path spoolDirectory : spoolDirectories) {
+            sweep(spoolDirectory);
+          }
+        }
+        if (inFlightPermits.availablePermits() > 0 && isRetryDue()) {
+          for (final Path spoolDirectory : spoolDirectories) {
+            if (!retry(spoolDirectory)) {
+              scheduleRetry();
+              break;
+            }
+          }
+        }
+        final WatchKey watchKey = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (watchKey == null) {
+          continue;
+        }
+        final Path spoolDirectory = spoolDirectoriesByWatchKey.get(watchKey);
+        for (final WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+          if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW) {
+            // events were lost
+            isSweepNeeded = true;
+          } else {
+            final Path path = spoolDirectory.resolve((Path) watchEvent.context());
+            if (isSpoolFile(path) && !claim(spoolDirectory, path)) {
+              isSweepNeeded = true;
+            }
+          }
+        }
+        watchKey.reset();
+      }
+    } catch (ClosedWatchServiceException ex) {
+      // closed while quitting
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Claims the files of the given spool directory while there is room for them.
+   *
+   * @param spoolDirectory the given spool directory
+   */
+  private void sweep(final Path spoolDirectory) {
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(spoolDirectory, SpoolWatcher::isSpoolFile)) {
+      for (final Path path : directoryStream) {
+        if (isClosed || !claim(spoolDirectory, path)) {
+          isSweepNeeded = !isClosed;
+          return;
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.warn("cannot sweep the spool directory " + spoolDirectory + ": " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Claims the deferred files of the given spool directory while there is room for them. The files are listed before
+   * any of them is claimed, so that a file rejected at once is not claimed again by the same sweep.
+   *
+   * @param spoolDirectory the given spool directory
+   * @return whether all the deferred files were claimed
+   */
+  private boolean retry(final Path spoolDirectory) {
+    final List<Path> deferredPaths = new ArrayList<>();
+    final Path deferredDirectory = spoolDirectory.resolve(DEFERRED_DIRECTORY_NAME);
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(deferredDirectory, SpoolWatcher::isSpoolFile)) {
+      directoryStream.forEach(deferredPaths::add);
+    } catch (IOException ex) {
+      LOGGER.warn("cannot sweep the deferred directory " + deferredDirectory + ": " + ex.getMessage());
+      return true;
+    }
+    for (final Path path : deferredPaths) {
+      if (isClosed) {
+        return true;
+      }
+      if (!claim(spoolDirectory, path)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether the retry sweep of the deferred files is due, in which case it is no longer scheduled.
+   *
+   * @return whether the retry sweep is due
+   */
+  private synchronized boolean isRetryDue() {
+    if (isRetryScheduled && System.nanoTime() - retryNanos >= 0) {
+      isRetryScheduled = false;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Schedules the retry sweep of the deferred files without changing its time, e.g. when there was no room to claim
+   * all of them.
+   */
+  private synchronized void scheduleRetry() {
+    isRetryScheduled = true;
+  }
+
+  /**
+   * Backs off the retry sweep of the deferred files after a rejection, doubling the backoff up to its maximum.
+   */
+  private synchronized void backOffRetry() {
+    retryBackoffMillis = retryBackoffMillis == 0 ? MIN_RETRY_MILLIS : Math.min(2 * retryBackoffMillis, MAX_RETRY_MILLIS);
+    retryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis);
+    isRetryScheduled = true;
+  }
+
+  /**
+   * Resets the retry backoff after a claimed file completes.
+   */
+  private synchronized void resetRetryBackoff() {
+    retryBackoffMillis = 0;
+  }
+
+  /**
+   * Returns whether the given path names a GraphViz or labeled tree file, ignoring hidden files.
+   *
+   * @param path the given path
+   * @return whether the given path names a spool file
+   */
+  private static boolean isSpoolFile(final Path path) {
+    final String name = path.getFileName().toString();
+    return !name.startsWith(".") && (name.endsWith(".dot") || name.endsWith(".tree"));
+  }
+
+  /**
+   * Claims the given file of the given spool directory, and publishes its graph request, when there is room for it.
+   *
+   * @param spoolDirectory the given spool directory
+   * @param path the given file, in the spool directory or in its deferred subdirectory
+   * @return whether there was room to claim the file, which is true when another server claimed it first
+   */
+  private boolean claim(
+          final Path spoolDirectory,
+          final Path path) {
+    if (!inFlightPermits.tryAcquire()) {
+      return false;
+    }
+    final Path claimedPath = spoolDirectory.resolve(CLAIMED_DIRECTORY_NAME).resolve(path.getFileName());
+    final GraphRequest graphRequest;
+    try {
+      Files.move(path, claimedPath, StandardCopyOption.ATOMIC_MOVE);
+      graphRequest = makeGraphRequest(claimedPath);
+    } catch (NoSuchFileException ex) {
+      // another server claimed the file first
+      inFlightPermits.release();
+      return true;
+    } catch (IOException ex) {
+      LOGGER.warn("cannot claim the spool file " + path + ": " + ex.getMessage());
+      inFlightPermits.release();
+      return true;
+    }
+    if (graphRequest == null) {
+      LOGGER.warn("the spool file " + claimedPath + " is empty");
+      failedCount.incrementAndGet();
+      inFlightPermits.release();
+      return true;
+    }
+    claimedCount.incrementAndGet();
+    graphRequest.setResultConsumer(graphResult -> complete(spoolDirectory, claimedPath, graphResult));
+    publisher.accept(graphRequest);
+    return true;
+  }
+
+  /**
+   * Makes the bulk graph request of the given claimed file, whose images are written next to it.
+   *
+   * @param claimedPath the given claimed file
+   * @return the graph request, or null if the claimed file is an empty labeled tree file
+   * @throws IOException when the labeled tree file cannot be read
+   */
+  static GraphRequest makeGraphRequest(final Path claimedPath) throws IOException {
+    //Preconditions
+    assert claimedPath != null : "claimedPath must not be null";
+
+    final String claimedName = claimedPath.toAbsolutePath().toString();
+    final GraphRequest graphRequest;
+    if (claimedName.endsWith(".dot")) {
+      graphRequest = new GraphRequest(
+              GraphRequestType.GRAPHVIZ,
+              claimedName.substring(0, claimedName.length() - ".dot".length()), // fileName
+              ""); // labeledTree
+    } else {
+      final String labeledTree = Files.readString(claimedPath, StandardCharsets.UTF_8).strip();
+      if (labeledTree.isEmpty()) {
+        return null;
+      }
+      graphRequest = new GraphRequest(
+              GraphRequestType.SYNTAX_TREE,
+              claimedName.substring(0, claimedName.length() - ".tree".length()), // fileName
+              labeledTree);
+    }
+    graphRequest.setPriority(GraphRequest.BULK_PRIORITY);
+    return graphRequest;
+  }
+
+  /**
+   * Completes the request of the given claimed file with the given result. This is called by the graph-making threads,
+   * or by the request server thread when the request is rejected at once.
+   *
+   * @param spoolDirectory the spool directory of the claimed file
+   * @param claimedPath the given claimed file
+   * @param graphResult the given result
+   */
+  private void complete(
+          final Path spoolDirectory,
+          final Path claimedPath,
+          final GraphResult graphResult) {
+    try {
+      switch (graphResult.getStatus()) {
+        case OK, CACHED -> {
+          completedCount.incrementAndGet();
+          resetRetryBackoff();
+          if (claimedPath.getFileName().toString().endsWith(".tree")) {
+            Files.deleteIfExists(claimedPath);
+          }
+        }
+
+        case REJECTED -> {
+          // a deferred file of the same name is an older version of this one
+          deferredCount.incrementAndGet();
+          Files.move(
+                  claimedPath,
+                  spoolDirectory.resolve(DEFERRED_DIRECTORY_NAME).resolve(claimedPath.getFileName()),
+                  StandardCopyOption.ATOMIC_MOVE,
+                  StandardCopyOption.REPLACE_EXISTING);
+          backOffRetry();
+        }
+
+        case SUPERSEDED -> {
+          // the newer request for the same file completes it
+        }
+
+        default -> {
+          failedCount.incrementAndGet();
+          LOGGER.warn("cannot render the spool file " + claimedPath + ": " + graphResult.getMessage());
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.warn("cannot complete the spool file " + claimedPath + ": " + ex.getMessage());
+    } finally {
+      inFlightPermits.release();
+    }
+  }
+
+  /**
+   * Closes the watcher, which claims no more files. The claimed files in flight complete as usual.
+   */
+  public void close() {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException ex) {
+        // ignore
+      }
+    }
+    if (watcherThread != null) {
+      try {
+        watcherThread.join(POLL_MILLIS * 10);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    LOGGER.info(toString());
+  }
+
+  /**
+   * Gets the number of claimed files.
+   *
+   * @return the number of claimed files
+   */
+  public long getClaimedCount() {
+    return claimedCount.get();
+  }
+
+  /**
+   * Gets the number of claimed files whose graphs were written.
+   *
+   * @return the number of completed files
+   */
+  public long getCompletedCount() {
+    return completedCount.get();
+  }
+
+  /**
+   * Gets the number of claimed files whose renders failed.
+   *
+   * @return the number of failed files
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /**
+   * Gets the number of claimed files that were rejected and deferred.
+   *
+   * @return the number of deferred files
+   */
+  public long getDeferredCount() {
+    return deferredCount.get();
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[SpoolWatcher " + spoolDirectories + ", claimed: " + claimedCount.get() + ", completed: "
+            + completedCount.get() + ", failed: " + failedCount.get() + ", deferred: " + deferredCount.get() + ']';
+  }
+}
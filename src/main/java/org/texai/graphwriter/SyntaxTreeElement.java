@@ -0,0 +1,175 @@
+/*
+ * SyntaxTreeElement.java
+ *
+ * Created on Oct 18, 2026, 9:05:12 AM
+ *
+ * Description: Provides a syntax tree element, ported from the phpsyntaxtree CElement class.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+/**
+ * Provides a syntax tree element, which is either a node or a leaf of the labeled tree.
+ *
+ * @author reed
+ */
+public class SyntaxTreeElement {
+
+  /**
+   * the syntax tree element type
+   */
+  public enum ElementType {
+    NODE,
+    LEAF
+  }
+
+  // the unique element id
+  private final int id;
+
+  // the parent element id, or zero if this is a top level element
+  private final int parent;
+
+  // the element type
+  private ElementType type = ElementType.LEAF;
+
+  // the element content
+  private final String content;
+
+  // the element level in the tree, where zero is the top
+  private final int level;
+
+  // the width of the element in pixels
+  private double width = 0;
+
+  // the drawing offset in pixels
+  private double indent = 0;
+
+  /**
+   * Constructs a new SyntaxTreeElement instance.
+   *
+   * @param id the unique element id
+   * @param parent the parent element id, or zero if this is a top level element
+   * @param content the element content
+   * @param level the element level in the tree
+   */
+  public SyntaxTreeElement(
+          final int id,
+          final int parent,
+          final String content,
+          final int level) {
+    //Preconditions
+    assert id > 0 : "id must be positive";
+    assert parent >= 0 : "parent must not be negative";
+    assert content != null : "content must not be null";
+
+    this.id = id;
+    this.parent = parent;
+    this.content = content.trim();
+    this.level = level;
+  }
+
+  /**
+   * Gets the unique element id.
+   *
+   * @return the unique element id
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Gets the parent element id.
+   *
+   * @return the parent element id, or zero if this is a top level element
+   */
+  public int getParent() {
+    return parent;
+  }
+
+  /**
+   * Gets the element type.
+   *
+   * @return the element type
+   */
+  public ElementType getType() {
+    return type;
+  }
+
+  /**
+   * Sets the element type.
+   *
+   * @param type the element type
+   */
+  public void setType(final ElementType type) {
+    //Preconditions
+    assert type != null : "type must not be null";
+
+    this.type = type;
+  }
+
+  /**
+   * Gets the element content.
+   *
+   * @return the element content
+   */
+  public String getContent() {
+    return content;
+  }
+
+  /**
+   * Gets the element level in the tree, where zero is the top.
+   *
+   * @return the element level
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Gets the width of the element in pixels.
+   *
+   * @return the width of the element
+   */
+  public double getWidth() {
+    return width;
+  }
+
+  /**
+   * Sets the width of the element in pixels.
+   *
+   * @param width the width of the element
+   */
+  public void setWidth(final double width) {
+    this.width = width;
+  }
+
+  /**
+   * Gets the drawing offset in pixels.
+   *
+   * @return the drawing offset
+   */
+  public double getIndent() {
+    return indent;
+  }
+
+  /**
+   * Sets the drawing offset in pixels.
+   *
+   * @param indent the drawing offset
+   */
+  public void setIndent(final double indent) {
+    this.indent = indent;
+  }
+
+  /**
+   * Returns a string representation of this object.
+   *
+   * @return a string representation of this object
+   */
+  @Override
+  public String toString() {
+    return "[SyntaxTreeElement " + id + " " + type + " " + content + "]";
+  }
+}
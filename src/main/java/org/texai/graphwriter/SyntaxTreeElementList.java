@@ -0,0 +1,180 @@
+/*
+ * SyntaxTreeElementList.java
+ *
+ * Created on Oct 18, 2026, 9:11:40 AM
+ *
+ * Description: Provides the list of syntax tree elements, ported from the phpsyntaxtree CElementList class.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provides the list of syntax tree elements in parse order, with defined parent relationships and indentation levels.
+ *
+ * Unlike the PHP original, which scans the whole list for every lookup, the elements and their children are indexed
+ * by id.
+ *
+ * @author reed
+ */
+public class SyntaxTreeElementList {
+
+  // the elements in parse order
+  private final List<SyntaxTreeElement> elements = new ArrayList<>();
+
+  // the elements, id --> element
+  private final Map<Integer, SyntaxTreeElement> elementDictionary = new HashMap<>();
+
+  // the child element ids in parse order, parent id --> child ids
+  private final Map<Integer, List<Integer>> childrenDictionary = new HashMap<>();
+
+  /**
+   * Adds the given element, and marks its parent as a node.
+   *
+   * @param element the given element
+   */
+  public void add(final SyntaxTreeElement element) {
+    //Preconditions
+    assert element != null : "element must not be null";
+
+    elements.add(element);
+    elementDictionary.put(element.getId(), element);
+    childrenDictionary.computeIfAbsent(element.getParent(), k -> new ArrayList<>()).add(element.getId());
+    if (element.getParent() != 0) {
+      final SyntaxTreeElement parentElement = elementDictionary.get(element.getParent());
+      if (parentElement != null) {
+        parentElement.setType(SyntaxTreeElement.ElementType.NODE);
+      }
+    }
+  }
+
+  /**
+   * Gets the elements in parse order.
+   *
+   * @return the elements
+   */
+  public List<SyntaxTreeElement> getElements() {
+    return Collections.unmodifiableList(elements);
+  }
+
+  /**
+   * Gets the element having the given id.
+   *
+   * @param id the given id
+   * @return the element, or null if not found
+   */
+  public SyntaxTreeElement getElement(final int id) {
+    return elementDictionary.get(id);
+  }
+
+  /**
+   * Gets the ids of the child elements of the given element.
+   *
+   * @param id the given element id
+   * @return the child element ids in parse order
+   */
+  public List<Integer> getChildren(final int id) {
+    final List<Integer> children = childrenDictionary.get(id);
+    if (children == null) {
+      return Collections.emptyList();
+    } else {
+      return children;
+    }
+  }
+
+  /**
+   * Gets the width of the given element.
+   *
+   * @param id the given element id
+   * @return the width of the element, or -1 if not found
+   */
+  public double getElementWidth(final int id) {
+    final SyntaxTreeElement element = elementDictionary.get(id);
+    if (element == null) {
+      return -1;
+    } else {
+      return element.getWidth();
+    }
+  }
+
+  /**
+   * Sets the width of the given element.
+   *
+   * @param id the given element id
+   * @param width the width
+   */
+  public void setElementWidth(final int id, final double width) {
+    final SyntaxTreeElement element = elementDictionary.get(id);
+    if (element != null) {
+      element.setWidth(width);
+    }
+  }
+
+  /**
+   * Gets the drawing offset of the given element.
+   *
+   * @param id the given element id
+   * @return the drawing offset of the element, or -1 if not found
+   */
+  public double getIndent(final int id) {
+    final SyntaxTreeElement element = elementDictionary.get(id);
+    if (element == null) {
+      return -1;
+    } else {
+      return element.getIndent();
+    }
+  }
+
+  /**
+   * Sets the drawing offset of the given element.
+   *
+   * @param id the given element id
+   * @param indent the drawing offset
+   */
+  public void setIndent(final int id, final double indent) {
+    final SyntaxTreeElement element = elementDictionary.get(id);
+    if (element != null) {
+      element.setIndent(indent);
+    }
+  }
+
+  /**
+   * Gets the number of levels in the tree.
+   *
+   * @return the number of levels
+   */
+  public int getLevelHeight() {
+    int maxLevel = 0;
+    for (final SyntaxTreeElement element : elements) {
+      if (element.getLevel() > maxLevel) {
+        maxLevel = element.getLevel();
+      }
+    }
+    return maxLevel + 1;
+  }
+
+  /**
+   * Returns whether this list is empty.
+   *
+   * @return whether this list is empty
+   */
+  public boolean isEmpty() {
+    return elements.isEmpty();
+  }
+
+  /**
+   * Returns the number of elements.
+   *
+   * @return the number of elements
+   */
+  public int size() {
+    return elements.size();
+  }
+}
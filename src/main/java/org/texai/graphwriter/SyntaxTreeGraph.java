@@ -0,0 +1,772 @@
+/*
+ * SyntaxTreeGraph.java
+ *
+ * Created on Oct 18, 2026, 9:48:16 AM
+ *
+ * Description: Draws a syntax tree element list into an image, ported from the phpsyntaxtree CTreeGraph class, or into
+ * an SVG document, as does the phpsyntaxtree CSVGGraph class.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+import org.apache.log4j.Logger;
+
+/**
+ * Draws a syntax tree element list into an image using Java2D, with the same layout constants and drawing rules as
+ * the phpsyntaxtree CTreeGraph class, so that the images closely match those made by the PHP renderer.
+ *
+ * The PHP renderer gives GD the font size in points at 96 dpi, so the Java2D font is derived at 4/3 of the point size,
+ * whereas the layout arithmetic uses the point size just as the PHP original does.
+ *
+ * The SVG document has the same layout as the image, measured with the same font, but its text and lines are drawn
+ * by the viewer, so that no pixels are rasterized or PNG encoded here.
+ *
+ * @author reed
+ */
+public class SyntaxTreeGraph {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(SyntaxTreeGraph.class);
+
+  // the element height padding
+  private static final int E_PADD = 5;
+
+  // the vertical space between levels
+  private static final int V_SPACE = 10;
+
+  // the border at the image sides
+  private static final int B_SIDE = 5;
+
+  // the border at the image top and bottom
+  private static final int B_TOPBOT = 5;
+
+  // the GD font resolution in dots per inch
+  private static final double GD_RESOLUTION = 96.0;
+
+  // the loaded TrueType fonts, font path --> font
+  private static final Map<String, Font> FONT_DICTIONARY = new ConcurrentHashMap<>();
+
+  // the background color
+  private static final Color COLOR_BACKGROUND = new Color(255, 255, 255);
+
+  // the foreground color, used for literals
+  private static final Color COLOR_FOREGROUND = new Color(0, 0, 0);
+
+  // the line color
+  private static final Color COLOR_LINE = new Color(64, 64, 64);
+
+  // the element list
+  private final SyntaxTreeElementList elementList;
+
+  // the indicator whether to draw with color
+  private final boolean isColor;
+
+  // the indicator whether to draw anti-aliased lines
+  private final boolean isAntialias;
+
+  // the indicator whether to draw triangles above multi-word leaves
+  private final boolean isTriangles;
+
+  // the font size in points
+  private final int fontSize;
+
+  // the main text font
+  private final Font font;
+
+  // the subscript text font
+  private final Font subscriptFont;
+
+  // the subscript font size in points
+  private final int subscriptFontSize;
+
+  // the font render context used for text measurement
+  private final FontRenderContext fontRenderContext = new FontRenderContext(null, true, true);
+
+  // the element height
+  private final int elementHeight;
+
+  // the image width in pixels
+  private final int width;
+
+  // the image height in pixels
+  private final int height;
+
+  // the node color
+  private final Color colorNode;
+
+  // the leaf color
+  private final Color colorLeaf;
+
+  // the trace color
+  private final Color colorTrace;
+
+  // the image being drawn
+  private BufferedImage image;
+
+  // the graphics context of the image being drawn
+  private Graphics2D graphics;
+
+  // the SVG document being drawn, or null when drawing an image
+  private StringBuilder svg;
+
+  /**
+   * Constructs a new SyntaxTreeGraph instance, and calculates the element widths and the image dimensions.
+   *
+   * @param elementList the element list
+   * @param isColor the indicator whether to draw with color
+   * @param isAntialias the indicator whether to draw anti-aliased lines
+   * @param isTriangles the indicator whether to draw triangles above multi-word leaves
+   * @param fontPath the TrueType font path
+   * @param fontSize the font size in points
+   */
+  public SyntaxTreeGraph(
+          final SyntaxTreeElementList elementList,
+          final boolean isColor,
+          final boolean isAntialias,
+          final boolean isTriangles,
+          final String fontPath,
+          final int fontSize) {
+    //Preconditions
+    assert elementList != null : "elementList must not be null";
+    assert fontPath != null : "fontPath must not be null";
+    assert fontSize > 0 : "fontSize must be positive";
+
+    this.elementList = elementList;
+    this.isColor = isColor;
+    this.isAntialias = isAntialias;
+    this.isTriangles = isTriangles;
+    this.fontSize = fontSize;
+    subscriptFontSize = (int) Math.floor(fontSize * 0.7);
+    final Font baseFont = getFont(fontPath);
+    font = baseFont.deriveFont((float) (fontSize * GD_RESOLUTION / 72.0));
+    subscriptFont = baseFont.deriveFont((float) (subscriptFontSize * GD_RESOLUTION / 72.0));
+
+    // calculate the image dimensions
+    elementHeight = fontSize + E_PADD * 2;
+    final int levelHeight = elementList.getLevelHeight();
+    final double levelWidth = calcLevelWidth(0);
+    width = (int) (levelWidth + B_SIDE * 2);
+    height = levelHeight * elementHeight + (levelHeight - 1) * (V_SPACE + fontSize) + B_TOPBOT * 2;
+
+    if (isColor) {
+      colorNode = new Color(0, 0, 255);
+      colorLeaf = new Color(255, 0, 0);
+      colorTrace = new Color(0, 150, 0);
+    } else {
+      colorNode = COLOR_FOREGROUND;
+      colorLeaf = COLOR_FOREGROUND;
+      colorTrace = COLOR_FOREGROUND;
+    }
+  }
+
+  /**
+   * Gets the TrueType font at the given path, loading it once. If the font cannot be loaded, the logical sans serif
+   * font is substituted.
+   *
+   * @param fontPath the given font path
+   * @return the font
+   */
+  private static Font getFont(final String fontPath) {
+    //Preconditions
+    assert fontPath != null : "fontPath must not be null";
+
+    return FONT_DICTIONARY.computeIfAbsent(fontPath, path -> {
+      try {
+        return Font.createFont(Font.TRUETYPE_FONT, new File(path));
+      } catch (FontFormatException | IOException ex) {
+        LOGGER.warn("cannot load the font " + path + ", substituting SansSerif: " + ex.getMessage());
+        return new Font(Font.SANS_SERIF, Font.PLAIN, 1);
+      }
+    });
+  }
+
+  /**
+   * Draws the tree into a new image.
+   *
+   * @return the image
+   */
+  public BufferedImage draw() {
+    image = new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_RGB);
+    graphics = image.createGraphics();
+    try {
+      graphics.setColor(COLOR_BACKGROUND);
+      graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+      graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+      parseList();
+    } finally {
+      graphics.dispose();
+      graphics = null;
+    }
+    return image;
+  }
+
+  /**
+   * Draws the tree and saves it as a PNG image file.
+   *
+   * @param file the image file
+   * @throws IOException when the image cannot be written
+   */
+  public void save(final File file) throws IOException {
+    //Preconditions
+    assert file != null : "file must not be null";
+
+    if (!ImageIO.write(draw(), "png", file)) {
+      throw new IOException("no PNG image writer is available");
+    }
+  }
+
+  /**
+   * Draws the tree and writes it as a PNG image to the given output stream.
+   *
+   * @param outputStream the given output stream
+   * @throws IOException when the image cannot be written
+   */
+  public void write(final OutputStream outputStream) throws IOException {
+    //Preconditions
+    assert outputStream != null : "outputStream must not be null";
+
+    if (!ImageIO.write(draw(), "png", outputStream)) {
+      throw new IOException("no PNG image writer is available");
+    }
+  }
+
+  /**
+   * Draws the tree as an SVG document.
+   *
+   * @return the SVG document
+   */
+  public String drawSVG() {
+    svg = new StringBuilder(256 + elementList.getElements().size() * 160);
+    try {
+      svg.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+      svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"").append(width)
+              .append("\" height=\"").append(height)
+              .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+              .append("\" font-family=\"").append(escapeXML(font.getFamily()))
+              .append(", sans-serif\" stroke-width=\"1\"")
+              .append(isAntialias ? "" : " shape-rendering=\"crispEdges\"")
+              .append(">\n");
+      svg.append("<rect width=\"100%\" height=\"100%\" fill=\"").append(toSVGColor(COLOR_BACKGROUND)).append("\"/>\n");
+      parseList();
+      svg.append("</svg>\n");
+      return svg.toString();
+    } finally {
+      svg = null;
+    }
+  }
+
+  /**
+   * Draws the tree and saves it as an SVG document file.
+   *
+   * @param file the SVG document file
+   * @throws IOException when the document cannot be written
+   */
+  public void saveSVG(final File file) throws IOException {
+    //Preconditions
+    assert file != null : "file must not be null";
+
+    Files.writeString(file.toPath(), drawSVG(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Draws the tree and writes it as an SVG document to the given output stream.
+   *
+   * @param outputStream the given output stream
+   * @throws IOException when the document cannot be written
+   */
+  public void writeSVG(final OutputStream outputStream) throws IOException {
+    //Preconditions
+    assert outputStream != null : "outputStream must not be null";
+
+    outputStream.write(drawSVG().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Gets the image width in pixels.
+   *
+   * @return the image width
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the image height in pixels.
+   *
+   * @return the image height
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Draws the given element into the tree.
+   *
+   * @param x the element offset
+   * @param y the element row
+   * @param w the element width
+   * @param string the element content
+   * @param type the element type
+   */
+  private void drawElement(
+          final double x,
+          final int y,
+          final double w,
+          final String string,
+          final SyntaxTreeElement.ElementType type) {
+    // calculate element dimensions and position
+    final int top = row2Px(y);
+    final double left = x + B_SIDE;
+    final double right = left + w;
+
+    // split the string into the main part and the subscript part of the element, if any
+    String main = string;
+    String sub = "";
+    final int underscoreIndex = string.indexOf('_');
+    if (underscoreIndex >= 0) {
+      main = string.substring(0, underscoreIndex);
+      sub = string.substring(underscoreIndex + 1).replace('_', ' ');
+    }
+
+    // calculate text size for the main and the subscript part of the element
+    final int mainWidth = getTextWidth(main, font);
+    final int subWidth = getTextWidth(sub, subscriptFont);
+
+    // center the text in the element
+    final double textWidth = mainWidth + subWidth;
+    final double textPos = left + (right - left) / 2 - textWidth / 2;
+
+    // select the appropriate color
+    Color color = colorNode;
+    if (type == SyntaxTreeElement.ElementType.LEAF) {
+      color = colorLeaf;
+    }
+    if (main.length() > 1 && main.startsWith("<") && main.endsWith(">")) {
+      color = colorTrace;
+      // remove trace delimiters from the main text
+      main = main.substring(1, main.length() - 1);
+    }
+    if (main.length() > 1 && main.startsWith("'") && main.endsWith("'")) {
+      color = COLOR_FOREGROUND;
+      // remove literal delimiters from the main text
+      main = main.substring(1, main.length() - 1);
+    }
+
+    // draw the main text
+    final int mainY = top + elementHeight - E_PADD;
+    if (svg == null) {
+      graphics.setColor(color);
+      graphics.setFont(font);
+    }
+    if (!main.isEmpty()) {
+      drawString(main, (int) textPos, mainY, color, font);
+    }
+
+    // draw the subscript text
+    if (!sub.isEmpty()) {
+      if (svg == null) {
+        graphics.setFont(subscriptFont);
+      }
+      drawString(
+              sub,
+              (int) (textPos + mainWidth + Math.ceil(subscriptFontSize / 8.0)),
+              (int) (mainY + subscriptFontSize / 2.0),
+              color,
+              subscriptFont);
+    }
+  }
+
+  /**
+   * Draws the given text, either into the image with the current color and font of the graphics context, or as an
+   * SVG text element.
+   *
+   * @param text the given text
+   * @param x the baseline start x coordinate
+   * @param y the baseline y coordinate
+   * @param color the text color
+   * @param textFont the text font
+   */
+  private void drawString(
+          final String text,
+          final int x,
+          final int y,
+          final Color color,
+          final Font textFont) {
+    if (svg == null) {
+      graphics.drawString(text, x, y);
+    } else {
+      svg.append("<text x=\"").append(x).append("\" y=\"").append(y)
+              .append("\" font-size=\"").append(String.format(Locale.ROOT, "%.2f", textFont.getSize2D()))
+              .append("\" fill=\"").append(toSVGColor(color)).append("\">")
+              .append(escapeXML(text))
+              .append("</text>\n");
+    }
+  }
+
+  /**
+   * Draws a line between a child element and its parent element.
+   *
+   * @param fromX the child element offset
+   * @param fromY the child element row
+   * @param fromW the child element width
+   * @param toX the parent element offset
+   * @param toW the parent element width
+   */
+  private void lineToParent(
+          final double fromX,
+          final int fromY,
+          final double fromW,
+          final double toX,
+          final double toW) {
+    if (fromY == 0) {
+      return;
+    }
+    final int fromTop = row2Px(fromY);
+    final double fromLeft = fromX + fromW / 2 + B_SIDE;
+    final int toBottom = row2Px(fromY - 1) + elementHeight;
+    final double toLeft = toX + toW / 2 + B_SIDE;
+    drawLine(fromLeft, fromTop, toLeft, toBottom);
+  }
+
+  /**
+   * Draws a triangle between a multi-word leaf element and its parent element.
+   *
+   * @param fromX the child element offset
+   * @param fromY the child element row
+   * @param fromW the child element width
+   * @param toW the parent element width
+   * @param textW the leaf text width
+   */
+  private void triangleToParent(
+          final double fromX,
+          final int fromY,
+          final double fromW,
+          final double toW,
+          final double textW) {
+    if (fromY == 0) {
+      return;
+    }
+    final double toX = fromX;
+    final int fromTop = row2Px(fromY);
+    final double fromCenter = fromX + fromW / 2 + B_SIDE;
+    final double fromLeft1 = fromCenter + textW / 2;
+    final double fromLeft2 = fromCenter - textW / 2;
+    final int toBottom = row2Px(fromY - 1) + elementHeight;
+    final double toLeft = toX + toW / 2 + B_SIDE;
+    drawLine(fromLeft1, fromTop, toLeft, toBottom);
+    drawLine(fromLeft2, fromTop, toLeft, toBottom);
+    drawLine(fromLeft1, fromTop, fromLeft2, fromTop);
+  }
+
+  /**
+   * Draws a line in the line color, anti-aliased if so configured.
+   *
+   * @param x1 the start x coordinate
+   * @param y1 the start y coordinate
+   * @param x2 the end x coordinate
+   * @param y2 the end y coordinate
+   */
+  private void drawLine(
+          final double x1,
+          final double y1,
+          final double x2,
+          final double y2) {
+    if (svg != null) {
+      svg.append("<line x1=\"").append((int) x1).append("\" y1=\"").append((int) y1)
+              .append("\" x2=\"").append((int) x2).append("\" y2=\"").append((int) y2)
+              .append("\" stroke=\"").append(toSVGColor(COLOR_LINE)).append("\"/>\n");
+    } else if (isAntialias && x1 != x2) {
+      drawSmoothLine(x1, y1, x2, y2);
+    } else {
+      graphics.setColor(COLOR_LINE);
+      graphics.drawLine((int) x1, (int) y1, (int) x2, (int) y2);
+    }
+  }
+
+  /**
+   * Draws an anti-aliased line by blending the line color into the two pixels that straddle the ideal line at each
+   * step, as does the phpsyntaxtree imagesmoothline function.
+   *
+   * @param x1 the start x coordinate
+   * @param y1 the start y coordinate
+   * @param x2 the end x coordinate
+   * @param y2 the end y coordinate
+   */
+  private void drawSmoothLine(
+          final double x1,
+          final double y1,
+          final double x2,
+          final double y2) {
+    final double m = (y2 - y1) / (x2 - x1);
+    final double b = y1 - m * x1;
+    if (Math.abs(m) <= 1) {
+      final double endX = Math.max(x1, x2);
+      for (double x = Math.min(x1, x2); x <= endX; x++) {
+        final double y = m * x + b;
+        final double ya = (y == Math.floor(y)) ? 1 : y - Math.floor(y);
+        final double yb = Math.ceil(y) - y;
+        blendPixel((int) x, (int) Math.floor(y), ya, yb);
+        blendPixel((int) x, (int) Math.ceil(y), yb, ya);
+      }
+    } else {
+      final double endY = Math.max(y1, y2);
+      for (double y = Math.min(y1, y2); y <= endY; y++) {
+        final double x = (y - b) / m;
+        final double xa = (x == Math.floor(x)) ? 1 : x - Math.floor(x);
+        final double xb = Math.ceil(x) - x;
+        blendPixel((int) Math.floor(x), (int) y, xa, xb);
+        blendPixel((int) Math.ceil(x), (int) y, xb, xa);
+      }
+    }
+  }
+
+  /**
+   * Formats the given color as an SVG color.
+   *
+   * @param color the given color
+   * @return the SVG color, e.g. #404040
+   */
+  private static String toSVGColor(final Color color) {
+    return String.format("#%06x", color.getRGB() & 0xffffff);
+  }
+
+  /**
+   * Escapes the XML markup characters of the given text.
+   *
+   * @param text the given text
+   * @return the escaped text
+   */
+  static String escapeXML(final String text) {
+    //Preconditions
+    assert text != null : "text must not be null";
+
+    final StringBuilder stringBuilder = new StringBuilder(text.length() + 16);
+    for (int i = 0; i < text.length(); i++) {
+      final char ch = text.charAt(i);
+      switch (ch) {
+        case '<' ->
+          stringBuilder.append("&lt;");
+        case '>' ->
+          stringBuilder.append("&gt;");
+        case '&' ->
+          stringBuilder.append("&amp;");
+        case '"' ->
+          stringBuilder.append("&quot;");
+        default ->
+          stringBuilder.append(ch);
+      }
+    }
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Blends the line color into the given pixel.
+   *
+   * @param x the pixel x coordinate
+   * @param y the pixel y coordinate
+   * @param existingWeight the weight of the existing pixel color
+   * @param lineWeight the weight of the line color
+   */
+  private void blendPixel(
+          final int x,
+          final int y,
+          final double existingWeight,
+          final double lineWeight) {
+    if (x < 0 || y < 0 || x >= image.getWidth() || y >= image.getHeight()) {
+      return;
+    }
+    final int rgb = image.getRGB(x, y);
+    final int red = blend((rgb >> 16) & 0xff, COLOR_LINE.getRed(), existingWeight, lineWeight);
+    final int green = blend((rgb >> 8) & 0xff, COLOR_LINE.getGreen(), existingWeight, lineWeight);
+    final int blue = blend(rgb & 0xff, COLOR_LINE.getBlue(), existingWeight, lineWeight);
+    image.setRGB(x, y, (red << 16) | (green << 8) | blue);
+  }
+
+  /**
+   * Blends a color component.
+   *
+   * @param existing the existing component value
+   * @param line the line component value
+   * @param existingWeight the weight of the existing component value
+   * @param lineWeight the weight of the line component value
+   * @return the blended component value
+   */
+  private static int blend(
+          final int existing,
+          final int line,
+          final double existingWeight,
+          final double lineWeight) {
+    return Math.min(255, Math.max(0, (int) (existing * existingWeight + line * lineWeight)));
+  }
+
+  /**
+   * Resizes the child elements of the given element when the element text is wider than the sum of its child
+   * elements, recursing down the child tree to even out the space.
+   *
+   * @param id the element id
+   * @param current the current width
+   * @param target the target width
+   */
+  private void fixChildSize(
+          final int id,
+          final double current,
+          final double target) {
+    final List<Integer> children = elementList.getChildren(id);
+    elementList.setElementWidth(id, target);
+    if (!children.isEmpty()) {
+      final double delta = target - current;
+      final double targetDelta = delta / children.size();
+      for (final int child : children) {
+        final double childWidth = elementList.getElementWidth(child);
+        fixChildSize(child, childWidth, childWidth + targetDelta);
+      }
+    }
+  }
+
+  /**
+   * Calculates the width of the given element. If the element is a node, then the calculation is performed
+   * recursively for all its child elements.
+   *
+   * @param element the given element
+   * @return the element width
+   */
+  private double calcElementWidth(final SyntaxTreeElement element) {
+    double w = 0;
+    final List<Integer> children = elementList.getChildren(element.getId());
+    if (children.isEmpty()) {
+      w = getTextWidth(element.getContent(), font) + fontSize;
+    } else {
+      for (final int child : children) {
+        w += calcElementWidth(elementList.getElement(child));
+      }
+      final double textWidth = getTextWidth(element.getContent(), font) + fontSize;
+      if (textWidth > w) {
+        fixChildSize(element.getId(), w, textWidth);
+        w = textWidth;
+      }
+    }
+    elementList.setElementWidth(element.getId(), w);
+    return w;
+  }
+
+  /**
+   * Calculates the width of all elements at the given level.
+   *
+   * @param level the given level
+   * @return the level width
+   */
+  private double calcLevelWidth(final int level) {
+    double w = 0;
+    for (final SyntaxTreeElement element : elementList.getElements()) {
+      if (element.getLevel() == level) {
+        w += calcElementWidth(element);
+      }
+    }
+    return w;
+  }
+
+  /**
+   * Draws the elements into the image level by level from the top, calculating the element indentation as each level
+   * is drawn.
+   */
+  private void parseList() {
+    final List<SyntaxTreeElement> elements = elementList.getElements();
+    final int levelHeight = elementList.getLevelHeight();
+    for (int i = 0; i < levelHeight; i++) {
+      double x = 0;
+      for (final SyntaxTreeElement element : elements) {
+        if (element.getLevel() != i) {
+          continue;
+        }
+        final double cw = element.getWidth();
+        final double parentIndent = elementList.getIndent(element.getParent());
+        if (x < parentIndent) {
+          x = parentIndent;
+        }
+        element.setIndent(x);
+        drawElement(x, i, cw, element.getContent(), element.getType());
+
+        if (element.getParent() != 0) {
+          // draw a line to the parent element, or if the parent element is on the same indentation level and the leaf
+          // contains more than one word, then draw a triangle instead
+          if (isTriangles
+                  && element.getType() == SyntaxTreeElement.ElementType.LEAF
+                  && x == parentIndent
+                  && element.getContent().contains(" ")) {
+            triangleToParent(
+                    x,
+                    i,
+                    cw,
+                    elementList.getElementWidth(element.getParent()),
+                    getTextWidth(element.getContent(), font));
+          } else {
+            lineToParent(
+                    x,
+                    i,
+                    cw,
+                    elementList.getIndent(element.getParent()),
+                    elementList.getElementWidth(element.getParent()));
+          }
+        }
+        x += cw;
+      }
+    }
+  }
+
+  /**
+   * Calculates the top position of the given row.
+   *
+   * @param row the given row, i.e. tree level
+   * @return the top position in pixels
+   */
+  private int row2Px(final int row) {
+    return B_TOPBOT + elementHeight * row + (V_SPACE + fontSize) * row;
+  }
+
+  /**
+   * Gets the width of the given text from its glyph bounding box, following the phpsyntaxtree ImgGetTxtWidth
+   * function.
+   *
+   * @param text the given text
+   * @param textFont the font
+   * @return the text width in pixels
+   */
+  private int getTextWidth(final String text, final Font textFont) {
+    final int left;
+    final int right;
+    if (text.isEmpty()) {
+      left = 0;
+      right = 0;
+    } else {
+      final Rectangle2D bounds = textFont.createGlyphVector(fontRenderContext, text).getVisualBounds();
+      left = (int) Math.floor(bounds.getMinX());
+      right = (int) Math.ceil(bounds.getMaxX());
+    }
+    if ((left > 0 && right > 0) || (left < 0 && right < 0)) {
+      return Math.abs(right - left);
+    } else {
+      return Math.abs(right) + Math.abs(left) + 1;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * SyntaxTreeParser.java
+ *
+ * Created on Oct 18, 2026, 9:20:33 AM
+ *
+ * Description: Parses a labeled tree phrase into syntax tree elements, ported from the phpsyntaxtree CStringParser
+ * class.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Parses a labeled tree phrase, such as "[S [NP John] [VP runs]]", into a list of syntax tree elements.
+ *
+ * The tokenizing and tree building rules follow the PHP original so that both renderers lay out the same elements.
+ * The PHP original escapes non-ASCII bytes as HTML entities for GD, whereas here the characters are kept as they are
+ * because Java2D draws Unicode text directly. The recursive tree building of the PHP original is unrolled into a loop
+ * with an explicit parent stack so that deeply nested trees cannot overflow the thread stack.
+ *
+ * @author reed
+ */
+public class SyntaxTreeParser {
+
+  // the cleaned up labeled tree
+  private final String data;
+
+  // the position in the labeled tree
+  private int pos = 0;
+
+  // the id for the next element
+  private int id = 1;
+
+  // the element list
+  private final SyntaxTreeElementList elementList = new SyntaxTreeElementList();
+
+  /**
+   * Constructs a new SyntaxTreeParser instance.
+   *
+   * @param labeledTree the labeled tree
+   */
+  public SyntaxTreeParser(final String labeledTree) {
+    //Preconditions
+    assert labeledTree != null : "labeledTree must not be null";
+
+    // clean up the data a little to make processing easier
+    data = labeledTree
+            .replace("\t", "")
+            .replace("  ", " ")
+            .replace("] [", "][")
+            .replace(" [", "[");
+  }
+
+  /**
+   * Returns whether the labeled tree is non-empty and has matching brackets.
+   *
+   * @return whether the labeled tree is valid
+   */
+  public boolean validate() {
+    return new LabeledTreeValidator(data, 0).isValid();
+  }
+
+  /**
+   * Parses the labeled tree into the element list.
+   *
+   * @return the element list
+   */
+  public SyntaxTreeElementList parse() {
+    final Deque<Integer> parents = new ArrayDeque<>();
+    int parent = 0;
+    int level = 0;
+    // the PHP original trims only the first token of each recursive call
+    String token = getNextToken().trim();
+    while (true) {
+      if (token.isEmpty()) {
+        break;
+      }
+      if (token.equals("]")) {
+        level--;
+        if (parents.isEmpty()) {
+          break;
+        }
+        parent = parents.pop();
+        token = getNextToken();
+        continue;
+      }
+      if (token.charAt(0) == '[') {
+        token = token.substring(1);
+        final int spaceAt = token.indexOf(' ');
+        final int newParent;
+        if (spaceAt > 0) {
+          final SyntaxTreeElement node = new SyntaxTreeElement(id++, parent, token.substring(0, spaceAt), level);
+          elementList.add(node);
+          newParent = node.getId();
+          elementList.add(new SyntaxTreeElement(id++, newParent, token.substring(spaceAt), level + 1));
+        } else {
+          final SyntaxTreeElement node = new SyntaxTreeElement(id++, parent, token, level);
+          elementList.add(node);
+          newParent = node.getId();
+        }
+        level++;
+        parents.push(parent);
+        parent = newParent;
+        token = getNextToken().trim();
+      } else {
+        if (!token.trim().isEmpty()) {
+          elementList.add(new SyntaxTreeElement(id++, parent, token, level));
+        }
+        token = getNextToken();
+      }
+    }
+    return elementList;
+  }
+
+  /**
+   * Gets the next token from the labeled tree, which is either an opening bracket followed by its label, a closing
+   * bracket, or leaf text.
+   *
+   * @return the next token, or an empty string at the end of the labeled tree
+   */
+  private String getNextToken() {
+    final int length = data.length();
+    if (pos + 1 >= length) {
+      return "";
+    }
+    final StringBuilder stringBuilder = new StringBuilder();
+    boolean isToken = false;
+    int i = 0;
+    while (pos + i < length && !isToken) {
+      final char ch = data.charAt(pos + i);
+      switch (ch) {
+        case '[' -> {
+          if (i > 0) {
+            isToken = true;
+          } else {
+            stringBuilder.append(ch);
+          }
+        }
+        case ']' -> {
+          if (i == 0) {
+            stringBuilder.append(ch);
+          }
+          isToken = true;
+        }
+        case '\n', '\r' -> {
+        }
+        default ->
+          stringBuilder.append(ch);
+      }
+      i++;
+    }
+    if (i > 1) {
+      pos += i - 1;
+    } else {
+      pos++;
+    }
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Gets the element list.
+   *
+   * @return the element list
+   */
+  public SyntaxTreeElementList getElementList() {
+    return elementList;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * AdaptiveConcurrencyLimitTest.java
+ *
+ * Created on Oct 18, 2026, 6:31:44 PM
+ *
+ * Description: Tests the adaptive limit of concurrent renders.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(AdaptiveConcurrencyLimitTest.class);
+
+  // the simulated System.nanoTime()
+  private long nowNanos = 0;
+
+  public AdaptiveConcurrencyLimitTest() {
+  }
+
+  /**
+   * Test of onSample method when the renders are saturated and latency holds, of class AdaptiveConcurrencyLimit.
+   */
+  @Test
+  public void testAdditiveIncrease() {
+    LOGGER.info("additiveIncrease");
+    final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(2, 1, 4, 1_000, nowNanos);
+    assertEquals(2, concurrencyLimit.getLimit());
+    runWindow(concurrencyLimit, GraphRequestType.SYNTAX_TREE, 20_000, true, 10);
+    assertEquals(3, concurrencyLimit.getLimit());
+    runWindow(concurrencyLimit, GraphRequestType.SYNTAX_TREE, 20_000, true, 11);
+    assertEquals(4, concurrencyLimit.getLimit());
+
+    // the ceiling holds
+    runWindow(concurrencyLimit, GraphRequestType.SYNTAX_TREE, 20_000, true, 12);
+    assertEquals(4, concurrencyLimit.getLimit());
+
+    // the limit stays when the renders are not saturated
+    final AdaptiveConcurrencyLimit idleConcurrencyLimit = new AdaptiveConcurrencyLimit(2, 1, 4, 1_000, nowNanos);
+    runWindow(idleConcurrencyLimit, GraphRequestType.SYNTAX_TREE, 20_000, false, 10);
+    assertEquals(2, idleConcurrencyLimit.getLimit());
+    assertEquals(20_000, idleConcurrencyLimit.getBaselineMicros(GraphRequestType.SYNTAX_TREE));
+    assertEquals(10.0, idleConcurrencyLimit.getThroughput(), 0.001);
+  }
+
+  /**
+   * Test of onSample method when latency degrades, of class AdaptiveConcurrencyLimit.
+   */
+  @Test
+  public void testMultiplicativeDecrease() {
+    LOGGER.info("multiplicativeDecrease");
+    final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(8, 2, 8, 1_000, nowNanos);
+    runWindow(concurrencyLimit, GraphRequestType.GRAPHVIZ, 100_000, true, 10);
+    assertEquals(8, concurrencyLimit.getLimit());
+    runWindow(concurrencyLimit, GraphRequestType.GRAPHVIZ, 500_000, true, 10);
+    assertEquals(6, concurrencyLimit.getLimit());
+    runWindow(concurrencyLimit, GraphRequestType.GRAPHVIZ, 2_000_000, true, 10);
+    assertEquals(4, concurrencyLimit.getLimit());
+    runWindow(concurrencyLimit, GraphRequestType.GRAPHVIZ, 5_000_000, true, 10);
+    assertEquals(3, concurrencyLimit.getLimit());
+    runWindow(concurrencyLimit, GraphRequestType.GRAPHVIZ, 20_000_000, true, 10);
+    runWindow(concurrencyLimit, GraphRequestType.GRAPHVIZ, 80_000_000, true, 10);
+
+    // the floor holds
+    assertEquals(2, concurrencyLimit.getLimit());
+    assertEquals(4, concurrencyLimit.getChangeCount());
+  }
+
+  /**
+   * Test of onSample method with request types whose latencies differ, of class AdaptiveConcurrencyLimit.
+   */
+  @Test
+  public void testMixedRequestTypes() {
+    LOGGER.info("mixedRequestTypes");
+    final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(2, 1, 4, 1_000, nowNanos);
+    for (int i = 0; i < 10; i++) {
+      // each latency is compared with the baseline of its own type
+      concurrencyLimit.onSample(GraphRequestType.SYNTAX_TREE, 10_000, true, nowNanos);
+      nowNanos += TimeUnit.MILLISECONDS.toNanos(100);
+      concurrencyLimit.onSample(GraphRequestType.GRAPHVIZ, 400_000, true, nowNanos);
+    }
+    assertEquals(3, concurrencyLimit.getLimit());
+  }
+
+  /**
+   * Test of onSample method when an increase lowers the throughput, of class AdaptiveConcurrencyLimit.
+   */
+  @Test
+  public void testThroughputRevert() {
+    LOGGER.info("throughputRevert");
+    final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(2, 1, 4, 1_000, nowNanos);
+    runWindow(concurrencyLimit, GraphRequestType.SYNTAX_TREE, 20_000, true, 20);
+    assertEquals(3, concurrencyLimit.getLimit());
+    runWindow(concurrencyLimit, GraphRequestType.SYNTAX_TREE, 30_000, true, 10);
+    assertEquals(2, concurrencyLimit.getLimit());
+
+    // a fixed limit never changes
+    final AdaptiveConcurrencyLimit fixedConcurrencyLimit = new AdaptiveConcurrencyLimit(3, 3, 3, 1_000, nowNanos);
+    runWindow(fixedConcurrencyLimit, GraphRequestType.SYNTAX_TREE, 20_000, true, 10);
+    assertEquals(3, fixedConcurrencyLimit.getLimit());
+    assertEquals(0, fixedConcurrencyLimit.getChangeCount());
+  }
+
+  /**
+   * Records the given number of renders, evenly spread over one window of one second.
+   *
+   * @param concurrencyLimit the concurrency limit
+   * @param requestType the request type
+   * @param latencyMicros the render latency in microseconds
+   * @param isSaturated whether requests were waiting for a render slot
+   * @param count the number of renders
+   */
+  private void runWindow(
+          final AdaptiveConcurrencyLimit concurrencyLimit,
+          final GraphRequestType requestType,
+          final long latencyMicros,
+          final boolean isSaturated,
+          final int count) {
+    final long startNanos = nowNanos;
+    for (int i = 1; i <= count; i++) {
+      nowNanos = startNanos + TimeUnit.SECONDS.toNanos(1) * i / count;
+      concurrencyLimit.onSample(requestType, latencyMicros, isSaturated, nowNanos);
+    }
+  }
+}
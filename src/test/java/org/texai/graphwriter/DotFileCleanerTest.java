@@ -0,0 +1,85 @@
+/*
+ * DotFileCleanerTest.java
+ *
+ * Created on Oct 19, 2026, 7:10:48 AM
+ *
+ * Description: Tests the batched deletion of the rendered GraphViz files.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class DotFileCleanerTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(DotFileCleanerTest.class);
+
+  // the graphs directory
+  private Path graphsDirectory;
+
+  public DotFileCleanerTest() {
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    graphsDirectory = Files.createTempDirectory("dot-file-cleaner-test");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> stream = Files.walk(graphsDirectory)) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Test of discard method, of class DotFileCleaner.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testDiscard() throws Exception {
+    LOGGER.info("discard");
+    final DotFileCleaner dotFileCleaner = new DotFileCleaner(60_000);
+    final Path dotPath = graphsDirectory.resolve("g1.dot");
+
+    // before the cleaner starts, a discarded file is deleted at once
+    Files.writeString(dotPath, "digraph { a -> b }");
+    dotFileCleaner.discard(dotPath);
+    assertFalse(Files.exists(dotPath));
+    dotFileCleaner.start();
+
+    // a discarded file is renamed out of the way of the next file of the same name, which survives the batch delete
+    Files.writeString(dotPath, "digraph { a -> b }");
+    dotFileCleaner.discard(dotPath);
+    dotFileCleaner.discard(dotPath);
+    assertFalse(Files.exists(dotPath));
+    Files.writeString(dotPath, "digraph { b -> c }");
+    try (Stream<Path> stream = Files.list(graphsDirectory)) {
+      assertEquals(2, stream.count());
+    }
+    dotFileCleaner.close();
+    assertEquals(0, dotFileCleaner.getPendingCount());
+    assertEquals("digraph { b -> c }", Files.readString(dotPath));
+    try (Stream<Path> stream = Files.list(graphsDirectory)) {
+      assertEquals(1, stream.count());
+    }
+    assertEquals("[DotFileCleaner discarded: 2, batches: 1, pending: 0]", dotFileCleaner.toString());
+  }
+}
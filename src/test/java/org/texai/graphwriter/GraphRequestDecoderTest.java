@@ -0,0 +1,262 @@
+/*
+ * GraphRequestDecoderTest.java
+ *
+ * Created on Oct 18, 2026, 2:58:14 PM
+ *
+ * Description: Tests the binary wire protocol and the incremental graph request decoder.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class GraphRequestDecoderTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(GraphRequestDecoderTest.class);
+
+  public GraphRequestDecoderTest() {
+  }
+
+  /**
+   * Test of encode and decode methods, of class GraphRequestCodec.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testCodec() throws Exception {
+    LOGGER.info("codec");
+    final GraphRequest graphRequest = new GraphRequest(
+            GraphRequestType.SYNTAX_TREE,
+            "graphs/tree1",
+            "[S [NP Zo\u00eb] [VP l\u00e4uft]]");
+    graphRequest.setPriority(1);
+    graphRequest.setDeadlineMillis(1_234_567_890L);
+    final GraphRequest decodedGraphRequest = GraphRequestCodec.decode(ByteBuffer.wrap(GraphRequestCodec.encode(graphRequest)));
+    assertEquals(GraphRequestType.SYNTAX_TREE, decodedGraphRequest.getRequestType());
+    assertEquals("graphs/tree1", decodedGraphRequest.getFileName());
+    assertEquals("[S [NP Zo\u00eb] [VP l\u00e4uft]]", decodedGraphRequest.getLabeledTree());
+    assertEquals(1, decodedGraphRequest.getPriority());
+    assertEquals(1_234_567_890L, decodedGraphRequest.getDeadlineMillis());
+    assertEquals(GraphOutputFormat.PNG, decodedGraphRequest.getOutputFormat());
+
+    final GraphRequest graphVizRequest = new GraphRequest(GraphRequestType.GRAPHVIZ, "graphs/diagram1", "");
+    final GraphRequest decodedGraphVizRequest = GraphRequestCodec.decode(ByteBuffer.wrap(GraphRequestCodec.encode(graphVizRequest)));
+    assertEquals(GraphRequestType.GRAPHVIZ, decodedGraphVizRequest.getRequestType());
+    assertEquals("graphs/diagram1", decodedGraphVizRequest.getFileName());
+    assertEquals(0, decodedGraphVizRequest.getPriority());
+    assertEquals(0, decodedGraphVizRequest.getDeadlineMillis());
+
+    graphVizRequest.setOutputFormat(GraphOutputFormat.PNG_AND_SVG);
+    assertEquals(GraphOutputFormat.PNG_AND_SVG, GraphRequestCodec.decode(ByteBuffer.wrap(GraphRequestCodec.encode(graphVizRequest))).getOutputFormat());
+    assertEquals(GraphOutputFormat.PNG_AND_SVG, GraphOutputFormat.SVG.union(GraphOutputFormat.PNG));
+    assertEquals(GraphOutputFormat.SVG, GraphOutputFormat.SVG.union(GraphOutputFormat.SVG));
+  }
+
+  /**
+   * Test of encode and decode methods, of class GraphResultCodec.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testResultCodec() throws Exception {
+    LOGGER.info("resultCodec");
+    final GraphRequest graphRequest = new GraphRequest(GraphRequestType.GRAPHVIZ, "graphs/diagram1", "");
+    graphRequest.setRequestId(42);
+    assertEquals(42, GraphRequestCodec.decode(ByteBuffer.wrap(GraphRequestCodec.encode(graphRequest))).getRequestId());
+
+    final GraphResult graphResult = new GraphResult(
+            GraphResultStatus.FAILED,
+            1, // exitCode
+            "/home/user/graphs/diagram1.png", // outputPath
+            0, // byteSize
+            "no graph was written"); // message
+    graphResult.setRequestId(42);
+    graphResult.setQueueMicros(1500);
+    graphResult.setRenderMicros(250_000);
+    final GraphResult decodedGraphResult = GraphResultCodec.decode(ByteBuffer.wrap(GraphResultCodec.encode(GraphRequestType.GRAPHVIZ, graphResult)));
+    assertEquals(42, decodedGraphResult.getRequestId());
+    assertEquals(GraphResultStatus.FAILED, decodedGraphResult.getStatus());
+    assertEquals(1, decodedGraphResult.getExitCode());
+    assertEquals("/home/user/graphs/diagram1.png", decodedGraphResult.getOutputPath());
+    assertEquals(1500, decodedGraphResult.getQueueMicros());
+    assertEquals(250_000, decodedGraphResult.getRenderMicros());
+    assertEquals("no graph was written", decodedGraphResult.getMessage());
+    assertEquals(graphResult.toString(), decodedGraphResult.toString());
+  }
+
+  /**
+   * Test of encodeHeaders and decode methods, of class GraphResultCodec, with inline images.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testInlineResultCodec() throws Exception {
+    LOGGER.info("inlineResultCodec");
+    final GraphRequest graphRequest = new GraphRequest(GraphRequestType.GRAPHVIZ, "graphs/diagram1", "");
+    graphRequest.setRequestId(43);
+    assertFalse(GraphRequestCodec.decode(ByteBuffer.wrap(GraphRequestCodec.encode(graphRequest))).isInline());
+    graphRequest.setInline(true);
+    assertTrue(GraphRequestCodec.decode(ByteBuffer.wrap(GraphRequestCodec.encode(graphRequest))).isInline());
+
+    // a PNG image in memory, and an SVG image in a file that is deleted once opened
+    final byte[] pngBytes = {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2};
+    final byte[] svgBytes = "<svg/>".getBytes(StandardCharsets.UTF_8);
+    final Path svgPath = Files.createTempFile("diagram1", ".svg");
+    Files.write(svgPath, svgBytes);
+    final InlineImage svgImage = InlineImage.open(GraphOutputFormat.SVG, svgPath, true);
+    assertFalse(Files.exists(svgPath));
+    final GraphResult graphResult = new GraphResult(GraphResultStatus.OK, 0, "", pngBytes.length + svgBytes.length, "");
+    graphResult.setRequestId(43);
+    graphResult.addInlineImage(new InlineImage(GraphOutputFormat.PNG, pngBytes));
+    graphResult.addInlineImage(svgImage);
+
+    // write the frame as the request server does, transferring the file image
+    final List<ByteBuffer> headers = GraphResultCodec.encodeHeaders(GraphRequestType.GRAPHVIZ, graphResult);
+    assertEquals(2, headers.size());
+    final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    final WritableByteChannel writableByteChannel = Channels.newChannel(byteArrayOutputStream);
+    writableByteChannel.write(headers.get(0));
+    writableByteChannel.write(ByteBuffer.wrap(pngBytes));
+    writableByteChannel.write(headers.get(1));
+    assertEquals(svgBytes.length, svgImage.getFileChannel().transferTo(0, svgImage.getByteSize(), writableByteChannel));
+    svgImage.close();
+    final byte[] frame = byteArrayOutputStream.toByteArray();
+    assertEquals(GraphResultCodec.getFrameLength(graphResult) + GraphRequestCodec.PREFIX_LENGTH, frame.length);
+
+    final GraphResult decodedGraphResult = GraphResultCodec.decode(ByteBuffer.wrap(frame));
+    assertEquals(43, decodedGraphResult.getRequestId());
+    assertEquals(GraphResultStatus.OK, decodedGraphResult.getStatus());
+    assertEquals(2, decodedGraphResult.getInlineImages().size());
+    assertEquals(GraphOutputFormat.PNG, decodedGraphResult.getInlineImages().get(0).getFormat());
+    assertArrayEquals(pngBytes, decodedGraphResult.getInlineImages().get(0).getBytes());
+    assertEquals(GraphOutputFormat.SVG, decodedGraphResult.getInlineImages().get(1).getFormat());
+    assertArrayEquals(svgBytes, decodedGraphResult.getInlineImages().get(1).getBytes());
+
+    // a result without images still decodes as before, and encodes whole when its images are in memory
+    final GraphResult plainGraphResult = new GraphResult(GraphResultStatus.CACHED, 0, "/home/user/graphs/diagram1.png", 7, "");
+    assertTrue(GraphResultCodec.decode(ByteBuffer.wrap(GraphResultCodec.encode(GraphRequestType.GRAPHVIZ, plainGraphResult))).getInlineImages().isEmpty());
+    final GraphResult decodedResult2 = GraphResultCodec.decode(ByteBuffer.wrap(GraphResultCodec.encode(GraphRequestType.GRAPHVIZ, decodedGraphResult)));
+    assertArrayEquals(svgBytes, decodedResult2.getInlineImages().get(1).getBytes());
+  }
+
+  /**
+   * Test of decode method, of class GraphRequestDecoder, with binary and legacy requests pipelined on one connection
+   * and received one byte at a time.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testDecodeMixedFormats() throws Exception {
+    LOGGER.info("decodeMixedFormats");
+    final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    byteArrayOutputStream.write(GraphRequestCodec.encode(new GraphRequest("graphs/tree1", "[A b]")));
+    byteArrayOutputStream.write(new GraphRequest("graphs/tree2", "[C d]").serialize().getBytes(StandardCharsets.UTF_8));
+    byteArrayOutputStream.write(new GraphRequest("graphs/diagram1", GraphRequest.GRAPHVIZ_SENTINEL).serialize().getBytes(StandardCharsets.UTF_8));
+    byteArrayOutputStream.write(GraphRequestCodec.encode(new GraphRequest(GraphRequestType.GRAPHVIZ, "graphs/diagram2", "")));
+    final byte[] bytes = byteArrayOutputStream.toByteArray();
+
+    final GraphRequestDecoder graphRequestDecoder = new GraphRequestDecoder(StandardCharsets.UTF_8);
+    final List<GraphRequest> graphRequests = new ArrayList<>();
+    for (final byte b : bytes) {
+      graphRequestDecoder.decode(ByteBuffer.wrap(new byte[]{b}), graphRequests::add);
+    }
+    assertFalse(graphRequestDecoder.isPartial());
+    assertEquals(4, graphRequests.size());
+    assertEquals("graphs/tree1", graphRequests.get(0).getFileName());
+    assertEquals("[A b]", graphRequests.get(0).getLabeledTree());
+    assertEquals(GraphRequestType.SYNTAX_TREE, graphRequests.get(1).getRequestType());
+    assertEquals("[C d]", graphRequests.get(1).getLabeledTree());
+    assertEquals(GraphRequestType.GRAPHVIZ, graphRequests.get(2).getRequestType());
+    assertEquals(GraphRequestType.GRAPHVIZ, graphRequests.get(3).getRequestType());
+    assertEquals("graphs/diagram2", graphRequests.get(3).getFileName());
+
+    // all at once
+    final List<GraphRequest> graphRequests2 = new ArrayList<>();
+    graphRequestDecoder.decode(ByteBuffer.wrap(bytes), graphRequests2::add);
+    assertEquals(4, graphRequests2.size());
+
+    // the readiness probe in both formats
+    final List<GraphRequest> pingRequests = new ArrayList<>();
+    graphRequestDecoder.decode(
+            ByteBuffer.wrap(new GraphRequest("ping", "ping").serialize().getBytes(StandardCharsets.UTF_8)),
+            pingRequests::add);
+    graphRequestDecoder.decode(
+            ByteBuffer.wrap(GraphRequestCodec.encode(new GraphRequest(GraphRequestType.PING, "ping", ""))),
+            pingRequests::add);
+    assertEquals(2, pingRequests.size());
+    assertEquals(GraphRequestType.PING, pingRequests.get(0).getRequestType());
+    assertEquals(GraphRequestType.PING, pingRequests.get(1).getRequestType());
+  }
+
+  /**
+   * Test of decode method, of class GraphRequestDecoder, with ill formed frames.
+   */
+  @Test
+  public void testDecodeIllFormed() {
+    LOGGER.info("decodeIllFormed");
+    final byte[] frame = GraphRequestCodec.encode(new GraphRequest("graphs/tree1", "[A b]"));
+    frame[4] = 99; // version
+    try {
+      new GraphRequestDecoder(StandardCharsets.UTF_8).decode(ByteBuffer.wrap(frame), graphRequest -> fail());
+      fail();
+    } catch (ProtocolException ex) {
+      assertEquals("unsupported protocol version 99", ex.getMessage());
+    }
+    try {
+      new GraphRequestDecoder(StandardCharsets.UTF_8).decode(ByteBuffer.wrap(new byte[]{0}), graphRequest -> fail());
+      fail();
+    } catch (ProtocolException ex) {
+      assertEquals("graph request is missing the file name", ex.getMessage());
+    }
+  }
+
+  /**
+   * Test of decode method, of class GraphRequestDecoder, with a legacy field that exceeds its bound.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testDecodeOversizedLegacyField() throws Exception {
+    LOGGER.info("decodeOversizedLegacyField");
+    final GraphRequestDecoder graphRequestDecoder = new GraphRequestDecoder(StandardCharsets.UTF_8, 1024);
+    final byte[] chunk = new byte[600];
+    Arrays.fill(chunk, (byte) 'x');
+    // a field up to the bound is decoded
+    final List<GraphRequest> graphRequests = new ArrayList<>();
+    graphRequestDecoder.decode(ByteBuffer.wrap(chunk), graphRequests::add);
+    graphRequestDecoder.decode(ByteBuffer.wrap(chunk, 0, 424), graphRequests::add);
+    graphRequestDecoder.decode(ByteBuffer.wrap(new byte[]{0, '[', 'A', ' ', 'b', ']', 0}), graphRequests::add);
+    assertEquals(1, graphRequests.size());
+    assertEquals(1024, graphRequests.get(0).getFileName().length());
+
+    // a field that never ends is rejected at the bound, across chunks
+    graphRequestDecoder.decode(ByteBuffer.wrap(chunk), graphRequest -> fail());
+    try {
+      graphRequestDecoder.decode(ByteBuffer.wrap(chunk), graphRequest -> fail());
+      fail();
+    } catch (ProtocolException ex) {
+      assertEquals("legacy graph request field longer than 1024 bytes", ex.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * GraphVizBatchTest.java
+ *
+ * Created on Oct 19, 2026, 9:14:37 AM
+ *
+ * Description: Tests the rendering of a batch of GraphViz requests with one dot process.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class GraphVizBatchTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(GraphVizBatchTest.class);
+
+  // a stand-in for dot, which writes a partial diagram before it fails on a file that contains BAD
+  private static final String DOT_SCRIPT = """
+          #!/bin/sh
+          O=0; out=""; files=""; rc=0
+          while [ $# -gt 0 ]; do
+            case "$1" in
+              -T*) ;;
+              -O) O=1 ;;
+              -o) shift; out="$1" ;;
+              *) files="$files $1" ;;
+            esac
+            shift
+          done
+          for f in $files; do
+            if [ $O = 1 ]; then target="$f.png"; else target="$out"; fi
+            if grep -q BAD "$f"; then printf 'PARTIAL' > "$target"; rc=1; continue; fi
+            if [ $O = 1 ]; then printf 'BATCH' > "$target"; else printf 'SINGLE' > "$target"; fi
+          done
+          exit $rc
+          """;
+
+  // the graphs directory
+  private Path graphsDirectory;
+
+  // the graph writer
+  private GraphWriter graphWriter;
+
+  public GraphVizBatchTest() {
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    graphsDirectory = Files.createTempDirectory("graphviz-batch-test");
+    final Path binDirectory = Files.createTempDirectory("graphviz-batch-test-bin");
+    final Path dotScriptPath = binDirectory.resolve("dot");
+    Files.writeString(dotScriptPath, DOT_SCRIPT);
+    Files.setPosixFilePermissions(dotScriptPath, PosixFilePermissions.fromString("rwx------"));
+    dotScriptPath.toFile().deleteOnExit();
+    binDirectory.toFile().deleteOnExit();
+    System.setProperty("org.texai.graphwriter.dotCommand", dotScriptPath.toString());
+    try {
+      graphWriter = new GraphWriter();
+    } finally {
+      System.clearProperty("org.texai.graphwriter.dotCommand");
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> stream = Files.walk(graphsDirectory)) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Test of graphVizDiagrams method, of class GraphWriter, for a batch that dot renders.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testGraphVizDiagrams() throws Exception {
+    LOGGER.info("graphVizDiagrams");
+    final List<GraphResult> graphResults = graphWriter.graphVizDiagrams(List.of(
+            makeGraphRequest("g1", "digraph { a -> b }"),
+            makeGraphRequest("g2", "digraph { b -> c }")));
+    assertEquals(GraphResultStatus.OK, graphResults.get(0).getStatus());
+    assertEquals(GraphResultStatus.OK, graphResults.get(1).getStatus());
+    assertEquals(graphsDirectory.resolve("g1.png").toString(), graphResults.get(0).getOutputPath());
+    assertEquals("BATCH", Files.readString(graphsDirectory.resolve("g1.png")));
+    assertEquals("BATCH", Files.readString(graphsDirectory.resolve("g2.png")));
+    assertEquals(List.of("g1.png", "g2.png"), listFileNames());
+  }
+
+  /**
+   * Test of graphVizDiagrams method, of class GraphWriter, for a failed batch, whose partial diagrams are never
+   * installed.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testFailedBatch() throws Exception {
+    LOGGER.info("failed batch");
+    final List<GraphResult> graphResults = graphWriter.graphVizDiagrams(List.of(
+            makeGraphRequest("g1", "digraph { a -> b }"),
+            makeGraphRequest("g2", "digraph { BAD }")));
+    // the good request is rendered on its own, and the ill-formed one fails on its own
+    assertEquals(GraphResultStatus.OK, graphResults.get(0).getStatus());
+    assertEquals("SINGLE", Files.readString(graphsDirectory.resolve("g1.png")));
+    assertEquals(GraphResultStatus.FAILED, graphResults.get(1).getStatus());
+    // neither a partial diagram, nor a temporary file, nor a dot -O output is left behind
+    assertEquals(List.of("g1.png"), listFileNames());
+  }
+
+  /**
+   * Writes the given GraphViz file and makes a request to render it.
+   *
+   * @param graphName the given graph name
+   * @param dot the given GraphViz diagram
+   * @return the graph request
+   * @throws IOException when the file cannot be written
+   */
+  private GraphRequest makeGraphRequest(
+          final String graphName,
+          final String dot) throws IOException {
+    final Path graphPath = graphsDirectory.resolve(graphName);
+    Files.writeString(graphsDirectory.resolve(graphName + ".dot"), dot);
+    return new GraphRequest(GraphRequestType.GRAPHVIZ, graphPath.toString(), "");
+  }
+
+  /**
+   * Lists the sorted names of the files in the graphs directory, including the hidden ones.
+   *
+   * @return the sorted file names
+   * @throws IOException when the directory cannot be listed
+   */
+  private List<String> listFileNames() throws IOException {
+    try (Stream<Path> stream = Files.list(graphsDirectory)) {
+      return stream.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+    }
+  }
+}
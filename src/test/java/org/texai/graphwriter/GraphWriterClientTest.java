@@ -0,0 +1,473 @@
+/*
+ * GraphWriterClientTest.java
+ *
+ * Created on Oct 19, 2026, 11:18:53 AM
+ *
+ * Description: Tests the pooled, batching graph-writing client against a stand-in server.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class GraphWriterClientTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(GraphWriterClientTest.class);
+
+  // the number of milliseconds to wait for a request or an acknowledgement
+  private static final long TIMEOUT_MILLIS = 5_000;
+
+  // the number of milliseconds after which no more requests are expected
+  private static final long QUIET_MILLIS = 300;
+
+  // the stand-in server
+  private StandInServer standInServer;
+
+  // the client under test
+  private GraphWriterClient graphWriterClient;
+
+  public GraphWriterClientTest() {
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    standInServer = new StandInServer();
+  }
+
+  @After
+  public void tearDown() {
+    if (graphWriterClient != null) {
+      graphWriterClient.close();
+    }
+    standInServer.close();
+  }
+
+  /**
+   * Test of submit method, of class GraphWriterClient, for the spreading of requests over the pooled connections.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testPooling() throws Exception {
+    LOGGER.info("pooling");
+    graphWriterClient = makeGraphWriterClient(2, 1, 0);
+    final List<CompletableFuture<GraphResult>> results = new ArrayList<>();
+    for (int i = 1; i <= 10; i++) {
+      results.add(graphWriterClient.submit(makeGraphRequest(i)));
+    }
+    for (int i = 1; i <= 10; i++) {
+      final GraphResult graphResult = results.get(i - 1).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      assertEquals(GraphResultStatus.OK, graphResult.getStatus());
+      assertEquals("graphs/g" + i + ".png", graphResult.getOutputPath());
+    }
+    // the requests alternate over two persistent connections
+    assertEquals(2, standInServer.acceptedCount.get());
+    assertEquals(5, standInServer.getReceivedCount(0));
+    assertEquals(5, standInServer.getReceivedCount(1));
+  }
+
+  /**
+   * Test of the batching of buffered requests, of class GraphWriterClient.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testBatchFlush() throws Exception {
+    LOGGER.info("batch flush");
+    graphWriterClient = makeGraphWriterClient(1, 4, TimeUnit.SECONDS.toMicros(60));
+
+    // the buffered requests are written when the batch is full
+    for (int i = 1; i <= 3; i++) {
+      assertTrue(graphWriterClient.send(makeGraphRequest(i)));
+    }
+    assertNull(standInServer.receivedRequests.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+    assertTrue(graphWriterClient.send(makeGraphRequest(4)));
+    for (int i = 1; i <= 4; i++) {
+      assertEquals("graphs/g" + i, takeReceivedRequest().getFileName());
+    }
+
+    // or when flushed explicitly
+    assertTrue(graphWriterClient.send(makeGraphRequest(5)));
+    assertNull(standInServer.receivedRequests.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+    graphWriterClient.flush();
+    assertEquals("graphs/g5", takeReceivedRequest().getFileName());
+    graphWriterClient.close();
+
+    // or when the flush interval has elapsed
+    graphWriterClient = makeGraphWriterClient(1, 100, TimeUnit.MILLISECONDS.toMicros(50));
+    final CompletableFuture<GraphResult> result = graphWriterClient.submit(makeGraphRequest(6));
+    assertEquals("graphs/g6", takeReceivedRequest().getFileName());
+    assertEquals(GraphResultStatus.OK, result.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).getStatus());
+  }
+
+  /**
+   * Test of the reconnection of a pooled connection that the server closed, of class GraphWriterClient.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testReconnect() throws Exception {
+    LOGGER.info("reconnect");
+    graphWriterClient = makeGraphWriterClient(1, 1, 0);
+    assertEquals(GraphResultStatus.OK,
+            graphWriterClient.submit(makeGraphRequest(1)).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).getStatus());
+
+    // the future of a request that is unacknowledged when the server closes the connection fails
+    standInServer.isAcknowledging = false;
+    final CompletableFuture<GraphResult> result = graphWriterClient.submit(makeGraphRequest(2));
+    takeReceivedRequest();
+    takeReceivedRequest();
+    standInServer.closeConnections();
+    try {
+      result.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      fail("the future must fail");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof IOException);
+    }
+
+    // the next request is sent on a new connection
+    standInServer.isAcknowledging = true;
+    assertEquals(GraphResultStatus.OK,
+            graphWriterClient.submit(makeGraphRequest(3)).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).getStatus());
+    assertEquals(2, standInServer.acceptedCount.get());
+  }
+
+  /**
+   * Test of submit method, of class GraphWriterClient, for requests written while the server closes their connection,
+   * whose futures complete one way or the other rather than wait for a reader that has gone.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testClosingConnection() throws Exception {
+    LOGGER.info("closing connection");
+    graphWriterClient = makeGraphWriterClient(1, 1, 0);
+    for (int i = 1; i <= 50; i++) {
+      assertEquals(GraphResultStatus.OK,
+              graphWriterClient.submit(makeGraphRequest(i)).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).getStatus());
+      standInServer.closeConnections();
+      final CompletableFuture<GraphResult> result = graphWriterClient.submit(makeGraphRequest(i));
+      try {
+        assertEquals(GraphResultStatus.OK, result.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).getStatus());
+      } catch (ExecutionException ex) {
+        assertTrue(ex.getCause() instanceof IOException);
+      }
+    }
+  }
+
+  /**
+   * Test of flush method, of class GraphWriterClient, for a batch whose write fails part way through, of which only
+   * the requests not written in full are written again on the new connection.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testPartialFlush() throws Exception {
+    LOGGER.info("partial flush");
+    // the batch is far larger than the socket buffers, and the server resets the first connection after 1 MiB
+    standInServer.isAcknowledging = false;
+    standInServer.resetAfterBytes = 1024 * 1024;
+    final int requestCount = 256;
+    graphWriterClient = makeGraphWriterClient(1, requestCount + 1, TimeUnit.SECONDS.toMicros(60));
+    final String labeledTree = "[S " + "x".repeat(64 * 1024) + "]";
+    final List<CompletableFuture<GraphResult>> results = new ArrayList<>();
+    for (int i = 1; i <= requestCount; i++) {
+      final GraphRequest graphRequest = new GraphRequest(GraphRequestType.SYNTAX_TREE, "graphs/g" + i, labeledTree);
+      results.add(graphWriterClient.submit(graphRequest));
+    }
+    graphWriterClient.flush();
+    graphWriterClient.close();
+    graphWriterClient = null;
+    assertTrue(standInServer.awaitClosedConnections(2));
+
+    // the second connection carries each request that was not written in full on the first one, exactly once
+    final List<Long> resentIds = standInServer.getReceivedIds(1);
+    assertFalse(resentIds.isEmpty());
+    final long firstResentId = resentIds.get(0);
+    assertTrue(firstResentId > 1);
+    for (int i = 0; i < resentIds.size(); i++) {
+      assertEquals(firstResentId + i, (long) resentIds.get(i));
+    }
+    assertEquals(requestCount, firstResentId + resentIds.size() - 1);
+    for (final long receivedId : standInServer.getReceivedIds(0)) {
+      assertTrue(receivedId < firstResentId);
+    }
+    // the futures of the requests written on the first connection failed with it
+    for (int i = 1; i < firstResentId; i++) {
+      assertTrue(results.get(i - 1).isCompletedExceptionally());
+    }
+  }
+
+  /**
+   * Makes a client of the stand-in server.
+   *
+   * @param poolSize the number of pooled connections
+   * @param batchSize the number of buffered requests that triggers a flush
+   * @param flushIntervalMicros the number of microseconds after which buffered requests are flushed
+   * @return the client
+   */
+  private GraphWriterClient makeGraphWriterClient(
+          final int poolSize,
+          final int batchSize,
+          final long flushIntervalMicros) {
+    return new GraphWriterClient(
+            poolSize,
+            batchSize,
+            flushIntervalMicros,
+            standInServer.getPort(),
+            null); // unixSocketPath
+  }
+
+  /**
+   * Makes a GraphViz request for the given graph number.
+   *
+   * @param graphNumber the given graph number
+   * @return the graph request
+   */
+  private static GraphRequest makeGraphRequest(final int graphNumber) {
+    return new GraphRequest(GraphRequestType.GRAPHVIZ, "graphs/g" + graphNumber, "");
+  }
+
+  /**
+   * Takes the next graph request received by the stand-in server.
+   *
+   * @return the graph request
+   * @throws InterruptedException when the test is interrupted
+   */
+  private GraphRequest takeReceivedRequest() throws InterruptedException {
+    final GraphRequest graphRequest = standInServer.receivedRequests.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    assertNotNull("no request was received", graphRequest);
+    return graphRequest;
+  }
+
+  /**
+   * Provides a stand-in graph-writing server, which serves each connection on its own thread, records the received
+   * requests, and acknowledges them at once.
+   */
+  private static final class StandInServer implements Runnable {
+
+    // the server socket channel
+    private final ServerSocketChannel serverSocketChannel;
+
+    // the accepted connections
+    private final List<SocketChannel> socketChannels = new CopyOnWriteArrayList<>();
+
+    // the received requests
+    private final BlockingQueue<GraphRequest> receivedRequests = new LinkedBlockingQueue<>();
+
+    // the request ids received on each connection, indexed by the connection index
+    private final Map<Integer, List<Long>> receivedIds = new ConcurrentHashMap<>();
+
+    // the number of accepted connections
+    private final AtomicInteger acceptedCount = new AtomicInteger(0);
+
+    // the number of connections closed by either end
+    private final AtomicInteger closedCount = new AtomicInteger(0);
+
+    // the indicator whether the received requests are acknowledged
+    private volatile boolean isAcknowledging = true;
+
+    // the number of bytes after which the first connection is reset, or zero if never
+    private volatile int resetAfterBytes = 0;
+
+    /**
+     * Constructs a new StandInServer instance, bound to an ephemeral loopback port, and starts its accepting thread.
+     *
+     * @throws IOException when the server cannot be bound
+     */
+    StandInServer() throws IOException {
+      serverSocketChannel = ServerSocketChannel.open();
+      serverSocketChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      final Thread acceptingThread = new Thread(this, "stand-in-server");
+      acceptingThread.setDaemon(true);
+      acceptingThread.start();
+    }
+
+    /**
+     * Accepts connections until closed.
+     */
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final SocketChannel socketChannel = serverSocketChannel.accept();
+          socketChannels.add(socketChannel);
+          final int connectionIndex = acceptedCount.getAndIncrement();
+          receivedIds.put(connectionIndex, new CopyOnWriteArrayList<>());
+          final Thread connectionThread = new Thread(() -> serve(socketChannel, connectionIndex), "stand-in-connection");
+          connectionThread.setDaemon(true);
+          connectionThread.start();
+        }
+      } catch (IOException ex) {
+        // closed
+      }
+    }
+
+    /**
+     * Reads and acknowledges the requests of the given connection until it is closed.
+     *
+     * @param socketChannel the given connection
+     * @param connectionIndex the index of the connection
+     */
+    private void serve(
+            final SocketChannel socketChannel,
+            final int connectionIndex) {
+      final GraphRequestDecoder graphRequestDecoder = new GraphRequestDecoder(StandardCharsets.UTF_8);
+      final ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+      long totalBytesRead = 0;
+      try {
+        while (socketChannel.read(readBuffer.clear()) >= 0) {
+          totalBytesRead += readBuffer.position();
+          graphRequestDecoder.decode(readBuffer.flip(), graphRequest -> receive(socketChannel, connectionIndex, graphRequest));
+          if (connectionIndex == 0 && resetAfterBytes > 0 && totalBytesRead >= resetAfterBytes) {
+            socketChannel.setOption(StandardSocketOptions.SO_LINGER, 0);
+            break;
+          }
+        }
+      } catch (IOException ex) {
+        // closed
+      } finally {
+        try {
+          socketChannel.close();
+        } catch (IOException ex) {
+          // ignore
+        }
+        closedCount.incrementAndGet();
+      }
+    }
+
+    /**
+     * Records the given received request, and acknowledges it when it carries a request id.
+     *
+     * @param socketChannel the connection on which it was received
+     * @param connectionIndex the index of the connection
+     * @param graphRequest the given received request
+     */
+    private void receive(
+            final SocketChannel socketChannel,
+            final int connectionIndex,
+            final GraphRequest graphRequest) {
+      receivedRequests.add(graphRequest);
+      receivedIds.get(connectionIndex).add(graphRequest.getRequestId());
+      if (isAcknowledging && graphRequest.getRequestId() != 0) {
+        final GraphResult graphResult = new GraphResult(
+                GraphResultStatus.OK,
+                0, // exitCode
+                graphRequest.getFileName() + ".png",
+                0, // byteSize
+                ""); // message
+        graphResult.setRequestId(graphRequest.getRequestId());
+        try {
+          final ByteBuffer frame = ByteBuffer.wrap(GraphResultCodec.encode(graphRequest.getRequestType(), graphResult));
+          while (frame.hasRemaining()) {
+            socketChannel.write(frame);
+          }
+        } catch (IOException ex) {
+          // the client has gone away
+        }
+      }
+    }
+
+    /**
+     * Gets the bound port.
+     *
+     * @return the bound port
+     */
+    int getPort() {
+      return ((InetSocketAddress) serverSocketChannel.socket().getLocalSocketAddress()).getPort();
+    }
+
+    /**
+     * Gets the number of requests received on the given connection.
+     *
+     * @param connectionIndex the index of the given connection
+     * @return the number of received requests
+     */
+    int getReceivedCount(final int connectionIndex) {
+      return getReceivedIds(connectionIndex).size();
+    }
+
+    /**
+     * Gets the request ids received on the given connection, in order.
+     *
+     * @param connectionIndex the index of the given connection
+     * @return the received request ids
+     */
+    List<Long> getReceivedIds(final int connectionIndex) {
+      return receivedIds.getOrDefault(connectionIndex, List.of());
+    }
+
+    /**
+     * Waits until the given number of connections are closed.
+     *
+     * @param count the given number of connections
+     * @return whether they were closed within the timeout
+     * @throws InterruptedException when the test is interrupted
+     */
+    boolean awaitClosedConnections(final int count) throws InterruptedException {
+      final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+      while (closedCount.get() < count) {
+        if (System.nanoTime() - deadlineNanos > 0) {
+          return false;
+        }
+        Thread.sleep(10);
+      }
+      return true;
+    }
+
+    /**
+     * Closes the accepted connections.
+     */
+    void closeConnections() {
+      for (final SocketChannel socketChannel : socketChannels) {
+        try {
+          socketChannel.close();
+        } catch (IOException ex) {
+          // ignore
+        }
+      }
+    }
+
+    /**
+     * Closes the server and its connections.
+     */
+    void close() {
+      try {
+        serverSocketChannel.close();
+      } catch (IOException ex) {
+        // ignore
+      }
+      closeConnections();
+    }
+  }
+}
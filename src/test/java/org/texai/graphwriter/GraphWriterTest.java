@@ -11,9 +11,10 @@
 package org.texai.graphwriter;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.nio.file.Files;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.junit.After;
@@ -22,8 +23,6 @@ import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
-import org.texai.util.StringUtils;
-import org.texai.util.TexaiException;
 
 /**
  *
@@ -77,7 +76,7 @@ public class GraphWriterTest {
    * Test of graphPHPSyntaxTree method, of class GraphWriter.
    */
   @Test
-  public void testGraphLabeledTree2() {
+  public void testGraphLabeledTree2() throws Exception {
     LOGGER.info("graphLabeledTree2");
 
     Logger.getLogger(GraphWriter.class).setLevel(Level.DEBUG);
@@ -94,44 +93,25 @@ public class GraphWriterTest {
     assertTrue(GraphWriter.isGraphServerRunning());
 
     LOGGER.info("----------------------------------------------------------------");
-    issueGraphRequest(1);
-    issueGraphRequest(2);
-    issueGraphRequest(3);
-    issueGraphRequest(4);
-    issueGraphRequest(5);
-    issueGraphRequest(6);
-    issueGraphRequest(7);
-    issueGraphRequest(8);
-    issueGraphRequest(9);
-    issueGraphRequest(10);
-    LOGGER.info("sleeping for 10 seconds while graph images are created by spawned processes...");
-    try {
-      Thread.sleep(10_000); // 10 seconds
-    } catch (InterruptedException ex) {
-      // ignore
+    final List<CompletableFuture<GraphResult>> results = new ArrayList<>();
+    for (int sequence = 1; sequence <= 10; sequence++) {
+      results.add(issueGraphRequest(sequence));
     }
-
-    final String userHomeDirectory = System.getProperty("user.home");
-    assert StringUtils.isNonEmptyString(userHomeDirectory);
-    final File file = new File(userHomeDirectory + "/GraphWriter-1.0/log/GraphWriter.log");
-    LOGGER.info("contents of: " + file.toString() + "...");
-
-    LOGGER.info("----------------------------------------------------------------");
-    try (final Scanner scanner = new Scanner(file)) {
-      while (scanner.hasNextLine()) {
-        final String line = scanner.nextLine();
-        LOGGER.info(line);
-      }
-    } catch (FileNotFoundException ex) {
-      throw new TexaiException(ex);
+    LOGGER.info("waiting for the graph images to be created...");
+    for (final CompletableFuture<GraphResult> result : results) {
+      final GraphResult graphResult = result.get(30, TimeUnit.SECONDS);
+      LOGGER.info(graphResult);
+      assertTrue(graphResult.getStatus().isSuccessful());
+      assertTrue(new File(graphResult.getOutputPath()).isFile());
+      assertTrue(graphResult.getByteSize() > 0);
     }
     LOGGER.info("----------------------------------------------------------------");
   }
 
-  private void issueGraphRequest(final int sequence) {
+  private CompletableFuture<GraphResult> issueGraphRequest(final int sequence) {
     final String fileName = System.getProperty("user.home") + "/GraphWriter-1.0/graphs/test";
     String labeledTree = "[test_" + sequence + "/1]";
-    GraphWriter.issuePHPGraphRequest(
+    return GraphWriter.submitSyntaxTreeRequest(
             fileName + sequence,
             labeledTree);
   }
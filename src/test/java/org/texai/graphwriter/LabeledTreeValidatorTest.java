@@ -0,0 +1,72 @@
+/*
+ * LabeledTreeValidatorTest.java
+ *
+ * Created on Oct 19, 2026, 4:58:05 AM
+ *
+ * Description: Tests the one-pass validator of labeled trees.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import org.apache.log4j.Logger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class LabeledTreeValidatorTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(LabeledTreeValidatorTest.class);
+
+  public LabeledTreeValidatorTest() {
+  }
+
+  /**
+   * Test of the size hints of a valid labeled tree, of class LabeledTreeValidator.
+   */
+  @Test
+  public void testValid() {
+    LOGGER.info("valid");
+    final LabeledTreeValidator labeledTreeValidator = new LabeledTreeValidator("[S [NP John] [VP [V runs] fast]]", 0);
+    assertTrue(labeledTreeValidator.isValid());
+    assertNull(labeledTreeValidator.getErrorMessage());
+    assertEquals(4, labeledTreeValidator.getNodeCount());
+    assertEquals(3, labeledTreeValidator.getDepth());
+    assertEquals("[LabeledTreeValidator valid, nodes: 4, depth: 3]", labeledTreeValidator.toString());
+  }
+
+  /**
+   * Test of the rejection of malformed labeled trees, of class LabeledTreeValidator.
+   */
+  @Test
+  public void testInvalid() {
+    LOGGER.info("invalid");
+    assertEquals("the labeled tree is empty", new LabeledTreeValidator(" \n", 0).getErrorMessage());
+    assertEquals(
+            "the labeled tree has 1 unmatched '['",
+            new LabeledTreeValidator("[S [NP John] [VP runs]", 0).getErrorMessage());
+    // the brackets balance, as the PHP validator requires, but a closing bracket comes before its opening bracket
+    assertEquals(
+            "the labeled tree has an unmatched ']' at position 13",
+            new LabeledTreeValidator("[S [NP John]]] [VP [runs]", 0).getErrorMessage());
+    assertFalse(new SyntaxTreeParser("[S [NP John]]] [VP [runs]").validate());
+  }
+
+  /**
+   * Test of the node limit, of class LabeledTreeValidator.
+   */
+  @Test
+  public void testMaxNodeCount() {
+    LOGGER.info("maxNodeCount");
+    assertTrue(new LabeledTreeValidator("[S [NP John] [VP runs]]", 3).isValid());
+    final LabeledTreeValidator labeledTreeValidator = new LabeledTreeValidator("[S [NP John] [VP runs]] [", 2);
+    assertEquals("the labeled tree has more than 2 nodes", labeledTreeValidator.getErrorMessage());
+    // the scan stops at the node past the limit
+    assertEquals(3, labeledTreeValidator.getNodeCount());
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * LatencyHistogramTest.java
+ *
+ * Created on Oct 18, 2026, 10:21:37 PM
+ *
+ * Description: Tests the lock-free latency histogram.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import org.apache.log4j.Logger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class LatencyHistogramTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(LatencyHistogramTest.class);
+
+  public LatencyHistogramTest() {
+  }
+
+  /**
+   * Test of getBucketIndex and getBucketHighestValue methods, of class LatencyHistogram.
+   */
+  @Test
+  public void testBuckets() {
+    LOGGER.info("buckets");
+    // the linear range has a bucket per value
+    for (long value = 0; value < 32; value++) {
+      assertEquals(value, LatencyHistogram.getBucketIndex(value));
+      assertEquals(value, LatencyHistogram.getBucketHighestValue((int) value));
+    }
+    // each value lies within its bucket, whose width is within about 3% of the value
+    int previousBucketIndex = 0;
+    for (long value = 32; value < 10_000_000L; value += 1 + value / 100) {
+      final int bucketIndex = LatencyHistogram.getBucketIndex(value);
+      assertTrue(bucketIndex >= previousBucketIndex);
+      final long highestValue = LatencyHistogram.getBucketHighestValue(bucketIndex);
+      assertTrue(highestValue >= value);
+      assertTrue(highestValue - value <= value / 32);
+      assertEquals(bucketIndex, LatencyHistogram.getBucketIndex(highestValue));
+      assertEquals(bucketIndex + 1, LatencyHistogram.getBucketIndex(highestValue + 1));
+      previousBucketIndex = bucketIndex;
+    }
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.getBucketHighestValue(LatencyHistogram.getBucketIndex(Long.MAX_VALUE)));
+  }
+
+  /**
+   * Test of getPercentile method, of class LatencyHistogram.
+   */
+  @Test
+  public void testGetPercentile() {
+    LOGGER.info("getPercentile");
+    final LatencyHistogram latencyHistogram = new LatencyHistogram("test");
+    assertEquals(0, latencyHistogram.getPercentile(50.0));
+    for (long micros = 1; micros <= 100_000; micros++) {
+      latencyHistogram.record(micros);
+    }
+    latencyHistogram.record(-5);
+    assertEquals(100_001, latencyHistogram.getCount());
+    assertEquals(100_000, latencyHistogram.getMax());
+    assertEquals(50_000, latencyHistogram.getPercentile(50.0), 50_000 * 0.03);
+    assertEquals(99_000, latencyHistogram.getPercentile(99.0), 99_000 * 0.03);
+    assertEquals(99_900, latencyHistogram.getPercentile(99.9), 99_900 * 0.03);
+    assertEquals(100_000, latencyHistogram.getPercentile(100.0));
+    assertEquals(0, latencyHistogram.getPercentile(0.0));
+    LOGGER.info(latencyHistogram);
+  }
+
+  /**
+   * Test of recordWithExpectedInterval method, of class LatencyHistogram.
+   */
+  @Test
+  public void testRecordWithExpectedInterval() {
+    LOGGER.info("recordWithExpectedInterval");
+    final LatencyHistogram latencyHistogram = new LatencyHistogram("test");
+    // a closed-loop client sees 99 fast responses and one stall of 100 intervals
+    for (int i = 0; i < 99; i++) {
+      latencyHistogram.recordWithExpectedInterval(10, 1_000);
+    }
+    latencyHistogram.recordWithExpectedInterval(100_000, 1_000);
+    // the stall also delays the 99 requests that would have been sent meanwhile
+    assertEquals(199, latencyHistogram.getCount());
+    assertEquals(100_000, latencyHistogram.getMax());
+    assertTrue(latencyHistogram.getPercentile(75.0) > 10_000);
+
+    // no correction without an expected interval
+    final LatencyHistogram uncorrectedHistogram = new LatencyHistogram("test");
+    uncorrectedHistogram.recordWithExpectedInterval(100_000, 0);
+    assertEquals(1, uncorrectedHistogram.getCount());
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * LoadGeneratorTest.java
+ *
+ * Created on Oct 18, 2026, 11:41:08 PM
+ *
+ * Description: Tests the request mix of the load generator.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.Random;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class LoadGeneratorTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(LoadGeneratorTest.class);
+
+  public LoadGeneratorTest() {
+  }
+
+  /**
+   * Test of parseWeightedSizes and drawSize methods, of class LoadGenerator.
+   */
+  @Test
+  public void testWeightedSizes() {
+    LOGGER.info("weightedSizes");
+    final long[][] weightedSizes = LoadGenerator.parseWeightedSizes("100:8, 10000:2,50");
+    assertArrayEquals(new long[]{100, 10_000, 50}, weightedSizes[0]);
+    assertArrayEquals(new long[]{8, 10, 11}, weightedSizes[1]);
+    final Random random = new Random(1);
+    int smallCount = 0;
+    for (int i = 0; i < 11_000; i++) {
+      final long size = LoadGenerator.drawSize(weightedSizes, random);
+      assertTrue(size == 100 || size == 10_000 || size == 50);
+      if (size == 100) {
+        smallCount++;
+      }
+    }
+    assertEquals(8_000, smallCount, 300);
+    try {
+      LoadGenerator.parseWeightedSizes("100:0");
+      fail();
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Test of makeLabeledTree and makeGraphVizDiagram methods, of class LoadGenerator.
+   */
+  @Test
+  public void testRequestTemplates() {
+    LOGGER.info("requestTemplates");
+    for (final long size : new long[]{1, 10, 1_000, 100_000}) {
+      final String labeledTree = LoadGenerator.makeLabeledTree(size);
+      assertTrue(labeledTree.length() >= size);
+      assertTrue(labeledTree.length() < size + 40);
+      assertTrue(new SyntaxTreeParser(labeledTree).validate());
+    }
+    final String graphVizDiagram = LoadGenerator.makeGraphVizDiagram(3);
+    assertEquals("digraph load {\n  n0 -> n1;\n  n0 -> n2;\n  n1 -> n3;\n}\n", graphVizDiagram);
+  }
+}
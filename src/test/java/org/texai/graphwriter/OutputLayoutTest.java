@@ -0,0 +1,98 @@
+/*
+ * OutputLayoutTest.java
+ *
+ * Created on Oct 19, 2026, 7:02:26 AM
+ *
+ * Description: Tests the placement and the atomic installation of the rendered graphs.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class OutputLayoutTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(OutputLayoutTest.class);
+
+  // the graphs directory
+  private Path graphsDirectory;
+
+  public OutputLayoutTest() {
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    graphsDirectory = Files.createTempDirectory("output-layout-test");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> stream = Files.walk(graphsDirectory)) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Test of resolve method, of class OutputLayout.
+   */
+  @Test
+  public void testResolve() {
+    LOGGER.info("resolve");
+    assertEquals(Paths.get("graphs/g1.png"), new OutputLayout(0).resolve(Paths.get("graphs/g1.png")));
+    final OutputLayout outputLayout = new OutputLayout(2);
+    final Path pngPath = outputLayout.resolve(Paths.get("graphs/g1.png"));
+    assertEquals("[OutputLayout 2 shard levels]", outputLayout.toString());
+    assertTrue(pngPath.toString().matches("graphs/[0-9a-f]{2}/[0-9a-f]{2}/g1\\.png"));
+    // the image formats of a graph share its shard
+    assertEquals(pngPath.resolveSibling("g1.svg"), outputLayout.resolve(Paths.get("graphs/g1.svg")));
+    assertEquals(pngPath, outputLayout.resolve(Paths.get("graphs/g1.png")));
+    assertNotEquals(pngPath.getParent(), outputLayout.resolve(Paths.get("graphs/g2.png")).getParent());
+  }
+
+  /**
+   * Test of the atomic installation of a graph in its shard directory, of class OutputLayout.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testInstall() throws Exception {
+    LOGGER.info("install");
+    final OutputLayout outputLayout = new OutputLayout(1);
+    final Path outputPath = outputLayout.resolve(graphsDirectory.resolve("g1.png"));
+    Path temporaryPath = outputLayout.makeTemporaryPath(outputPath);
+    assertEquals(outputPath.getParent(), temporaryPath.getParent());
+    assertTrue(Files.isDirectory(outputPath.getParent()));
+    assertTrue(temporaryPath.getFileName().toString().startsWith(OutputLayout.TEMPORARY_PREFIX));
+    assertTrue(temporaryPath.getFileName().toString().endsWith(".png"));
+    Files.writeString(temporaryPath, "first");
+    OutputLayout.install(temporaryPath, outputPath);
+    assertEquals("first", Files.readString(outputPath));
+
+    // a hard link to the installed graph, like that of a cached image, is left intact by the next graph
+    final Path linkPath = graphsDirectory.resolve("cached.png");
+    Files.createLink(linkPath, outputPath);
+    temporaryPath = outputLayout.makeTemporaryPath(outputPath);
+    Files.writeString(temporaryPath, "second");
+    OutputLayout.install(temporaryPath, outputPath);
+    assertEquals("second", Files.readString(outputPath));
+    assertEquals("first", Files.readString(linkPath));
+    assertFalse(Files.exists(temporaryPath));
+  }
+}
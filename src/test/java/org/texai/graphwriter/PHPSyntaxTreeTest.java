@@ -0,0 +1,105 @@
+/*
+ * PHPSyntaxTreeTest.java
+ *
+ * Created on Oct 19, 2026, 1:12:44 PM
+ *
+ * Description: Tests the rendering of syntax trees by the PHP workers, with a stand-in worker.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class PHPSyntaxTreeTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(PHPSyntaxTreeTest.class);
+
+  // a stand-in for worker.php, run by /bin/sh, which writes the given output file name as it is, like the PHP worker
+  private static final String WORKER_SCRIPT = """
+          while read pathLength treeLength; do
+            job=$(head -c $((pathLength + treeLength)))
+            outputPath=$(printf '%s' "$job" | head -c $pathLength)
+            case "$outputPath" in
+              *.svg) printf 'SVG' > "$outputPath" ;;
+              *) printf 'PNG' > "$outputPath" ;;
+            esac
+            echo OK
+          done
+          """;
+
+  // the working directory of the PHP workers
+  private Path phpSyntaxTreeDirectory;
+
+  // the graph writer
+  private GraphWriter graphWriter;
+
+  public PHPSyntaxTreeTest() {
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    phpSyntaxTreeDirectory = Files.createTempDirectory("php-syntax-tree-test");
+    Files.writeString(phpSyntaxTreeDirectory.resolve("worker.php"), WORKER_SCRIPT);
+    System.setProperty("org.texai.graphwriter.phpSyntaxTreePath", phpSyntaxTreeDirectory.toString());
+    System.setProperty("org.texai.graphwriter.phpCommand", "/bin/sh");
+    try {
+      graphWriter = new GraphWriter();
+    } finally {
+      System.clearProperty("org.texai.graphwriter.phpSyntaxTreePath");
+      System.clearProperty("org.texai.graphwriter.phpCommand");
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    graphWriter.getPHPWorkerPool().shutdown();
+    try (Stream<Path> stream = Files.walk(phpSyntaxTreeDirectory)) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Test of graphPHPSyntaxTree method, of class GraphWriter, for a relative file name, which is resolved against the
+   * working directory of the workers.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testRelativeFileName() throws Exception {
+    LOGGER.info("relative file name");
+    final String fileName = "graphs/php-syntax-tree-test-" + ProcessHandle.current().pid();
+    // an unsharded output layout writes into the graph directory that the client provides
+    final Path graphsDirectory = Files.createDirectory(phpSyntaxTreeDirectory.resolve("graphs"));
+    assertTrue(graphWriter.graphPHPSyntaxTree(fileName, "[S [NP John] [VP runs]]", List.of("png", "svg")));
+
+    final String graphName = Paths.get(fileName).getFileName().toString();
+    assertEquals("PNG", Files.readString(graphsDirectory.resolve(graphName + ".png")));
+    assertEquals("SVG", Files.readString(graphsDirectory.resolve(graphName + ".svg")));
+    // no temporary file is left behind, and nothing is written relative to the working directory of the JVM
+    try (Stream<Path> stream = Files.list(graphsDirectory)) {
+      assertEquals(
+              List.of(graphName + ".png", graphName + ".svg"),
+              stream.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList()));
+    }
+    assertFalse(Files.exists(Paths.get(fileName + ".png")));
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * PHPWorkerPoolTest.java
+ *
+ * Created on Oct 19, 2026, 10:02:19 AM
+ *
+ * Description: Tests the pool of long-lived PHP syntax tree worker processes, with a stand-in worker.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class PHPWorkerPoolTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(PHPWorkerPoolTest.class);
+
+  // the process launcher
+  private static final ProcessLauncher PROCESS_LAUNCHER = new ProcessLauncher();
+
+  // a stand-in for worker.php, which answers a job according to its labeled tree
+  private static final String WORKER_SCRIPT = """
+          while read pathLength treeLength; do
+            job=$(head -c $((pathLength + treeLength)))
+            outputPath=$(printf '%s' "$job" | head -c $pathLength)
+            case "$job" in
+              *HANG*) sleep 60 ;;
+              *CRASH*) exit 1 ;;
+              *BAD*) echo "ERROR the tree is ill formed" ;;
+              *) printf 'PNG' > "$outputPath"; echo OK ;;
+            esac
+          done
+          """;
+
+  // the working directory of the workers
+  private Path workerDirectory;
+
+  // the worker pool under test
+  private PHPWorkerPool phpWorkerPool;
+
+  public PHPWorkerPoolTest() {
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    PROCESS_LAUNCHER.shutdown();
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    workerDirectory = Files.createTempDirectory("php-worker-pool-test");
+    Files.writeString(workerDirectory.resolve("worker.sh"), WORKER_SCRIPT);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (phpWorkerPool != null) {
+      phpWorkerPool.shutdown();
+    }
+    try (Stream<Path> stream = Files.walk(workerDirectory)) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Test of render method, of class PHPWorkerPool, for the recycling of a worker after its maximum number of jobs.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testRecycle() throws Exception {
+    LOGGER.info("recycle");
+    phpWorkerPool = makePHPWorkerPool(List.of("/bin/sh", "worker.sh"), 2, 10_000);
+    for (int i = 1; i <= 3; i++) {
+      assertEquals(PHPWorkerPool.JobStatus.OK, render("g" + i, "[S [NP John] [VP runs]]"));
+      assertEquals("PNG", Files.readString(workerDirectory.resolve("g" + i + ".png")));
+    }
+    // the first worker was replaced after its second job
+    assertEquals(2, phpWorkerPool.getStartedCount());
+  }
+
+  /**
+   * Test of render method, of class PHPWorkerPool, for the replacement of a crashed worker.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testRestart() throws Exception {
+    LOGGER.info("restart");
+    phpWorkerPool = makePHPWorkerPool(List.of("/bin/sh", "worker.sh"), 100, 10_000);
+
+    // a worker that reports an error stays in the pool
+    assertEquals(PHPWorkerPool.JobStatus.FAILED, render("g1", "[S [NP BAD]]"));
+    assertEquals(1, phpWorkerPool.getStartedCount());
+
+    // a crashed worker is replaced
+    assertEquals(PHPWorkerPool.JobStatus.FAILED, render("g2", "[S [NP CRASH]]"));
+    assertEquals(2, phpWorkerPool.getStartedCount());
+    assertEquals(PHPWorkerPool.JobStatus.OK, render("g3", "[S [NP John] [VP runs]]"));
+  }
+
+  /**
+   * Test of render method, of class PHPWorkerPool, for a hung worker and for a job that no worker takes.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testTimeout() throws Exception {
+    LOGGER.info("timeout");
+    phpWorkerPool = makePHPWorkerPool(List.of("/bin/sh", "worker.sh"), 100, 300);
+
+    // a hung worker is killed at the job timeout, and replaced
+    long startNanos = System.nanoTime();
+    assertEquals(PHPWorkerPool.JobStatus.TIMEOUT, render("g1", "[S [NP HANG]]"));
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 5_000);
+    assertEquals(2, phpWorkerPool.getStartedCount());
+    assertEquals(PHPWorkerPool.JobStatus.OK, render("g2", "[S [NP John] [VP runs]]"));
+    phpWorkerPool.shutdown();
+
+    // a job waits for at most the job timeout when no worker can be started
+    phpWorkerPool = makePHPWorkerPool(List.of("/nonexistent/php"), 100, 300);
+    startNanos = System.nanoTime();
+    assertEquals(PHPWorkerPool.JobStatus.TIMEOUT, render("g3", "[S [NP John] [VP runs]]"));
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 5_000);
+    assertEquals(0, phpWorkerPool.getStartedCount());
+  }
+
+  /**
+   * Test of render method, of class PHPWorkerPool, for a job whose rendering thread is interrupted.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testCancel() throws Exception {
+    LOGGER.info("cancel");
+    phpWorkerPool = makePHPWorkerPool(List.of("/bin/sh", "worker.sh"), 100, 60_000);
+    final AtomicReference<Throwable> thrown = new AtomicReference<>();
+    final Thread renderThread = new Thread(() -> {
+      try {
+        render("g1", "[S [NP HANG]]");
+      } catch (Throwable ex) {
+        thrown.set(ex);
+      }
+    });
+    renderThread.start();
+    Thread.sleep(300);
+    renderThread.interrupt();
+    renderThread.join(5_000);
+    assertFalse(renderThread.isAlive());
+    assertTrue(thrown.get() instanceof InterruptedException);
+
+    // the worker of the cancelled job is killed and replaced
+    assertEquals(2, phpWorkerPool.getStartedCount());
+    assertEquals(PHPWorkerPool.JobStatus.OK, render("g2", "[S [NP John] [VP runs]]"));
+  }
+
+  /**
+   * Makes and starts a pool of one worker.
+   *
+   * @param workerCommand the worker command
+   * @param maxJobsPerWorker the number of jobs after which a worker is recycled
+   * @param jobTimeoutMillis the number of milliseconds after which a job is considered hung
+   * @return the started pool
+   */
+  private PHPWorkerPool makePHPWorkerPool(
+          final List<String> workerCommand,
+          final int maxJobsPerWorker,
+          final long jobTimeoutMillis) {
+    final PHPWorkerPool newPHPWorkerPool = new PHPWorkerPool(
+            PROCESS_LAUNCHER,
+            workerDirectory.toString(),
+            workerCommand,
+            1, // poolSize
+            maxJobsPerWorker,
+            jobTimeoutMillis);
+    newPHPWorkerPool.start();
+    return newPHPWorkerPool;
+  }
+
+  /**
+   * Renders the given labeled tree to the PNG file of the given graph name in the worker directory.
+   *
+   * @param graphName the given graph name
+   * @param labeledTree the given labeled tree
+   * @return the job status
+   * @throws InterruptedException when the job is cancelled
+   */
+  private PHPWorkerPool.JobStatus render(
+          final String graphName,
+          final String labeledTree) throws InterruptedException {
+    return phpWorkerPool.render(workerDirectory.resolve(graphName + ".png").toString(), labeledTree);
+  }
+}
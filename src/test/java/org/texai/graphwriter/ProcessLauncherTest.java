@@ -0,0 +1,114 @@
+/*
+ * ProcessLauncherTest.java
+ *
+ * Created on Oct 18, 2026, 5:40:52 PM
+ *
+ * Description: Tests the renderer process launcher.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class ProcessLauncherTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(ProcessLauncherTest.class);
+
+  // the process launcher
+  private static final ProcessLauncher PROCESS_LAUNCHER = new ProcessLauncher();
+
+  // the working directory
+  private static final Path DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"));
+
+  public ProcessLauncherTest() {
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    PROCESS_LAUNCHER.shutdown();
+  }
+
+  /**
+   * Test of run method, of class ProcessLauncher.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testRun() throws Exception {
+    LOGGER.info("run");
+    final long launchCount = PROCESS_LAUNCHER.getLaunchCount();
+    final ProcessLauncher.Outcome outcome = PROCESS_LAUNCHER.run(List.of("true"), DIRECTORY, 10_000);
+    assertEquals(0, outcome.getExitCode());
+    assertFalse(outcome.isTimedOut());
+    assertTrue(outcome.getSpawnMicros() <= outcome.getElapsedMicros());
+
+    // the argument is passed verbatim, without a shell to interpret it
+    assertEquals(0, PROCESS_LAUNCHER.run(List.of("echo", "a b; exit 3"), DIRECTORY, 10_000).getExitCode());
+    assertEquals(1, PROCESS_LAUNCHER.run(List.of("false"), DIRECTORY, 10_000).getExitCode());
+    assertEquals(launchCount + 3, PROCESS_LAUNCHER.getLaunchCount());
+
+    // the standard output stream is captured, as an image written by dot without an output file
+    final ProcessLauncher.Outcome capturedOutcome = PROCESS_LAUNCHER.runCapturingOutput(List.of("echo", "a b"), DIRECTORY, 10_000);
+    assertEquals(0, capturedOutcome.getExitCode());
+    assertEquals("a b\n", new String(capturedOutcome.getOutput(), StandardCharsets.UTF_8));
+    assertEquals(0, outcome.getOutput().length);
+  }
+
+  /**
+   * Test of run method when the process exceeds its timeout, of class ProcessLauncher.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testRunTimeout() throws Exception {
+    LOGGER.info("runTimeout");
+    final long timeoutCount = PROCESS_LAUNCHER.getTimeoutCount();
+    final long startMillis = System.currentTimeMillis();
+    final ProcessLauncher.Outcome outcome = PROCESS_LAUNCHER.run(List.of("sleep", "30"), DIRECTORY, 100);
+    assertTrue(System.currentTimeMillis() - startMillis < 10_000);
+    assertTrue(outcome.isTimedOut());
+    assertEquals(-1, outcome.getExitCode());
+    assertEquals(timeoutCount + 1, PROCESS_LAUNCHER.getTimeoutCount());
+  }
+
+  /**
+   * Test of run method when the waiting thread is interrupted, of class ProcessLauncher.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testRunInterrupted() throws Exception {
+    LOGGER.info("runInterrupted");
+    final Thread thread = Thread.currentThread();
+    final Thread interruptingThread = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException ex) {
+        // ignore
+      }
+      thread.interrupt();
+    });
+    interruptingThread.start();
+    final long startMillis = System.currentTimeMillis();
+    try {
+      PROCESS_LAUNCHER.run(List.of("sleep", "30"), DIRECTORY, 60_000);
+      fail();
+    } catch (InterruptedException ex) {
+      assertTrue(System.currentTimeMillis() - startMillis < 10_000);
+    }
+  }
+}
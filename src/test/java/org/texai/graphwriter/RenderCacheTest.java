@@ -0,0 +1,139 @@
+/*
+ * RenderCacheTest.java
+ *
+ * Created on Oct 18, 2026, 12:20:45 PM
+ *
+ * Description: Tests the content-addressed render cache.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class RenderCacheTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RenderCacheTest.class);
+
+  // the temporary directory
+  private Path temporaryDirectory;
+
+  public RenderCacheTest() {
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    temporaryDirectory = Files.createTempDirectory("render-cache-test");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> stream = Files.walk(temporaryDirectory)) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Test of makeKey method, of class RenderCache.
+   */
+  @Test
+  public void testMakeKey() {
+    LOGGER.info("makeKey");
+    final byte[] payload = "[S [NP John] [VP runs]]".getBytes(StandardCharsets.UTF_8);
+    final String key = RenderCache.makeKey("syntax-tree-java", payload);
+    assertEquals(64, key.length());
+    assertEquals(key, RenderCache.makeKey("syntax-tree-java", payload));
+    assertNotEquals(key, RenderCache.makeKey("graphviz", payload));
+  }
+
+  /**
+   * Test of store and fetch methods, of class RenderCache.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testStoreAndFetch() throws Exception {
+    LOGGER.info("storeAndFetch");
+    final RenderCache renderCache = new RenderCache(temporaryDirectory.resolve("cache"), 1_000);
+    renderCache.initialize();
+    final String key = RenderCache.makeKey("graphviz", "digraph { a -> b }".getBytes(StandardCharsets.UTF_8));
+    final Path outputPath1 = temporaryDirectory.resolve("graph1.png");
+    final Path outputPath2 = temporaryDirectory.resolve("graph2.png");
+
+    assertFalse(renderCache.fetch(key, GraphOutputFormat.PNG, outputPath2));
+    assertEquals(1, renderCache.getMissCount());
+
+    Files.write(outputPath1, new byte[100]);
+    renderCache.store(key, GraphOutputFormat.PNG, outputPath1);
+    assertEquals(1, renderCache.size());
+    assertEquals(100, renderCache.getTotalBytes());
+
+    assertTrue(renderCache.fetch(key, GraphOutputFormat.PNG, outputPath2));
+    assertEquals(1, renderCache.getHitCount());
+    assertEquals(100, Files.size(outputPath2));
+
+    // each image format is cached under its own extension
+    final Path svgPath = temporaryDirectory.resolve("graph2.svg");
+    assertFalse(renderCache.fetch(key, GraphOutputFormat.SVG, svgPath));
+    renderCache.store(key, GraphOutputFormat.SVG, "<svg/>".getBytes(StandardCharsets.UTF_8));
+    assertEquals(2, renderCache.size());
+    assertTrue(Files.isRegularFile(temporaryDirectory.resolve("cache").resolve(key.substring(0, 2)).resolve(key + ".svg")));
+    assertTrue(renderCache.fetch(key, GraphOutputFormat.SVG, svgPath));
+    assertEquals("<svg/>", Files.readString(svgPath));
+    assertEquals(100, Files.size(outputPath2));
+
+    // the index is rebuilt from the cached files of both image formats
+    final RenderCache rebuiltRenderCache = new RenderCache(temporaryDirectory.resolve("cache"), 1_000);
+    rebuiltRenderCache.initialize();
+    assertEquals(2, rebuiltRenderCache.size());
+    assertEquals(106, rebuiltRenderCache.getTotalBytes());
+    assertTrue(rebuiltRenderCache.fetch(key, GraphOutputFormat.SVG, svgPath));
+    assertEquals("<svg/>", Files.readString(svgPath));
+  }
+
+  /**
+   * Test of least recently used eviction, of class RenderCache.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testEviction() throws Exception {
+    LOGGER.info("eviction");
+    final RenderCache renderCache = new RenderCache(temporaryDirectory.resolve("cache"), 250);
+    renderCache.initialize();
+    final String key1 = RenderCache.makeKey("graphviz", new byte[]{1});
+    final String key2 = RenderCache.makeKey("graphviz", new byte[]{2});
+    final String key3 = RenderCache.makeKey("graphviz", new byte[]{3});
+    final Path renderedPath = temporaryDirectory.resolve("rendered.png");
+    final Path outputPath = temporaryDirectory.resolve("output.png");
+    Files.write(renderedPath, new byte[100]);
+    renderCache.store(key1, GraphOutputFormat.PNG, renderedPath);
+    renderCache.store(key2, GraphOutputFormat.PNG, renderedPath);
+    // key1 becomes the most recently used
+    assertTrue(renderCache.fetch(key1, GraphOutputFormat.PNG, outputPath));
+    renderCache.store(key3, GraphOutputFormat.PNG, renderedPath);
+
+    assertEquals(2, renderCache.size());
+    assertEquals(1, renderCache.getEvictionCount());
+    assertTrue(renderCache.fetch(key1, GraphOutputFormat.PNG, outputPath));
+    assertFalse(renderCache.fetch(key2, GraphOutputFormat.PNG, outputPath));
+    assertTrue(renderCache.fetch(key3, GraphOutputFormat.PNG, outputPath));
+  }
+
+}
@@ -0,0 +1,492 @@
+/*
+ * RenderSchedulerTest.java
+ *
+ * Created on Oct 18, 2026, 4:31:09 PM
+ *
+ * Description: Tests the admission control of the render scheduler.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class RenderSchedulerTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RenderSchedulerTest.class);
+
+  // the file names of the made graphs
+  private final List<String> madeFileNames = Collections.synchronizedList(new ArrayList<>());
+
+  // the file names of the shed requests
+  private final List<String> shedFileNames = Collections.synchronizedList(new ArrayList<>());
+
+  // the file names and statuses of the superseded and cancelled requests
+  private final List<String> discardedFileNames = Collections.synchronizedList(new ArrayList<>());
+
+  // the file names of the batches given to the graph maker
+  private final List<String> madeBatches = Collections.synchronizedList(new ArrayList<>());
+
+  // the latch which holds the graph maker until released
+  private final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+  // the maximum number of pending and running requests in each lane of the made render schedulers
+  private int maxInFlight = 2;
+
+  // the batch window of the made render schedulers
+  private long batchWindowMillis = 0;
+
+  public RenderSchedulerTest() {
+  }
+
+  /**
+   * Test of admit method with the REJECT policy, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testReject() throws Exception {
+    LOGGER.info("reject");
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.REJECT, 0);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+    assertFalse(renderScheduler.admit(makeGraphRequest("t3")));
+    assertEquals("[t3]", shedFileNames.toString());
+    assertEquals(1, renderScheduler.getShedCount(GraphRequestType.SYNTAX_TREE));
+    assertEquals(0, renderScheduler.getShedCount(GraphRequestType.GRAPHVIZ));
+    releaseAndAwait(renderScheduler, 2);
+    assertEquals("[t1, t2]", madeFileNames.toString());
+    assertEquals(1, renderScheduler.getShedCount());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of admit method with the DROP_OLDEST policy, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testDropOldest() throws Exception {
+    LOGGER.info("dropOldest");
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.DROP_OLDEST, 0);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    awaitRunning(renderScheduler, 1);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t3")));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t4")));
+    assertEquals("[t2, t3]", shedFileNames.toString());
+    releaseAndAwait(renderScheduler, 2);
+    assertEquals("[t1, t4]", madeFileNames.toString());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of admit method with the BLOCK policy, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testBlock() throws Exception {
+    LOGGER.info("block");
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.BLOCK, 5_000);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+
+    // the request waits for room without blocking the caller
+    assertTrue(renderScheduler.admit(makeGraphRequest("t3")));
+    assertEquals(1, renderScheduler.getWaitingCount());
+    releaseAndAwait(renderScheduler, 3);
+    assertEquals("[t1, t2, t3]", madeFileNames.toString());
+    assertEquals(0, renderScheduler.getWaitingCount());
+    assertEquals(0, renderScheduler.getShedCount());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of admit method with the BLOCK policy when the admission timeout passes, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testBlockTimeout() throws Exception {
+    LOGGER.info("blockTimeout");
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.BLOCK, 50);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t3")));
+    Thread.sleep(100);
+    releaseAndAwait(renderScheduler, 2);
+    assertEquals("[t1, t2]", madeFileNames.toString());
+    assertEquals("[t3]", shedFileNames.toString());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of the priority lanes, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testPriorityLanes() throws Exception {
+    LOGGER.info("priorityLanes");
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.REJECT, 0);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    awaitRunning(renderScheduler, 1);
+
+    // each lane has its own bound of work in flight
+    assertTrue(renderScheduler.admit(makeBulkGraphRequest("b1")));
+    assertTrue(renderScheduler.admit(makeBulkGraphRequest("b2")));
+    assertFalse(renderScheduler.admit(makeBulkGraphRequest("b3")));
+
+    // an interactive request for a file moves it from the bulk lane to the interactive lane
+    assertTrue(renderScheduler.admit(makeGraphRequest("b2")));
+    assertEquals("[b2 SUPERSEDED]", discardedFileNames.toString());
+    assertFalse(renderScheduler.admit(makeGraphRequest("t2")));
+
+    // a bulk request for a file that is pending in the interactive lane keeps the interactive queue position
+    assertTrue(renderScheduler.admit(makeBulkGraphRequest("b2")));
+    assertEquals("[b2 SUPERSEDED, b2 SUPERSEDED]", discardedFileNames.toString());
+    releaseAndAwait(renderScheduler, 3);
+    assertEquals("[t1, b2, b1]", madeFileNames.toString());
+    assertEquals("[b3, t2]", shedFileNames.toString());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of the share of the graph-making threads that bulk requests may occupy, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testBulkShare() throws Exception {
+    LOGGER.info("bulkShare");
+    final RenderScheduler renderScheduler = makeRenderScheduler(2, AdmissionPolicy.REJECT, 0);
+    assertEquals(1, renderScheduler.getMaxBulkRunning());
+    assertTrue(renderScheduler.admit(makeBulkGraphRequest("b1")));
+    assertTrue(renderScheduler.admit(makeBulkGraphRequest("b2")));
+    awaitRunning(renderScheduler, 1);
+    Thread.sleep(20);
+    assertEquals(1, renderScheduler.getRunningCount());
+    assertEquals(1, renderScheduler.getPendingCount());
+
+    // the other thread stays free for an interactive request
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    awaitRunning(renderScheduler, 2);
+    assertEquals(1, renderScheduler.getBulkRunningCount());
+    releaseAndAwait(renderScheduler, 3);
+    assertEquals(3, madeFileNames.size());
+    assertTrue(madeFileNames.indexOf("b1") < madeFileNames.indexOf("b2"));
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of coalescing in the admit method, and of the cancel method, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testCoalesceAndCancel() throws Exception {
+    LOGGER.info("coalesceAndCancel");
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.REJECT, 0);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    awaitRunning(renderScheduler, 1);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+    final GraphRequest newestGraphRequest = new GraphRequest("t2", "[S [NP Mary] [VP runs]]");
+    // coalescing needs no more room
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+    assertTrue(renderScheduler.admit(newestGraphRequest));
+    assertEquals("[t2 SUPERSEDED, t2 SUPERSEDED]", discardedFileNames.toString());
+    assertEquals(2, renderScheduler.getSupersededCount());
+    assertEquals(1, renderScheduler.getPendingCount());
+
+    // cancel the pending request for t2, and interrupt the running request for t1
+    assertEquals(1, renderScheduler.cancel("t2"));
+    assertEquals(0, renderScheduler.getPendingCount());
+    assertEquals(1, renderScheduler.cancel("t1"));
+    assertEquals(0, renderScheduler.cancel("t3"));
+    assertEquals(2, renderScheduler.getCancelledCount());
+    releaseAndAwait(renderScheduler, 1);
+    assertEquals("[t1]", madeFileNames.toString());
+    assertEquals("[t2 SUPERSEDED, t2 SUPERSEDED, t2 CANCELLED]", discardedFileNames.toString());
+    assertEquals(0, renderScheduler.getShedCount());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of the awaitIdle and awaitTermination methods, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testAwaitIdle() throws Exception {
+    LOGGER.info("awaitIdle");
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.REJECT, 0);
+    assertTrue(renderScheduler.awaitIdle(System.nanoTime()));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+    assertEquals(2, renderScheduler.getInFlightCount());
+    assertFalse(renderScheduler.awaitIdle(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)));
+    releaseLatch.countDown();
+    assertTrue(renderScheduler.awaitIdle(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+    assertEquals(0, renderScheduler.getInFlightCount());
+    assertEquals("[t1, t2]", madeFileNames.toString());
+    renderScheduler.shutdown();
+    assertTrue(renderScheduler.awaitTermination(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+  }
+
+  /**
+   * Test of the abandon method, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testAbandon() throws Exception {
+    LOGGER.info("abandon");
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.REJECT, 0);
+    final GraphRequest runningGraphRequest = makeGraphRequest("t1");
+    assertTrue(renderScheduler.admit(runningGraphRequest));
+    awaitRunning(renderScheduler, 1);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+
+    // the pending request is rejected, and the running request is interrupted, which releases the graph maker
+    assertEquals(2, renderScheduler.abandon());
+    assertEquals("[t2]", shedFileNames.toString());
+    assertTrue(renderScheduler.awaitTermination(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+    assertEquals(GraphResultStatus.CANCELLED, runningGraphRequest.getCancelStatus());
+    assertEquals("[t1]", madeFileNames.toString());
+    assertFalse(renderScheduler.admit(makeGraphRequest("t3")));
+    assertEquals(0, renderScheduler.getInFlightCount());
+  }
+
+  /**
+   * Test of the concurrency limit, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testConcurrencyLimit() throws Exception {
+    LOGGER.info("concurrencyLimit");
+    final RenderScheduler renderScheduler = makeRenderScheduler(
+            new AdaptiveConcurrencyLimit(
+                    1, // initialLimit
+                    1, // minLimit
+                    2, // maxLimit
+                    1_000, // windowMillis
+                    System.nanoTime()),
+            AdmissionPolicy.REJECT,
+            0); // admissionTimeoutMillis
+    assertEquals(1, renderScheduler.getConcurrencyLimit());
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+    awaitRunning(renderScheduler, 1);
+    Thread.sleep(20);
+
+    // the second graph-making thread stays idle
+    assertEquals(1, renderScheduler.getRunningCount());
+    assertEquals(1, renderScheduler.getPendingCount());
+    releaseAndAwait(renderScheduler, 2);
+    assertEquals("[t1, t2]", madeFileNames.toString());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of taking GraphViz requests in batches, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testBatch() throws Exception {
+    LOGGER.info("batch");
+    maxInFlight = 8;
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.REJECT, 0);
+    assertTrue(renderScheduler.admit(makeGraphRequest("t1")));
+    awaitRunning(renderScheduler, 1);
+    for (final String fileName : new String[]{"g1", "g2"}) {
+      assertTrue(renderScheduler.admit(new GraphRequest(GraphRequestType.GRAPHVIZ, fileName, "")));
+    }
+    final GraphRequest svgGraphRequest = new GraphRequest(GraphRequestType.GRAPHVIZ, "g3", "");
+    svgGraphRequest.setOutputFormat(GraphOutputFormat.SVG);
+    assertTrue(renderScheduler.admit(svgGraphRequest));
+    assertTrue(renderScheduler.admit(makeGraphRequest("t2")));
+    for (final String fileName : new String[]{"g4", "g5", "g6"}) {
+      assertTrue(renderScheduler.admit(new GraphRequest(GraphRequestType.GRAPHVIZ, fileName, "")));
+    }
+    releaseAndAwait(renderScheduler, 8);
+
+    // a batch takes the GraphViz requests of its output format ahead of the syntax tree request, up to the maximum
+    // batch size
+    assertEquals("[[t1], [g1, g2, g4, g5], [g3], [t2], [g6]]", madeBatches.toString());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Test of the batch window, of class RenderScheduler.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testBatchWindow() throws Exception {
+    LOGGER.info("batchWindow");
+    batchWindowMillis = 200;
+    final RenderScheduler renderScheduler = makeRenderScheduler(1, AdmissionPolicy.REJECT, 0);
+    releaseLatch.countDown();
+    assertTrue(renderScheduler.admit(new GraphRequest(GraphRequestType.GRAPHVIZ, "g1", "")));
+    Thread.sleep(20);
+    assertTrue(renderScheduler.admit(new GraphRequest(GraphRequestType.GRAPHVIZ, "g2", "")));
+    releaseAndAwait(renderScheduler, 2);
+    assertEquals("[[g1, g2]]", madeBatches.toString());
+    renderScheduler.shutdown();
+  }
+
+  /**
+   * Makes a render scheduler with a fixed concurrency limit, room for two requests in flight in each lane, half of
+   * whose graph-making threads may run bulk requests, and whose graph maker waits for the release latch.
+   *
+   * @param threadCount the number of graph-making threads
+   * @param admissionPolicy the admission policy of the syntax tree requests
+   * @param admissionTimeoutMillis the admission timeout
+   * @return the started render scheduler
+   */
+  private RenderScheduler makeRenderScheduler(
+          final int threadCount,
+          final AdmissionPolicy admissionPolicy,
+          final long admissionTimeoutMillis) {
+    return makeRenderScheduler(
+            new AdaptiveConcurrencyLimit(
+                    threadCount, // initialLimit
+                    threadCount, // minLimit
+                    threadCount, // maxLimit
+                    1_000, // windowMillis
+                    System.nanoTime()),
+            admissionPolicy,
+            admissionTimeoutMillis);
+  }
+
+  /**
+   * Makes a render scheduler with the given concurrency limit, room for two requests in flight in each lane, half of
+   * whose concurrency limit may run bulk requests, and whose graph maker waits for the release latch.
+   *
+   * @param concurrencyLimit the given concurrency limit
+   * @param admissionPolicy the admission policy of the syntax tree requests
+   * @param admissionTimeoutMillis the admission timeout
+   * @return the started render scheduler
+   */
+  private RenderScheduler makeRenderScheduler(
+          final AdaptiveConcurrencyLimit concurrencyLimit,
+          final AdmissionPolicy admissionPolicy,
+          final long admissionTimeoutMillis) {
+    final Map<GraphRequestType, AdmissionPolicy> admissionPolicies = new EnumMap<>(GraphRequestType.class);
+    admissionPolicies.put(GraphRequestType.SYNTAX_TREE, admissionPolicy);
+    final RenderScheduler renderScheduler = new RenderScheduler(
+            "test",
+            concurrencyLimit,
+            maxInFlight,
+            0.5, // bulkShare
+            admissionPolicies,
+            admissionTimeoutMillis,
+            false, // isKillingSupersededRenders
+            4, // maxBatchSize
+            batchWindowMillis,
+            graphRequests -> {
+              try {
+                releaseLatch.await();
+              } catch (InterruptedException ex) {
+                // ignore
+              }
+              final List<GraphResult> graphResults = new ArrayList<>();
+              final List<String> batch = new ArrayList<>();
+              for (final GraphRequest graphRequest : graphRequests) {
+                batch.add(graphRequest.getFileName());
+                graphResults.add(new GraphResult(
+                        GraphResultStatus.OK,
+                        0, // exitCode
+                        graphRequest.getFileName() + ".png", // outputPath
+                        1, // byteSize
+                        "")); // message
+              }
+              madeBatches.add(batch.toString());
+              madeFileNames.addAll(batch);
+              return graphResults;
+            },
+            (graphRequest, graphResult) -> {
+              if (graphResult.getStatus() == GraphResultStatus.REJECTED) {
+                shedFileNames.add(graphRequest.getFileName());
+              } else {
+                discardedFileNames.add(graphRequest.getFileName() + " " + graphResult.getStatus());
+              }
+            });
+    renderScheduler.start();
+    return renderScheduler;
+  }
+
+  /**
+   * Makes a syntax tree graph request.
+   *
+   * @param fileName the file name
+   * @return the graph request
+   */
+  private static GraphRequest makeGraphRequest(final String fileName) {
+    return new GraphRequest(fileName, "[S [NP John] [VP runs]]");
+  }
+
+  /**
+   * Makes a bulk syntax tree graph request.
+   *
+   * @param fileName the file name
+   * @return the graph request
+   */
+  private static GraphRequest makeBulkGraphRequest(final String fileName) {
+    final GraphRequest graphRequest = makeGraphRequest(fileName);
+    graphRequest.setPriority(GraphRequest.BULK_PRIORITY);
+    return graphRequest;
+  }
+
+  /**
+   * Waits until the given render scheduler is running the given number of requests.
+   *
+   * @param renderScheduler the given render scheduler
+   * @param count the given number of requests
+   * @throws InterruptedException when interrupted
+   */
+  private static void awaitRunning(
+          final RenderScheduler renderScheduler,
+          final int count) throws InterruptedException {
+    final long deadlineMillis = System.currentTimeMillis() + 5_000;
+    while (renderScheduler.getRunningCount() < count && System.currentTimeMillis() < deadlineMillis) {
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * Releases the graph maker and waits until the given number of graphs have been made.
+   *
+   * @param renderScheduler the render scheduler
+   * @param count the given number of graphs
+   * @throws InterruptedException when interrupted
+   */
+  private void releaseAndAwait(
+          final RenderScheduler renderScheduler,
+          final int count) throws InterruptedException {
+    releaseLatch.countDown();
+    final long deadlineMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+    while ((madeFileNames.size() < count || renderScheduler.getRunningCount() > 0)
+            && System.currentTimeMillis() < deadlineMillis) {
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * RendererTest.java
+ *
+ * Created on Oct 19, 2026, 12:41:52 AM
+ *
+ * Description: Tests the discovery of the renderers.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class RendererTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RendererTest.class);
+
+  public RendererTest() {
+  }
+
+  /**
+   * Test of the renderer discovery with the ServiceLoader.
+   */
+  @Test
+  public void testServiceLoader() {
+    LOGGER.info("serviceLoader");
+    final Set<String> rendererNames = new TreeSet<>();
+    for (final Renderer renderer : ServiceLoader.load(Renderer.class)) {
+      rendererNames.add(renderer.getName());
+      assertFalse(renderer.getRequestTypes().isEmpty());
+      assertTrue(renderer.getMaxBatchSize() > 0);
+    }
+    assertEquals("[graphviz, noop, syntax-tree-java, syntax-tree-php]", rendererNames.toString());
+  }
+
+  /**
+   * Test of render method, of class NoOpRenderer.
+   */
+  @Test
+  public void testNoOpRender() {
+    LOGGER.info("noOpRender");
+    final Renderer renderer = new NoOpRenderer();
+    final List<GraphResult> graphResults = renderer.render(List.of(
+            new GraphRequest("a", "digraph a {}"),
+            new GraphRequest("b", "digraph b {}")));
+    assertEquals(2, graphResults.size());
+    for (final GraphResult graphResult : graphResults) {
+      assertEquals(GraphResultStatus.OK, graphResult.getStatus());
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * RequestJournalTest.java
+ *
+ * Created on Oct 19, 2026, 1:46:12 AM
+ *
+ * Description: Tests the memory-mapped write-ahead journal of accepted requests.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class RequestJournalTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RequestJournalTest.class);
+
+  // the temporary directory
+  private Path temporaryDirectory;
+
+  // the journal file path
+  private Path journalPath;
+
+  public RequestJournalTest() {
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    temporaryDirectory = Files.createTempDirectory("request-journal-test");
+    journalPath = temporaryDirectory.resolve("journal/requests.journal");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> stream = Files.walk(temporaryDirectory)) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Test of append, finish and open methods, of class RequestJournal.
+   *
+   * @throws IOException when the journal cannot be written
+   */
+  @Test
+  public void testReplay() throws IOException {
+    LOGGER.info("replay");
+    RequestJournal requestJournal = new RequestJournal(journalPath, 4096, 1);
+    assertTrue(requestJournal.open().isEmpty());
+    final GraphRequest graphRequest1 = makeGraphRequest("t1");
+    final GraphRequest graphRequest2 = makeGraphRequest("t2");
+    graphRequest2.setOutputFormat(GraphOutputFormat.SVG);
+    graphRequest2.setPriority(3);
+    final GraphRequest graphRequest3 = makeGraphRequest("t3");
+    requestJournal.append(graphRequest1);
+    requestJournal.append(graphRequest2);
+    requestJournal.append(graphRequest3);
+    assertEquals(1, graphRequest1.getJournalSequence());
+    assertEquals(3, graphRequest3.getJournalSequence());
+    requestJournal.finish(graphRequest1);
+    requestJournal.finish(graphRequest1);
+    requestJournal.finish(makeGraphRequest("not journaled"));
+    requestJournal.commit();
+    assertEquals(2, requestJournal.getUnfinishedCount());
+    requestJournal.close();
+
+    // the unfinished requests are replayed with their sequence numbers, and new requests follow them
+    requestJournal = new RequestJournal(journalPath, 4096, 1);
+    List<GraphRequest> unfinishedGraphRequests = requestJournal.open();
+    assertEquals("[t2, t3]", getFileNames(unfinishedGraphRequests));
+    assertEquals(2, unfinishedGraphRequests.get(0).getJournalSequence());
+    assertEquals(GraphOutputFormat.SVG, unfinishedGraphRequests.get(0).getOutputFormat());
+    assertEquals(3, unfinishedGraphRequests.get(0).getPriority());
+    assertEquals("[S [NP t3] [VP runs]]", unfinishedGraphRequests.get(1).getLabeledTree());
+    requestJournal.finish(unfinishedGraphRequests.get(0));
+    final GraphRequest graphRequest4 = makeGraphRequest("t4");
+    requestJournal.append(graphRequest4);
+    assertEquals(4, graphRequest4.getJournalSequence());
+    requestJournal.close();
+
+    requestJournal = new RequestJournal(journalPath, 4096, 1);
+    unfinishedGraphRequests = requestJournal.open();
+    assertEquals("[t3, t4]", getFileNames(unfinishedGraphRequests));
+    requestJournal.close();
+  }
+
+  /**
+   * Test of the replay of the journal, which has no requests that were answered to a result consumer.
+   *
+   * @throws IOException when the journal cannot be written
+   */
+  @Test
+  public void testReplayWithoutResultConsumers() throws IOException {
+    LOGGER.info("replayWithoutResultConsumers");
+    RequestJournal requestJournal = new RequestJournal(journalPath, 4096, 1);
+    assertTrue(requestJournal.open().isEmpty());
+    final GraphRequest graphRequest1 = makeGraphRequest("t1");
+    final GraphRequest graphRequest2 = makeGraphRequest("t2");
+    graphRequest2.setResultConsumer(graphResult -> {
+    });
+    final GraphRequest graphRequest3 = makeGraphRequest("t3");
+    graphRequest3.setInline(true);
+    graphRequest3.setResultConsumer(graphResult -> {
+    });
+    requestJournal.append(graphRequest1);
+    requestJournal.append(graphRequest2);
+    requestJournal.append(graphRequest3);
+    assertEquals(1, graphRequest1.getJournalSequence());
+    assertEquals(0, graphRequest2.getJournalSequence());
+    assertEquals(0, graphRequest3.getJournalSequence());
+    requestJournal.finish(graphRequest2);
+    requestJournal.commit();
+    assertEquals(1, requestJournal.getUnfinishedCount());
+    requestJournal.close();
+
+    // only the request whose client polls for its graph file is replayed
+    requestJournal = new RequestJournal(journalPath, 4096, 1);
+    final List<GraphRequest> unfinishedGraphRequests = requestJournal.open();
+    assertEquals("[t1]", getFileNames(unfinishedGraphRequests));
+    assertNull(unfinishedGraphRequests.get(0).getResultConsumer());
+    requestJournal.close();
+  }
+
+  /**
+   * Test of the recovery from a torn record at the end of the journal.
+   *
+   * @throws IOException when the journal cannot be written
+   */
+  @Test
+  public void testTornRecord() throws IOException {
+    LOGGER.info("tornRecord");
+    final RequestJournal requestJournal = new RequestJournal(journalPath, 4096, 1);
+    requestJournal.open();
+    requestJournal.append(makeGraphRequest("t1"));
+    requestJournal.append(makeGraphRequest("t2"));
+    requestJournal.close();
+
+    // corrupt the last byte of the second record, as though the crash came while it was being written
+    final byte[] journalBytes = Files.readAllBytes(journalPath);
+    int lastRecordEnd = 0;
+    for (int i = journalBytes.length - 1; i >= 0; i--) {
+      if (journalBytes[i] != 0) {
+        lastRecordEnd = i;
+        break;
+      }
+    }
+    try (FileChannel fileChannel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+      fileChannel.write(ByteBuffer.wrap(new byte[]{(byte) (journalBytes[lastRecordEnd] + 1)}), lastRecordEnd);
+    }
+    final RequestJournal recoveredRequestJournal = new RequestJournal(journalPath, 4096, 1);
+    assertEquals("[t1]", getFileNames(recoveredRequestJournal.open()));
+    recoveredRequestJournal.close();
+  }
+
+  /**
+   * Test of the compaction of a full journal.
+   *
+   * @throws IOException when the journal cannot be written
+   */
+  @Test
+  public void testCompaction() throws IOException {
+    LOGGER.info("compaction");
+    RequestJournal requestJournal = new RequestJournal(journalPath, 512, 1);
+    requestJournal.open();
+    final List<GraphRequest> unfinishedGraphRequests = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      final GraphRequest graphRequest = makeGraphRequest("t" + i);
+      requestJournal.append(graphRequest);
+      if (i % 100 == 0) {
+        unfinishedGraphRequests.add(graphRequest);
+      } else {
+        requestJournal.finish(graphRequest);
+      }
+    }
+    assertEquals(10, requestJournal.getUnfinishedCount());
+    // the journal grows only until the unfinished requests fit in half of it
+    assertTrue(Files.size(journalPath) < 4096);
+    requestJournal.finish(unfinishedGraphRequests.get(0));
+    requestJournal.close();
+
+    requestJournal = new RequestJournal(journalPath, 512, 1);
+    assertEquals("[t100, t200, t300, t400, t500, t600, t700, t800, t900]", getFileNames(requestJournal.open()));
+    requestJournal.close();
+  }
+
+  /**
+   * Makes a syntax tree request for the given file name.
+   *
+   * @param fileName the given file name
+   * @return the syntax tree request
+   */
+  private static GraphRequest makeGraphRequest(final String fileName) {
+    return new GraphRequest(GraphRequestType.SYNTAX_TREE, fileName, "[S [NP " + fileName + "] [VP runs]]");
+  }
+
+  /**
+   * Gets the file names of the given requests.
+   *
+   * @param graphRequests the given requests
+   * @return the file names
+   */
+  private static String getFileNames(final List<GraphRequest> graphRequests) {
+    final List<String> fileNames = new ArrayList<>();
+    graphRequests.forEach(graphRequest -> fileNames.add(graphRequest.getFileName()));
+    return fileNames.toString();
+  }
+}
@@ -0,0 +1,362 @@
+/*
+ * RequestServerTest.java
+ *
+ * Created on Oct 19, 2026, 10:41:08 AM
+ *
+ * Description: Tests the selector-based request server over a loopback TCP connection.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class RequestServerTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(RequestServerTest.class);
+
+  // the number of milliseconds to wait for the server to publish a request or to write an acknowledgement
+  private static final long TIMEOUT_MILLIS = 5_000;
+
+  // the number of milliseconds after which the server is deemed to have stopped reading
+  private static final long QUIET_MILLIS = 300;
+
+  // the graph requests published by the server
+  private final BlockingQueue<GraphRequest> publishedRequests = new LinkedBlockingQueue<>();
+
+  // the request server under test
+  private RequestServer requestServer;
+
+  // the request server thread
+  private Thread requestServerThread;
+
+  public RequestServerTest() {
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    if (requestServer != null) {
+      requestServer.close();
+      requestServerThread.join(TIMEOUT_MILLIS);
+    }
+  }
+
+  /**
+   * Test of the decoding of requests that arrive in pieces, or several in one segment, of class RequestServer.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testPartialRead() throws Exception {
+    LOGGER.info("partial read");
+    startRequestServer(1024);
+    try (SocketChannel socketChannel = connect()) {
+      final byte[] frame1 = GraphRequestCodec.encode(makeGraphRequest(1));
+      final byte[] frame2 = GraphRequestCodec.encode(makeGraphRequest(2));
+
+      // the first frame is split inside its fixed prefix, and its second part arrives with the whole second frame
+      socketChannel.write(ByteBuffer.wrap(frame1, 0, 3));
+      Thread.sleep(100);
+      socketChannel.write(ByteBuffer.wrap(frame1, 3, frame1.length - 5));
+      assertNull(publishedRequests.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+      final ByteBuffer rest = ByteBuffer.allocate(2 + frame2.length);
+      rest.put(frame1, frame1.length - 2, 2).put(frame2).flip();
+      socketChannel.write(rest);
+
+      final GraphRequest graphRequest1 = takePublishedRequest();
+      final GraphRequest graphRequest2 = takePublishedRequest();
+      assertEquals(1, graphRequest1.getRequestId());
+      assertEquals("graphs/g1", graphRequest1.getFileName());
+      assertEquals(2, graphRequest2.getRequestId());
+      complete(graphRequest2);
+      complete(graphRequest1);
+      assertEquals(2, readGraphResult(socketChannel).getRequestId());
+      assertEquals(1, readGraphResult(socketChannel).getRequestId());
+    }
+  }
+
+  /**
+   * Test of the writing of a large acknowledgement to a client that reads it late, of class RequestServer.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testPartialWrite() throws Exception {
+    LOGGER.info("partial write");
+    startRequestServer(1024);
+    try (SocketChannel socketChannel = connect()) {
+      socketChannel.write(ByteBuffer.wrap(GraphRequestCodec.encode(makeGraphRequest(1))));
+      socketChannel.write(ByteBuffer.wrap(GraphRequestCodec.encode(makeGraphRequest(2))));
+
+      // the image is far larger than the socket buffers, so the server writes it over many selections
+      final byte[] imageBytes = new byte[8 * 1024 * 1024];
+      for (int i = 0; i < imageBytes.length; i++) {
+        imageBytes[i] = (byte) i;
+      }
+      completeInline(takePublishedRequest(), imageBytes);
+      complete(takePublishedRequest());
+      Thread.sleep(QUIET_MILLIS);
+
+      final GraphResult graphResult1 = readGraphResult(socketChannel);
+      assertEquals(1, graphResult1.getRequestId());
+      assertEquals(1, graphResult1.getInlineImages().size());
+      assertTrue(Arrays.equals(imageBytes, graphResult1.getInlineImages().get(0).getBytes()));
+      // the acknowledgement queued behind the large one follows it intact
+      assertEquals(2, readGraphResult(socketChannel).getRequestId());
+    }
+  }
+
+  /**
+   * Test of the read backpressure of a connection whose acknowledgements are pending, of class RequestServer.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testBackpressure() throws Exception {
+    LOGGER.info("backpressure");
+    startRequestServer(4);
+    try (SocketChannel socketChannel = connect()) {
+      final GraphRequest[] graphRequests = new GraphRequest[20];
+      for (int i = 1; i <= 4; i++) {
+        socketChannel.write(ByteBuffer.wrap(GraphRequestCodec.encode(makeGraphRequest(i))));
+        graphRequests[i - 1] = takePublishedRequest();
+      }
+
+      // the connection is no longer read once it has 4 pending acknowledgements
+      for (int i = 5; i <= 20; i++) {
+        socketChannel.write(ByteBuffer.wrap(GraphRequestCodec.encode(makeGraphRequest(i))));
+      }
+      assertNull(publishedRequests.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+      assertEquals(1, requestServer.getReadPauseCount());
+
+      // nor above the low-water mark of 2 pending acknowledgements
+      complete(graphRequests[0]);
+      assertEquals(1, readGraphResult(socketChannel).getRequestId());
+      assertNull(publishedRequests.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+
+      // the connection is read again at the low-water mark
+      complete(graphRequests[1]);
+      assertEquals(2, readGraphResult(socketChannel).getRequestId());
+      for (int i = 5; i <= 20; i++) {
+        graphRequests[i - 1] = takePublishedRequest();
+        assertEquals(i, graphRequests[i - 1].getRequestId());
+      }
+      for (int i = 3; i <= 20; i++) {
+        complete(graphRequests[i - 1]);
+        assertEquals(i, readGraphResult(socketChannel).getRequestId());
+      }
+    }
+  }
+
+  /**
+   * Test of close method, of class RequestServer, for a server that lingers until its acknowledgements are written.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testLinger() throws Exception {
+    LOGGER.info("linger");
+    startRequestServer(1024);
+    try (SocketChannel socketChannel = connect()) {
+      socketChannel.write(ByteBuffer.wrap(GraphRequestCodec.encode(makeGraphRequest(1))));
+      final byte[] imageBytes = new byte[4 * 1024 * 1024];
+      completeInline(takePublishedRequest(), imageBytes);
+      Thread.sleep(QUIET_MILLIS);
+
+      // the acknowledgement is still being written when the server is closed
+      requestServer.close(TIMEOUT_MILLIS);
+      final GraphResult graphResult = readGraphResult(socketChannel);
+      assertEquals(1, graphResult.getRequestId());
+      assertEquals(imageBytes.length, graphResult.getInlineImages().get(0).getByteSize());
+      requestServerThread.join(TIMEOUT_MILLIS);
+      assertFalse(requestServerThread.isAlive());
+      assertEquals(-1, socketChannel.read(ByteBuffer.allocate(1)));
+    }
+  }
+
+  /**
+   * Test of the closing of a connection whose client shuts down its output, or goes away, of class RequestServer.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testClose() throws Exception {
+    LOGGER.info("close");
+    startRequestServer(1024);
+
+    // a connection whose client has shut down its output stays open until its acknowledgements are written
+    try (SocketChannel socketChannel = connect()) {
+      socketChannel.write(ByteBuffer.wrap(GraphRequestCodec.encode(makeGraphRequest(1))));
+      socketChannel.shutdownOutput();
+      final GraphRequest graphRequest = takePublishedRequest();
+      Thread.sleep(QUIET_MILLIS);
+      complete(graphRequest);
+      assertEquals(1, readGraphResult(socketChannel).getRequestId());
+      assertEquals(-1, socketChannel.read(ByteBuffer.allocate(1)));
+    }
+
+    // the acknowledgement of a client that has gone away is discarded
+    final GraphRequest graphRequest;
+    try (SocketChannel socketChannel = connect()) {
+      socketChannel.write(ByteBuffer.wrap(GraphRequestCodec.encode(makeGraphRequest(2))));
+      graphRequest = takePublishedRequest();
+    }
+    Thread.sleep(QUIET_MILLIS);
+    completeInline(graphRequest, new byte[1024 * 1024]);
+
+    // the server still answers a ping on a new connection
+    try (SocketChannel socketChannel = connect()) {
+      final GraphRequest pingRequest = new GraphRequest(GraphRequestType.PING, "ping", "");
+      pingRequest.setRequestId(3);
+      socketChannel.write(ByteBuffer.wrap(GraphRequestCodec.encode(pingRequest)));
+      final GraphResult graphResult = readGraphResult(socketChannel);
+      assertEquals(3, graphResult.getRequestId());
+      assertEquals("ready", graphResult.getMessage());
+    }
+    assertTrue(requestServerThread.isAlive());
+  }
+
+  /**
+   * Binds and runs a request server on an ephemeral port.
+   *
+   * @param maxPendingAcknowledgements the maximum number of pending acknowledgements of a connection
+   * @throws IOException when the server cannot be bound
+   */
+  private void startRequestServer(final int maxPendingAcknowledgements) throws IOException {
+    requestServer = new RequestServer(
+            publishedRequests::add,
+            0, // port
+            null, // unixSocketPath
+            maxPendingAcknowledgements);
+    requestServer.bind();
+    requestServerThread = new Thread(requestServer, "request-server");
+    requestServerThread.start();
+  }
+
+  /**
+   * Connects a blocking client to the request server.
+   *
+   * @return the client socket channel
+   * @throws IOException when the client cannot connect
+   */
+  private SocketChannel connect() throws IOException {
+    final SocketChannel socketChannel = SocketChannel.open(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), requestServer.getPort()));
+    socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    return socketChannel;
+  }
+
+  /**
+   * Makes a GraphViz request having the given request id.
+   *
+   * @param requestId the given request id
+   * @return the graph request
+   */
+  private static GraphRequest makeGraphRequest(final long requestId) {
+    final GraphRequest graphRequest = new GraphRequest(GraphRequestType.GRAPHVIZ, "graphs/g" + requestId, "");
+    graphRequest.setRequestId(requestId);
+    return graphRequest;
+  }
+
+  /**
+   * Takes the next graph request published by the server.
+   *
+   * @return the graph request
+   * @throws InterruptedException when the test is interrupted
+   */
+  private GraphRequest takePublishedRequest() throws InterruptedException {
+    final GraphRequest graphRequest = publishedRequests.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    assertNotNull("no request was published", graphRequest);
+    return graphRequest;
+  }
+
+  /**
+   * Completes the given graph request, as a graph-making thread does.
+   *
+   * @param graphRequest the given graph request
+   */
+  private static void complete(final GraphRequest graphRequest) {
+    final GraphResult graphResult = new GraphResult(
+            GraphResultStatus.OK,
+            0, // exitCode
+            graphRequest.getFileName() + ".png",
+            0, // byteSize
+            ""); // message
+    graphResult.setRequestId(graphRequest.getRequestId());
+    graphRequest.getResultConsumer().accept(graphResult);
+  }
+
+  /**
+   * Completes the given graph request with an inline PNG image.
+   *
+   * @param graphRequest the given graph request
+   * @param imageBytes the image bytes
+   */
+  private static void completeInline(
+          final GraphRequest graphRequest,
+          final byte[] imageBytes) {
+    final GraphResult graphResult = new GraphResult(
+            GraphResultStatus.OK,
+            0, // exitCode
+            "", // outputPath
+            imageBytes.length,
+            ""); // message
+    graphResult.setRequestId(graphRequest.getRequestId());
+    graphResult.addInlineImage(new InlineImage(GraphOutputFormat.PNG, imageBytes));
+    graphRequest.getResultConsumer().accept(graphResult);
+  }
+
+  /**
+   * Reads the next completion acknowledgement from the given client socket channel.
+   *
+   * @param socketChannel the given client socket channel
+   * @return the graph result
+   * @throws IOException when the acknowledgement cannot be read
+   */
+  private static GraphResult readGraphResult(final SocketChannel socketChannel) throws IOException {
+    final ByteBuffer prefix = ByteBuffer.allocate(GraphRequestCodec.PREFIX_LENGTH);
+    readFully(socketChannel, prefix);
+    final int frameLength = GraphRequestCodec.decodeFrameLength(prefix);
+    final ByteBuffer frame = ByteBuffer.allocate(GraphRequestCodec.PREFIX_LENGTH + frameLength);
+    frame.put(prefix);
+    readFully(socketChannel, frame);
+    return GraphResultCodec.decode(frame);
+  }
+
+  /**
+   * Reads from the given client socket channel until the given buffer is full, and flips the buffer.
+   *
+   * @param socketChannel the given client socket channel
+   * @param byteBuffer the given buffer
+   * @throws IOException when the connection is closed early
+   */
+  private static void readFully(
+          final SocketChannel socketChannel,
+          final ByteBuffer byteBuffer) throws IOException {
+    while (byteBuffer.hasRemaining()) {
+      if (socketChannel.read(byteBuffer) < 0) {
+        throw new IOException("connection closed");
+      }
+    }
+    byteBuffer.flip();
+  }
+}
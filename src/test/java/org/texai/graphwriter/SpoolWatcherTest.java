@@ -0,0 +1,210 @@
+/*
+ * SpoolWatcherTest.java
+ *
+ * Created on Oct 19, 2026, 5:51:37 AM
+ *
+ * Description: Tests the claiming of spool directory files as graph requests.
+ *
+ * Copyright (C) Oct 19, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class SpoolWatcherTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(SpoolWatcherTest.class);
+
+  // the spool directory
+  private Path spoolDirectory;
+
+  // the claimed subdirectory of the spool directory
+  private Path claimedDirectory;
+
+  // the deferred subdirectory of the spool directory
+  private Path deferredDirectory;
+
+  // the published graph requests
+  private final BlockingQueue<GraphRequest> publishedGraphRequests = new LinkedBlockingQueue<>();
+
+  public SpoolWatcherTest() {
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    spoolDirectory = Files.createTempDirectory("spool-watcher-test");
+    claimedDirectory = spoolDirectory.resolve(SpoolWatcher.CLAIMED_DIRECTORY_NAME);
+    deferredDirectory = spoolDirectory.resolve(SpoolWatcher.DEFERRED_DIRECTORY_NAME);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> stream = Files.walk(spoolDirectory)) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Test of the startup sweep and the watching of the spool directory, of class SpoolWatcher.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testSweepAndWatch() throws Exception {
+    LOGGER.info("sweepAndWatch");
+    Files.writeString(spoolDirectory.resolve("d1.dot"), "digraph { a -> b }");
+    Files.writeString(spoolDirectory.resolve("t1.tree"), "[S [NP John] [VP runs]]\n");
+    Files.writeString(spoolDirectory.resolve("ignored.txt"), "");
+    final SpoolWatcher spoolWatcher = new SpoolWatcher(Collections.singletonList(spoolDirectory), 10, publishedGraphRequests::add);
+    spoolWatcher.start();
+
+    // the existing files are claimed by the startup sweep, in either order
+    final GraphRequest graphRequest1 = takeGraphRequest();
+    final GraphRequest graphRequest2 = takeGraphRequest();
+    final GraphRequest dotGraphRequest = graphRequest1.getRequestType() == GraphRequestType.GRAPHVIZ ? graphRequest1 : graphRequest2;
+    final GraphRequest treeGraphRequest = dotGraphRequest == graphRequest1 ? graphRequest2 : graphRequest1;
+    assertEquals(claimedDirectory.resolve("d1").toAbsolutePath().toString(), dotGraphRequest.getFileName());
+    assertTrue(dotGraphRequest.isBulk());
+    assertEquals(GraphRequestType.SYNTAX_TREE, treeGraphRequest.getRequestType());
+    assertEquals("[S [NP John] [VP runs]]", treeGraphRequest.getLabeledTree());
+    assertTrue(Files.exists(claimedDirectory.resolve("d1.dot")));
+    assertFalse(Files.exists(spoolDirectory.resolve("t1.tree")));
+    assertTrue(Files.exists(spoolDirectory.resolve("ignored.txt")));
+
+    // a written labeled tree file is deleted once its graph is written
+    treeGraphRequest.getResultConsumer().accept(makeGraphResult(GraphResultStatus.OK));
+    assertFalse(Files.exists(claimedDirectory.resolve("t1.tree")));
+
+    // a file renamed into the spool directory is claimed when it is watched
+    Files.writeString(spoolDirectory.resolve("t2.tree.tmp"), "[S [NP Mary] [VP runs]]");
+    Files.move(spoolDirectory.resolve("t2.tree.tmp"), spoolDirectory.resolve("t2.tree"), StandardCopyOption.ATOMIC_MOVE);
+    final GraphRequest graphRequest3 = takeGraphRequest();
+    assertEquals(claimedDirectory.resolve("t2").toAbsolutePath().toString(), graphRequest3.getFileName());
+
+    // a rejected file is deferred, and claimed again after the retry backoff
+    graphRequest3.getResultConsumer().accept(makeGraphResult(GraphResultStatus.REJECTED));
+    assertTrue(Files.exists(deferredDirectory.resolve("t2.tree")));
+    assertEquals(graphRequest3.getFileName(), takeGraphRequest().getFileName());
+    assertFalse(Files.exists(deferredDirectory.resolve("t2.tree")));
+    spoolWatcher.close();
+    assertEquals(4, spoolWatcher.getClaimedCount());
+    assertEquals(1, spoolWatcher.getCompletedCount());
+    assertEquals(1, spoolWatcher.getDeferredCount());
+  }
+
+  /**
+   * Test of the limit of claimed files in flight, of class SpoolWatcher.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testMaxInFlight() throws Exception {
+    LOGGER.info("maxInFlight");
+    for (int i = 0; i < 3; i++) {
+      Files.writeString(spoolDirectory.resolve("d" + i + ".dot"), "digraph { a -> b }");
+    }
+    final SpoolWatcher spoolWatcher = new SpoolWatcher(Collections.singletonList(spoolDirectory), 2, publishedGraphRequests::add);
+    spoolWatcher.start();
+    final GraphRequest graphRequest = takeGraphRequest();
+    takeGraphRequest();
+    assertNull(publishedGraphRequests.poll(300, TimeUnit.MILLISECONDS));
+
+    // a completed file makes room for the file left unclaimed
+    graphRequest.getResultConsumer().accept(makeGraphResult(GraphResultStatus.OK));
+    takeGraphRequest();
+    spoolWatcher.close();
+    assertEquals(3, spoolWatcher.getClaimedCount());
+    try (Stream<Path> stream = Files.list(claimedDirectory)) {
+      assertEquals(3, stream.count());
+    }
+  }
+
+  /**
+   * Test of the retry backoff of the rejected files, of class SpoolWatcher, with a scheduler that rejects every request
+   * until it recovers.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testRejectedRetryBackoff() throws Exception {
+    LOGGER.info("rejectedRetryBackoff");
+    final AtomicBoolean isRejecting = new AtomicBoolean(true);
+    final AtomicInteger rejectedCount = new AtomicInteger();
+    final SpoolWatcher spoolWatcher = new SpoolWatcher(Collections.singletonList(spoolDirectory), 10, graphRequest -> {
+      if (isRejecting.get()) {
+        // rejected at once, as by the request server thread
+        rejectedCount.incrementAndGet();
+        graphRequest.getResultConsumer().accept(makeGraphResult(GraphResultStatus.REJECTED));
+      } else {
+        publishedGraphRequests.add(graphRequest);
+      }
+    });
+    spoolWatcher.start();
+    Files.writeString(spoolDirectory.resolve("d1.dot"), "digraph { a -> b }");
+
+    // the rejected file is retried after 250, 500 and 1000 milliseconds, rather than claimed again by its own move
+    Thread.sleep(1_500);
+    assertTrue(rejectedCount.get() >= 2);
+    assertTrue(rejectedCount.get() <= 4);
+    assertTrue(Files.exists(deferredDirectory.resolve("d1.dot")));
+    assertFalse(Files.exists(spoolDirectory.resolve("d1.dot")));
+
+    // the deferred file is claimed by a retry once the scheduler recovers
+    isRejecting.set(false);
+    final GraphRequest graphRequest = publishedGraphRequests.poll(SpoolWatcher.MAX_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+    assertNotNull(graphRequest);
+    assertEquals(claimedDirectory.resolve("d1").toAbsolutePath().toString(), graphRequest.getFileName());
+    assertTrue(Files.exists(claimedDirectory.resolve("d1.dot")));
+    spoolWatcher.close();
+    assertEquals(rejectedCount.get(), spoolWatcher.getDeferredCount());
+  }
+
+  /**
+   * Takes the next published graph request, waiting for up to five seconds.
+   *
+   * @return the next published graph request
+   * @throws InterruptedException when the test thread is interrupted
+   */
+  private GraphRequest takeGraphRequest() throws InterruptedException {
+    final GraphRequest graphRequest = publishedGraphRequests.poll(5, TimeUnit.SECONDS);
+    assertNotNull(graphRequest);
+    return graphRequest;
+  }
+
+  /**
+   * Makes a graph result having the given status.
+   *
+   * @param status the given status
+   * @return the graph result
+   */
+  private static GraphResult makeGraphResult(final GraphResultStatus status) {
+    return new GraphResult(
+            status,
+            0, // exitCode
+            "", // outputPath
+            0, // byteSize
+            ""); // message
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * SyntaxTreeParserTest.java
+ *
+ * Created on Oct 18, 2026, 10:31:02 AM
+ *
+ * Description: Tests the Java port of the phpsyntaxtree parser and tree graph.
+ *
+ * Copyright (C) Oct 18, 2026, Texai.org.
+ *
+ */
+package org.texai.graphwriter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author reed
+ */
+public class SyntaxTreeParserTest {
+
+  // the logger
+  private static final Logger LOGGER = Logger.getLogger(SyntaxTreeParserTest.class);
+
+  public SyntaxTreeParserTest() {
+  }
+
+  /**
+   * Test of validate method, of class SyntaxTreeParser.
+   */
+  @Test
+  public void testValidate() {
+    LOGGER.info("validate");
+    assertTrue(new SyntaxTreeParser("[S [NP John] [VP runs]]").validate());
+    assertFalse(new SyntaxTreeParser("[S [NP John] [VP runs]").validate());
+    assertFalse(new SyntaxTreeParser("[S [NP John]] [VP runs]]").validate());
+    assertFalse(new SyntaxTreeParser("").validate());
+  }
+
+  /**
+   * Test of parse method, of class SyntaxTreeParser.
+   */
+  @Test
+  public void testParse() {
+    LOGGER.info("parse");
+    final SyntaxTreeParser syntaxTreeParser = new SyntaxTreeParser("[S [NP John] [VP [V runs] fast]]");
+    final SyntaxTreeElementList elementList = syntaxTreeParser.parse();
+    final List<SyntaxTreeElement> elements = elementList.getElements();
+    assertEquals(
+            "[[SyntaxTreeElement 1 NODE S], "
+            + "[SyntaxTreeElement 2 NODE NP], "
+            + "[SyntaxTreeElement 3 LEAF John], "
+            + "[SyntaxTreeElement 4 NODE VP], "
+            + "[SyntaxTreeElement 5 NODE V], "
+            + "[SyntaxTreeElement 6 LEAF runs], "
+            + "[SyntaxTreeElement 7 LEAF fast]]",
+            elements.toString());
+    assertEquals(0, elements.get(0).getLevel());
+    assertEquals(1, elements.get(1).getLevel());
+    assertEquals(2, elements.get(2).getLevel());
+    assertEquals(3, elements.get(5).getLevel());
+    assertEquals(2, elements.get(6).getLevel());
+    assertEquals(4, elementList.getLevelHeight());
+    assertEquals("[2, 4]", elementList.getChildren(1).toString());
+    assertEquals(4, elements.get(6).getParent());
+  }
+
+  /**
+   * Test of save method, of class SyntaxTreeGraph.
+   *
+   * @throws java.lang.Exception the thrown exception
+   */
+  @Test
+  public void testSave() throws Exception {
+    LOGGER.info("save");
+    System.setProperty("java.awt.headless", "true");
+    final SyntaxTreeGraph syntaxTreeGraph = new SyntaxTreeGraph(
+            new SyntaxTreeParser("[S [NP John] [VP runs_1]]").parse(),
+            true, // isColor
+            true, // isAntialias
+            false, // isTriangles
+            "phpsyntaxtree/ttf/Vera.ttf", // fontPath
+            14); // fontSize
+    final File file = File.createTempFile("graph-writer-test", ".png");
+    try {
+      syntaxTreeGraph.save(file);
+      final BufferedImage image = ImageIO.read(file);
+      assertNotNull(image);
+      assertEquals(syntaxTreeGraph.getWidth(), image.getWidth());
+      assertEquals(syntaxTreeGraph.getHeight(), image.getHeight());
+      // three levels of 24 pixel rows, separated by 24 pixels, with 5 pixel borders
+      assertEquals(130, image.getHeight());
+    } finally {
+      Files.deleteIfExists(file.toPath());
+    }
+  }
+
+  /**
+   * Test of drawSVG method, of class SyntaxTreeGraph.
+   */
+  @Test
+  public void testDrawSVG() {
+    LOGGER.info("drawSVG");
+    final SyntaxTreeGraph syntaxTreeGraph = new SyntaxTreeGraph(
+            new SyntaxTreeParser("[S [NP John] [VP <runs>_1 & walks]]").parse(),
+            true, // isColor
+            true, // isAntialias
+            false, // isTriangles
+            "phpsyntaxtree/ttf/Vera.ttf", // fontPath
+            14); // fontSize
+    final String svg = syntaxTreeGraph.drawSVG();
+    assertTrue(svg.startsWith("<?xml"));
+    assertTrue(svg.contains("width=\"" + syntaxTreeGraph.getWidth() + "\" height=\"130\""));
+    assertTrue(svg.endsWith("</svg>\n"));
+    // one text element for each main text and one for the subscript, and one line from each child to its parent
+    assertEquals(6, svg.split("<text ", -1).length - 1);
+    assertEquals(4, svg.split("<line ", -1).length - 1);
+    assertTrue(svg.contains(">runs</text>"));
+    assertTrue(svg.contains(">1 &amp; walks</text>"));
+    assertEquals(svg, syntaxTreeGraph.drawSVG());
+  }
+
+}